@@ -2,14 +2,18 @@ package org.antlr.works;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import org.antlr.v4.Tool;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.grammar.BatchCheckGrammar;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.engine.GrammarEngineDelegate;
 import org.antlr.works.grammar.engine.GrammarEngineImpl;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
 import org.antlr.works.utils.ConsoleHelper;
+import org.antlr.works.visualization.SDBatchExportDelegate;
+import org.antlr.works.visualization.SDBatchExporter;
 import org.antlr.works.visualization.SDGenerator;
 import org.antlr.works.visualization.serializable.SEncoder;
 import org.antlr.works.visualization.serializable.SXMLEncoder;
@@ -47,9 +51,12 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 public class Console {
    private String file;
+   private String checkDirectory;
+   private String reportFile;
    private String outputDirectory;
    private String outputFile;
    private boolean verbose;
+   private int threads = Runtime.getRuntime().availableProcessors();
 
    public static void main(String[] args) throws Exception {
       if (args.length == 0) {
@@ -58,16 +65,27 @@ public class Console {
       }
       System.setProperty("java.awt.headless", "true");
       Console c = new Console();
-      c.process(args);
+      try {
+         if (!c.process(args)) {
+            System.exit(1);
+         }
+      } catch (UsageException e) {
+         System.err.println(e.getMessage());
+         printUsage();
+         System.exit(1);
+      }
    }
 
    private static void printUsage() {
       StringBuilder sb = new StringBuilder();
       sb.append("Usage: java -cp antlrworks.jar org.antlr.works.Console [args]\n");
       sb.append(" -f grammarFile : ").append("specify the input grammar file (*.g)\n");
-      sb.append(" -sd format : ").append("specify the format of the syntax diagram output file. For EPS, use 'eps'. For bitmap, use either 'png' or any available extensions\n");
+      sb.append(" -check grammarDir : ").append("check all the grammar files (*.g) of the directory and print a JSON report. Exits with 1 if any grammar has an error\n");
+      sb.append(" -report reportFile : ").append("write the JSON report of -check to the file instead of the standard output\n");
+      sb.append(" -sd format : ").append("specify the format of the syntax diagram output file. For EPS, use 'eps'. For SVG, use 'svg'. For bitmap, use either 'png' or any available extensions\n");
       sb.append(" -serialize outputFile : ").append("serialize all the syntax diagram of the specified files");
       sb.append(" -o outputDir : ").append("specify the output directory\n");
+      sb.append(" -threads count : ").append("specify the number of syntax diagrams generated or grammars checked in parallel (default is the number of processors)\n");
       sb.append(" -verbose : ").append("prints the operations\n");
       System.out.println(sb.toString());
    }
@@ -76,8 +94,11 @@ public class Console {
       ConsoleHelper.setCurrent(new ConsoleConsole());
    }
 
-   private void process(String args[]) throws Exception {
+   private boolean process(String args[]) throws Exception {
       readArguments(args);
+      if (checkDirectory != null) {
+         return checkGrammars();
+      }
       String sdFormat = getArgumentValue(args, "-sd");
       if (sdFormat != null) {
          if (verbose)
@@ -89,9 +110,36 @@ public class Console {
             System.out.println("Serializing syntax diagram ");
          serializeSyntaxDiagrams();
       }
+      return true;
    }
 
-   private void readArguments(String args[]) {
+   private void readArguments(String args[]) throws UsageException {
+      if (hasArgument(args, "-threads")) {
+         String t = getRequiredArgumentValue(args, "-threads", "Thread count");
+         try {
+            threads = Integer.parseInt(t);
+         } catch (NumberFormatException e) {
+            threads = 0;
+         }
+         if (threads < 1) {
+            throw new UsageException("Invalid thread count (-threads): " + t);
+         }
+      }
+      String v = getArgumentValue(args, "-verbose");
+      if (v != null) {
+         verbose = true;
+      }
+      if (hasArgument(args, "-check")) {
+         checkDirectory = getRequiredArgumentValue(args, "-check", "Grammar directory");
+         if (!new File(checkDirectory).isDirectory()) {
+            throw new UsageException("Grammar directory not found (-check): " + checkDirectory);
+         }
+         checkDirectory = new File(checkDirectory).getAbsolutePath();
+         if (hasArgument(args, "-report")) {
+            reportFile = getRequiredArgumentValue(args, "-report", "Report file");
+         }
+         return;
+      }
       file = getArgumentValue(args, "-f");
       if (file == null) {
          System.err.println("File not specified (-f)");
@@ -108,26 +156,81 @@ public class Console {
          System.err.println("Output file not specified (-serialize)");
          return;
       }
-      String v = getArgumentValue(args, "-verbose");
-      if (v != null) {
-         verbose = true;
+   }
+
+   /**
+    * Checks all the grammars of the check directory and writes the JSON report.
+    *
+    * @return false if any grammar has an error or if the directory has no grammar
+    */
+   private boolean checkGrammars() throws Exception {
+      List<String> files = BatchCheckGrammar.findGrammarFiles(checkDirectory);
+      if (files.isEmpty()) {
+         System.err.println("No grammar file (*.g) found in " + checkDirectory);
+         return false;
+      }
+      if (verbose)
+         System.err.println("Checking " + files.size() + " grammar(s) in " + checkDirectory);
+      BatchCheckGrammar checker = new BatchCheckGrammar(files);
+      checker.setThreads(threads);
+      List<BatchCheckGrammar.Report> reports = checker.check();
+      boolean success = true;
+      for (BatchCheckGrammar.Report report : reports) {
+         if (report.hasErrors()) {
+            success = false;
+         }
+         if (verbose)
+            System.err.println((report.hasErrors() ? "FAILED " : "OK ") + report.file + " ("
+                  + (report.parseTime + report.analyzeTime) / 1000000 + " ms)");
       }
+      String json = BatchCheckGrammar.toJSON(reports);
+      if (reportFile == null) {
+         System.out.print(json);
+      } else {
+         XJUtils.writeStringToFile(json, reportFile);
+      }
+      return success;
    }
 
    private void generateSyntaxDiagrams(String format) throws Exception {
-      processSyntaxDiagram(new GeneratePSDDelegate(format));
+      GrammarEngine engine = createEngine();
+      if (verbose)
+         System.out.println("Begin");
+      SDBatchExporter exporter = new SDBatchExporter(engine);
+      exporter.setThreads(threads);
+      List<String> failures = exporter.export(engine.getRuleNames(), format, outputDirectory, new SDBatchExportDelegate() {
+         @Override
+         public void batchExportProgress(String rule, int exported, int total) {
+            if (verbose)
+               System.out.println("Generate rule " + rule + " (" + exported + "/" + total + ")");
+         }
+      });
+      if (verbose)
+         System.out.println("Done");
+      if (!failures.isEmpty()) {
+         StringBuilder sb = new StringBuilder("Cannot generate the syntax diagram of " + failures.size() + " rule(s):");
+         for (String failure : failures) {
+            sb.append("\n ").append(failure);
+         }
+         throw new Exception(sb.toString());
+      }
    }
 
    private void serializeSyntaxDiagrams() throws Exception {
       processSyntaxDiagram(new SerializePSDDelegate());
    }
 
-   private void processSyntaxDiagram(ProcessSyntaxDiagramDelegate delegate) throws Exception {
+   private GrammarEngine createEngine() throws Exception {
       GrammarEngine engine = new GrammarEngineImpl(new EngineDelegate());
       GrammarSyntaxEngine syntaxEngine = engine.getSyntaxEngine();
       syntaxEngine.setDelegate(new SyntaxDelegate());
       syntaxEngine.processSyntax();
       engine.parserCompleted();
+      return engine;
+   }
+
+   private void processSyntaxDiagram(ProcessSyntaxDiagramDelegate delegate) throws Exception {
+      GrammarEngine engine = createEngine();
       SDGenerator gen = new SDGenerator(engine);
       delegate.beginProcess();
       for (String name : engine.getRuleNames()) {
@@ -144,39 +247,6 @@ public class Console {
       void processRule(String name, SDGenerator gen) throws Exception;
    }
 
-   private class GeneratePSDDelegate implements ProcessSyntaxDiagramDelegate {
-      private String format;
-
-      public GeneratePSDDelegate(String format) {
-         this.format = format;
-      }
-
-      @Override
-      public void beginProcess() {
-         if (verbose)
-            System.out.println("Begin");
-         new File(outputDirectory).mkdirs();
-      }
-
-      @Override
-      public void endProcess() throws IOException {
-         if (verbose)
-            System.out.println("Done");
-      }
-
-      @Override
-      public void processRule(String name, SDGenerator gen) throws Exception {
-         if (verbose)
-            System.out.println("Generate rule " + name);
-         String file = XJUtils.concatPath(outputDirectory, name + "." + format);
-         if (format.equals("eps")) {
-            gen.renderRuleToEPSFile(name, file);
-         } else {
-            gen.renderRuleToBitmapFile(name, format, file);
-         }
-      }
-   }
-
    private class SerializePSDDelegate implements ProcessSyntaxDiagramDelegate {
       private StringBuilder content;
 
@@ -220,6 +290,20 @@ public class Console {
       return null;
    }
 
+   /**
+    * Returns the value of the argument, which must follow it.
+    *
+    * @throws UsageException if the value is missing
+    */
+   private static String getRequiredArgumentValue(String[] args, String name, String description)
+         throws UsageException {
+      String value = getArgumentValue(args, name);
+      if (value == null || value.equals(name) || value.startsWith("-")) {
+         throw new UsageException(description + " not specified (" + name + ")");
+      }
+      return value;
+   }
+
    private static boolean hasArgument(String[] args, String name) {
       for (String a : args) {
          if (a.equals(name)) {
@@ -343,4 +427,11 @@ public class Console {
          e.printStackTrace();
       }
    }
+
+   /** Thrown when the arguments are invalid: the usage is printed */
+   private static class UsageException extends Exception {
+      public UsageException(String message) {
+         super(message);
+      }
+   }
 }
@@ -35,7 +35,7 @@ import org.antlr.works.ate.folding.ATEFoldingEntity;
 import org.antlr.works.ate.gutter.ATEGutterColumnManager;
 import org.antlr.works.ate.gutter.ATEGutterItem;
 import org.antlr.works.ate.gutter.ATEGutterItemOverlay;
-import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineMap;
 import org.antlr.works.utils.IconManager;
 
 import javax.swing.*;
@@ -217,9 +217,9 @@ public class ATEGutter extends JComponent {
 
         offsetForLineNumber = 0;
         if(lineNumberEnabled) {
-            List<ATELine> lines = textEditor.getLines();
-            if(lines != null) {
-                offsetForLineNumber = lineNumberMetrics.stringWidth(String.valueOf(lines.size()));
+            ATELineMap lineMap = textEditor.getLineMap();
+            if(lineMap != null) {
+                offsetForLineNumber = lineNumberMetrics.stringWidth(String.valueOf(lineMap.getLineCount()));
             }
         }
 
@@ -310,7 +310,7 @@ public class ATEGutter extends JComponent {
         g.setFont(LINE_NUMBER_FONT);
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_OFF);
 
-        int lineCount = textEditor.getLines().size();
+        int lineCount = textEditor.getLineMap().getLineCount();
         int lineHeight = textEditor.textPane.getFontMetrics(textEditor.textPane.getFont()).getHeight();
         int number = Math.max(0, (Math.round(clip.y / lineHeight) - 1));
         int y = number*lineHeight;
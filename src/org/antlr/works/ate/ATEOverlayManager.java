@@ -102,6 +102,11 @@ public abstract class ATEOverlayManager {
 
     public abstract void render(Graphics g);
 
+    /** Returns true if the current rendering has been superseded and should stop */
+    public boolean isRenderingCancelled() {
+        return renderingThread.cancel();
+    }
+
     public static final int SHAPE_SAW_TOOTH = 1;
     public static final int SHAPE_LINE = 2;
     public static final int SHAPE_RECT = 3;
@@ -218,6 +223,10 @@ public abstract class ATEOverlayManager {
 
             render(g2d);
 
+            // A superseded rendering is incomplete: the next one will draw the shape
+            if(cancel())
+                return;
+
             underlyingShape.end();
 
             // Ask the pane to repaint itself (this will happen later in the event thread).
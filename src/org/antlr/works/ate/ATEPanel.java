@@ -9,6 +9,7 @@ import org.antlr.works.ate.swing.ATEKeyBindings;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngine;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineMap;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.xjlib.appkit.frame.XJFrame;
 import org.antlr.xjlib.appkit.undo.XJUndo;
@@ -312,6 +313,10 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
         return engine==null?null:engine.getLines();
     }
 
+    public ATELineMap getLineMap() {
+        return engine==null?null:engine.getLineMap();
+    }
+
     public int getCurrentLinePosition() {
         return getLinePositionAtIndex(getCaretPosition());
     }
@@ -334,17 +339,11 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
     }
 
     public int getLineIndexAtTextPosition(int pos) {
-        List<ATELine> lines = getLines();
-        if(lines == null)
+        ATELineMap lineMap = getLineMap();
+        if(lineMap == null)
             return -1;
 
-        for(int i=0; i<lines.size(); i++) {
-            ATELine line = lines.get(i);
-            if(line.position > pos) {
-                return i-1;
-            }
-        }
-        return lines.size()-1;
+        return lineMap.getLineIndexAtPosition(pos);
     }
 
     public Point getLineTextPositionsAtTextPosition(int pos) {
@@ -352,18 +351,15 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
     }
 
     public Point getLineTextPositionsAtLineIndex(int lineIndex) {
-        List<ATELine> lines = getLines();
-        if(lineIndex == -1 || lines == null)
+        ATELineMap lineMap = getLineMap();
+        if(lineIndex == -1 || lineMap == null)
             return null;
 
-        ATELine startLine = lines.get(lineIndex);
-        int start = startLine.position;
-        if(lineIndex+1 >= lines.size()) {
+        int start = lineMap.getLineStart(lineIndex);
+        if(lineIndex+1 >= lineMap.getLineCount()) {
             return new Point(start, getTextPane().getDocument().getLength()-1);
         } else {
-            ATELine endLine = lines.get(lineIndex+1);
-            int end = endLine.position;
-            return new Point(start, end-1);
+            return new Point(start, lineMap.getLineEnd(lineIndex));
         }
     }
 
@@ -604,6 +600,11 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
         }
 
         public void changeUpdate(int offset, int length, boolean insert) {
+            // Always tell the engine about the change so it knows which
+            // region has to be lexed again (or that everything has to)
+            if(engine != null)
+                engine.changeUpdate(offset, length);
+
             if(isEnable()) {
                 if(delegate != null)
                     delegate.ateChangeUpdate(offset, length, insert);
@@ -8,6 +8,7 @@ import org.antlr.works.ate.syntax.misc.ATEToken;
 
 import javax.swing.text.*;
 import java.awt.*;
+import java.util.Arrays;
 import java.util.List;
 
 /*
@@ -64,6 +65,10 @@ public class ATERenderingView extends PlainView {
     private Graphics currentGraphics;
     private Color savedColor;
 
+    /** Fonts derived from DEFAULT_FONT, indexed by style: deriving a font for each token is expensive */
+    private final Font[] derivedFonts = new Font[Font.BOLD + Font.ITALIC + 1];
+    private Font derivedFontsBase;
+
     public ATERenderingView(Element elem, ATEPanel textEditor) {
         super(elem);
         this.textEditor = textEditor;
@@ -355,11 +360,23 @@ public class ATERenderingView extends PlainView {
      * @return The font given the specified attributes
      */
     protected Font getFontForAttribute(AttributeSet attribute) {
-        Font f = DEFAULT_FONT;
+        int style = Font.PLAIN;
         if(StyleConstants.isBold(attribute))
-            f = f.deriveFont(Font.BOLD);
+            style = Font.BOLD;
         if(StyleConstants.isItalic(attribute))
-            f = f.deriveFont(Font.ITALIC);
+            style = Font.ITALIC;
+        if(style == Font.PLAIN)
+            return DEFAULT_FONT;
+
+        if(derivedFontsBase != DEFAULT_FONT) {
+            Arrays.fill(derivedFonts, null);
+            derivedFontsBase = DEFAULT_FONT;
+        }
+        Font f = derivedFonts[style];
+        if(f == null) {
+            f = DEFAULT_FONT.deriveFont(style);
+            derivedFonts[style] = f;
+        }
         return f;
     }
 
@@ -32,6 +32,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.ate.syntax.generic;
 
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineMap;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 
 import javax.swing.text.AttributeSet;
@@ -50,6 +51,13 @@ public abstract class ATESyntaxEngine {
     protected ATESyntaxParser parser;
 
     protected List<ATEToken> tokens;
+
+    /** Change recorded since the last processing, used to lex incrementally */
+    protected boolean incrementalLexing = true;
+    protected int changeCount = 0;
+    protected int changeOffset;
+    protected int changeLength;
+
     protected SimpleAttributeSet commentAttr;
     protected SimpleAttributeSet stringAttr;
     protected SimpleAttributeSet keywordAttr;
@@ -82,10 +90,34 @@ public abstract class ATESyntaxEngine {
         return lexer.getLines();
     }
 
+    public synchronized ATELineMap getLineMap() {
+        return lexer.getLineMap();
+    }
+
     public synchronized int getMaxLines() {
         return lexer.getLineNumber();
     }
 
+    public void setIncrementalLexing(boolean flag) {
+        this.incrementalLexing = flag;
+    }
+
+    public boolean isIncrementalLexing() {
+        return incrementalLexing;
+    }
+
+    /** Called each time the text changes. If only one change occurred
+     * before the next processing, only the damaged region is lexed again.
+     *
+     * @param offset The offset of the change
+     * @param length The length of the change (negative if text has been removed)
+     */
+    public synchronized void changeUpdate(int offset, int length) {
+        changeCount++;
+        changeOffset = offset;
+        changeLength = length;
+    }
+
     public ATESyntaxLexer getLexer() {
         return lexer;
     }
@@ -125,12 +157,23 @@ public abstract class ATESyntaxEngine {
 
     public void processSyntax() {
         // First run the lexer
-        lexer.tokenize(delegate.getText());
+        String text = delegate.getText();
+        boolean incremental = false;
+        synchronized(this) {
+            if(incrementalLexing && changeCount == 1)
+                incremental = lexer.tokenize(text, changeOffset, changeLength);
+            else
+                lexer.tokenize(text);
+            changeCount = 0;
+        }
         tokens = new ArrayList<ATEToken>(lexer.getTokens());
 
         // And then the parser if it exists
         if(parser != null) {
-            parser.parse(tokens);
+            if(incremental && parser.getTokens() != null)
+                parser.parse(tokens, lexer.getDamageStartIndex(), lexer.getDamageEndIndex());
+            else
+                parser.parse(tokens);
         }
     }
 
@@ -32,6 +32,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.ate.syntax.generic;
 
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineMap;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 
 import java.util.ArrayList;
@@ -63,6 +64,16 @@ public class ATESyntaxLexer {
     protected int lineIndex;    // position of the line in characters
     protected List<ATELine> lines;
 
+    /** Line map of the lines, created when first requested after each tokenization */
+    private ATELineMap lineMap;
+    private List<ATELine> lineMapLines;
+
+    /** Range of the tokens created by the last tokenization: the other tokens
+     * are the tokens of the previous tokenization, shifted by the edit.
+     */
+    protected int damageStartIndex;
+    protected int damageEndIndex;
+
     /** True if the current character is a control character (that is preceeded by a \) */
     protected boolean controlCharacter;
 
@@ -90,59 +101,201 @@ public class ATESyntaxLexer {
         return lines;
     }
 
+    public ATELineMap getLineMap() {
+        // A tokenization either creates a new list of lines or adds lines to it
+        if(lineMap == null || lineMapLines != lines || lineMap.getLineCount() != lines.size()) {
+            lineMap = new ATELineMap(lines);
+            lineMapLines = lines;
+        }
+        return lineMap;
+    }
+
     public int getLineNumber() {
         return lineNumber;
     }
 
+    public int getDamageStartIndex() {
+        return damageStartIndex;
+    }
+
+    public int getDamageEndIndex() {
+        return damageEndIndex;
+    }
+
     public void tokenize(String text) {
         this.text = text;
 
         position = -1;
         lineNumber = 0;
-        lines.clear();
+        lineIndex = 0;
+        lines = new ArrayList<ATELine>();
         lines.add(new ATELine(0));
 
-        tokens.clear();
+        tokens = new ArrayList<ATEToken>();
         tokenize();
+
+        damageStartIndex = 0;
+        damageEndIndex = tokens.size();
     }
 
-    protected void tokenize() {
+    /** Tokenizes the text after a single change: offset and length are the values
+     * reported by the document (length is negative for a removal). Only the damaged
+     * region is lexed again, starting from the last token before the change, until
+     * a token identical to one of the previous tokens is produced after the change:
+     * the remaining tokens and lines are then only shifted. The tokens outside the
+     * damaged region are the same instances as before the change, which lets the
+     * parser keep the elements it built from them.
+     *
+     * @return false if the change doesn't match the previous text, in which case the
+     * whole text has been tokenized
+     */
+    public boolean tokenize(String text, int offset, int length) {
+        final String oldText = this.text;
+        final int removed = length < 0 ? -length : 0;
+        final int inserted = length > 0 ? length : 0;
+        if(oldText == null || offset < 0 || offset + removed > oldText.length()
+                || oldText.length() + length != text.length())
+        {
+            tokenize(text);
+            return false;
+        }
+
+        final List<ATEToken> oldTokens = tokens;
+        final List<ATELine> oldLines = lines;
+        final int restart = getRestartTokenIndex(offset);
+        final int restartPosition = restart == -1 ? 0 : oldTokens.get(restart).start;
+
+        this.text = text;
+        tokens = new ArrayList<ATEToken>(oldTokens.size()+16);
+        lines = new ArrayList<ATELine>(oldLines.size()+16);
+
+        // Lines and tokens before the restart position are not affected by the change
+        for(ATELine line : oldLines) {
+            if(line.position > restartPosition) break;
+            lines.add(line);
+        }
+        for(int index=0; index<restart; index++) {
+            ATEToken token = oldTokens.get(index);
+            token.shift(text, 0, 0, token.startLineIndex, token.endLineIndex);
+            addToken(token);
+        }
+        damageStartIndex = tokens.size();
+
+        position = restartPosition - 1;
+        lineNumber = lines.size() - 1;
+        lineIndex = lines.get(lineNumber).position;
+
+        final int newDamageEnd = offset + inserted;
+        final int oldDamageEnd = offset + removed;
+        int oldIndex = Math.max(restart, 0);
         while(nextCharacter()) {
-            ATEToken token = customMatch();
-
-            if(token != null) {
-                // custom match matched something
-            } else if(c0 == '\'')
-                token = matchSingleQuoteString();
-            else if(c0 == '\"')
-                token = matchDoubleQuoteString();
-            else if(c0 == '/' && c1 == '/')
-                token = matchSingleComment();
-            else if(c0 == '/' && c1 == '*')
-                token = matchComplexComment();
-            else if(isLetter())
-                token = matchID();
-            else if(c0 == '(')
-                token = createNewToken(TOKEN_LPAREN);
-            else if(c0 == ')')
-                token = createNewToken(TOKEN_RPAREN);
-            else if(c0 == '{')
-                token = createNewToken(TOKEN_LCURLY);
-            else if(c0 == '}')
-                token = createNewToken(TOKEN_RCURLY);
-            else if(c0 == '[')
-                token = createNewToken(TOKEN_LBRACK);
-            else if(c0 == ']')
-                token = createNewToken(TOKEN_RBRACK);
-            else if(c0 == ':')
-                token = createNewToken(TOKEN_COLON);
-            else if(c0 == ';')
-                token = createNewToken(TOKEN_SEMI);
-            else if(!isWhitespace())
-                token = createNewToken(TOKEN_CHAR);
+            ATEToken token = matchToken();
+            if(token == null) continue;
+
+            addToken(token);
+            if(token.start <= newDamageEnd) continue;
+
+            // Find the first previous token located after the change that can match the new token
+            while(oldIndex < oldTokens.size() &&
+                    (oldTokens.get(oldIndex).start < oldDamageEnd || oldTokens.get(oldIndex).start + length < token.start))
+            {
+                oldIndex++;
+            }
+            if(oldIndex == oldTokens.size()) continue;
+
+            ATEToken oldToken = oldTokens.get(oldIndex);
+            if(oldToken.start + length == token.start && oldToken.end + length == token.end
+                    && oldToken.getLexerType() == token.type && text.charAt(token.start-1) != '\\')
+            {
+                // The lexer is back in the state it was before the change: replace the new
+                // token by the previous one and shift the rest
+                tokens.remove(tokens.size()-1);
+                damageEndIndex = tokens.size();
+                appendShifted(oldTokens, oldIndex, oldLines, oldToken.endLineNumber+1,
+                        length, token.endLineNumber - oldToken.endLineNumber);
+                return true;
+            }
+        }
+        damageEndIndex = tokens.size();
+        return true;
+    }
+
+    /** Returns the index of the token where the lexer can safely restart when
+     * the text changes at offset. The characters read by the lexer to produce the
+     * tokens before this index (including the lookahead character) are all
+     * located before the offset. Returns -1 if the lexer has to restart from
+     * the beginning of the text.
+     */
+    protected int getRestartTokenIndex(int offset) {
+        int index = tokens.size()-1;
+        while(index >= 0) {
+            ATEToken token = tokens.get(index);
+            if(token.start < offset && (token.start == 0 || text.charAt(token.start-1) != '\\'))
+                break;
+            index--;
+        }
+        return index;
+    }
 
+    private void appendShifted(List<ATEToken> oldTokens, int fromToken, List<ATELine> oldLines, int fromLine,
+                               int delta, int lineDelta)
+    {
+        for(int index=fromLine; index<oldLines.size(); index++) {
+            lines.add(new ATELine(oldLines.get(index).position+delta));
+        }
+        for(int index=fromToken; index<oldTokens.size(); index++) {
+            ATEToken token = oldTokens.get(index);
+            int startLine = token.startLineNumber + lineDelta;
+            int endLine = token.endLineNumber + lineDelta;
+            token.shift(text, delta, lineDelta, lines.get(startLine).position, lines.get(endLine).position);
             addToken(token);
         }
+        position = text.length();
+        lineNumber = lines.size() - 1;
+        lineIndex = lines.get(lineNumber).position;
+    }
+
+    protected void tokenize() {
+        while(nextCharacter()) {
+            addToken(matchToken());
+        }
+    }
+
+    protected ATEToken matchToken() {
+        ATEToken token = customMatch();
+
+        if(token != null) {
+            // custom match matched something
+        } else if(c0 == '\'')
+            token = matchSingleQuoteString();
+        else if(c0 == '\"')
+            token = matchDoubleQuoteString();
+        else if(c0 == '/' && c1 == '/')
+            token = matchSingleComment();
+        else if(c0 == '/' && c1 == '*')
+            token = matchComplexComment();
+        else if(isLetter())
+            token = matchID();
+        else if(c0 == '(')
+            token = createNewToken(TOKEN_LPAREN);
+        else if(c0 == ')')
+            token = createNewToken(TOKEN_RPAREN);
+        else if(c0 == '{')
+            token = createNewToken(TOKEN_LCURLY);
+        else if(c0 == '}')
+            token = createNewToken(TOKEN_RCURLY);
+        else if(c0 == '[')
+            token = createNewToken(TOKEN_LBRACK);
+        else if(c0 == ']')
+            token = createNewToken(TOKEN_RBRACK);
+        else if(c0 == ':')
+            token = createNewToken(TOKEN_COLON);
+        else if(c0 == ';')
+            token = createNewToken(TOKEN_SEMI);
+        else if(!isWhitespace())
+            token = createNewToken(TOKEN_CHAR);
+
+        return token;
     }
 
     protected ATEToken customMatch() {
@@ -55,11 +55,28 @@ public abstract class ATESyntaxParser {
     }
 
     public void parse(List<ATEToken> tokens) {
+        // Tokens can be reused from a previous parsing (see ATESyntaxLexer)
+        for(ATEToken token : tokens) {
+            token.reset();
+        }
+        setTokens(tokens, -1);
+        parseTokens();
+    }
+
+    /** Parses the tokens after an incremental tokenization: only the tokens in
+     * [damageStart, damageEnd) are new, the other ones have already been seen
+     * by the previous parsing. Subclasses able to parse only the damaged part
+     * override this method; by default, all the tokens are parsed.
+     */
+    public void parse(List<ATEToken> tokens, int damageStart, int damageEnd) {
+        parse(tokens);
+    }
+
+    protected void setTokens(List<ATEToken> tokens, int position) {
         this.tokens = tokens;
-        marks.clear();
-        position = -1;
+        this.marks.clear();
+        this.position = position;
         clearTokenCache();
-        parseTokens();
     }
 
     public abstract void parseTokens();
@@ -161,7 +178,7 @@ public abstract class ATESyntaxParser {
     }
 
     public boolean isChar(int index, String c) {
-        return isTokenType(index, ATESyntaxLexer.TOKEN_CHAR) && T(index).getAttribute().equals(c);
+        return isTokenType(index, ATESyntaxLexer.TOKEN_CHAR) && T(index).attributeEquals(c);
     }
 
     public boolean isSingleComment(int index) {
@@ -177,7 +194,7 @@ public abstract class ATESyntaxParser {
     }
 
     public boolean isID(int index, String attribute) {
-        return isTokenType(index, ATESyntaxLexer.TOKEN_ID) && T(index).getAttribute().equals(attribute);
+        return isTokenType(index, ATESyntaxLexer.TOKEN_ID) && T(index).attributeEquals(attribute);
     }
 
     public boolean isTokenType(int index, int type) {
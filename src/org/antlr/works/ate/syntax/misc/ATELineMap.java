@@ -0,0 +1,81 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.ate.syntax.misc;
+
+import java.util.List;
+
+/** Sorted array of the start positions of the lines of a text, used to find the line
+ * of a position in O(log n) instead of scanning the lines.
+ */
+public class ATELineMap {
+
+    private final int[] starts;
+
+    public ATELineMap(List<ATELine> lines) {
+        starts = new int[lines.size()];
+        for(int i=0; i<starts.length; i++) {
+            starts[i] = lines.get(i).position;
+        }
+    }
+
+    public int getLineCount() {
+        return starts.length;
+    }
+
+    /** Returns the index of the line containing the position or -1 if the position
+     * is before the first line.
+     */
+    public int getLineIndexAtPosition(int position) {
+        // Find the last line starting at or before the position
+        int low = 0;
+        int high = starts.length-1;
+        while(low <= high) {
+            int mid = (low+high) >>> 1;
+            if(starts[mid] <= position)
+                low = mid+1;
+            else
+                high = mid-1;
+        }
+        return low-1;
+    }
+
+    public int getLineStart(int lineIndex) {
+        return starts[lineIndex];
+    }
+
+    /** Returns the position of the last character of the line (its new line character)
+     * or -1 if this is the last line.
+     */
+    public int getLineEnd(int lineIndex) {
+        return lineIndex+1 < starts.length ? starts[lineIndex+1]-1 : -1;
+    }
+}
@@ -29,19 +29,41 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 */
 
+
 package org.antlr.works.ate.syntax.misc;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A task executed in the background each time it is awaken. The task runs on the shared
+ * ATEScheduler pool: awakeThread() requests are coalesced into one run that happens once no
+ * other request has been made during the threshold (i.e. the requests are debounced), and a
+ * run is never executed concurrently with another run of the same task.
+ */
 public abstract class ATEThread implements Runnable {
 
-    protected int threadSleep = 100;
-    protected int threshold = 0;
+    protected int threadSleep = Integer.MAX_VALUE;
     protected int default_threshold = 250;
     protected boolean running = false;
     protected boolean run = false;
-    protected Thread thread = null;
-    protected boolean asleep = false;
     protected boolean skip = false;
 
+    /** True if a run has been requested: it will happen at the deadline (System.nanoTime()) */
+    private boolean pending = false;
+    private long deadline;
+
+    /** The scheduled run and when it will happen */
+    private ScheduledFuture<?> future;
+    private long futureDeadline;
+
+    /** True while threadRun() is executing */
+    private boolean executing = false;
+
+    /** Number of requests: a run is superseded if a request is made after it started */
+    private int requests = 0;
+    private int executingRequests = 0;
+
     public ATEThread() {
     }
 
@@ -62,6 +84,7 @@ public abstract class ATEThread implements Runnable {
         start_();
     }
 
+    /** Starts the task and runs it every threadSleep ms in addition to the requested runs */
     protected synchronized void start(int threadSleep) {
         this.threadSleep = threadSleep;
         start_();
@@ -70,12 +93,12 @@ public abstract class ATEThread implements Runnable {
     private void start_() {
         if(!run) {
             run = true;
-            thread = new Thread(this);
-            thread.setName(getClass().toString());
-            thread.start();
+            running = true;
+            scheduleNext();
         }
     }
 
+    /** Skips the pending run, if any */
     public synchronized void skip() {
         skip = true;
     }
@@ -85,14 +108,16 @@ public abstract class ATEThread implements Runnable {
     }
 
     public synchronized void stop() {
-        threshold = 0;
         run = false;
-        thread.interrupt();
+        pending = false;
+        cancelFuture();
+        if(!executing) {
+            running = false;
+        }
     }
 
-    /** Interrupt the thread if it is sleeping. If threshold > 0, the thread will sleep an
-     * additionnal 'threshold' ms until no other awakeThread() is called
-     * before trying to compute something.
+    /** Requests a run of the task. If threshold > 0, the run happens only after 'threshold' ms
+     * during which no other awakeThread() has been called.
      */
     public synchronized void awakeThread() {
         awakeThread(default_threshold);
@@ -100,13 +125,21 @@ public abstract class ATEThread implements Runnable {
 
     public synchronized void awakeThread(int threshold) {
         resetSkip();
-        this.threshold = threshold;
-        if(asleep)
-            thread.interrupt();
+        requests++;
+        pending = true;
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(threshold);
+        if(run && !executing && (future == null || futureDeadline - deadline > 0)) {
+            // Schedule the run unless it is already scheduled earlier: in this case,
+            // the run will be postponed to the new deadline when the scheduler fires.
+            schedule(deadline);
+        }
     }
 
-    public boolean cancel() {
-        return !run;
+    /** Returns true if the current run should stop as soon as possible, either because
+     * the task has been stopped or because the run has been superseded by a new request.
+     */
+    public synchronized boolean cancel() {
+        return !run || executingRequests != requests;
     }
 
     protected abstract void threadRun() throws Exception;
@@ -115,46 +148,64 @@ public abstract class ATEThread implements Runnable {
         e.printStackTrace();
     }
 
-    public boolean threadSleep(int ms) {
-        boolean interrupted = false;
-        asleep = true;
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            interrupted = true;
-        }
-        asleep = false;
-        return interrupted;
-    }
-
+    /** Executed by the scheduler: runs the task if the deadline is reached */
     public void run() {
-        setRunning(true);
-        while(run) {
-            if(threadSleep(threadSleep)) {
-                // Sleep interrupted. If threshold is > 0, then wait
-                // this amount of time and loop until the thread is not
-                // anymore interrupted.
-                if(threshold>0) {
-                    while(threadSleep(threshold)) {
-                    }
-                }
+        synchronized(this) {
+            future = null;
+            if(!run) return;
+
+            if(pending && deadline - System.nanoTime() > 0) {
+                // Another request has been made since the run was scheduled
+                schedule(deadline);
+                return;
             }
 
-            if(!run)
-                break;
-
+            pending = false;
             if(skip) {
                 resetSkip();
-                continue;
+                scheduleNext();
+                return;
             }
 
-            try {
-                threadRun();
-            } catch(Exception e) {
-                threadReportException(e);
+            executing = true;
+            executingRequests = requests;
+        }
+
+        try {
+            threadRun();
+        } catch(Exception e) {
+            threadReportException(e);
+        } finally {
+            synchronized(this) {
+                executing = false;
+                if(run) {
+                    scheduleNext();
+                } else {
+                    running = false;
+                }
             }
         }
-        setRunning(false);
+    }
+
+    private void scheduleNext() {
+        if(pending) {
+            schedule(deadline);
+        } else if(threadSleep != Integer.MAX_VALUE) {
+            schedule(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(threadSleep));
+        }
+    }
+
+    private void schedule(long deadline) {
+        cancelFuture();
+        futureDeadline = deadline;
+        future = ATEScheduler.schedule(this, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelFuture() {
+        if(future != null) {
+            future.cancel(false);
+            future = null;
+        }
     }
 
 }
@@ -34,6 +34,7 @@ package org.antlr.works.ate.syntax.misc;
 public class ATEToken implements Comparable {
 
     public int type;
+    protected int lexerType; // type assigned by the lexer (the parser can change type)
 
     public int startLineNumber; // starting line number
     public int endLineNumber; // ending line number
@@ -48,7 +49,7 @@ public class ATEToken implements Comparable {
     public int start;
     public int end;
 
-    protected String attribute; // the portion of text covered by this token (subset of text)
+    protected String attribute; // the portion of text covered by this token (created only when needed)
 
     public int index;   // index inside the tokens list
     public boolean modified;    // true if the token has been modified in the text window
@@ -60,6 +61,7 @@ public class ATEToken implements Comparable {
                     String text)
     {
         this.type = type;
+        this.lexerType = type;
 
         this.start = start;
         this.end = end;
@@ -70,7 +72,31 @@ public class ATEToken implements Comparable {
         this.endLineIndex = endLineIndex;
 
         this.text = text;
-        this.attribute = text.substring(start, end);
+    }
+
+    /** Moves this token by delta characters and lineDelta lines inside the new text.
+     * Used by ATESyntaxLexer to reuse the tokens located outside the region damaged by
+     * an edit: the type and scope assigned by the parser are kept.
+     */
+    public void shift(String text, int delta, int lineDelta, int startLineIndex, int endLineIndex) {
+        this.start += delta;
+        this.end += delta;
+        this.startLineNumber += lineDelta;
+        this.endLineNumber += lineDelta;
+        this.startLineIndex = startLineIndex;
+        this.endLineIndex = endLineIndex;
+        this.text = text;
+    }
+
+    /** Restores the token as it was created by the lexer before being parsed */
+    public void reset() {
+        type = lexerType;
+        scope = null;
+        modified = false;
+    }
+
+    public int getLexerType() {
+        return lexerType;
     }
 
     public String getText() {
@@ -78,9 +104,24 @@ public class ATEToken implements Comparable {
     }
 
     public String getAttribute() {
+        if(attribute == null) {
+            attribute = text.substring(start, end);
+        }
         return attribute;
     }
 
+    /** Returns true if the portion of text covered by this token is equal to the specified
+     * string. Use this method instead of getAttribute().equals() to avoid creating the attribute.
+     */
+    public boolean attributeEquals(String s) {
+        return end - start == s.length() && text.startsWith(s, start);
+    }
+
+    /** Returns true if the portion of text covered by this token starts with the specified string */
+    public boolean attributeStartsWith(String s) {
+        return end - start >= s.length() && text.startsWith(s, start);
+    }
+
     public int getStartLineIndex() {
         return startLineIndex;
     }
@@ -129,6 +170,6 @@ public class ATEToken implements Comparable {
         if(name == null || name.length() < 1)
             return false;
         else
-            return name.charAt(0) == name.toUpperCase().charAt(0);
+            return name.charAt(0) == Character.toUpperCase(name.charAt(0));
     }
 }
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -70,6 +71,7 @@ import org.antlr.works.editor.navigation.GoToRuleDelegate;
 import org.antlr.works.find.FindAndReplace;
 import org.antlr.works.find.FindAndReplaceDelegate;
 import org.antlr.works.find.Usages;
+import org.antlr.works.grammar.EditorTextMutatorDelegate;
 import org.antlr.works.grammar.GrammarAutoIndent;
 import org.antlr.works.grammar.decisiondfa.DecisionDFAEngine;
 import org.antlr.works.grammar.element.ElementImport;
@@ -93,6 +95,8 @@ import org.antlr.works.utils.Utils;
 import org.antlr.works.visualization.SyntaxDiagramTab;
 import org.antlr.xjlib.appkit.app.XJApplication;
 import org.antlr.xjlib.appkit.document.XJDocument;
+import org.antlr.xjlib.appkit.document.XJFileWatcher;
+import org.antlr.xjlib.appkit.document.XJFileWatcherListener;
 import org.antlr.xjlib.appkit.frame.XJWindow;
 import org.antlr.xjlib.appkit.menu.XJMainMenuBar;
 import org.antlr.xjlib.appkit.menu.XJMenu;
@@ -140,7 +144,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 */
 public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegate, ATEPanelDelegate, XJUndoDelegate, InspectorDelegate, GrammarEngineDelegate, FindAndReplaceDelegate, GoToRuleDelegate,
-      GoToMenuDelegate, FindMenuDelegate, XJNotificationObserver {
+      GoToMenuDelegate, FindMenuDelegate, XJNotificationObserver, EditorTextMutatorDelegate {
    /* Tabs */
    private static final int CLOSING_INDEX_LIMIT = 4;
    private final Map<Integer, GrammarWindowTab> indexToEditorTab = new HashMap<Integer, GrammarWindowTab>();
@@ -189,6 +193,19 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
    private boolean windowFirstDisplay = true;
    private String lastSelectedRule;
    private AfterParseOperations afterParserOp;
+   /* Imported grammars and token vocabulary watched for external changes */
+   private final Set<String> watchedDependencies = new HashSet<String>();
+   private final XJFileWatcherListener dependencyListener = new XJFileWatcherListener() {
+      @Override
+      public void fileChanged(String file) {
+         SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+               dependencyChanged();
+            }
+         });
+      }
+   };
 
    public GrammarWindow() {
       createTextEditor();
@@ -345,6 +362,7 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
       syntaxDiagramTab.close();
       afterParserOp.stop();
       afterParserOp = null;
+      watchDependencies(new HashSet<String>());
       gutterColumnManager.close();
       foldingManager.close();
       underlyingManager.close();
@@ -493,7 +511,7 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
    private void closeTab(int index) {
       if (index < CLOSING_INDEX_LIMIT)
          return;
-      tabs.remove(index - CLOSING_INDEX_LIMIT);
+      tabs.remove(index - CLOSING_INDEX_LIMIT).editorClosed();
       bottomTab.removeTabAt(index);
    }
 
@@ -1154,7 +1172,7 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
       updateCursorInfo();
       if (windowFirstDisplay) {
          windowFirstDisplay = false;
-         afterParseOperations();
+         afterParseOperations(null);
          SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -1167,10 +1185,16 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
       }
    }
 
-   private void afterParseOperations() {
+   /**
+    * Updates the window once the text has been parsed. If a thread is given, the operations stop
+    * as soon as the run is superseded by a new parsing: the next run will perform them all again.
+    */
+   private void afterParseOperations(ATEThread thread) {
       editorPersistence.restore();
       grammarEngine.parserCompleted();
       grammarEngine.updateAll();
+      if (thread != null && thread.cancel())
+         return;
       interpreterTab.setRules(getNaturalRules());
       editorRules.parserDidParse();
       decisionDFAEngine.reset();
@@ -1179,13 +1203,76 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
       // has completely updated its list (which should
       // be done inside rules.parserDidParse())
       editorIdeas.display(getCaretPosition());
+      if (thread != null && thread.cancel())
+         return;
       syntaxDiagramTab.setText(getText(), getFileName());
       updateVisualization(false);
+      watchDependencies(getDependencies());
       // Damage the window and repaint it
       textEditor.damage();
       textEditor.repaint();
    }
 
+   /**
+    * Returns the files this grammar depends on: the imported grammars and the token vocabulary,
+    * located either in the folder of the grammar or in the output path.
+    */
+   private Set<String> getDependencies() {
+      List<String> names = new ArrayList<String>();
+      for (ElementImport element : grammarEngine.getImports()) {
+         names.add(element.getName() + ".g");
+      }
+      String tokenVocab = grammarEngine.getTokenVocab();
+      if (tokenVocab != null) {
+         names.add(tokenVocab + ".tokens");
+      }
+      Set<String> files = new HashSet<String>();
+      String folder = getFileFolder();
+      String outputPath = getOutputPath();
+      for (String name : names) {
+         if (folder != null) {
+            files.add(XJUtils.concatPath(folder, name));
+         }
+         if (outputPath != null) {
+            files.add(XJUtils.concatPath(outputPath, name));
+         }
+      }
+      return files;
+   }
+
+   private void watchDependencies(Set<String> files) {
+      XJFileWatcher watcher = XJFileWatcher.shared();
+      // called by the after parse operations thread and by close()
+      synchronized (watchedDependencies) {
+         for (String file : watchedDependencies) {
+            if (!files.contains(file)) {
+               watcher.removeListener(file, dependencyListener);
+            }
+         }
+         for (String file : files) {
+            if (!watchedDependencies.contains(file)) {
+               watcher.addListener(file, dependencyListener);
+            }
+         }
+         watchedDependencies.clear();
+         watchedDependencies.addAll(files);
+      }
+   }
+
+   private void dependencyChanged() {
+      if (afterParserOp == null) {
+         // the window has been closed
+         return;
+      }
+      // The imported grammars are read again when the grammar is created and the token
+      // vocabulary when the references are resolved
+      grammarEngine.markDirty();
+      grammarEngine.reset();
+      grammarEngine.updateAll();
+      textEditor.refresh();
+      updateInformation();
+   }
+
    public void changeDone() {
       grammarChanged();
       getDocument().changeDone();
@@ -1473,6 +1560,14 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
       progress.display();
    }
 
+   public void setProgress(int percent) {
+      if (progress == null)
+         return;
+      progress.setIndeterminate(false);
+      progress.setProgressMax(100);
+      progress.setProgress(percent);
+   }
+
    public void hideProgress() {
       progress.close();
    }
@@ -1540,7 +1635,7 @@ public class GrammarWindow extends XJWindow implements AutoCompletionMenuDelegat
 
       @Override
       protected void threadRun() throws Exception {
-         afterParseOperations();
+         afterParseOperations(this);
       }
    }
 
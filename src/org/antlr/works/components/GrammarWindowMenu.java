@@ -111,6 +111,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
     public static final int MI_DEBUG_REMOTE = 84;
     public static final int MI_DEBUG_SHOW_INPUT_TOKENS = 86;
     public static final int MI_EDIT_TEST_RIG = 87;
+    public static final int MI_DEBUG_OPEN_RECORDING = 88;
 
     // Help
     public static final int MI_SUBMIT_STATS = 100;
@@ -124,6 +125,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
     public static final int MI_EXPORT_ALL_AS_EPS = 113;
     public static final int MI_EXPORT_AS_DOT = 114;
     public static final int MI_EXPORT_EVENT = 115;
+    public static final int MI_EXPORT_EVENT_RECORDING = 116;
 
     public static final int MI_PRIVATE_UNREGISTER = 200;
     public static final int MI_SERIALIZE_SD = 201;
@@ -173,6 +175,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
         XJMenu exportMenu = new XJMenu();
         exportMenu.setTitle(resourceBundle.getString("menu.title.exportEvents"));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.asText"), MI_EXPORT_EVENT, this));
+        exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.asRecording"), MI_EXPORT_EVENT_RECORDING, this));
 
         menu.insertItemAfter(exportMenu, XJMainMenuBar.MI_SAVEAS);
 
@@ -224,6 +227,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.debug"), KeyEvent.VK_D, MI_DEBUG, this));
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.debugAgain"), KeyEvent.VK_D, XJMenuItem.getKeyModifier() | Event.SHIFT_MASK, MI_DEBUG_AGAIN, this));
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.debugRemote"), MI_DEBUG_REMOTE, this));
+        menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.openRecording"), MI_DEBUG_OPEN_RECORDING, this));
         menu.addSeparator();
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.showInputTokens"), MI_DEBUG_SHOW_INPUT_TOKENS, this));
         menu.addSeparator();
@@ -536,6 +540,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
             case MI_RUN:
             case MI_DEBUG:
             case MI_DEBUG_REMOTE:
+            case MI_DEBUG_OPEN_RECORDING:
                 item.setEnabled(!isDebuggerRunning());
                 break;
 
@@ -783,6 +788,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 debugMenu.debugRemote();
                 break;
 
+            case MI_DEBUG_OPEN_RECORDING:
+                debugMenu.openRecording();
+                break;
+
             case MI_DEBUG_SHOW_INPUT_TOKENS:
                 debugMenu.toggleInputTokens();
                 window.refreshMainMenuBar();
@@ -830,6 +839,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
             case MI_EXPORT_EVENT:
                 actionExport.exportEventsAsTextFile();
                 break;
+
+            case MI_EXPORT_EVENT_RECORDING:
+                actionExport.exportEventsAsRecording();
+                break;
         }
     }
 
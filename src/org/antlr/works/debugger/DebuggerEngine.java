@@ -1,6 +1,7 @@
 package org.antlr.works.debugger;
 
 import org.antlr.works.IDE;
+import org.antlr.works.debugger.local.DBJavaCompiler;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.StreamWatcher;
@@ -9,8 +10,9 @@ import org.antlr.works.utils.Utils;
 import org.antlr.xjlib.foundation.XJSystem;
 import org.antlr.xjlib.foundation.XJUtils;
 
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
 import java.io.File;
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 /*
@@ -65,22 +67,45 @@ public class DebuggerEngine {
     }
 
     public static String getClassPath(String outputPath) {
+        String classPath = outputPath;
+        String appClassPath = getApplicationClassPath();
+        if(appClassPath.length() > 0)
+            classPath += File.pathSeparatorChar+appClassPath;
+
+        if(AWPrefs.getUseCustomClassPath())
+            classPath += File.pathSeparatorChar+Utils.unquotePath(AWPrefs.getCustomClassPath());
+
+        classPath += File.pathSeparatorChar+".";
+
+        return quoteClassPath(classPath);
+    }
+
+    /**
+     * Returns the class path of the JVM hosting the parsers: only the application and the
+     * system class path, so the classes of the parsers can be loaded again for each session.
+     */
+    public static String getHostClassPath() {
+        return quoteClassPath(getApplicationClassPath());
+    }
+
+    private static String getApplicationClassPath() {
         String appPath = IDE.getApplicationPath();
 
         // Need to include the path of the application in order to be able
         // to compile the parser if the system classpath doesn't have ANTLR or ST
-        String classPath = outputPath;
+        String classPath = "";
         if(appPath != null)
-            classPath += File.pathSeparatorChar+Utils.unquotePath(appPath);
+            classPath += Utils.unquotePath(appPath);
 
-        if(AWPrefs.getUseSystemClassPath())
-            classPath += File.pathSeparatorChar+Utils.unquotePath(System.getProperty("java.class.path"));
-
-        if(AWPrefs.getUseCustomClassPath())
-            classPath += File.pathSeparatorChar+Utils.unquotePath(AWPrefs.getCustomClassPath());
+        if(AWPrefs.getUseSystemClassPath()) {
+            if(classPath.length() > 0) classPath += File.pathSeparatorChar;
+            classPath += Utils.unquotePath(System.getProperty("java.class.path"));
+        }
 
-        classPath += File.pathSeparatorChar+".";
+        return classPath;
+    }
 
+    private static String quoteClassPath(String classPath) {
         // On Mac OS X, quoting the path works fine except within IntelliJ when
         // AW is working as a plugin. Without quoting, it works everywhere in Mac
         // OS X so I decided to quote only on Windows.
@@ -90,90 +115,15 @@ public class DebuggerEngine {
             return classPath;
     }
 
-    public static String runANTLR(Console console, String file, String libPath, String outputPath, StreamWatcherDelegate delegate) {
-        String error = null;
-        StreamWatcher esw = null;
-        int result = 0;
-        try {
-            String[] args = new String[9];
-            args[0] = "java";
-            args[1] = "-cp";
-            args[2] = getClassPath(outputPath);
-            args[3] = "org.antlr.Tool";
-            args[4] = "-o";
-            args[5] = Utils.quotePath(outputPath);
-            args[6] = "-lib";
-            args[7] = Utils.quotePath(libPath);
-            args[8] = file;
-
-            IDE.debugVerbose(console, DebuggerEngine.class, "Run ANTLR: "+Utils.toString(args));
-
-            Process p = Runtime.getRuntime().exec(args);
-            setProcess(p);
-            esw = new StreamWatcher(p.getErrorStream(), "ANTLR[error]", delegate);
-            esw.start();
-            new StreamWatcher(p.getInputStream(), "ANTLR[stdout]", delegate).start();
-            result = p.waitFor();
-        } catch(Exception e) {
-            error = "Failed to run ANTLR with exception:\n"+e.toString();
-        } finally {
-            removeProcess();
-        }
-
-        if(result != 0) {
-            error = "Failed to run ANTLR with result:\n"+result;
-        }
-
-        /** Make sure ANTLR didn't return an error in the error string
-         *
-         */
-
-        if(error == null) {
-            for (String line : esw.getLines()) {
-                if (line.startsWith("ANTLR Parser Generator"))
-                    continue;
-
-                if (line.startsWith("no such locale file"))
-                    continue;
-
-                error = line;
-                break;
-            }
-        }
-        return error;
-    }
-
-    public static String runJava(Console console, String currentPath, String[] params, StreamWatcherDelegate delegate) {
-        String error = null;
-        int result = 0;
-        try {
-            String[] args = new String[3+params.length];
-            args[0] = "java";
-            args[1] = "-cp";
-            args[2] = getClassPath(currentPath);
-            System.arraycopy(params, 0, args, 3, params.length);
-
-            IDE.debugVerbose(console, DebuggerEngine.class, "Run Java: "+Utils.toString(args));
-
-            Process p = Runtime.getRuntime().exec(args, null, new File(currentPath));
-            setProcess(p);
-            new StreamWatcher(p.getErrorStream(), "Java[error]", delegate).start();
-            new StreamWatcher(p.getInputStream(), "Java[stdout]", delegate).start();
-            result = p.waitFor();
-        } catch(Exception e) {
-            error = "Failed to run Java with exception:\n"+e.toString();
-        } finally {
-            removeProcess();
-        }
-
-        if(result != 0) {
-            error = "Failed to run Java with result:\n"+result;
-        }
-
-        return error;
+    public static String compileFiles(Console console, String[] files, String outputFileDir, StreamWatcherDelegate delegate) {
+        return compileFiles(console, new DBJavaCompiler(), files, outputFileDir, delegate);
     }
 
-    public static String compileFiles(Console console, String[] files, String outputFileDir, StreamWatcherDelegate delegate) {
+    /**
+     * Compiles the files with the compiler selected in the preferences. The integrated compiler
+     * runs in-process and falls back to javac if the JVM does not provide a compiler.
+     */
+    public static String compileFiles(Console console, DBJavaCompiler javaCompiler, String[] files, String outputFileDir, StreamWatcherDelegate delegate) {
         String error = null;
 
         int result = 0;
@@ -181,6 +131,14 @@ public class DebuggerEngine {
             String compiler = AWPrefs.getCompiler();
             String classPath = getClassPath(outputFileDir);
 
+            if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_INTEGRATED)) {
+                if(javaCompiler.isAvailable()) {
+                    return compileFilesInProcess(console, javaCompiler, files, outputFileDir, classPath, delegate);
+                }
+                IDE.debugVerbose(console, DebuggerEngine.class, "No compiler available in this JVM, using javac");
+                compiler = AWPrefs.COMPILER_JAVAC;
+            }
+
             if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_JAVAC)) {
                 String[] args = new String[5+files.length];
                 if(AWPrefs.getJavaCCustomPath())
@@ -218,19 +176,6 @@ public class DebuggerEngine {
                 new StreamWatcher(p.getErrorStream(), "Compiler[error]", delegate).start();
                 new StreamWatcher(p.getInputStream(), "Compiler[stdout]", delegate).start();
                 result = p.waitFor();
-            } else if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_INTEGRATED)) {
-                String[] args = new String[2+files.length];
-                args[0] = "-d";
-                args[1] = outputFileDir;
-                System.arraycopy(files, 0, args, 2, files.length);
-
-                Class<?> javac = Class.forName("com.sun.tools.javac.Main");
-                Class[] p = new Class[] { String[].class };
-                Method m = javac.getMethod("compile", p);
-                Object[] a = new Object[] { args };
-                Object r = m.invoke(javac.newInstance(), a);
-                result = (Integer) r;
-                //result = com.sun.tools.javac.Main.compile(args);
             }
 
         } catch(Error e) {
@@ -250,4 +195,14 @@ public class DebuggerEngine {
         return error;
     }
 
+    private static String compileFilesInProcess(Console console, DBJavaCompiler javaCompiler, String[] files, String outputFileDir, String classPath, StreamWatcherDelegate delegate) {
+        IDE.debugVerbose(console, DebuggerEngine.class, "Compile in-process: "+Utils.toString(files));
+
+        DBJavaCompiler.Result result = javaCompiler.compile(files, outputFileDir, Utils.unquotePath(classPath));
+        for(Diagnostic<? extends JavaFileObject> d : result.diagnostics) {
+            delegate.streamWatcherDidReceiveString(DBJavaCompiler.Result.toString(d)+"\n");
+        }
+        return result.getError();
+    }
+
 }
@@ -68,6 +68,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -101,6 +103,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
 
     protected DBStackPanel stackPanel;
     protected DBEventsPanel eventsPanel;
+    protected DBProfilerPanel profilerPanel;
 
     protected DBControlPanel controlPanel;
 
@@ -132,6 +135,10 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         splitPanel = new CustomSplitPanel();
         components2toggle = new HashMap<Component, XJRotableToggleButton>();
 
+        local = new DBLocal(this);
+        recorder = new DBRecorder(this);
+        player = new DBPlayer(this);
+
         controlPanel = new DBControlPanel(this);
 
         inputPanel = new DBInputPanel(this);
@@ -151,15 +158,13 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         stackPanel.setTag(CustomSplitPanel.RIGHT_INDEX);
         eventsPanel = new DBEventsPanel(this);
         eventsPanel.setTag(CustomSplitPanel.RIGHT_INDEX);
+        profilerPanel = new DBProfilerPanel(this);
+        profilerPanel.setTag(CustomSplitPanel.RIGHT_INDEX);
 
         panel.add(controlPanel, BorderLayout.NORTH);
         panel.add(splitPanel, BorderLayout.CENTER);
         panel.add(createToggleButtons(), BorderLayout.SOUTH);
 
-        local = new DBLocal(this);
-        recorder = new DBRecorder(this);
-        player = new DBPlayer(this);
-
         updateStatusInfo();
     }
 
@@ -178,6 +183,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         astPanel.close();
         stackPanel.close();
         eventsPanel.close();
+        profilerPanel.close();
 
         local.close();
         recorder.close();
@@ -203,6 +209,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
     public static final int TOGGLE_AST = 3;
     public static final int TOGGLE_STACK = 4;
     public static final int TOGGLE_EVENTS = 5;
+    public static final int TOGGLE_PROFILE = 6;
 
     public Box createToggleButtons() {
         Box b = Box.createHorizontalBox();
@@ -214,6 +221,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         b.add(Box.createHorizontalStrut(15));
         b.add(createToggleButton("Stack", TOGGLE_STACK, stackPanel));
         b.add(createToggleButton("Events", TOGGLE_EVENTS, eventsPanel));
+        b.add(createToggleButton("Profile", TOGGLE_PROFILE, profilerPanel));
         b.add(Box.createHorizontalGlue());
         return b;
     }
@@ -240,6 +248,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
 
         setComponentVisible(stackPanel, true);
         setComponentVisible(eventsPanel, false);
+        setComponentVisible(profilerPanel, false);
 
         splitPanel.setComponentWidth(inputPanel, width*PERCENT_WIDTH_LEFT);
         splitPanel.setComponentWidth(outputPanel, width*PERCENT_WIDTH_LEFT);
@@ -259,40 +268,49 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
     public void performToggleButtonAction(int tag) {
         switch(tag) {
             case TOGGLE_INPUT:
-                toggleComponents(inputPanel, outputPanel, CustomSplitPanel.LEFT_INDEX);
+                toggleComponents(inputPanel, CustomSplitPanel.LEFT_INDEX, outputPanel);
                 break;
             case TOGGLE_OUTPUT:
-                toggleComponents(outputPanel, inputPanel, CustomSplitPanel.LEFT_INDEX);
+                toggleComponents(outputPanel, CustomSplitPanel.LEFT_INDEX, inputPanel);
                 break;
 
             case TOGGLE_PTREE:
-                toggleComponents(parseTreePanel, astPanel, CustomSplitPanel.MIDDLE_INDEX);
+                toggleComponents(parseTreePanel, CustomSplitPanel.MIDDLE_INDEX, astPanel);
                 break;
             case TOGGLE_AST:
-                toggleComponents(astPanel, parseTreePanel, CustomSplitPanel.MIDDLE_INDEX);
+                toggleComponents(astPanel, CustomSplitPanel.MIDDLE_INDEX, parseTreePanel);
                 break;
 
             case TOGGLE_STACK:
-                toggleComponents(stackPanel, eventsPanel, CustomSplitPanel.RIGHT_INDEX);
+                toggleComponents(stackPanel, CustomSplitPanel.RIGHT_INDEX, eventsPanel, profilerPanel);
                 break;
             case TOGGLE_EVENTS:
-                toggleComponents(eventsPanel, stackPanel, CustomSplitPanel.RIGHT_INDEX);
+                toggleComponents(eventsPanel, CustomSplitPanel.RIGHT_INDEX, stackPanel, profilerPanel);
+                break;
+            case TOGGLE_PROFILE:
+                toggleComponents(profilerPanel, CustomSplitPanel.RIGHT_INDEX, stackPanel, eventsPanel);
+                if(profilerPanel.isVisible())
+                    profilerPanel.updateOnBreakEvent();
                 break;
         }
     }
 
-    public void toggleComponents(DetachablePanel c, DetachablePanel other, int index) {
+    public void toggleComponents(DetachablePanel c, int index, DetachablePanel... others) {
         c.setVisible(!c.isVisible());
         if(c.isVisible()) {
-            if(!other.isDetached())
-                setComponentVisible(other, false);
+            for(DetachablePanel other : others) {
+                if(!other.isDetached())
+                    setComponentVisible(other, false);
+            }
             if(!c.isDetached())
                 splitPanel.setComponent(c, index);
         } else {
-            if(other.isVisible() && !other.isDetached())
-                splitPanel.setComponent(other, index);
-            else
-                splitPanel.setComponent(null, index);
+            DetachablePanel visible = null;
+            for(DetachablePanel other : others) {
+                if(other.isVisible() && !other.isDetached())
+                    visible = other;
+            }
+            splitPanel.setComponent(visible, index);
         }
     }
 
@@ -346,6 +364,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         astPanel.updateOnBreakEvent();
         stackPanel.updateOnBreakEvent();
         eventsPanel.updateOnBreakEvent();
+        profilerPanel.updateOnBreakEvent();
     }
 
     public boolean needsToGenerateGrammar() {
@@ -503,6 +522,30 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         return true;
     }
 
+    /** Replays a recording saved by saveRecording(). The grammar is expected to be the one
+     * used by the parser when the events were recorded.
+     */
+    public void openRecording(String file) {
+        queryGrammarBreakpoints();
+        rootGrammarName = delegate.getGrammarName();
+        inputPanel.prepareForGrammar(delegate.getGrammarEngine());
+        player.setInputBuffer(inputPanel.getInputBuffer());
+
+        try {
+            recorder.openRecording(new File(file));
+        } catch (IOException e) {
+            XJAlert.display(getWindowContainer(), "Error", "Cannot open the recording: "+file+"\nError: "+e);
+            return;
+        }
+
+        connectionSuccess();
+        recorder.goToStart();
+    }
+
+    public void saveRecording(String file) throws IOException {
+        recorder.saveRecording(new File(file));
+    }
+
     public void showEditTestRig() {
         local.showEditTestRig();
     }
@@ -563,7 +606,25 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         eventsPanel.addEvent(event, info);
     }
 
-    public void playEvents(List events, int lastEventPosition, boolean reset) {
+    public Object playerCreateCheckpoint() {
+        GUICheckpoint c = new GUICheckpoint();
+        c.stack = stackPanel.createCheckpoint();
+        c.eventCount = eventsPanel.getNumberOfEvents();
+        c.parseTree = parseTreePanel.createCheckpoint();
+        c.ast = astPanel.createCheckpoint();
+        return c;
+    }
+
+    public void playerRestoreCheckpoint(Object checkpoint) {
+        GUICheckpoint c = (GUICheckpoint)checkpoint;
+        stackPanel.restoreCheckpoint(c.stack);
+        eventsPanel.truncateEvents(c.eventCount);
+        parseTreePanel.restoreCheckpoint(c.parseTree);
+        astPanel.restoreCheckpoint(c.ast);
+    }
+
+    public void playEvents(List<DBEvent> events, int lastEventPosition, boolean reset) {
+        eventsPanel.setEvents(events);
         player.playEvents(events, lastEventPosition, reset);
         breaksOnEvent();
     }
@@ -726,4 +787,11 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
     public void selectConsoleTab() {
         delegate.selectConsoleTab();
     }
+
+    protected static class GUICheckpoint {
+        public Object stack;
+        public int eventCount;
+        public Object parseTree;
+        public Object ast;
+    }
 }
@@ -75,6 +75,8 @@ public class DBEvent {
 
     private int eventType;
     private String grammarName;
+    /** Time at which the event was received from the remote parser, in nanoseconds */
+    private long time;
 
     public DBEvent(int eventType) {
         this.eventType = eventType;
@@ -143,6 +145,14 @@ public class DBEvent {
         this.grammarName = grammarName;
     }
 
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
     public String toString() {
         switch(getEventType()) {
             case BEGIN_RESYNC:  return "Begin resync";
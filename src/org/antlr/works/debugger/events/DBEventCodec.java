@@ -0,0 +1,333 @@
+package org.antlr.works.debugger.events;
+
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener.ProxyToken;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener.ProxyTree;
+import org.antlr.works.debugger.tree.DBTreeToken;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** Compact binary encoding of the debugger events used by the disk-backed event log.
+ *
+ * Each event is written as its type followed by its fields and the name of the grammar
+ * it belongs to. The tokens are written as plain values and decoded as proxy tokens,
+ * like the ones created by the remote debug listener.
+ */
+public class DBEventCodec {
+
+    private static final int TOKEN_NULL = 0;
+    private static final int TOKEN_PROXY = 1;
+    private static final int TOKEN_TREE = 2;
+
+    public static void write(DataOutput out, DBEvent event) throws IOException {
+        out.writeByte(event.getEventType());
+        switch(event.getEventType()) {
+            case DBEvent.LOCATION: {
+                DBEventLocation e = (DBEventLocation)event;
+                out.writeInt(e.line);
+                out.writeInt(e.pos);
+                break;
+            }
+            case DBEvent.CONSUME_TOKEN:
+                writeToken(out, ((DBEventConsumeToken)event).token);
+                break;
+            case DBEvent.CONSUME_HIDDEN_TOKEN:
+                writeToken(out, ((DBEventConsumeHiddenToken)event).token);
+                break;
+            case DBEvent.LT: {
+                DBEventLT e = (DBEventLT)event;
+                out.writeInt(e.index);
+                writeToken(out, e.token);
+                break;
+            }
+            case DBEvent.ENTER_RULE: {
+                DBEventEnterRule e = (DBEventEnterRule)event;
+                writeString(out, e.grammarFileName);
+                writeString(out, e.name);
+                break;
+            }
+            case DBEvent.EXIT_RULE: {
+                DBEventExitRule e = (DBEventExitRule)event;
+                writeString(out, e.grammarFileName);
+                writeString(out, e.name);
+                break;
+            }
+            case DBEvent.ENTER_SUBRULE:
+                out.writeInt(((DBEventEnterSubRule)event).decision);
+                break;
+            case DBEvent.EXIT_SUBRULE:
+                out.writeInt(((DBEventExitSubRule)event).decision);
+                break;
+            case DBEvent.ENTER_DECISION:
+                out.writeInt(((DBEventEnterDecision)event).decision);
+                break;
+            case DBEvent.EXIT_DECISION:
+                out.writeInt(((DBEventExitDecision)event).decision);
+                break;
+            case DBEvent.ENTER_ALT:
+                out.writeInt(((DBEventEnterAlt)event).alt);
+                break;
+            case DBEvent.MARK:
+                out.writeInt(((DBEventMark)event).id);
+                break;
+            case DBEvent.REWIND:
+                out.writeInt(((DBEventRewind)event).id);
+                break;
+            case DBEvent.BEGIN_BACKTRACK:
+                out.writeInt(((DBEventBeginBacktrack)event).level);
+                break;
+            case DBEvent.END_BACKTRACK: {
+                DBEventEndBacktrack e = (DBEventEndBacktrack)event;
+                out.writeInt(e.level);
+                out.writeBoolean(e.successful);
+                break;
+            }
+            case DBEvent.RECOGNITION_EXCEPTION:
+                writeException(out, ((DBEventRecognitionException)event).e);
+                break;
+            case DBEvent.NIL_NODE:
+                out.writeInt(((DBEventNilNode)event).id);
+                break;
+            case DBEvent.ERROR_NODE: {
+                DBEventErrorNode e = (DBEventErrorNode)event;
+                out.writeInt(e.id);
+                writeString(out, e.text);
+                out.writeInt(e.type);
+                break;
+            }
+            case DBEvent.CREATE_NODE: {
+                DBEventCreateNode e = (DBEventCreateNode)event;
+                out.writeInt(e.id);
+                out.writeInt(e.tokenIndex);
+                writeString(out, e.text);
+                out.writeInt(e.type);
+                break;
+            }
+            case DBEvent.BECOME_ROOT: {
+                DBEventBecomeRoot e = (DBEventBecomeRoot)event;
+                out.writeInt(e.newRootID);
+                out.writeInt(e.oldRootID);
+                break;
+            }
+            case DBEvent.ADD_CHILD: {
+                DBEventAddChild e = (DBEventAddChild)event;
+                out.writeInt(e.rootID);
+                out.writeInt(e.childID);
+                break;
+            }
+            case DBEvent.SET_TOKEN_BOUNDARIES: {
+                DBEventSetTokenBoundaries e = (DBEventSetTokenBoundaries)event;
+                out.writeInt(e.id);
+                out.writeInt(e.startIndex);
+                out.writeInt(e.stopIndex);
+                break;
+            }
+        }
+        // The enter rule event computes its grammar name from the grammar file name
+        if(event.getEventType() != DBEvent.ENTER_RULE)
+            writeString(out, event.getGrammarName());
+    }
+
+    public static DBEvent read(DataInput in) throws IOException {
+        DBEvent event;
+        int type = in.readByte();
+        switch(type) {
+            case DBEvent.LOCATION:
+                event = new DBEventLocation(in.readInt(), in.readInt());
+                break;
+            case DBEvent.CONSUME_TOKEN:
+                event = new DBEventConsumeToken(readToken(in));
+                break;
+            case DBEvent.CONSUME_HIDDEN_TOKEN:
+                event = new DBEventConsumeHiddenToken(readToken(in));
+                break;
+            case DBEvent.LT:
+                event = new DBEventLT(in.readInt(), readToken(in));
+                break;
+            case DBEvent.ENTER_RULE:
+                event = new DBEventEnterRule(readString(in), readString(in));
+                break;
+            case DBEvent.EXIT_RULE:
+                event = new DBEventExitRule(readString(in), readString(in));
+                break;
+            case DBEvent.ENTER_SUBRULE:
+                event = new DBEventEnterSubRule(in.readInt());
+                break;
+            case DBEvent.EXIT_SUBRULE:
+                event = new DBEventExitSubRule(in.readInt());
+                break;
+            case DBEvent.ENTER_DECISION:
+                event = new DBEventEnterDecision(in.readInt());
+                break;
+            case DBEvent.EXIT_DECISION:
+                event = new DBEventExitDecision(in.readInt());
+                break;
+            case DBEvent.ENTER_ALT:
+                event = new DBEventEnterAlt(in.readInt());
+                break;
+            case DBEvent.MARK:
+                event = new DBEventMark(in.readInt());
+                break;
+            case DBEvent.REWIND:
+                event = new DBEventRewind(in.readInt());
+                break;
+            case DBEvent.BEGIN_BACKTRACK:
+                event = new DBEventBeginBacktrack(in.readInt());
+                break;
+            case DBEvent.END_BACKTRACK:
+                event = new DBEventEndBacktrack(in.readInt(), in.readBoolean());
+                break;
+            case DBEvent.RECOGNITION_EXCEPTION:
+                event = new DBEventRecognitionException(readException(in));
+                break;
+            case DBEvent.NIL_NODE:
+                event = new DBEventNilNode(in.readInt());
+                break;
+            case DBEvent.ERROR_NODE:
+                event = new DBEventErrorNode(in.readInt(), readString(in), in.readInt());
+                break;
+            case DBEvent.CREATE_NODE: {
+                int id = in.readInt();
+                int tokenIndex = in.readInt();
+                String text = readString(in);
+                int nodeType = in.readInt();
+                if(tokenIndex == -1) {
+                    event = new DBEventCreateNode(id, text, nodeType);
+                } else {
+                    event = new DBEventCreateNode(id, tokenIndex);
+                    ((DBEventCreateNode)event).text = text;
+                    ((DBEventCreateNode)event).type = nodeType;
+                }
+                break;
+            }
+            case DBEvent.BECOME_ROOT:
+                event = new DBEventBecomeRoot(in.readInt(), in.readInt());
+                break;
+            case DBEvent.ADD_CHILD:
+                event = new DBEventAddChild(in.readInt(), in.readInt());
+                break;
+            case DBEvent.SET_TOKEN_BOUNDARIES:
+                event = new DBEventSetTokenBoundaries(in.readInt(), in.readInt(), in.readInt());
+                break;
+            default:
+                event = new DBEvent(type);
+                break;
+        }
+        if(type != DBEvent.ENTER_RULE)
+            event.setGrammarName(readString(in));
+        return event;
+    }
+
+    private static void writeToken(DataOutput out, Token token) throws IOException {
+        if(token == null) {
+            out.writeByte(TOKEN_NULL);
+        } else if(token instanceof DBTreeToken) {
+            ProxyTree tree = ((DBTreeToken)token).tree;
+            out.writeByte(TOKEN_TREE);
+            out.writeInt(tree.ID);
+            out.writeInt(tree.type);
+            out.writeInt(tree.line);
+            out.writeInt(tree.charPos);
+            out.writeInt(tree.tokenIndex);
+            writeString(out, tree.text);
+        } else {
+            out.writeByte(TOKEN_PROXY);
+            out.writeInt(token.getTokenIndex());
+            out.writeInt(token.getType());
+            out.writeInt(token.getChannel());
+            out.writeInt(token.getLine());
+            out.writeInt(token.getCharPositionInLine());
+            writeString(out, token.getText());
+        }
+    }
+
+    private static Token readToken(DataInput in) throws IOException {
+        switch(in.readByte()) {
+            case TOKEN_TREE:
+                return new DBTreeToken(new ProxyTree(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), readString(in)));
+            case TOKEN_PROXY:
+                return new ProxyToken(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), readString(in));
+        }
+        return null;
+    }
+
+    private static void writeException(DataOutput out, RecognitionException e) throws IOException {
+        out.writeUTF(e.getClass().getName());
+        out.writeInt(e.index);
+        out.writeInt(e.line);
+        out.writeInt(e.charPositionInLine);
+        writeToken(out, e.token);
+    }
+
+    /** Re-creates the exception the same way the remote debug listener does:
+     * using its class name and then setting its fields.
+     */
+    private static RecognitionException readException(DataInput in) throws IOException {
+        String className = in.readUTF();
+        RecognitionException e;
+        try {
+            e = (RecognitionException)Class.forName(className).newInstance();
+        } catch (Exception ex) {
+            e = new RecognitionException();
+        }
+        e.index = in.readInt();
+        e.line = in.readInt();
+        e.charPositionInLine = in.readInt();
+        e.token = readToken(in);
+        return e;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if(s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if(length == -1)
+            return null;
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+}
@@ -51,4 +51,8 @@ public interface DBInputProcessor {
 
     public int getCurrentTokenIndex();
     public DBInputTextTokenInfo getTokenInfoAtTokenIndex(int index);
+
+    /** Returns the state of the processor, to be restored by restoreCheckpoint() */
+    public Object createCheckpoint();
+    public void restoreCheckpoint(Object checkpoint);
 }
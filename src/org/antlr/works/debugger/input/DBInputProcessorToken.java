@@ -66,7 +66,8 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
 
     protected LinkedList<Integer> inputTokenIndexes = new LinkedList<Integer>();
     protected Map<Integer,DBInputTextTokenInfo> indexToTokenInfoMap = new HashMap<Integer, DBInputTextTokenInfo>();
-    protected Map<Integer,AttributeSet> indexToConsumeAttributeMap = new HashMap<Integer, AttributeSet>();
+    /** Flavor (TOKEN_NORMAL, etc.) of the consumed tokens indexed by token index, 0 if not consumed */
+    protected byte[] consumeFlavors = new byte[0];
     protected Set<Integer> lookaheadTokenIndexes = new HashSet<Integer>();
 
     /** Current token index */
@@ -133,14 +134,8 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         if(ignoreToken(token))
             return;
 
-        SimpleAttributeSet attr = null;
-        switch(flavor) {
-            case TOKEN_NORMAL: attr = attributeConsume; break;
-            case TOKEN_HIDDEN: attr = attributeConsumeHidden; break;
-            case TOKEN_DEAD: attr = attributeConsumeDead; break;
-        }
         addToken(token);
-        addConsumeAttribute(token, attr);
+        addConsumeFlavor(token, flavor);
         removeTokenLT(token);
     }
 
@@ -165,8 +160,26 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         return ct.getText().equals("\r") && t.getText().equals("\n");
     }
 
-    public void addConsumeAttribute(Token token, AttributeSet attribute) {
-        indexToConsumeAttributeMap.put(token.getTokenIndex(), attribute);
+    public void addConsumeFlavor(Token token, int flavor) {
+        int index = token.getTokenIndex();
+        if(index < 0)
+            return;
+
+        if(index >= consumeFlavors.length)
+            consumeFlavors = Arrays.copyOf(consumeFlavors, Math.max(index+1, consumeFlavors.length*2));
+        consumeFlavors[index] = (byte)flavor;
+    }
+
+    public AttributeSet getConsumeAttribute(int index) {
+        if(index < 0 || index >= consumeFlavors.length)
+            return null;
+
+        switch(consumeFlavors[index]) {
+            case TOKEN_NORMAL: return attributeConsume;
+            case TOKEN_HIDDEN: return attributeConsumeHidden;
+            case TOKEN_DEAD: return attributeConsumeDead;
+        }
+        return null;
     }
 
     public void addTokenLT(Token token) {
@@ -194,7 +207,7 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
 
         inputTokenIndexes.clear();
         indexToTokenInfoMap.clear();
-        indexToConsumeAttributeMap.clear();
+        consumeFlavors = new byte[0];
         lookaheadTokenIndexes.clear();
     }
 
@@ -208,14 +221,27 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         /** Remove any consume and lookahead attribute for any token with index
          * greater than start
          */
+        if(start < consumeFlavors.length)
+            Arrays.fill(consumeFlavors, Math.max(start, 0), consumeFlavors.length, (byte)0);
         for (Integer idx : inputTokenIndexes) {
             if (idx >= start) {
-                indexToConsumeAttributeMap.remove(idx);
                 lookaheadTokenIndexes.remove(idx);
             }
         }
     }
 
+    public Object createCheckpoint() {
+        return new Checkpoint(this);
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        Checkpoint c = (Checkpoint)checkpoint;
+        currentTokenIndex = c.currentTokenIndex;
+        locationEvent = c.locationEvent;
+        consumeFlavors = c.consumeFlavors.clone();
+        lookaheadTokenIndexes = new HashSet<Integer>(c.lookaheadTokenIndexes);
+    }
+
     public void addToken(Token token) {
         int index = token.getTokenIndex();
         if(index == -1) {
@@ -280,7 +306,7 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         /** Apply the style for each token */
         for (Integer idx : inputTokenIndexes) {
             DBInputTextTokenInfo info = indexToTokenInfoMap.get(idx);
-            AttributeSet attribute = indexToConsumeAttributeMap.get(idx);
+            AttributeSet attribute = getConsumeAttribute(idx);
             if (attribute == null)
                 attribute = attributeNonConsumed;
 
@@ -430,6 +456,24 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         }
     }
 
+    /** The tokens themselves are not part of the checkpoint: like rewindAll(), restoring
+     * a checkpoint keeps displaying the tokens already received.
+     */
+    protected static class Checkpoint {
+
+        public final int currentTokenIndex;
+        public final DBEventLocation locationEvent;
+        public final byte[] consumeFlavors;
+        public final Set<Integer> lookaheadTokenIndexes;
+
+        public Checkpoint(DBInputProcessorToken processor) {
+            currentTokenIndex = processor.currentTokenIndex;
+            locationEvent = processor.locationEvent;
+            consumeFlavors = processor.consumeFlavors.clone();
+            lookaheadTokenIndexes = new HashSet<Integer>(processor.lookaheadTokenIndexes);
+        }
+    }
+
     protected class MyMouseListener extends MouseAdapter {
 
         public void mousePressed(MouseEvent e) {
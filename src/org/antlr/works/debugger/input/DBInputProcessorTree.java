@@ -123,6 +123,33 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
         lastNode = currentNode;
     }
 
+    public Object createCheckpoint() {
+        Checkpoint c = new Checkpoint();
+        c.currentNode = currentNode;
+        c.lastNode = lastNode;
+        c.location = location;
+        /** Only the colors different from the default one are saved */
+        for (Map.Entry<Integer, NodeInfo> entry : nodeInfoForToken.entrySet()) {
+            InputTreeNode node = entry.getValue().node;
+            if(node != null && !nonConsumedColor.equals(node.getTokenColor()))
+                c.colors.put(entry.getKey(), node.getTokenColor());
+        }
+        return c;
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        Checkpoint c = (Checkpoint)checkpoint;
+        applyColor(nonConsumedColor);
+        for (Map.Entry<Integer, Color> entry : c.colors.entrySet()) {
+            NodeInfo info = nodeInfoForToken.get(entry.getKey());
+            if(info != null && info.node != null)
+                info.node.setColor(entry.getValue());
+        }
+        currentNode = c.currentNode;
+        lastNode = c.lastNode;
+        location = c.location;
+    }
+
     public void LT(Token token) {
         InputTreeNode node = processToken(token);
         if(node != null) {
@@ -247,6 +274,17 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
         }
 
     }
+
+    public static class Checkpoint {
+
+        public InputTreeNode currentNode;
+        public InputTreeNode lastNode;
+        public DBEventLocation location;
+
+        /** Color of the nodes indexed by token ID */
+        public Map<Integer,Color> colors = new HashMap<Integer, Color>();
+
+    }
     
     public class InputTreeNode extends DBTreeNode {
 
@@ -269,6 +307,11 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
                 return super.getColor();
         }
 
+        /** Returns the color of the node, ignoring the breakpoint */
+        public Color getTokenColor() {
+            return super.getColor();
+        }
+
         public String toString() {
             if(token != null)
                 return token.getText();
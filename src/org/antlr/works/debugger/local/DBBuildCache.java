@@ -0,0 +1,203 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.local;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Remembers which steps of the debugger build are up-to-date. Each step is identified by
+ * a key computed from the content of all its inputs and owns the class files compiled
+ * from its source files: "X.java" owns "X.class" and "X$*.class" in any package. The
+ * state is saved next to the classes directory so it survives the application.
+ */
+public class DBBuildCache {
+
+    public static final String STEP_GRAMMAR = "grammar";
+    public static final String STEP_SUPPORT = "support";
+    public static final String STEP_GLUE = "glue";
+
+    private static final String FILE_NAME = "__build__.properties";
+    private static final String KEY_SUFFIX = ".key";
+    private static final String SOURCES_SUFFIX = ".sources";
+
+    private final File file;
+    private final File classesDir;
+    private final Properties properties = new Properties();
+
+    public DBBuildCache(String outputPath, String classesDir) {
+        this.file = new File(outputPath, FILE_NAME);
+        this.classesDir = new File(classesDir);
+        load();
+    }
+
+    /**
+     * Returns true if the step has been built with the same key and its class files still exist.
+     */
+    public boolean isUpToDate(String step, String key, String[] sources) {
+        if(!key.equals(properties.getProperty(step+KEY_SUFFIX))) return false;
+        if(!join(sources).equals(properties.getProperty(step+SOURCES_SUFFIX))) return false;
+
+        for(String source : sources) {
+            if(getClassFiles(source).isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the step and deletes the class files compiled from the sources it was built from.
+     */
+    public void invalidate(String step) {
+        String sources = properties.getProperty(step+SOURCES_SUFFIX);
+        if(sources != null && sources.length() > 0) {
+            for(String source : sources.split(File.pathSeparator)) {
+                for(File classFile : getClassFiles(source)) {
+                    classFile.delete();
+                }
+            }
+        }
+        properties.remove(step+KEY_SUFFIX);
+        properties.remove(step+SOURCES_SUFFIX);
+        save();
+    }
+
+    public void record(String step, String key, String[] sources) {
+        properties.setProperty(step+KEY_SUFFIX, key);
+        properties.setProperty(step+SOURCES_SUFFIX, join(sources));
+        save();
+    }
+
+    private List<File> getClassFiles(String source) {
+        String name = new File(source).getName();
+        if(name.endsWith(".java")) {
+            name = name.substring(0, name.length()-".java".length());
+        }
+        List<File> files = new ArrayList<File>();
+        collectClassFiles(classesDir, name+".class", name+"$", files);
+        return files;
+    }
+
+    private static void collectClassFiles(File dir, String className, String innerPrefix, List<File> files) {
+        File[] children = dir.listFiles();
+        if(children == null) return;
+
+        for(File child : children) {
+            if(child.isDirectory()) {
+                collectClassFiles(child, className, innerPrefix, files);
+            } else {
+                String name = child.getName();
+                if(name.equals(className) || name.startsWith(innerPrefix) && name.endsWith(".class")) {
+                    files.add(child);
+                }
+            }
+        }
+    }
+
+    private static String join(String[] sources) {
+        StringBuilder sb = new StringBuilder();
+        for(String source : sources) {
+            if(sb.length() > 0) sb.append(File.pathSeparator);
+            sb.append(source);
+        }
+        return sb.toString();
+    }
+
+    private void load() {
+        if(!file.exists()) return;
+
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            properties.load(is);
+        } catch (IOException e) {
+            // Everything will be built again
+            properties.clear();
+        } finally {
+            close(is);
+        }
+    }
+
+    private void save() {
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(file);
+            properties.store(os, "ANTLRWorks debugger build");
+        } catch (IOException e) {
+            // The next debug session will build everything again
+        } finally {
+            close(os);
+        }
+    }
+
+    private static void close(Closeable c) {
+        if(c == null) return;
+        try {
+            c.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Returns the SHA-1 digest of the values. A null value is different from an empty one.
+     */
+    public static String hash(String... values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for(String value : values) {
+                if(value == null) {
+                    digest.update((byte)0);
+                } else {
+                    byte[] bytes = value.getBytes("UTF-8");
+                    digest.update((byte)1);
+                    digest.update(new byte[] { (byte)(bytes.length >>> 24), (byte)(bytes.length >>> 16), (byte)(bytes.length >>> 8), (byte)bytes.length });
+                    digest.update(bytes);
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.local;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles Java files inside the running JVM using javax.tools instead of forking
+ * a javac process. The class files are written to the output directory so the remote
+ * parser can load them. The file manager is closed at the end of each compilation to
+ * release the jar files it has opened.
+ */
+public class DBJavaCompiler {
+
+    private final JavaCompiler compiler;
+
+    public DBJavaCompiler() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+    }
+
+    /**
+     * Returns true if the JVM provides a Java compiler, which is not the case of a JRE.
+     */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    public Result compile(String[] files, String outputDir, String classPath) {
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            return compile(standardFileManager, files, outputDir, classPath);
+        } finally {
+            try {
+                standardFileManager.close();
+            } catch (IOException e) {
+                // The classes are already written, nothing else to release
+            }
+        }
+    }
+
+    private Result compile(StandardJavaFileManager standardFileManager, String[] files, String outputDir,
+                           String classPath)
+    {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+        List<String> options = Arrays.asList("-classpath", classPath, "-d", outputDir);
+        Iterable<? extends JavaFileObject> units = standardFileManager.getJavaFileObjects(files);
+
+        boolean success;
+        try {
+            success = compiler.getTask(null, standardFileManager, diagnostics, options, null, units).call();
+        } catch (RuntimeException e) {
+            // Thrown for example if a file cannot be read
+            return new Result(false, diagnostics.getDiagnostics(), e.toString());
+        }
+        return new Result(success, diagnostics.getDiagnostics(), null);
+    }
+
+    public static class Result {
+
+        public final boolean success;
+        public final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        private final String failure;
+
+        public Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics, String failure) {
+            this.success = success && failure == null;
+            this.diagnostics = diagnostics;
+            this.failure = failure;
+        }
+
+        /**
+         * Returns a message describing why the compilation failed or null if it succeeded.
+         */
+        public String getError() {
+            if(success) return null;
+            if(failure != null) return "Compiler exception:\n"+failure;
+
+            for(Diagnostic<? extends JavaFileObject> d : diagnostics) {
+                if(d.getKind() == Diagnostic.Kind.ERROR) {
+                    return "Compiler failed:\n"+toString(d);
+                }
+            }
+            return "Compiler failed";
+        }
+
+        public static String toString(Diagnostic<? extends JavaFileObject> d) {
+            StringBuilder sb = new StringBuilder();
+            if(d.getSource() != null) {
+                sb.append(d.getSource().getName());
+                if(d.getLineNumber() != Diagnostic.NOPOS) {
+                    sb.append(':').append(d.getLineNumber());
+                }
+                sb.append(": ");
+            }
+            sb.append(d.getKind().toString().toLowerCase()).append(": ");
+            sb.append(d.getMessage(null));
+            return sb.toString();
+        }
+    }
+
+}
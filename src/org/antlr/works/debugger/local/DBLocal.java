@@ -45,6 +45,8 @@ import org.antlr.works.dialog.DialogTestTemplate;
 import org.antlr.works.generate.CodeGenerate;
 import org.antlr.works.grammar.element.ElementBlock;
 import org.antlr.works.grammar.element.ElementGrammarName;
+import org.antlr.works.grammar.element.ElementImport;
+import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.*;
@@ -58,6 +60,8 @@ import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -90,11 +94,14 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     protected String lastStartRule;
 
     protected Process remoteParserProcess;
+    protected DBParserHostProcess parserHost;
 
     protected boolean cancelled;
     protected int options;
 
     protected CodeGenerate codeGenerator;
+    protected DBJavaCompiler javaCompiler = new DBJavaCompiler();
+    protected DBBuildCache buildCache;
     protected DebuggerTab debuggerTab;
 
     protected int inputMode;
@@ -126,6 +133,10 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             codeGenerator.close();
         }
         codeGenerator = null;
+        if(parserHost != null) {
+            parserHost.destroy();
+        }
+        parserHost = null;
         debuggerTab = null;
     }
 
@@ -144,6 +155,9 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     public void forceStop() {
         if(remoteParserProcess != null)
             remoteParserProcess.destroy();
+        // The parser cannot be stopped without stopping its host
+        if(parserHost != null)
+            parserHost.destroy();
     }
 
     public synchronized void cancel() {
@@ -344,6 +358,7 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
 
             outputFileDir = XJUtils.concatPath(codeGenerator.getOutputPath(), "classes");
             new File(outputFileDir).mkdirs();
+            buildCache = new DBBuildCache(codeGenerator.getOutputPath(), outputFileDir);
         } catch(Exception e) {
             debuggerTab.getConsole().println(e);
             String msg = ErrorListener.getThreadInstance().getFirstErrorMessage();
@@ -360,6 +375,10 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     }
 
     protected void generateAndCompileGrammar() {
+        String[] files = getGrammarGeneratedFiles();
+        if(buildCache.isUpToDate(DBBuildCache.STEP_GRAMMAR, getGrammarKey(), files))
+            return;
+
         progress.setInfo("Analyzing...");
         progress.setProgress(1);
         analyzeGrammar();
@@ -411,9 +430,47 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     }
 
     protected void compileGrammar() {
-        XJUtils.deleteDirectory(outputFileDir);
+        String[] files = getGrammarGeneratedFiles();
+        buildCache.invalidate(DBBuildCache.STEP_GRAMMAR);
         new File(outputFileDir).mkdirs();
-        compileFiles(grammarGeneratedFiles.toArray(new String[grammarGeneratedFiles.size()]));
+        if(compileFiles(files))
+            buildCache.record(DBBuildCache.STEP_GRAMMAR, getGrammarKey(), files);
+    }
+
+    protected String[] getGrammarGeneratedFiles() {
+        return grammarGeneratedFiles.toArray(new String[grammarGeneratedFiles.size()]);
+    }
+
+    /**
+     * Returns the key of the grammar build: it changes whenever the grammar, one of its
+     * imported grammars, its token vocabulary or the way it is generated and compiled changes.
+     */
+    protected String getGrammarKey() {
+        GrammarEngine engine = debuggerTab.getDelegate().getGrammarEngine();
+        List<String> values = new ArrayList<String>();
+        values.add(engine.getGrammarText());
+        for(ElementImport i : engine.getImports()) {
+            values.add(i.getName());
+            values.add(getFileContent(engine.getTokenVocabFile(i.getName()+".g")));
+        }
+        String tokenVocab = engine.getTokenVocab();
+        if(tokenVocab != null) {
+            values.add(tokenVocab);
+            values.add(getFileContent(engine.getTokenVocabFile(tokenVocab+".tokens")));
+        }
+        values.add(Arrays.toString(AWPrefs.getANTLR3Options()));
+        values.add(AWPrefs.getCompiler());
+        values.add(DebuggerEngine.getClassPath(outputFileDir));
+        return DBBuildCache.hash(values.toArray(new String[values.size()]));
+    }
+
+    private static String getFileContent(String file) {
+        if(file == null || !new File(file).exists()) return null;
+        try {
+            return XJUtils.getStringFromFile(file);
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     protected void generateAndCompileGlueCode(boolean build) {
@@ -546,19 +603,42 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             String lexerName = XJUtils.concatPath(codeGenerator.getOutputPath(), (isTreeGrammar ? (getLexerName()+"Lexer.java") : (getLexerName()+".java")));
             String parserName = XJUtils.concatPath(codeGenerator.getOutputPath(), (isTreeGrammar ? (debuggerTab.getDelegate().getTokenVocab()+"Parser.java") :
                     (debuggerTab.getDelegate().getGrammarEngine().getGeneratedClassName(ElementGrammarName.PARSER)+".java")));
-            compileFiles(new String[] { lexerName});
-            compileFiles(new String[] { parserName});
-            compileFiles(new String[] { fileRemoteParser});
+
+            // The lexer and the parser are already compiled by the grammar step unless they
+            // belong to another grammar, as it is the case for a tree grammar.
+            List<String> supportFiles = new ArrayList<String>();
+            for(String file : new String[] { lexerName, parserName }) {
+                if(!grammarGeneratedFiles.contains(file)) supportFiles.add(file);
+            }
+            String[] files = supportFiles.toArray(new String[supportFiles.size()]);
+            String supportKey = DBBuildCache.hash(getGrammarKey(), getFileContent(lexerName), getFileContent(parserName));
+            if(files.length > 0 && !buildCache.isUpToDate(DBBuildCache.STEP_SUPPORT, supportKey, files)) {
+                buildCache.invalidate(DBBuildCache.STEP_SUPPORT);
+                if(!compileFiles(files)) return;
+                buildCache.record(DBBuildCache.STEP_SUPPORT, supportKey, files);
+            }
+
+            // The glue code depends on the compiled grammar and on its own text only
+            String[] glueFiles = new String[] { fileRemoteParser };
+            String glueKey = DBBuildCache.hash(supportKey, getFileContent(fileRemoteParser));
+            if(!buildCache.isUpToDate(DBBuildCache.STEP_GLUE, glueKey, glueFiles)) {
+                buildCache.invalidate(DBBuildCache.STEP_GLUE);
+                if(compileFiles(glueFiles))
+                    buildCache.record(DBBuildCache.STEP_GLUE, glueKey, glueFiles);
+            }
         } catch (Exception e) {
             debuggerTab.getConsole().println(e);
             reportError("Error :\n"+e.toString());
         }
     }
 
-    protected void compileFiles(String[] files) {
-        String error = DebuggerEngine.compileFiles(debuggerTab.getConsole(), files, outputFileDir, this);
-        if(error != null)
+    protected boolean compileFiles(String[] files) {
+        String error = DebuggerEngine.compileFiles(debuggerTab.getConsole(), javaCompiler, files, outputFileDir, this);
+        if(error != null) {
             reportError(error);
+            return false;
+        }
+        return true;
     }
 
     protected void generateInputText() {
@@ -622,21 +702,27 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
         String classPath = DebuggerEngine.getClassPath(outputFileDir);
         IDE.debugVerbose(debuggerTab.getConsole(), getClass(), "Launch with path: "+classPath);
 
-        try {
-            String classNameToRun = remoteParserClassName;
-            if (AWPrefs.TEST_RIG_MODE_CLASS.equals(testTemplateMode)) {
+        String classNameToRun = remoteParserClassName;
+        if (AWPrefs.TEST_RIG_MODE_CLASS.equals(testTemplateMode)) {
+            try {
                 Class.forName(testTemplateClass);
-                classNameToRun = testTemplateClass;
+            } catch (ClassNotFoundException e) {
+                reportError("Cannot launch the remote parser:\n"+e.toString()+"\nIt is possible that some errors prevented the parser from launching. Check the output panel of the debugger and any other output console in your system to see if an error has been reported from the parser and try again.");
+                return false;
             }
+            classNameToRun = testTemplateClass;
+        }
+
+        if(launchInParserHost(classNameToRun, classPath))
+            return true;
+
+        try {
             remoteParserProcess = Runtime.getRuntime().exec(new String[] { "java", "-classpath", classPath, classNameToRun});
             new StreamWatcher(remoteParserProcess.getErrorStream(), "Launcher", debuggerTab.getOutputPanel()).start();
             new StreamWatcher(remoteParserProcess.getInputStream(), "Launcher", debuggerTab.getOutputPanel()).start();
         } catch (IOException e) {
             reportError("Cannot launch the remote parser:\n"+e.toString()+"\nIt is possible that some errors prevented the parser from launching. Check the output panel of the debugger and any other output console in your system to see if an error has been reported from the parser and try again.");
             return false;
-        } catch (ClassNotFoundException e) {
-            reportError("Cannot launch the remote parser:\n"+e.toString()+"\nIt is possible that some errors prevented the parser from launching. Check the output panel of the debugger and any other output console in your system to see if an error has been reported from the parser and try again.");
-            return false;
         }
 
         // Wait 1 second at least to let the process get started.
@@ -651,6 +737,34 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
         return true;
     }
 
+    /**
+     * Runs the parser in the JVM kept alive between the debug sessions. Returns false if the
+     * JVM cannot be used, in which case the parser is launched in its own process.
+     */
+    private boolean launchInParserHost(String className, String classPath) {
+        String hostClassPath = DebuggerEngine.getHostClassPath();
+        if(parserHost != null && !parserHost.getClassPath().equals(hostClassPath)) {
+            parserHost.destroy();
+            parserHost = null;
+        }
+        if(parserHost == null) {
+            parserHost = new DBParserHostProcess(hostClassPath, debuggerTab.getOutputPanel());
+        }
+
+        try {
+            String error = parserHost.run(className, Utils.unquotePath(classPath).split(File.pathSeparator),
+                    AWPrefs.getDebugLaunchTimeout()*1000);
+            if(error == null)
+                return true;
+            debuggerTab.getConsole().println("Cannot run the parser in the parser host: "+error, Console.LEVEL_WARNING);
+        } catch (IOException e) {
+            debuggerTab.getConsole().println(e);
+        }
+        parserHost.destroy();
+        parserHost = null;
+        return false;
+    }
+
     public void streamWatcherDidStart() {
     }
 
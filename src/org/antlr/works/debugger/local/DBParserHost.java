@@ -0,0 +1,134 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.local;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Entry point of the JVM that runs the parsers being debugged. The JVM stays alive between
+ * debug sessions: each session loads the freshly compiled parser in its own class loader,
+ * which is discarded when the parser returns, so a new build never sees the classes of the
+ * previous one.
+ *
+ * The host connects to the control port given as argument and reads one command per line:
+ * <ul>
+ * <li>"run" followed by the tab-separated main class and class path entries of the session.
+ * The host answers "ok" once the main method has been started, "busy" if the parser of the
+ * previous session is still running or "error" followed by the reason.</li>
+ * <li>"quit" to exit the host.</li>
+ * </ul>
+ * The host exits as well as soon as the control connection is closed.
+ *
+ * This class is loaded alone in the host JVM: it must only depend on the JDK.
+ */
+public class DBParserHost {
+
+    public static final String COMMAND_RUN = "run";
+    public static final String COMMAND_QUIT = "quit";
+
+    public static final String REPLY_OK = "ok";
+    public static final String REPLY_BUSY = "busy";
+    public static final String REPLY_ERROR = "error";
+
+    public static final char SEPARATOR = '\t';
+
+    private Thread session;
+
+    public static void main(String[] args) throws Exception {
+        Socket socket = new Socket("localhost", Integer.parseInt(args[0]));
+        try {
+            new DBParserHost().serve(new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8")),
+                    new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"), true));
+        } finally {
+            socket.close();
+        }
+        System.exit(0);
+    }
+
+    private void serve(BufferedReader in, PrintWriter out) throws IOException {
+        String line;
+        while((line = in.readLine()) != null) {
+            String[] elements = line.split(String.valueOf(SEPARATOR));
+            if(elements[0].equals(COMMAND_QUIT)) {
+                break;
+            } else if(elements[0].equals(COMMAND_RUN) && elements.length > 1) {
+                out.println(run(elements));
+            } else {
+                out.println(REPLY_ERROR+SEPARATOR+"unknown command "+line);
+            }
+        }
+    }
+
+    private String run(String[] elements) {
+        if(session != null && session.isAlive())
+            return REPLY_BUSY;
+
+        final URLClassLoader loader;
+        final Method main;
+        try {
+            URL[] urls = new URL[elements.length-2];
+            for(int i=2; i<elements.length; i++) {
+                urls[i-2] = new File(elements[i]).toURI().toURL();
+            }
+            loader = new URLClassLoader(urls, DBParserHost.class.getClassLoader());
+            main = loader.loadClass(elements[1]).getMethod("main", String[].class);
+        } catch (Throwable e) {
+            return REPLY_ERROR+SEPARATOR+e.toString();
+        }
+
+        session = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    main.invoke(null, new Object[] { new String[0] });
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                } finally {
+                    System.out.flush();
+                    System.err.flush();
+                    try {
+                        loader.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        }, "Parser");
+        session.setContextClassLoader(loader);
+        session.start();
+        return REPLY_OK;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.local;
+
+import org.antlr.works.utils.StreamWatcher;
+import org.antlr.works.utils.StreamWatcherDelegate;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Launches and controls the JVM running {@link DBParserHost}. The JVM is started once and
+ * is then reused by each debug session.
+ */
+public class DBParserHostProcess {
+
+    private final String classPath;
+    private final StreamWatcherDelegate delegate;
+
+    private Process process;
+    private Socket socket;
+    private BufferedReader in;
+    private PrintWriter out;
+
+    /**
+     * @param classPath the class path of the host JVM. It must not contain the classes of
+     * the parsers otherwise they would never be reloaded.
+     * @param delegate the delegate receiving the output of the parsers
+     */
+    public DBParserHostProcess(String classPath, StreamWatcherDelegate delegate) {
+        this.classPath = classPath;
+        this.delegate = delegate;
+    }
+
+    public String getClassPath() {
+        return classPath;
+    }
+
+    public synchronized boolean isAlive() {
+        if(process == null) return false;
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Runs the main method of the class in the host JVM, launching it first if needed. If the
+     * parser of the previous session is still running, the JVM is launched again.
+     *
+     * @return null if the class has been started or the reason of the failure
+     * @throws IOException if the host JVM cannot be launched or does not answer
+     */
+    public synchronized String run(String className, String[] classPath, int timeout) throws IOException {
+        if(!isAlive())
+            launch(timeout);
+
+        String reply = send(className, classPath);
+        if(DBParserHost.REPLY_BUSY.equals(reply)) {
+            destroy();
+            launch(timeout);
+            reply = send(className, classPath);
+        }
+
+        if(DBParserHost.REPLY_OK.equals(reply))
+            return null;
+        if(reply != null && reply.startsWith(DBParserHost.REPLY_ERROR))
+            return reply.substring(DBParserHost.REPLY_ERROR.length()).trim();
+        return "Unexpected answer from the parser host: "+reply;
+    }
+
+    public synchronized void destroy() {
+        if(out != null)
+            out.println(DBParserHost.COMMAND_QUIT);
+        closeQuietly(socket);
+        socket = null;
+        in = null;
+        out = null;
+
+        if(process != null)
+            process.destroy();
+        process = null;
+    }
+
+    private String send(String className, String[] classPath) throws IOException {
+        StringBuilder sb = new StringBuilder(DBParserHost.COMMAND_RUN);
+        sb.append(DBParserHost.SEPARATOR).append(className);
+        for(String entry : classPath) {
+            sb.append(DBParserHost.SEPARATOR).append(entry);
+        }
+        out.println(sb);
+        return in.readLine();
+    }
+
+    private void launch(int timeout) throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("localhost"));
+        try {
+            server.setSoTimeout(timeout);
+            process = Runtime.getRuntime().exec(new String[] { "java", "-classpath", classPath,
+                    DBParserHost.class.getName(), String.valueOf(server.getLocalPort()) });
+            new StreamWatcher(process.getErrorStream(), "Launcher", delegate).start();
+            new StreamWatcher(process.getInputStream(), "Launcher", delegate).start();
+
+            socket = server.accept();
+            socket.setSoTimeout(timeout);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"), true);
+        } catch (IOException e) {
+            destroy();
+            throw e;
+        } finally {
+            server.close();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if(socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+}
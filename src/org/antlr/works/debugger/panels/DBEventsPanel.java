@@ -10,7 +10,8 @@ import org.antlr.xjlib.appkit.swing.XJTableView;
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 /*
 
@@ -97,8 +98,18 @@ public class DBEventsPanel extends DetachablePanel {
         });
     }
 
+    /** Sets the events displayed by the panel: the row i displays the event i */
+    public void setEvents(List<DBEvent> events) {
+        eventTableDataModel.setEvents(events);
+    }
+
     public void addEvent(DBEvent event, DBPlayerContextInfo info) {
-        eventTableDataModel.add(event, info);
+        eventTableDataModel.add(info);
+    }
+
+    /** Removes the events after the first count events */
+    public void truncateEvents(int count) {
+        eventTableDataModel.truncate(count);
     }
 
     public String getEventsAsString() {
@@ -106,26 +117,50 @@ public class DBEventsPanel extends DetachablePanel {
         sb.append(eventTableDataModel.getHeadersAsString());
         sb.append("\n");
 
-        List<EventTableDataModel.EventInfo> events = eventTableDataModel.events;
-        for(int i=0; i<events.size(); i++) {
+        for(int i=0; i<eventTableDataModel.getRowCount(); i++) {
             sb.append(i);
             sb.append(":\t");
-            sb.append(events.get(i).toString());
+            sb.append(eventTableDataModel.getRowAsString(i));
             sb.append("\n");
         }
         return sb.toString();
     }
 
+    /** The model only keeps the context of each event. The events themselves are read from
+     * the recorded events when a row is displayed, so the panel does not hold on to every event.
+     */
     public class EventTableDataModel extends AbstractTableModel {
 
-        protected List<EventInfo> events = new ArrayList<EventInfo>();
+        protected static final int CONTEXT_SIZE = 4;
+
+        protected List<DBEvent> events = Collections.emptyList();
+        protected int[] contexts = new int[CONTEXT_SIZE*256];
+        protected int count;
+
+        public void setEvents(List<DBEvent> events) {
+            this.events = events;
+        }
+
+        public void add(DBPlayerContextInfo info) {
+            if((count+1)*CONTEXT_SIZE > contexts.length)
+                contexts = Arrays.copyOf(contexts, contexts.length*2);
+
+            int offset = count*CONTEXT_SIZE;
+            contexts[offset] = info.getSubrule();
+            contexts[offset+1] = info.getDecision();
+            contexts[offset+2] = info.getMark();
+            contexts[offset+3] = info.getBacktrack();
+            count++;
+        }
 
-        public void add(DBEvent event, DBPlayerContextInfo info) {
-            events.add(new EventInfo(event, info));
+        public void truncate(int count) {
+            if(count < this.count)
+                this.count = count;
         }
 
         public void clear() {
-            events.clear();
+            count = 0;
+            contexts = new int[CONTEXT_SIZE*256];
             fireTableDataChanged();
             infoTableView.autoresizeColumns();
         }
@@ -136,7 +171,7 @@ public class DBEventsPanel extends DetachablePanel {
         }
 
         public int getRowCount() {
-            return events.size();
+            return count;
         }
 
         public int getColumnCount() {
@@ -168,14 +203,13 @@ public class DBEventsPanel extends DetachablePanel {
         }
 
         public Object getValueAt(int rowIndex, int columnIndex) {
-            EventInfo info = events.get(rowIndex);
             switch(columnIndex) {
                 case INFO_COLUMN_COUNT: return String.valueOf(rowIndex);
-                case INFO_COLUMN_EVENT: return info.event;
-                case INFO_COLUMN_SUBRULE: return info.getSubrule();
-                case INFO_COLUMN_DECISION: return info.getDecision();
-                case INFO_COLUMN_MARK: return info.getMark();
-                case INFO_COLUMN_BACKTRACK: return info.getBacktrack();
+                case INFO_COLUMN_EVENT: return getEvent(rowIndex);
+                case INFO_COLUMN_SUBRULE: return getContextValue(rowIndex, 0);
+                case INFO_COLUMN_DECISION: return getContextValue(rowIndex, 1);
+                case INFO_COLUMN_MARK: return getContextValue(rowIndex, 2);
+                case INFO_COLUMN_BACKTRACK: return getContextValue(rowIndex, 3);
             }
             return null;
         }
@@ -184,59 +218,30 @@ public class DBEventsPanel extends DetachablePanel {
             return "#\tEvent\tSubrule\tDecision\tMark\tBacktrack";
         }
 
-        public class EventInfo {
-
-            public DBEvent event;
-            public int subrule;
-            public int decision;
-            public int mark;
-            public int backtrack;
-
-            public EventInfo(DBEvent event, DBPlayerContextInfo info) {
-                this.event = event;
-                this.subrule = info.getSubrule();
-                this.decision = info.getDecision();
-                this.mark = info.getMark();
-                this.backtrack = info.getBacktrack();
-            }
-
-            public Object getSubrule() {
-                return subrule==-1?null:String.valueOf(subrule);
-            }
-
-            public Object getDecision() {
-                return decision==-1?null:String.valueOf(decision);
-            }
-
-            public Object getMark() {
-                return mark==-1?null:String.valueOf(mark);
-            }
+        public DBEvent getEvent(int rowIndex) {
+            return rowIndex < events.size() ? events.get(rowIndex) : null;
+        }
 
-            public Object getBacktrack() {
-                return backtrack==-1?null:String.valueOf(backtrack);
-            }
+        public Object getContextValue(int rowIndex, int index) {
+            int value = contexts[rowIndex*CONTEXT_SIZE+index];
+            return value==-1?null:String.valueOf(value);
+        }
 
-            public String getTextForExport(int value) {
-                if(value == -1)
-                    return "-";
-                else
-                    return String.valueOf(value);
-            }
+        public String getTextForExport(int value) {
+            if(value == -1)
+                return "-";
+            else
+                return String.valueOf(value);
+        }
 
-            public String toString() {
-                StringBuilder sb = new StringBuilder();
-                sb.append(event.toString());
-                sb.append("\t");
-                sb.append(getTextForExport(subrule));
+        public String getRowAsString(int rowIndex) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(getEvent(rowIndex));
+            for(int i=0; i<CONTEXT_SIZE; i++) {
                 sb.append("\t");
-                sb.append(getTextForExport(decision));
-                sb.append("\t");
-                sb.append(getTextForExport(mark));
-                sb.append("\t");
-                sb.append(getTextForExport(backtrack));
-                return sb.toString();
+                sb.append(getTextForExport(contexts[rowIndex*CONTEXT_SIZE+i]));
             }
+            return sb.toString();
         }
     }
-
 }
@@ -98,6 +98,17 @@ public class DBStackPanel extends DetachablePanel {
         rules.pop();
     }
 
+    public Object createCheckpoint() {
+        return new ArrayList<DBEventEnterRule>(rules);
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        clear();
+        for (DBEventEnterRule rule : (java.util.List<DBEventEnterRule>)checkpoint) {
+            pushRule(rule);
+        }
+    }
+
     public DBEventEnterRule peekRule() {
         if(rules.isEmpty()) {
             return null;
@@ -0,0 +1,335 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.profiler;
+
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.utils.Utils;
+
+import java.util.*;
+
+/**
+ * Computes the cost of each rule and decision from the stream of events of a parser: the number
+ * of rule invocations, the time spent in each rule, the number of decision evaluations with their
+ * lookahead depth (the deepest LT event of the evaluation) and the number of backtracks.
+ *
+ * The time of an event is the time at which it is received. The time of a recursive rule is only
+ * counted once, by its outermost invocation. The profiler can be fed from any thread.
+ */
+public class DBProfiler {
+
+    private final Map<String, RuleStats> rules = new LinkedHashMap<String, RuleStats>();
+    private final Map<String, DecisionStats> decisions = new LinkedHashMap<String, DecisionStats>();
+
+    private final Stack<RuleFrame> ruleStack = new Stack<RuleFrame>();
+    private final Stack<DecisionFrame> decisionStack = new Stack<DecisionFrame>();
+
+    private int eventCount;
+
+    public synchronized void reset() {
+        rules.clear();
+        decisions.clear();
+        ruleStack.clear();
+        decisionStack.clear();
+        eventCount = 0;
+    }
+
+    public synchronized int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Processes the event.
+     *
+     * @param time the time of the event in nanoseconds
+     */
+    public synchronized void event(DBEvent event, long time) {
+        eventCount++;
+        switch(event.getEventType()) {
+            case DBEvent.ENTER_RULE:
+                enterRule(event.getGrammarName(), ((DBEventEnterRule)event).name, time);
+                break;
+            case DBEvent.EXIT_RULE:
+                exitRule(((DBEventExitRule)event).name, time);
+                break;
+            case DBEvent.ENTER_DECISION:
+                enterDecision(event.getGrammarName(), ((DBEventEnterDecision)event).decision, time);
+                break;
+            case DBEvent.EXIT_DECISION:
+                exitDecision(time);
+                break;
+            case DBEvent.LT:
+                if(!decisionStack.isEmpty()) {
+                    DecisionFrame frame = decisionStack.peek();
+                    frame.lookahead = Math.max(frame.lookahead, ((DBEventLT)event).index);
+                }
+                break;
+            case DBEvent.BEGIN_BACKTRACK:
+                if(!ruleStack.isEmpty())
+                    ruleStack.peek().stats.backtracks++;
+                if(!decisionStack.isEmpty())
+                    decisionStack.peek().stats.backtracks++;
+                break;
+            case DBEvent.TERMINATE:
+                while(!decisionStack.isEmpty()) {
+                    exitDecision(time);
+                }
+                while(!ruleStack.isEmpty()) {
+                    exitRule(ruleStack.peek().stats.name, time);
+                }
+                break;
+        }
+    }
+
+    private void enterRule(String grammarName, String name, long time) {
+        String key = grammarName+":"+name;
+        RuleStats stats = rules.get(key);
+        if(stats == null) {
+            stats = new RuleStats(grammarName, name);
+            rules.put(key, stats);
+        }
+        stats.invocations++;
+        stats.active++;
+        ruleStack.push(new RuleFrame(stats, time));
+    }
+
+    private void exitRule(String name, long time) {
+        // Skip the frames of the rules that did not exit properly
+        while(!ruleStack.isEmpty()) {
+            RuleFrame frame = ruleStack.pop();
+            long elapsed = time-frame.start;
+            frame.stats.active--;
+            if(frame.stats.active == 0)
+                frame.stats.time += elapsed;
+            frame.stats.selfTime += elapsed-frame.childrenTime;
+            if(!ruleStack.isEmpty())
+                ruleStack.peek().childrenTime += elapsed;
+            if(frame.stats.name.equals(name))
+                break;
+        }
+    }
+
+    private void enterDecision(String grammarName, int decision, long time) {
+        if(grammarName == null && !ruleStack.isEmpty())
+            grammarName = ruleStack.peek().stats.grammarName;
+
+        String key = grammarName+":"+decision;
+        DecisionStats stats = decisions.get(key);
+        if(stats == null) {
+            stats = new DecisionStats(grammarName, decision, ruleStack.isEmpty() ? null : ruleStack.peek().stats.name);
+            decisions.put(key, stats);
+        }
+        stats.evaluations++;
+        decisionStack.push(new DecisionFrame(stats, time));
+    }
+
+    private void exitDecision(long time) {
+        if(decisionStack.isEmpty()) return;
+
+        DecisionFrame frame = decisionStack.pop();
+        frame.stats.time += time-frame.start;
+        frame.stats.totalLookahead += frame.lookahead;
+        frame.stats.maxLookahead = Math.max(frame.stats.maxLookahead, frame.lookahead);
+    }
+
+    /** Returns a copy of the statistics of each rule, in the order of their first invocation */
+    public synchronized List<RuleStats> getRuleStats() {
+        List<RuleStats> stats = new ArrayList<RuleStats>();
+        for(RuleStats s : rules.values()) {
+            stats.add(s.copy());
+        }
+        return stats;
+    }
+
+    /** Returns a copy of the statistics of each decision, in the order of their first evaluation */
+    public synchronized List<DecisionStats> getDecisionStats() {
+        List<DecisionStats> stats = new ArrayList<DecisionStats>();
+        for(DecisionStats s : decisions.values()) {
+            stats.add(s.copy());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics in CSV: one line per rule then one line per decision.
+     */
+    public String toCSV() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("type,grammar,name,count,time (ms),self time (ms),backtracks,max lookahead,average lookahead\n");
+        for(RuleStats s : getRuleStats()) {
+            sb.append("rule,").append(toCSVField(s.grammarName)).append(',').append(toCSVField(s.name)).append(',');
+            sb.append(s.invocations).append(',').append(toMillis(s.time)).append(',').append(toMillis(s.selfTime)).append(',');
+            sb.append(s.backtracks).append(",,\n");
+        }
+        for(DecisionStats s : getDecisionStats()) {
+            sb.append("decision,").append(toCSVField(s.grammarName)).append(',').append(toCSVField(s.getName())).append(',');
+            sb.append(s.evaluations).append(',').append(toMillis(s.time)).append(",,");
+            sb.append(s.backtracks).append(',').append(s.maxLookahead).append(',').append(format(s.getAverageLookahead())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public String toJSON() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"rules\": [");
+        List<RuleStats> ruleStats = getRuleStats();
+        for(int i=0; i<ruleStats.size(); i++) {
+            RuleStats s = ruleStats.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {\"grammar\": ").append(Utils.toJSONString(s.grammarName));
+            sb.append(", \"name\": ").append(Utils.toJSONString(s.name));
+            sb.append(", \"invocations\": ").append(s.invocations);
+            sb.append(", \"timeMs\": ").append(toMillis(s.time));
+            sb.append(", \"selfTimeMs\": ").append(toMillis(s.selfTime));
+            sb.append(", \"backtracks\": ").append(s.backtracks).append('}');
+        }
+        sb.append("\n  ],\n  \"decisions\": [");
+        List<DecisionStats> decisionStats = getDecisionStats();
+        for(int i=0; i<decisionStats.size(); i++) {
+            DecisionStats s = decisionStats.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {\"grammar\": ").append(Utils.toJSONString(s.grammarName));
+            sb.append(", \"decision\": ").append(s.decision);
+            sb.append(", \"rule\": ").append(Utils.toJSONString(s.ruleName));
+            sb.append(", \"evaluations\": ").append(s.evaluations);
+            sb.append(", \"timeMs\": ").append(toMillis(s.time));
+            sb.append(", \"backtracks\": ").append(s.backtracks);
+            sb.append(", \"maxLookahead\": ").append(s.maxLookahead);
+            sb.append(", \"averageLookahead\": ").append(format(s.getAverageLookahead())).append('}');
+        }
+        sb.append("\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static String toCSVField(String s) {
+        if(s == null) return "";
+        if(s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1) return s;
+        return "\""+s.replace("\"", "\"\"")+"\"";
+    }
+
+    public static String toMillis(long nanos) {
+        return format(nanos/1000000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    public static class RuleStats {
+
+        public final String grammarName;
+        public final String name;
+        public int invocations;
+        public int backtracks;
+        /** Time in nanoseconds spent in the rule, including the rules it invokes */
+        public long time;
+        /** Time in nanoseconds spent in the rule itself */
+        public long selfTime;
+
+        private int active;
+
+        public RuleStats(String grammarName, String name) {
+            this.grammarName = grammarName;
+            this.name = name;
+        }
+
+        public RuleStats copy() {
+            RuleStats s = new RuleStats(grammarName, name);
+            s.invocations = invocations;
+            s.backtracks = backtracks;
+            s.time = time;
+            s.selfTime = selfTime;
+            return s;
+        }
+    }
+
+    public static class DecisionStats {
+
+        public final String grammarName;
+        public final int decision;
+        /** The rule in which the decision has been evaluated first */
+        public final String ruleName;
+        public int evaluations;
+        public int backtracks;
+        public int maxLookahead;
+        public long totalLookahead;
+        public long time;
+
+        public DecisionStats(String grammarName, int decision, String ruleName) {
+            this.grammarName = grammarName;
+            this.decision = decision;
+            this.ruleName = ruleName;
+        }
+
+        public String getName() {
+            return ruleName == null ? String.valueOf(decision) : ruleName+" #"+decision;
+        }
+
+        public double getAverageLookahead() {
+            return evaluations == 0 ? 0 : (double)totalLookahead/evaluations;
+        }
+
+        public DecisionStats copy() {
+            DecisionStats s = new DecisionStats(grammarName, decision, ruleName);
+            s.evaluations = evaluations;
+            s.backtracks = backtracks;
+            s.maxLookahead = maxLookahead;
+            s.totalLookahead = totalLookahead;
+            s.time = time;
+            return s;
+        }
+    }
+
+    private static class RuleFrame {
+
+        final RuleStats stats;
+        final long start;
+        long childrenTime;
+
+        RuleFrame(RuleStats stats, long start) {
+            this.stats = stats;
+            this.start = start;
+        }
+    }
+
+    private static class DecisionFrame {
+
+        final DecisionStats stats;
+        final long start;
+        int lookahead;
+
+        DecisionFrame(DecisionStats stats, long start) {
+            this.stats = stats;
+            this.start = start;
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.profiler;
+
+import org.antlr.xjlib.appkit.swing.XJTableView;
+import org.antlr.xjlib.appkit.utils.XJAlert;
+import org.antlr.xjlib.appkit.utils.XJFileChooser;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Displays the statistics of a profiler in two sortable tables, one for the rules and one for
+ * the decisions, and exports them as CSV or JSON.
+ */
+public class DBProfilerView extends JPanel {
+
+    protected DBProfiler profiler;
+
+    protected RuleTableModel ruleModel = new RuleTableModel();
+    protected DecisionTableModel decisionModel = new DecisionTableModel();
+
+    protected XJTableView ruleTableView;
+    protected XJTableView decisionTableView;
+
+    public DBProfilerView() {
+        super(new BorderLayout());
+
+        ruleTableView = createTableView(ruleModel);
+        decisionTableView = createTableView(decisionModel);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Rules", ruleTableView);
+        tabs.addTab("Decisions", decisionTableView);
+
+        add(createButtons(), BorderLayout.NORTH);
+        add(tabs, BorderLayout.CENTER);
+    }
+
+    private static XJTableView createTableView(AbstractTableModel model) {
+        XJTableView view = new XJTableView();
+        view.getTable().setModel(model);
+        view.getTable().setAutoCreateRowSorter(true);
+        view.autoresizeColumns();
+        return view;
+    }
+
+    private Box createButtons() {
+        Box box = Box.createHorizontalBox();
+        box.add(createButton("Refresh", new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        }));
+        box.add(Box.createHorizontalGlue());
+        box.add(createButton("Export CSV...", new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                export("csv", "CSV file");
+            }
+        }));
+        box.add(createButton("Export JSON...", new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                export("json", "JSON file");
+            }
+        }));
+        return box;
+    }
+
+    private static JButton createButton(String title, ActionListener listener) {
+        JButton button = new JButton(title);
+        button.setFocusable(false);
+        button.addActionListener(listener);
+        return button;
+    }
+
+    public void setProfiler(DBProfiler profiler) {
+        this.profiler = profiler;
+        refresh();
+    }
+
+    /** Reloads the tables from the profiler. Must be called from the event dispatch thread. */
+    public void refresh() {
+        if(profiler == null) {
+            ruleModel.setStats(Collections.<DBProfiler.RuleStats>emptyList());
+            decisionModel.setStats(Collections.<DBProfiler.DecisionStats>emptyList());
+        } else {
+            ruleModel.setStats(profiler.getRuleStats());
+            decisionModel.setStats(profiler.getDecisionStats());
+        }
+        ruleTableView.autoresizeColumns();
+        decisionTableView.autoresizeColumns();
+    }
+
+    protected void export(String extension, String description) {
+        if(profiler == null)
+            return;
+
+        if(!XJFileChooser.shared().displaySaveDialog(this, extension, description, false))
+            return;
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if(file == null)
+            return;
+
+        try {
+            XJUtils.writeStringToFile(extension.equals("csv") ? profiler.toCSV() : profiler.toJSON(), file);
+        } catch (IOException e) {
+            XJAlert.display(this, "Error", "Cannot save the profile: "+file+"\nError: "+e);
+        }
+    }
+
+    protected static class RuleTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMNS = { "Grammar", "Rule", "Invocations", "Time (ms)", "Self time (ms)", "Backtracks" };
+        private static final Class[] CLASSES = { String.class, String.class, Integer.class, Double.class, Double.class, Integer.class };
+
+        private List<DBProfiler.RuleStats> stats = Collections.emptyList();
+
+        public void setStats(List<DBProfiler.RuleStats> stats) {
+            this.stats = stats;
+            fireTableDataChanged();
+        }
+
+        public int getRowCount() {
+            return stats.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return CLASSES[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            DBProfiler.RuleStats s = stats.get(row);
+            switch(column) {
+                case 0: return s.grammarName;
+                case 1: return s.name;
+                case 2: return s.invocations;
+                case 3: return s.time/1000000.0;
+                case 4: return s.selfTime/1000000.0;
+                case 5: return s.backtracks;
+            }
+            return null;
+        }
+    }
+
+    protected static class DecisionTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMNS = { "Grammar", "Decision", "Rule", "Evaluations", "Time (ms)", "Backtracks", "Max lookahead", "Average lookahead" };
+        private static final Class[] CLASSES = { String.class, Integer.class, String.class, Integer.class, Double.class, Integer.class, Integer.class, Double.class };
+
+        private List<DBProfiler.DecisionStats> stats = Collections.emptyList();
+
+        public void setStats(List<DBProfiler.DecisionStats> stats) {
+            this.stats = stats;
+            fireTableDataChanged();
+        }
+
+        public int getRowCount() {
+            return stats.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return CLASSES[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            DBProfiler.DecisionStats s = stats.get(row);
+            switch(column) {
+                case 0: return s.grammarName;
+                case 1: return s.decision;
+                case 2: return s.ruleName;
+                case 3: return s.evaluations;
+                case 4: return s.time/1000000.0;
+                case 5: return s.backtracks;
+                case 6: return s.maxLookahead;
+                case 7: return s.getAverageLookahead();
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,372 @@
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventCodec;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** List of debugger events stored on disk instead of the heap.
+ *
+ * The events are appended in their binary encoding (see DBEventCodec) to a data file
+ * and the offset of each event is appended to an index file. Both files are memory-mapped
+ * by segments so appending and reading an event at any position is cheap, and the heap
+ * only holds a small cache of the last decoded events.
+ *
+ * The data file is also the format used to save a recording: it starts with a header
+ * followed by each event prefixed with its length, so the index can be rebuilt when the
+ * recording is opened again.
+ */
+public class DBEventLog extends AbstractList<DBEvent> implements RandomAccess {
+
+    private static final int MAGIC = 0x41574556;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final int SEGMENT_SIZE = 1 << 23;
+    private static final int CACHE_SIZE = 1024;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final MappedFile data;
+    private final MappedFile index;
+
+    private long dataLength;
+    private int size;
+    private boolean closed;
+
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final DataOutputStream encoder = new DataOutputStream(encoded);
+    private byte[] buffer = new byte[256];
+    private final byte[] intBuffer = new byte[4];
+
+    /** Direct-mapped cache of the decoded events: the player and the events panel
+     * read the same events over and over again while the user is stepping.
+     */
+    private final DBEvent[] cache = new DBEvent[CACHE_SIZE];
+    private final int[] cacheIndexes = new int[CACHE_SIZE];
+
+    private DBEventLog() throws IOException {
+        dataFile = File.createTempFile("antlrworks-events", ".data");
+        indexFile = File.createTempFile("antlrworks-events", ".index");
+        dataFile.deleteOnExit();
+        indexFile.deleteOnExit();
+
+        data = new MappedFile(dataFile);
+        index = new MappedFile(indexFile);
+
+        writeInt(0, MAGIC);
+        writeInt(4, VERSION);
+        dataLength = HEADER_SIZE;
+
+        for(int i=0; i<CACHE_SIZE; i++) {
+            cacheIndexes[i] = -1;
+        }
+    }
+
+    /** Creates a new empty log backed by temporary files */
+    public static DBEventLog create() throws IOException {
+        return new DBEventLog();
+    }
+
+    /** Opens a recording saved with save(): its events are copied into a new log */
+    public static DBEventLog open(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        DBEventLog log = null;
+        try {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Not a debugger recording: "+file);
+
+            log = new DBEventLog();
+            while(true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] bytes = log.getBuffer(length);
+                in.readFully(bytes, 0, length);
+                log.append(bytes, length);
+            }
+            return log;
+        } catch (IOException e) {
+            if(log != null)
+                log.close();
+            throw e;
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Saves the events so they can be opened later using open() */
+    public static void save(List<DBEvent> events, File file) throws IOException {
+        if(events instanceof DBEventLog) {
+            ((DBEventLog)events).save(file);
+            return;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream encoder = new DataOutputStream(bytes);
+            synchronized(events) {
+                for(DBEvent event : events) {
+                    bytes.reset();
+                    DBEventCodec.write(encoder, event);
+                    out.writeInt(bytes.size());
+                    bytes.writeTo(out);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public synchronized void save(File file) throws IOException {
+        data.force();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel source = data.channel;
+            FileChannel target = out.getChannel();
+            long position = 0;
+            while(position < dataLength) {
+                position += source.transferTo(position, dataLength-position, target);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Closes the log and deletes its files. The segments are unmapped first: a file
+     * cannot be deleted while it is mapped on some platforms (i.e. Windows).
+     */
+    public synchronized void close() {
+        if(closed)
+            return;
+
+        closed = true;
+        data.close();
+        index.close();
+        dataFile.delete();
+        indexFile.delete();
+    }
+
+    private void checkOpen() {
+        if(closed)
+            throw new IllegalStateException("The event log is closed");
+    }
+
+    @Override
+    public synchronized boolean add(DBEvent event) {
+        checkOpen();
+        try {
+            encoded.reset();
+            DBEventCodec.write(encoder, event);
+            cache(size, event);
+            append(encoded.toByteArray(), encoded.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot record the event "+event, e);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized DBEvent get(int i) {
+        if(i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+        checkOpen();
+
+        int slot = i & (CACHE_SIZE-1);
+        if(cacheIndexes[slot] == i)
+            return cache[slot];
+
+        try {
+            long offset = index.segment((long)i*8).getLong((int)(((long)i*8) % SEGMENT_SIZE));
+            int length = readInt(offset);
+            byte[] bytes = getBuffer(length);
+            data.read(offset+4, bytes, 0, length);
+
+            DBEvent event = DBEventCodec.read(new DataInputStream(new ByteArrayInputStream(bytes, 0, length)));
+            cache(i, event);
+            return event;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read the event "+i, e);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cache(int i, DBEvent event) {
+        int slot = i & (CACHE_SIZE-1);
+        cache[slot] = event;
+        cacheIndexes[slot] = i;
+    }
+
+    private void append(byte[] bytes, int length) throws IOException {
+        long position = (long)size*8;
+        index.segment(position).putLong((int)(position % SEGMENT_SIZE), dataLength);
+
+        writeInt(dataLength, length);
+        data.write(dataLength+4, bytes, 0, length);
+        dataLength += 4+length;
+        size++;
+    }
+
+    private byte[] getBuffer(int length) {
+        if(buffer.length < length)
+            buffer = new byte[Math.max(length, buffer.length*2)];
+        return buffer;
+    }
+
+    private void writeInt(long position, int value) throws IOException {
+        byte[] bytes = intBuffer;
+        bytes[0] = (byte)(value >>> 24);
+        bytes[1] = (byte)(value >>> 16);
+        bytes[2] = (byte)(value >>> 8);
+        bytes[3] = (byte)value;
+        data.write(position, bytes, 0, 4);
+    }
+
+    private int readInt(long position) throws IOException {
+        byte[] bytes = intBuffer;
+        data.read(position, bytes, 0, 4);
+        return ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16) | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+    }
+
+    /** A file mapped in memory by segments of SEGMENT_SIZE bytes. The file grows
+     * each time a new segment is mapped.
+     */
+    private static class MappedFile {
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+        public MappedFile(File f) throws IOException {
+            file = new RandomAccessFile(f, "rw");
+            channel = file.getChannel();
+        }
+
+        public ByteBuffer segment(long position) throws IOException {
+            int i = (int)(position / SEGMENT_SIZE);
+            while(segments.size() <= i) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long)segments.size()*SEGMENT_SIZE, SEGMENT_SIZE));
+            }
+            return segments.get(i);
+        }
+
+        public void write(long position, byte[] bytes, int offset, int length) throws IOException {
+            while(length > 0) {
+                ByteBuffer segment = segment(position);
+                int p = (int)(position % SEGMENT_SIZE);
+                int n = Math.min(length, SEGMENT_SIZE-p);
+                segment.position(p);
+                segment.put(bytes, offset, n);
+                position += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        public void read(long position, byte[] bytes, int offset, int length) throws IOException {
+            while(length > 0) {
+                ByteBuffer segment = segment(position);
+                int p = (int)(position % SEGMENT_SIZE);
+                int n = Math.min(length, SEGMENT_SIZE-p);
+                segment.position(p);
+                segment.get(bytes, offset, n);
+                position += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        public void force() {
+            for(MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+
+        public void close() {
+            for(MappedByteBuffer segment : segments) {
+                unmap(segment);
+            }
+            segments.clear();
+            try {
+                file.close();
+            } catch (IOException e) {
+                // Nothing to do, the file is deleted anyway
+            }
+        }
+
+        /** Releases the memory of the segment now instead of when it is garbage collected.
+         * The segment must not be accessed anymore.
+         */
+        private static void unmap(MappedByteBuffer segment) {
+            try {
+                try {
+                    // Java 9 and later
+                    Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                    Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                    theUnsafe.setAccessible(true);
+                    invokeCleaner.invoke(theUnsafe.get(null), segment);
+                } catch (NoSuchMethodException e) {
+                    // Java 8 and earlier
+                    Method cleanerMethod = segment.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(segment);
+                    if(cleaner != null)
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            } catch (Exception e) {
+                // Not supported by this VM: the segment is unmapped when garbage collected
+            }
+        }
+    }
+}
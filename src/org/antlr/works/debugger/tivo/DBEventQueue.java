@@ -0,0 +1,123 @@
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.works.debugger.events.DBEvent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** Bounded lock-free queue used to hand the events received from the remote parser
+ * over to the event dispatch thread.
+ *
+ * The queue supports exactly one producer (the thread reading the socket) and one
+ * consumer at a time (the consumer methods are called while holding the recorder lock).
+ * Each side only writes its own counter and caches the counter of the other side, so
+ * the producer does not touch any lock or shared cache line as long as the queue is
+ * not full.
+ */
+public class DBEventQueue {
+
+    private final DBEvent[] buffer;
+    private final int mask;
+
+    /** Index of the next event to read, only written by the consumer */
+    private final AtomicLong head = new AtomicLong();
+    /** Index of the next event to write, only written by the producer */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Last value of head seen by the producer */
+    private long producerHead;
+    /** Last value of tail seen by the consumer */
+    private long consumerTail;
+
+    /** Creates a queue holding up to capacity events: capacity must be a power of two */
+    public DBEventQueue(int capacity) {
+        if(Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("The capacity must be a power of two: "+capacity);
+
+        buffer = new DBEvent[capacity];
+        mask = capacity-1;
+    }
+
+    /** Adds an event at the end of the queue. Returns false if the queue is full.
+     * Must only be called by the producer.
+     */
+    public boolean offer(DBEvent event) {
+        long t = tail.get();
+        if(t-producerHead >= buffer.length) {
+            producerHead = head.get();
+            if(t-producerHead >= buffer.length)
+                return false;
+        }
+        buffer[(int)t & mask] = event;
+        tail.lazySet(t+1);
+        return true;
+    }
+
+    /** Moves all the available events at the end of the list and returns the number
+     * of events moved. Must only be called by the consumer.
+     */
+    public int drainTo(List<DBEvent> events) {
+        long h = head.get();
+        if(h >= consumerTail) {
+            consumerTail = tail.get();
+            if(h >= consumerTail)
+                return 0;
+        }
+
+        int count = (int)(consumerTail-h);
+        for(long i = h; i < consumerTail; i++) {
+            int index = (int)i & mask;
+            events.add(buffer[index]);
+            buffer[index] = null;
+        }
+        head.lazySet(consumerTail);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    /** Removes all the events. Must only be called when the producer is not running. */
+    public void clear() {
+        long h = head.get();
+        long t = tail.get();
+        for(long i = h; i < t; i++) {
+            buffer[(int)i & mask] = null;
+        }
+        head.set(t);
+        producerHead = t;
+        consumerTail = t;
+    }
+
+}
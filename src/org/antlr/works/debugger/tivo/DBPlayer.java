@@ -37,11 +37,18 @@ import org.antlr.works.debugger.events.*;
 import org.antlr.works.debugger.input.DBInputProcessor;
 import org.antlr.works.debugger.input.DBInputTextTokenInfo;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
 
 public class DBPlayer {
 
+    /** Initial number of events between two checkpoints */
+    public static final int CHECKPOINT_INTERVAL = 1000;
+
+    /** Maximum number of checkpoints: when reached, the interval is doubled */
+    public static final int MAX_CHECKPOINTS = 64;
+
     protected DebuggerTab debuggerTab;
     protected DBInputProcessor processor;
 
@@ -51,6 +58,12 @@ public class DBPlayer {
     protected int resyncing = 0;
     protected int eventPlayedCount = 0;
 
+    /** Checkpoints sorted by position. Moving backward restores the closest checkpoint
+     * and replays only the events after it instead of replaying all the events.
+     */
+    protected List<Checkpoint> checkpoints = new ArrayList<Checkpoint>();
+    protected int checkpointInterval = CHECKPOINT_INTERVAL;
+
     public DBPlayer(DebuggerTab debuggerTab) {
         this.debuggerTab = debuggerTab;
         contextInfo = new DBPlayerContextInfo();
@@ -86,11 +99,15 @@ public class DBPlayer {
 
         resyncing = 0;
         eventPlayedCount = 0;
+
+        checkpoints.clear();
+        if(first)
+            checkpointInterval = CHECKPOINT_INTERVAL;
     }
 
     public void playEvents(List events, int lastEventPosition, boolean reset) {
         if(reset)
-            resetPlayEvents(false);
+            rewindPlayEvents(lastEventPosition);
 
         int lastIndex = lastEventPosition - 1;
         for(int i=eventPlayedCount; i< lastEventPosition; i++) {
@@ -107,10 +124,64 @@ public class DBPlayer {
                 // Last event, play the location
                 playLocation();
             }
+            if((i+1) % checkpointInterval == 0) {
+                addCheckpoint(i+1);
+            }
         }
         eventPlayedCount = lastEventPosition;
     }
 
+    /** Rewinds the player before the event at the specified position: at least one event
+     * is then played so the location of the last event gets displayed.
+     */
+    protected void rewindPlayEvents(int position) {
+        while(!checkpoints.isEmpty()) {
+            Checkpoint c = checkpoints.get(checkpoints.size()-1);
+            if(c.position < position && c.position <= eventPlayedCount) {
+                restoreCheckpoint(c);
+                return;
+            }
+            // The checkpoints after the restored one refer to the state that will be replaced
+            checkpoints.remove(checkpoints.size()-1);
+        }
+        resetPlayEvents(false);
+    }
+
+    protected void addCheckpoint(int position) {
+        if(!checkpoints.isEmpty() && checkpoints.get(checkpoints.size()-1).position >= position)
+            return;
+
+        Checkpoint c = new Checkpoint();
+        c.position = position;
+        c.contextInfo = contextInfo.copy();
+        c.markStack = new ArrayList<Integer>(markStack);
+        c.resyncing = resyncing;
+        c.lastLocationEvent = lastLocationEvent;
+        c.processor = processor.createCheckpoint();
+        c.gui = debuggerTab.playerCreateCheckpoint();
+        checkpoints.add(c);
+
+        if(checkpoints.size() > MAX_CHECKPOINTS) {
+            // Keep the memory bounded for long sessions by keeping every other checkpoint
+            checkpointInterval *= 2;
+            for(int i = checkpoints.size()-1; i >= 0; i--) {
+                if(checkpoints.get(i).position % checkpointInterval != 0)
+                    checkpoints.remove(i);
+            }
+        }
+    }
+
+    protected void restoreCheckpoint(Checkpoint c) {
+        contextInfo.set(c.contextInfo);
+        markStack.clear();
+        markStack.addAll(c.markStack);
+        resyncing = c.resyncing;
+        lastLocationEvent = c.lastLocationEvent;
+        processor.restoreCheckpoint(c.processor);
+        debuggerTab.playerRestoreCheckpoint(c.gui);
+        eventPlayedCount = c.position;
+    }
+
     public void playEvent(DBEvent event) {
         switch(event.getEventType()) {
             case DBEvent.ENTER_RULE:
@@ -394,4 +465,14 @@ public class DBPlayer {
         debuggerTab.playerSetTokenBoundaries(event.id, event.startIndex, event.stopIndex);
     }
 
+    protected static class Checkpoint {
+        public int position;
+        public DBPlayerContextInfo contextInfo;
+        public List<Integer> markStack;
+        public int resyncing;
+        public DBEventLocation lastLocationEvent;
+        public Object processor;
+        public Object gui;
+    }
+
 }
@@ -104,4 +104,18 @@ public class DBPlayerContextInfo {
         mark.clear();
         backtrack.clear();
     }
+
+    public DBPlayerContextInfo copy() {
+        DBPlayerContextInfo info = new DBPlayerContextInfo();
+        info.set(this);
+        return info;
+    }
+
+    public void set(DBPlayerContextInfo info) {
+        clear();
+        subrule.addAll(info.subrule);
+        decision.addAll(info.decision);
+        mark.addAll(info.mark);
+        backtrack.addAll(info.backtrack);
+    }
 }
@@ -36,6 +36,7 @@ import org.antlr.runtime.debug.DebugEventListener;
 import org.antlr.runtime.debug.RemoteDebugEventSocketListener;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.profiler.DBProfiler;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.NumberSet;
@@ -45,8 +46,14 @@ import org.antlr.xjlib.appkit.utils.XJDialogProgressDelegate;
 import org.antlr.xjlib.foundation.XJUtils;
 
 import javax.swing.*;
+import javax.swing.Timer;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
@@ -56,10 +63,23 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     public static final int STATUS_RUNNING = 3;
     public static final int STATUS_BREAK = 4;
 
-    public static final int MAX_RETRY = 12;
+    /** Delays (in ms) between two attempts to connect to the remote parser */
+    public static final int MIN_RETRY_DELAY = 10;
+    public static final int MAX_RETRY_DELAY = 500;
+
+    /** Time (in ms) after which the progress of the connection is displayed */
+    public static final int PROGRESS_DELAY = 1000;
+
+    /** Maximum number of events received but not yet moved to the recorded events */
+    public static final int QUEUE_CAPACITY = 1 << 16;
+
+    /** Interval (in ms) at which the event dispatch thread moves the received events
+     * to the recorded events
+     */
+    public static final int DRAIN_INTERVAL = 33;
 
     protected DebuggerTab debuggerTab;
-    protected int status = STATUS_STOPPED;
+    protected volatile int status = STATUS_STOPPED;
     protected boolean cancelled;
 
 	public static class FixBugRemoteDebugEventSocketListener
@@ -90,8 +110,37 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     protected String address;
     protected int port;
 
+    /** The events received from the remote parser: either kept in memory or, when
+     * the events are recorded to disk, a DBEventLog. The events are only added by
+     * drainEvents() while holding the lock of the recorder.
+     */
     protected List<DBEvent> events;
     protected int position;
+
+    /** The thread reading the remote parser adds the events to this queue without
+     * taking any lock. The event dispatch thread moves them to the recorded events
+     * in batches, either periodically or when it needs to play them.
+     */
+    protected final DBEventQueue queue = new DBEventQueue(QUEUE_CAPACITY);
+    /** The events moved out of the queue by drainEvents() before they are recorded */
+    protected final List<DBEvent> drainedEvents = new ArrayList<DBEvent>();
+
+    /** Profiles the events when they are moved out of the queue, using the time at which
+     * the thread reading the remote parser has received them.
+     */
+    protected final DBProfiler profiler = new DBProfiler();
+    protected final Timer drainTimer;
+    protected final AtomicBoolean drainRequested = new AtomicBoolean();
+    protected final Runnable drainRunnable = new Runnable() {
+        public void run() {
+            drainRequested.set(false);
+            drainEvents();
+        }
+    };
+
+    /** Number of events received from the remote parser (recorded or still in the queue) */
+    protected int receivedEventCount;
+
     protected NumberSet breakEvents = new NumberSet();
     protected int stoppedOnEvent = DBEvent.NO_EVENT;
     protected boolean ignoreBreakpoints = false;
@@ -117,20 +166,40 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
      */
     protected boolean remoteParserStateWarned = false;
 
+    /** Flag used to indicate that the events come from an opened recording
+     * instead of a remote parser
+     */
+    protected boolean replaying = false;
+
     /**
      * Current grammar the recorder is in
      */
     protected Stack<String> grammarNamesStack = new Stack<String>();
 
+    protected final PlayEventRunnable playEventsRunnable = new PlayEventRunnable(false);
+    protected final PlayEventRunnable resetPlayEventsRunnable = new PlayEventRunnable(true);
+
     public DBRecorder(DebuggerTab debuggerTab) {
         this.debuggerTab = debuggerTab;
+        drainTimer = new Timer(DRAIN_INTERVAL, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                drainEvents();
+            }
+        });
         reset();
     }
 
     public void close() {
+        drainTimer.stop();
+        closeEvents();
         debuggerTab = null;
     }
 
+    /** Returns the profiler of the events received from the remote parser */
+    public DBProfiler getProfiler() {
+        return profiler;
+    }
+
     public void showProgress() {
         if(progress == null)
             progress = new XJDialogProgress(debuggerTab.getContainer());
@@ -145,21 +214,61 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     }
 
     /** Return true if the debugger is running */
-    public synchronized boolean isRunning() {
+    public boolean isRunning() {
         return status == DBRecorder.STATUS_RUNNING;
     }
 
     /** Return true if the debugger is alive (i.e. not stopped, stopping, starting) */
-    public synchronized boolean isAlive() {
+    public boolean isAlive() {
         return status == DBRecorder.STATUS_RUNNING ||
                 status == DBRecorder.STATUS_BREAK;
     }
 
     public synchronized void reset() {
-        events = Collections.synchronizedList(new ArrayList<DBEvent>());
+        closeEvents();
+        events = null;
+        if(AWPrefs.getDebugRecordToDisk()) {
+            try {
+                events = DBEventLog.create();
+            } catch (IOException e) {
+                debuggerTab.getConsole().println("Cannot record the events to disk: "+e, Console.LEVEL_WARNING);
+            }
+        }
+        if(events == null)
+            events = new ArrayList<DBEvent>();
+
+        queue.clear();
+        profiler.reset();
+        receivedEventCount = 0;
+        position = -1;
+        currentTokenIndex = -1;
+        remoteParserStateWarned = false;
+        replaying = false;
+    }
+
+    protected void closeEvents() {
+        if(events instanceof DBEventLog)
+            ((DBEventLog)events).close();
+    }
+
+    /** Saves the recorded events so they can be replayed later using openRecording() */
+    public void saveRecording(File file) throws IOException {
+        DBEventLog.save(events, file);
+    }
+
+    /** Replaces the events with the ones of a saved recording. The recording can then
+     * be replayed like a session that received the terminate event.
+     */
+    public synchronized void openRecording(File file) throws IOException {
+        DBEventLog log = DBEventLog.open(file);
+        closeEvents();
+        events = log;
         position = -1;
         currentTokenIndex = -1;
         remoteParserStateWarned = false;
+        replaying = true;
+        debuggerReceivedTerminateEvent = true;
+        setStatus(STATUS_BREAK);
     }
 
     public synchronized DBEvent getEvent() {
@@ -199,6 +308,25 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         position = events.size()-1;
     }
 
+    /** Moves the events received from the remote parser to the recorded events */
+    public synchronized void drainEvents() {
+        if(queue.drainTo(drainedEvents) == 0)
+            return;
+
+        for(DBEvent event : drainedEvents) {
+            profiler.event(event, event.getTime());
+            events.add(event);
+        }
+        drainedEvents.clear();
+        setPositionToEnd();
+    }
+
+    /** Asks the event dispatch thread to drain the events as soon as possible */
+    public void requestDrain() {
+        if(drainRequested.compareAndSet(false, true))
+            SwingUtilities.invokeLater(drainRunnable);
+    }
+
     public void setBreakEvents(Set events) {
         this.breakEvents.replaceAll(events);
     }
@@ -232,7 +360,11 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
     /** Return true if the debugger hitted a break event */
     public boolean isOnBreakEvent() {
-        int breakEvent = getOnBreakEvent();
+        return isOnBreakEvent(getEvent());
+    }
+
+    public boolean isOnBreakEvent(DBEvent event) {
+        int breakEvent = getOnBreakEvent(event);
         if(breakEvent != DBEvent.NO_EVENT) {
             setStoppedOnEvent(breakEvent);
             setStatus(STATUS_BREAK);
@@ -243,7 +375,10 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
     /** Return the event type that causes the break */
     public int getOnBreakEvent() {
-        DBEvent event = getEvent();
+        return getOnBreakEvent(getEvent());
+    }
+
+    public int getOnBreakEvent(DBEvent event) {
         if(event == null)
             return DBEvent.NO_EVENT;
 
@@ -287,7 +422,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         }
     }
 
-    public synchronized int getStatus() {
+    public int getStatus() {
         return status;
     }
 
@@ -337,12 +472,15 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     public void stepContinue(Set breakEvents) {
         setBreakEvents(breakEvents);
         queryGrammarBreakpoints();
-        setStatus(STATUS_RUNNING);
+        // A recording has no remote parser to run: it only moves to the next break event
+        setStatus(replaying ? STATUS_BREAK : STATUS_RUNNING);
     }
 
 
     /** This method returns false if no more event is available */
     public synchronized boolean stepMove(int direction) {
+        drainEvents();
+
         position += direction;
         if(position<0) {
             position = 0;
@@ -401,6 +539,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
         long t = System.currentTimeMillis();
         long timeout = AWPrefs.getDebugLaunchTimeout()*1000;
+        long retryDelay = MIN_RETRY_DELAY;
 
         while((System.currentTimeMillis()-t) < timeout && !cancelled) {
             listener = null;
@@ -416,16 +555,19 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
                 break;
             }
 
-            if((System.currentTimeMillis()-t) >= 2 && !showProgress) {
+            if((System.currentTimeMillis()-t) >= PROGRESS_DELAY && !showProgress) {
                 showProgress();
                 showProgress = true;
             }
 
+            // The parser usually opens its socket right away when it runs in the parser
+            // host: retry quickly first and then less and less often
             try {
-                Thread.sleep(500);
+                Thread.sleep(retryDelay);
             } catch (InterruptedException e) {
                 // We don't care if the sleep has been interrupted
             }
+            retryDelay = Math.min(retryDelay*2, MAX_RETRY_DELAY);
         }
 
         if(showProgress)
@@ -443,6 +585,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             debuggerReceivedTerminateEvent = false;
 
             reset();
+            drainTimer.start();
             listener.start();
 
             connectionSuccess();
@@ -487,6 +630,8 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         if(debuggerTab == null) return;
 
         setStatus(STATUS_STOPPED);
+        drainTimer.stop();
+        requestDrain();
         debuggerTab.recorderDidStop();
     }
 
@@ -545,7 +690,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
         if(t != null) {
             lastTokenIndexEventNumber = currentTokenIndexEventNumber;
-            currentTokenIndexEventNumber = events.size()-1;
+            currentTokenIndexEventNumber = receivedEventCount-1;
             currentTokenIndex = t.getTokenIndex();
         }
     }
@@ -565,13 +710,16 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     }
 
     /** This method is called by DBRecorderEventListener for each event received from
-     * the remote parser. It is running on another thread than the event thread.
+     * the remote parser. It is running on another thread than the event thread and only
+     * takes the lock of the recorder when the status changes or when breaking.
      */
-    public synchronized void listenerEvent(DBEvent event) {
-        events.add(event);
+    public void listenerEvent(DBEvent event) {
+        // The grammar name is set before the event is queued because the event log
+        // records a copy of the event
         handleGrammarName(event);
+        event.setTime(System.nanoTime());
+        enqueue(event);
         recordIndexes(event);
-        setPositionToEnd();
 
         switch(getStatus()) {
             case STATUS_LAUNCHING:
@@ -606,13 +754,22 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
                     break;
 
                 default:
-                    if(checkRemoteParserState() || isOnBreakEvent())
+                    if(checkRemoteParserState() || isOnBreakEvent(event))
                         breaksOnEvent(true);
                     break;
             }
         }
     }
 
+    protected void enqueue(DBEvent event) {
+        while(!queue.offer(event)) {
+            // The event dispatch thread is late: wait for it to drain the queue
+            requestDrain();
+            LockSupport.parkNanos(100000);
+        }
+        receivedEventCount++;
+    }
+
     public synchronized void threadNotify() {
         notify();
     }
@@ -632,12 +789,18 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             threadWait();
     }
 
-    protected synchronized void playEvents(boolean reset) {
+    /** Plays the events up to the current position. The events are played without holding
+     * the lock of the recorder so the thread reading the remote parser is never blocked
+     * by the player.
+     */
+    protected void playEvents(boolean reset) {
         /** Make sure this method is called on the event dispatch thread */
-        if(!SwingUtilities.isEventDispatchThread())
-            SwingUtilities.invokeLater(new PlayEventRunnable(reset));
-        else
+        if(!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(reset ? resetPlayEventsRunnable : playEventsRunnable);
+        } else {
+            drainEvents();
             debuggerTab.playEvents(events, getCurrentEventPosition(), reset);
+        }
     }
 
     public void dialogDidCancel() {
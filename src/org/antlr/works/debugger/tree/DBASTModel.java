@@ -44,6 +44,10 @@ public class DBASTModel {
     /** Map of nodes */
     public Map<Integer, ASTNode> nodesMap = new HashMap<Integer, ASTNode>();
 
+    /** Changes made to the model, undone to restore a checkpoint. The nodes can be modified
+     * anywhere in the tree so the journal is cheaper than copying the whole tree. */
+    protected List<Change> journal = new ArrayList<Change>();
+
     public List<DBASTModelListener> listeners = new ArrayList<DBASTModelListener>();
 
     private DebuggerTab debuggerTab;
@@ -69,9 +73,21 @@ public class DBASTModel {
     public void clear() {
         rules.clear();
         nodesMap.clear();
+        journal.clear();
         fireDataChanged();
     }
 
+    public Object createCheckpoint() {
+        return journal.size();
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        int size = (Integer)checkpoint;
+        while(journal.size() > size) {
+            journal.remove(journal.size()-1).undo();
+        }
+    }
+
     /* Methods used to query the model */
 
     public int getRuleCount() {
@@ -93,30 +109,45 @@ public class DBASTModel {
 
     public void pushRule(String name) {
         rules.push(new Rule(name, new Stack<ASTNode>()));
+        journal.add(new Change() {
+            public void undo() {
+                rules.pop();
+            }
+        });
     }
 
     public void popRule() {
         /* Do not pop the start rule: we want to be able to see the AST
         tree at the end of event stream so we keep the start rule on the stack. */
-        if(rules.size() > 1)
-            rules.pop();
+        if(rules.size() > 1) {
+            final Rule rule = rules.pop();
+            journal.add(new Change() {
+                public void undo() {
+                    rules.push(rule);
+                }
+            });
+        }
     }
 
     public void pushRoot(ASTNode node) {
-        getRoots().push(node);
+        Stack<ASTNode> roots = getRoots();
+        insertNode(roots, roots.size(), node);
     }
 
     /** Replace a root node by another one */
     public void replaceRoot(ASTNode oldRoot, ASTNode newRoot) {
         Stack<ASTNode> roots = getRoots();
         int index = roots.indexOf(oldRoot);
-        roots.remove(index);
-        roots.add(index, newRoot);
+        removeNode(roots, index);
+        insertNode(roots, index, newRoot);
     }
 
     /** Remove a root node */
     public void removeRoot(ASTNode node) {
-        getRoots().remove(node);
+        Stack<ASTNode> roots = getRoots();
+        int index = roots.indexOf(node);
+        if(index >= 0)
+            removeNode(roots, index);
     }
 
     /* Methods used by the protocol */
@@ -179,9 +210,17 @@ public class DBASTModel {
         return node;
     }
 
-    protected ASTNode createTreeNode(int id) {
+    protected ASTNode createTreeNode(final int id) {
         ASTNode node = new ASTNode(id);
-        nodesMap.put(id, node);
+        final ASTNode previous = nodesMap.put(id, node);
+        journal.add(new Change() {
+            public void undo() {
+                if(previous == null)
+                    nodesMap.remove(id);
+                else
+                    nodesMap.put(id, previous);
+            }
+        });
         return node;
     }
 
@@ -196,6 +235,52 @@ public class DBASTModel {
             return (rules.peek()).roots;
     }
 
+    /* Journaled modifications */
+
+    protected void insertNode(final List list, final int index, Object o) {
+        list.add(index, o);
+        journal.add(new Change() {
+            public void undo() {
+                list.remove(index);
+            }
+        });
+    }
+
+    protected void insertNodes(final List list, final int index, Collection c) {
+        final int count = c.size();
+        list.addAll(index, c);
+        journal.add(new Change() {
+            public void undo() {
+                for(int i=0; i<count; i++) {
+                    list.remove(index);
+                }
+            }
+        });
+    }
+
+    protected void removeNode(final List list, final int index) {
+        final Object o = list.remove(index);
+        journal.add(new Change() {
+            public void undo() {
+                list.add(index, o);
+            }
+        });
+    }
+
+    protected void setParentNode(final ASTNode node, ASTNode parent) {
+        final ASTNode previous = node.parentNode;
+        node.parentNode = parent;
+        journal.add(new Change() {
+            public void undo() {
+                node.parentNode = previous;
+            }
+        });
+    }
+
+    protected interface Change {
+        public void undo();
+    }
+
     public class Rule {
 
         public String name;
@@ -234,18 +319,20 @@ public class DBASTModel {
                 /** If the child node is a nil node, add its children only */
                 for (int i = 0; i < node.children.size(); i++) {
                     ASTNode child = (ASTNode) node.children.get(i);
-                    child.parentNode = this;
-                    children.add(child);
+                    setParentNode(child, this);
+                    insertNode(children, children.size(), child);
                 }
             } else {
-                node.parentNode = this;
-                children.add(node);
+                setParentNode(node, this);
+                insertNode(children, children.size(), node);
             }
         }
 
         /** Remove a child */
         public void removeChild(ASTNode node) {
-            children.remove(node);
+            int index = children.indexOf(node);
+            if(index >= 0)
+                removeNode(children, index);
         }
 
         /** Replace the current parent node with another one */
@@ -263,19 +350,19 @@ public class DBASTModel {
         /** Replace a child with another one */
         public void replaceChild(ASTNode oldNode, ASTNode newNode) {
             int index = children.indexOf(oldNode);
-            children.remove(index);
+            removeNode(children, index);
             if(newNode.nil) {
                 /** If the new node is a nil node, add its children only */
-                children.addAll(index, newNode.children);
+                insertNodes(children, index, new ArrayList(newNode.children));
             } else
-                children.add(index, newNode);
+                insertNode(children, index, newNode);
         }
 
         /** Detach this node from its parent */
         public void detach() {
             if(parentNode != null) {
                 parentNode.removeChild(this);
-                parentNode = null;
+                setParentNode(this, null);
             }
         }
 
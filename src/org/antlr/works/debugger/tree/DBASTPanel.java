@@ -125,6 +125,15 @@ public class DBASTPanel extends DetachablePanel implements DBASTModelListener, X
         treePanel.clear();
     }
 
+    public Object createCheckpoint() {
+        return model.createCheckpoint();
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        model.restoreCheckpoint(checkpoint);
+        treePanel.clear();
+    }
+
     public void updateOnBreakEvent() {
         model.fireDataChanged();
 
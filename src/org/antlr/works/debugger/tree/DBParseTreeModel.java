@@ -177,6 +177,46 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
         setLastNode(b.getLastNode());
     }
 
+    /** The nodes are only added to the rules on the stack: a checkpoint only needs the
+     * number of children of these rules to remove the nodes added after it.
+     */
+    public Object createCheckpoint() {
+        Checkpoint c = new Checkpoint();
+        for (ParseTreeNode rule : rules) {
+            c.rules.add(rule);
+            c.childCounts.add(rule.getChildCount());
+        }
+        for (Backtrack b : backtrackStack) {
+            c.backtracks.add(b);
+            c.backtrackNodeCounts.add(b.nodes.size());
+        }
+        c.lastNode = lastNode;
+        c.location = location;
+        return c;
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        Checkpoint c = (Checkpoint)checkpoint;
+        rules.clear();
+        for (int i = 0; i < c.rules.size(); i++) {
+            ParseTreeNode rule = c.rules.get(i);
+            int count = c.childCounts.get(i);
+            while(rule.getChildCount() > count) {
+                rule.remove(rule.getChildCount()-1);
+            }
+            rules.push(rule);
+        }
+        backtrackStack.clear();
+        for (int i = 0; i < c.backtracks.size(); i++) {
+            Backtrack b = c.backtracks.get(i);
+            b.reopen(c.backtrackNodeCounts.get(i));
+            backtrackStack.push(b);
+        }
+        lastNode = c.lastNode;
+        location = c.location;
+        clearNewNodes();
+    }
+
     public void notificationFire(Object source, String name) {
         if(name.equals(AWPrefsDialog.NOTIF_PREFS_APPLIED)) {
             initColors();
@@ -213,6 +253,17 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
 
     }
 
+    public static class Checkpoint {
+
+        public List<ParseTreeNode> rules = new ArrayList<ParseTreeNode>();
+        public List<Integer> childCounts = new ArrayList<Integer>();
+        public List<Backtrack> backtracks = new ArrayList<Backtrack>();
+        public List<Integer> backtrackNodeCounts = new ArrayList<Integer>();
+        public TreeNode lastNode;
+        public DBEventLocation location;
+
+    }
+
     public static class Backtrack {
 
         public int level;
@@ -241,6 +292,16 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
             }
         }
 
+        /** Restores the backtrack as it was when it contained only the first nodes */
+        public void reopen(int nodeCount) {
+            while(nodes.size() > nodeCount) {
+                nodes.removeLast();
+            }
+            for (DBTreeNode node : nodes) {
+                node.setColor(lookaheadTokenColor);
+            }
+        }
+
         public AWTreeNode getLastNode() {
             if(nodes.isEmpty())
                 return null;
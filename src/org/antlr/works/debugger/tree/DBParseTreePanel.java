@@ -79,6 +79,15 @@ public class DBParseTreePanel extends DetachablePanel implements DBParseTreeMode
         treePanel.clear();
     }
 
+    public Object createCheckpoint() {
+        return model.createCheckpoint();
+    }
+
+    public void restoreCheckpoint(Object checkpoint) {
+        model.restoreCheckpoint(checkpoint);
+        treePanel.clear();
+    }
+
     public void updateOnBreakEvent() {
         model.fireDataChanged();
     }
@@ -118,6 +118,8 @@ public class AWPrefsDialog extends XJPanel {
         getPreferences().bindToPreferences(outputPathField, AWPrefs.PREF_OUTPUT_PATH, AWPrefs.DEFAULT_OUTPUT_PATH);
         getPreferences().bindToPreferences(dotToolPathField, AWPrefs.PREF_DOT_TOOL_PATH, AWPrefs.DEFAULT_DOT_TOOL_PATH);
         getPreferences().bindToPreferences(antlr3OptionsField, AWPrefs.PREF_ANTLR3_OPTIONS, AWPrefs.DEFAULT_ANTLR3_OPTIONS);
+        getPreferences().bindToPreferences(sdCacheToDiskButton, AWPrefs.PREF_SD_CACHE_TO_DISK, AWPrefs.DEFAULT_SD_CACHE_TO_DISK);
+        getPreferences().bindToPreferences(parallelAnalysisButton, AWPrefs.PREF_PARALLEL_ANALYSIS, AWPrefs.DEFAULT_PARALLEL_ANALYSIS);
 
         // General - debug only
         //getPreferences().bindToPreferences(debugVerboseButton, AWPrefs.PREF_DEBUG_VERBOSE, false);
@@ -264,6 +266,7 @@ public class AWPrefsDialog extends XJPanel {
 
         getPreferences().bindToPreferences(detachablePanelChildrenButton, AWPrefs.PREF_DETACHABLE_CHILDREN, AWPrefs.DEFAULT_DETACHABLE_CHILDREN);
         getPreferences().bindToPreferences(askGenButton, AWPrefs.PREF_DEBUGGER_ASK_GEN, AWPrefs.DEFAULT_DEBUGGER_ASK_GEN);
+        getPreferences().bindToPreferences(recordToDiskButton, AWPrefs.PREF_DEBUG_RECORD_TO_DISK, AWPrefs.DEFAULT_DEBUG_RECORD_TO_DISK);
     }
 
     public void prepareAdvancedTab() {
@@ -448,6 +451,10 @@ public class AWPrefsDialog extends XJPanel {
         browseDotToolPathButton = new JButton();
         label37 = new JLabel();
         antlr3OptionsField = new JTextField();
+        label39 = new JLabel();
+        sdCacheToDiskButton = new JCheckBox();
+        label40 = new JLabel();
+        parallelAnalysisButton = new JCheckBox();
         tabEditor = new JPanel();
         label3 = new JLabel();
         editorFontCombo = new JComboBox();
@@ -534,6 +541,7 @@ public class AWPrefsDialog extends XJPanel {
         label36 = new JLabel();
         detachablePanelChildrenButton = new JCheckBox();
         askGenButton = new JCheckBox();
+        recordToDiskButton = new JCheckBox();
         panel1 = new JPanel();
         label8 = new JLabel();
         checkGrammarSuccessButton = new JCheckBox();
@@ -613,6 +621,10 @@ public class AWPrefsDialog extends XJPanel {
         						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC,
         						FormFactory.LINE_GAP_ROWSPEC,
+        						FormFactory.DEFAULT_ROWSPEC,
+        						FormFactory.LINE_GAP_ROWSPEC,
+        						FormFactory.DEFAULT_ROWSPEC,
+        						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC
         					}));
 
@@ -671,6 +683,24 @@ public class AWPrefsDialog extends XJPanel {
         				label37.setText("ANTLR options:");
         				tabGeneral.add(label37, cc.xy(3, 15));
         				tabGeneral.add(antlr3OptionsField, cc.xywh(5, 15, 3, 1));
+
+        				//---- label39 ----
+        				label39.setText("Syntax diagrams:");
+        				tabGeneral.add(label39, cc.xy(3, 17));
+
+        				//---- sdCacheToDiskButton ----
+        				sdCacheToDiskButton.setText("Cache the diagrams on disk");
+        				sdCacheToDiskButton.setToolTipText("This option will take effect after reopening the grammar");
+        				tabGeneral.add(sdCacheToDiskButton, cc.xywh(5, 17, 3, 1));
+
+        				//---- label40 ----
+        				label40.setText("Analysis:");
+        				tabGeneral.add(label40, cc.xy(3, 19));
+
+        				//---- parallelAnalysisButton ----
+        				parallelAnalysisButton.setText("Analyze the decisions in parallel");
+        				parallelAnalysisButton.setToolTipText("Uses all the processors to check the grammar");
+        				tabGeneral.add(parallelAnalysisButton, cc.xywh(5, 19, 3, 1));
         			}
         			tabbedPane1.addTab("General", tabGeneral);
 
@@ -1069,7 +1099,7 @@ public class AWPrefsDialog extends XJPanel {
         				tabCompiler.add(jikesRadio, cc.xywh(3, 7, 2, 1));
 
         				//---- integratedRadio ----
-        				integratedRadio.setText("com.sun.tools.javac");
+        				integratedRadio.setText("In-process (javax.tools)");
         				integratedRadio.setActionCommand("integrated");
         				tabCompiler.add(integratedRadio, cc.xywh(3, 11, 3, 1));
 
@@ -1158,6 +1188,8 @@ public class AWPrefsDialog extends XJPanel {
         						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC,
         						FormFactory.LINE_GAP_ROWSPEC,
+        						FormFactory.DEFAULT_ROWSPEC,
+        						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC
         					}));
 
@@ -1267,6 +1299,11 @@ public class AWPrefsDialog extends XJPanel {
         				//---- askGenButton ----
         				askGenButton.setText("Ask before generating and compiling");
         				tabDebugger.add(askGenButton, cc.xywh(5, 21, 5, 1));
+
+        				//---- recordToDiskButton ----
+        				recordToDiskButton.setText("Record the events to disk");
+        				recordToDiskButton.setToolTipText("Keeps the events of long debugging sessions in a temporary file instead of in memory");
+        				tabDebugger.add(recordToDiskButton, cc.xywh(5, 23, 5, 1));
         			}
         			tabbedPane1.addTab("Debugger", tabDebugger);
 
@@ -1487,6 +1524,10 @@ public class AWPrefsDialog extends XJPanel {
     private JButton browseDotToolPathButton;
     private JLabel label37;
     private JTextField antlr3OptionsField;
+    private JLabel label39;
+    private JCheckBox sdCacheToDiskButton;
+    private JLabel label40;
+    private JCheckBox parallelAnalysisButton;
     private JPanel tabEditor;
     private JLabel label3;
     private JComboBox editorFontCombo;
@@ -1573,6 +1614,7 @@ public class AWPrefsDialog extends XJPanel {
     private JLabel label36;
     private JCheckBox detachablePanelChildrenButton;
     private JCheckBox askGenButton;
+    private JCheckBox recordToDiskButton;
     private JPanel panel1;
     private JLabel label8;
     private JCheckBox checkGrammarSuccessButton;
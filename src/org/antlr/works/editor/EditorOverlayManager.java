@@ -58,7 +58,7 @@ public class EditorOverlayManager extends ATEOverlayManager {
     }
 
     private void renderItems(Graphics g, List<EditorInspectorItem> items) {
-        if(items == null)
+        if(items == null || isRenderingCancelled())
             return;
 
         for(EditorInspectorItem item : items) {
@@ -51,4 +51,5 @@ public abstract class GrammarWindowTab {
     public abstract String getTabName();
     public abstract Component getTabComponent();
     public void editorActivated() { }
+    public void editorClosed() { }
 }
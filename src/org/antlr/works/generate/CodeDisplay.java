@@ -111,6 +111,11 @@ public class CodeDisplay extends GrammarWindowTab {
         textEditor.loadText(text);
     }
 
+    @Override
+    public void editorClosed() {
+        monitor.close();
+    }
+
     public String getTabName() {
         String name = XJUtils.getLastPathComponent(file);
         if(rule != null) {
@@ -0,0 +1,478 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+package org.antlr.works.grammar;
+
+import org.antlr.tool.Message;
+import org.antlr.v4.Tool;
+import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.grammar.antlr.GrammarError;
+import org.antlr.works.grammar.antlr.GrammarResult;
+import org.antlr.works.grammar.element.ElementGrammarName;
+import org.antlr.works.grammar.element.ElementImport;
+import org.antlr.works.grammar.element.ElementRule;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.grammar.engine.GrammarEngineDelegate;
+import org.antlr.works.grammar.engine.GrammarEngineImpl;
+import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
+import org.antlr.works.utils.Utils;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks many grammars at once without any user interface, typically to validate all the
+ * grammars of a project during a build. Each grammar gets its own GrammarEngine and the
+ * imports are resolved between the checked grammars. The grammars that are not related
+ * by an import or a token vocabulary are analyzed in parallel.
+ */
+public class BatchCheckGrammar {
+
+    private final List<String> files;
+    private String outputPath;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public BatchCheckGrammar(List<String> files) {
+        this.files = files;
+    }
+
+    /**
+     * Returns the path of the grammar files (*.g) of the directory and of its subdirectories.
+     *
+     * @throws FileNotFoundException if the directory does not exist
+     */
+    public static List<String> findGrammarFiles(String directory) throws FileNotFoundException {
+        if(!new File(directory).isDirectory())
+            throw new FileNotFoundException("Directory not found: "+directory);
+
+        List<String> files = new ArrayList<String>();
+        findGrammarFiles(new File(directory), files);
+        Collections.sort(files);
+        return files;
+    }
+
+    private static void findGrammarFiles(File directory, List<String> files) {
+        File[] children = directory.listFiles();
+        if(children == null) return;
+
+        for(File child : children) {
+            if(child.isDirectory()) {
+                findGrammarFiles(child, files);
+            } else if(child.getName().endsWith(".g")) {
+                files.add(child.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Sets the directory where the token vocabularies are looked up when they are not next to
+     * the grammar. By default, this is the "output" folder of each grammar.
+     */
+    public void setOutputPath(String outputPath) {
+        this.outputPath = outputPath;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Parses and analyzes all the grammars.
+     *
+     * @return one report for each grammar file, in the order of the files
+     */
+    public List<Report> check() throws Exception {
+        List<Report> reports = new ArrayList<Report>(files.size());
+        for(String file : files) {
+            reports.add(new Report(file));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, reports.size())));
+        try {
+            // All the grammars must be parsed before the hierarchy of any of them can be resolved
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+            for(Report report : reports) {
+                tasks.add(new ParseTask(report));
+            }
+            run(executor, tasks);
+
+            Map<String, GrammarEngine> engines = new HashMap<String, GrammarEngine>();
+            for(Report report : reports) {
+                if(report.name != null && !engines.containsKey(report.name)) {
+                    engines.put(report.name, report.engine);
+                }
+            }
+            for(Report report : reports) {
+                if(report.engine != null) {
+                    report.engine.updateHierarchy(engines, new HashSet<GrammarEngine>());
+                }
+            }
+
+            tasks.clear();
+            for(List<Report> group : createGroups(reports, engines)) {
+                tasks.add(new AnalyzeTask(group));
+            }
+            run(executor, tasks);
+        } finally {
+            executor.shutdown();
+            for(Report report : reports) {
+                if(report.engine != null) {
+                    report.engine.close();
+                    report.engine = null;
+                }
+            }
+        }
+        return reports;
+    }
+
+    private static void run(ExecutorService executor, List<Callable<Object>> tasks) throws Exception {
+        for(Future<Object> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof Error) throw (Error)cause;
+                throw (Exception)cause;
+            }
+        }
+    }
+
+    /**
+     * Groups the grammars that import each other or share a token vocabulary: the engines of
+     * a hierarchy are linked together and must be analyzed by the same thread.
+     */
+    private static List<List<Report>> createGroups(List<Report> reports, Map<String, GrammarEngine> engines) {
+        Map<GrammarEngine, Integer> indexes = new HashMap<GrammarEngine, Integer>();
+        for(int i=0; i<reports.size(); i++) {
+            if(reports.get(i).engine != null) {
+                indexes.put(reports.get(i).engine, i);
+            }
+        }
+
+        int[] roots = new int[reports.size()];
+        for(int i=0; i<roots.length; i++) {
+            roots[i] = i;
+        }
+        for(int i=0; i<reports.size(); i++) {
+            GrammarEngine engine = reports.get(i).engine;
+            if(engine == null) continue;
+
+            for(ElementImport element : engine.getImports()) {
+                union(roots, i, indexes.get(engines.get(element.getName())));
+            }
+            if(engine.getTokenVocab() != null) {
+                union(roots, i, indexes.get(engines.get(engine.getTokenVocab())));
+            }
+        }
+
+        Map<Integer, List<Report>> groups = new LinkedHashMap<Integer, List<Report>>();
+        for(int i=0; i<reports.size(); i++) {
+            if(reports.get(i).engine == null) continue;
+
+            int root = find(roots, i);
+            List<Report> group = groups.get(root);
+            if(group == null) {
+                group = new ArrayList<Report>();
+                groups.put(root, group);
+            }
+            group.add(reports.get(i));
+        }
+        return new ArrayList<List<Report>>(groups.values());
+    }
+
+    private static void union(int[] roots, int a, Integer b) {
+        if(b == null) return;
+        roots[find(roots, a)] = find(roots, b);
+    }
+
+    private static int find(int[] roots, int i) {
+        while(roots[i] != i) {
+            roots[i] = roots[roots[i]];
+            i = roots[i];
+        }
+        return i;
+    }
+
+    /** Returns the reports as a JSON document */
+    public static String toJSON(List<Report> reports) {
+        int errors = 0;
+        int warnings = 0;
+        int decisions = 0;
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"grammars\": [");
+        for(int i=0; i<reports.size(); i++) {
+            Report r = reports.get(i);
+            errors += r.errors.size();
+            warnings += r.warnings.size();
+            decisions += r.decisions.size();
+
+            if(i > 0) sb.append(',');
+            sb.append("\n    {\"file\": ").append(Utils.toJSONString(r.file));
+            sb.append(", \"name\": ").append(Utils.toJSONString(r.name));
+            sb.append(", \"type\": ").append(Utils.toJSONString(r.type));
+            sb.append(", \"timeMs\": ").append(toMillis(r.parseTime+r.analyzeTime));
+            sb.append(", \"parseTimeMs\": ").append(toMillis(r.parseTime));
+            sb.append(", \"analyzeTimeMs\": ").append(toMillis(r.analyzeTime));
+            if(r.exception != null) {
+                sb.append(", \"exception\": ").append(Utils.toJSONString(r.exception.toString()));
+            }
+            sb.append(",\n     \"errors\": ");
+            appendProblems(sb, r.errors);
+            sb.append(",\n     \"warnings\": ");
+            appendProblems(sb, r.warnings);
+            sb.append(",\n     \"decisions\": ");
+            appendProblems(sb, r.decisions);
+            sb.append('}');
+        }
+        sb.append("\n  ],\n");
+        sb.append("  \"errors\": ").append(errors);
+        sb.append(", \"warnings\": ").append(warnings);
+        sb.append(", \"decisions\": ").append(decisions).append("\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendProblems(StringBuilder sb, List<Problem> problems) {
+        sb.append('[');
+        for(int i=0; i<problems.size(); i++) {
+            Problem p = problems.get(i);
+            if(i > 0) sb.append(", ");
+            sb.append("{");
+            if(p.rule != null) {
+                sb.append("\"rule\": ").append(Utils.toJSONString(p.rule)).append(", ");
+            }
+            sb.append("\"line\": ").append(p.line);
+            sb.append(", \"column\": ").append(p.column);
+            sb.append(", \"message\": ").append(Utils.toJSONString(p.message));
+            sb.append('}');
+        }
+        sb.append(']');
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos/1000000;
+    }
+
+    /** An error, a warning or a decision problem. The line and the column are 1-based, or -1 if unknown. */
+    public static class Problem {
+
+        public final String rule;
+        public final int line;
+        public final int column;
+        public final String message;
+
+        public Problem(String rule, int line, int column, String message) {
+            this.rule = rule;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        public Problem(Message message) {
+            this(null, message.line, message.column, message.toString());
+        }
+    }
+
+    /** The result of checking one grammar file */
+    public static class Report {
+
+        public final String file;
+        public String name;
+        public String type;
+        public long parseTime;
+        public long analyzeTime;
+        public Exception exception;
+
+        public final List<Problem> errors = new ArrayList<Problem>();
+        public final List<Problem> warnings = new ArrayList<Problem>();
+        /** The decisions that are not LL(*): non-determinisms, unreachable alternatives, ... */
+        public final List<Problem> decisions = new ArrayList<Problem>();
+
+        private GrammarEngine engine;
+
+        public Report(String file) {
+            this.file = file;
+        }
+
+        public boolean hasErrors() {
+            return exception != null || !errors.isEmpty();
+        }
+    }
+
+    private class ParseTask implements Callable<Object> {
+
+        private final Report report;
+
+        public ParseTask(Report report) {
+            this.report = report;
+        }
+
+        public Object call() throws Exception {
+            long start = System.nanoTime();
+            try {
+                final String text = XJUtils.getStringFromFile(report.file);
+                GrammarEngine engine = new GrammarEngineImpl(new EngineDelegate(report, text));
+                // The grammars are already analyzed in parallel by the pool of the checker
+                engine.getANTLRGrammarEngine().setParallelAnalysis(false);
+                GrammarSyntaxEngine syntaxEngine = engine.getSyntaxEngine();
+                syntaxEngine.setDelegate(new ATESyntaxEngineDelegate() {
+                    public String getText() {
+                        return text;
+                    }
+
+                    public void ateEngineBeforeParsing() {
+                        // ignored
+                    }
+
+                    public void ateEngineAfterParsing() {
+                        // ignored
+                    }
+                });
+                syntaxEngine.processSyntax();
+                engine.parserCompleted();
+
+                report.engine = engine;
+                report.name = engine.getGrammarName();
+                report.type = ElementGrammarName.types.get(engine.getType());
+            } catch (Exception e) {
+                report.exception = e;
+            }
+            report.parseTime = System.nanoTime()-start;
+            return null;
+        }
+    }
+
+    private static class AnalyzeTask implements Callable<Object> {
+
+        private final List<Report> reports;
+
+        public AnalyzeTask(List<Report> reports) {
+            this.reports = reports;
+        }
+
+        public Object call() throws Exception {
+            for(Report report : reports) {
+                analyze(report);
+            }
+            return null;
+        }
+
+        private void analyze(Report report) {
+            long start = System.nanoTime();
+            try {
+                GrammarResult result = report.engine.analyze();
+                for(Message error : result.getErrors()) {
+                    report.errors.add(new Problem(error));
+                }
+                for(Message warning : result.getWarnings()) {
+                    report.warnings.add(new Problem(warning));
+                }
+                if(result.e != null) {
+                    report.exception = result.e;
+                }
+                for(ElementRule rule : report.engine.getRules()) {
+                    List<GrammarError> errors = rule.getErrors();
+                    if(errors == null) continue;
+
+                    for(GrammarError error : errors) {
+                        // GrammarError lines are 0-based
+                        report.decisions.add(new Problem(rule.name, error.line+1, -1, error.messageText));
+                    }
+                }
+            } catch (Exception e) {
+                report.exception = e;
+            }
+            report.analyzeTime = System.nanoTime()-start;
+        }
+    }
+
+    private class EngineDelegate implements GrammarEngineDelegate {
+
+        private final Report report;
+        private final String text;
+        private final String folder;
+
+        public EngineDelegate(Report report, String text) {
+            this.report = report;
+            this.text = text;
+            this.folder = XJUtils.getPathByDeletingLastComponent(report.file);
+        }
+
+        private String getOutputPath() {
+            return outputPath != null ? outputPath : XJUtils.concatPath(folder, "output");
+        }
+
+        public String getGrammarFileName() {
+            return XJUtils.getLastPathComponent(report.file);
+        }
+
+        public String getGrammarText() {
+            return text;
+        }
+
+        public String getTokenVocabFile(String name) {
+            String path = XJUtils.concatPath(folder, name);
+            if(new File(path).exists()) {
+                return path;
+            }
+            path = XJUtils.concatPath(getOutputPath(), name);
+            if(new File(path).exists()) {
+                return path;
+            }
+            return null;
+        }
+
+        public Tool getANTLRTool() {
+            return new Tool(new String[] { "-o", new File(getOutputPath()).getAbsolutePath(), "-lib", folder });
+        }
+
+        public void reportError(String error) {
+            // Reported by the engine itself, for example the left-recursive rules
+            report.errors.add(new Problem(null, -1, -1, error));
+        }
+
+        public void reportError(Exception e) {
+            report.exception = e;
+        }
+
+        public void gotoToRule(String grammar, String name) {
+            // ignored
+        }
+
+        public void engineAnalyzeCompleted() {
+            // ignored
+        }
+    }
+
+}
@@ -32,10 +32,11 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.grammar;
 
 import org.antlr.works.components.GrammarWindow;
+import org.antlr.works.grammar.antlr.AnalyzeProgressDelegate;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.utils.Console;
 
-public class CheckGrammar implements Runnable {
+public class CheckGrammar implements Runnable, AnalyzeProgressDelegate {
 
     private volatile CheckGrammarDelegate delegate;
     private volatile GrammarWindow window;
@@ -67,7 +68,7 @@ public class CheckGrammar implements Runnable {
         delegate.checkGrammarDidBegin(this);
         GrammarResult result;
         try {
-            result = window.getGrammarEngine().analyze();
+            result = window.getGrammarEngine().analyze(this);
         } catch (Exception e) {
             window.getConsoleTab().println(e);
             // Result cannot be null, so report the exception
@@ -78,4 +79,11 @@ public class CheckGrammar implements Runnable {
         }
     }
 
+    public void analyzeProgress(int percent) {
+        CheckGrammarDelegate d = delegate;
+        if(!cancelled && d != null) {
+            d.checkGrammarProgress(this, percent);
+        }
+    }
+
 }
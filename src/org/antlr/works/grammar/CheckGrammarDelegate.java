@@ -36,4 +36,5 @@ import org.antlr.works.grammar.antlr.GrammarResult;
 public interface CheckGrammarDelegate {
     public void checkGrammarDidBegin(CheckGrammar source);
     public void checkGrammarDidEnd(CheckGrammar source, GrammarResult errorMsg);
+    public void checkGrammarProgress(CheckGrammar source, int percent);
 }
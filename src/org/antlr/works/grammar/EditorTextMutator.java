@@ -0,0 +1,137 @@
+package org.antlr.works.grammar;
+
+import org.antlr.xjlib.appkit.undo.XJUndo;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CompoundEdit;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Records the changes of a refactoring on a copy of the text of an editor and applies
+ * them to the document of the editor at the end of the refactoring.
+ */
+public class EditorTextMutator implements RefactorMutator {
+
+    private final EditorTextMutatorDelegate delegate;
+
+    public StringBuilder mutableText;
+    public RefactorEdits edits = new RefactorEdits();
+
+    public EditorTextMutator(EditorTextMutatorDelegate delegate) {
+        this.delegate = delegate;
+        mutableText = new StringBuilder(delegate.getText());
+    }
+
+    public void replace(int start, int end, String s) {
+        edits.add(start, mutableText.substring(start, end), s);
+        mutableText.replace(start, end, s);
+    }
+
+    public void insert(int index, String s) {
+        edits.add(index, "", s);
+        mutableText.insert(index, s);
+    }
+
+    public void insertAtLinesBoundary(int index, String s) {
+        if(!(mutableText.charAt(index) == '\n' && mutableText.charAt(index-1) == '\n')) {
+            insert(index++, "\n");
+        }
+        insert(index, s);
+        int end = index+s.length();
+        if(!(mutableText.charAt(end) == '\n' && end+1 < mutableText.length() && mutableText.charAt(end+1) == '\n'))
+        {
+            insert(end, "\n");
+        }
+    }
+
+    public void delete(int start, int end) {
+        edits.add(start, mutableText.substring(start, end), "");
+        mutableText.delete(start, end);
+    }
+
+    public void apply() {
+        if(edits.isEmpty()) return;
+
+        // Only the changes are applied to the document and kept for the undo: the edit
+        // goes into the undo group opened by the refactoring so it is undone in one step
+        refactorEditText(edits, false);
+
+        XJUndo undo = delegate.getUndo(delegate.getTextEditor().getTextPane());
+        if(undo == null) return;
+
+        UndoableRefactoringEdit edit = new UndoableRefactoringEdit(edits);
+        CompoundEdit group = undo.getUndoGroup();
+        if(group == null)
+            undo.addEditEvent(edit);
+        else
+            group.addEdit(edit);
+    }
+
+    protected void refactorEditText(RefactorEdits edits, boolean revert) {
+        int oldCaretPosition = delegate.getCaretPosition();
+        Document doc = delegate.getTextEditor().getTextPane().getDocument();
+        delegate.disableTextPaneUndo();
+        try {
+            if(revert)
+                edits.revert(doc);
+            else
+                edits.apply(doc);
+        } catch (BadLocationException e) {
+            delegate.reportError(e);
+        } finally {
+            delegate.enableTextPaneUndo();
+        }
+        delegate.getTextEditor().setCaretPosition(Math.min(oldCaretPosition, doc.getLength()), false, false);
+    }
+
+    protected class UndoableRefactoringEdit extends AbstractUndoableEdit {
+
+        public RefactorEdits edits;
+
+        public UndoableRefactoringEdit(RefactorEdits edits) {
+            this.edits = edits;
+        }
+
+        public void redo() {
+            super.redo();
+            refactorEditText(edits, false);
+        }
+
+        public void undo() {
+            super.undo();
+            refactorEditText(edits, true);
+        }
+    }
+}
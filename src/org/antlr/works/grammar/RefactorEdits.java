@@ -0,0 +1,92 @@
+package org.antlr.works.grammar;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * The ordered list of changes made by a refactoring. Each change only keeps its offset,
+ * the removed text and the inserted text so a refactoring can be applied and reverted
+ * in place on a document without keeping a copy of the whole text.
+ */
+public class RefactorEdits {
+
+    private final List<Edit> edits = new ArrayList<Edit>();
+
+    public void add(int offset, String removed, String inserted) {
+        if(removed.length() == 0 && inserted.length() == 0) return;
+        edits.add(new Edit(offset, removed, inserted));
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    public int size() {
+        return edits.size();
+    }
+
+    public void apply(Document doc) throws BadLocationException {
+        for(Edit edit : edits) {
+            edit.replace(doc, edit.removed, edit.inserted);
+        }
+    }
+
+    public void revert(Document doc) throws BadLocationException {
+        for(int index = edits.size()-1; index >= 0; index--) {
+            Edit edit = edits.get(index);
+            edit.replace(doc, edit.inserted, edit.removed);
+        }
+    }
+
+    private static class Edit {
+
+        public final int offset;
+        public final String removed;
+        public final String inserted;
+
+        public Edit(int offset, String removed, String inserted) {
+            this.offset = offset;
+            this.removed = removed;
+            this.inserted = inserted;
+        }
+
+        public void replace(Document doc, String oldText, String newText) throws BadLocationException {
+            if(oldText.length() > 0)
+                doc.remove(offset, oldText.length());
+            if(newText.length() > 0)
+                doc.insertString(offset, newText, null);
+        }
+    }
+}
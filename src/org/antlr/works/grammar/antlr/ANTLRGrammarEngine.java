@@ -54,7 +54,11 @@ public interface ANTLRGrammarEngine {
     void createGrammars() throws Exception;
     void computeRuleErrors(ElementRule rule);
 
+    /** Lets the analysis distribute the decisions over the processors (if enabled in the preferences) */
+    void setParallelAnalysis(boolean flag);
+
     GrammarResult analyze() throws Exception;
+    GrammarResult analyze(AnalyzeProgressDelegate delegate) throws Exception;
     void cancel();
 
 }
@@ -31,10 +31,11 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.grammar.antlr;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.SwingUtilities;
 
@@ -47,20 +48,43 @@ import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.element.ElementGrammarName;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.ErrorListener;
 
 import antlr.TokenStreamException;
 
+/**
+ * The grammars are created from a snapshot of the grammar text: each change of the text (see markDirty())
+ * increments the version of the text, which lets an analysis running in the background detect that it is
+ * outdated. An outdated analysis is aborted as soon as possible and started again with the current text
+ * instead of being completed. If the text keeps changing, the analysis gives up after a few restarts
+ * and returns a superseded result: the next analysis will handle the new text.
+ */
 public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
-   private Grammar parserGrammar;
-   private Grammar lexerGrammar;
+   private volatile Grammar parserGrammar;
+   private volatile Grammar lexerGrammar;
    private List<GrammarError> errors;
-   private boolean needsToCreateGrammar;
-   private boolean needsToAnalyzeGrammar;
+   private volatile boolean needsToCreateGrammar;
+   private volatile boolean needsToAnalyzeGrammar;
    private final GrammarResult createGrammarResult = new GrammarResult();
    private final GrammarResult analyzeResult = new GrammarResult();
    private GrammarEngine engine;
 
+   /** Number of times an outdated analysis is started again before giving up */
+   private static final int MAX_ANALYSIS_RESTARTS = 2;
+
+   /** Version of the grammar text, incremented each time the text changes */
+   private final AtomicLong version = new AtomicLong();
+   /** Grammar whose lookahead DFAs are being created, if any (to abort the analysis) */
+   private volatile Grammar analyzedGrammar;
+   /** True if a notification of the completed analysis is waiting to be processed by the UI */
+   private final AtomicBoolean completionPending = new AtomicBoolean();
+   /** Lookahead DFAs of the previous analysis, reused for the rules that did not change */
+   private final LookaheadDFACache parserDFACache = new LookaheadDFACache();
+   private final LookaheadDFACache lexerDFACache = new LookaheadDFACache();
+   /** False if the caller already analyzes several grammars in parallel */
+   private volatile boolean parallelAnalysis = true;
+
    public ANTLRGrammarEngineImpl() {
       errors = new ArrayList<GrammarError>();
       markDirty();
@@ -79,12 +103,24 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
    @Override
    public void close() {
       errors = null;
+      parserDFACache.clear();
+      lexerDFACache.clear();
    }
 
    @Override
    public void markDirty() {
+      version.incrementAndGet();
       needsToCreateGrammar = true;
       needsToAnalyzeGrammar = true;
+
+      // Don't let an analysis of the previous text finish
+      Grammar g = analyzedGrammar;
+      if (g != null)
+         g.externallyAbortNFAToDFAConversion();
+   }
+
+   private boolean isOutdated(long analyzedVersion) {
+      return version.get() != analyzedVersion;
    }
 
    @Override
@@ -163,21 +199,26 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
       parserGrammar = null;
       lexerGrammar = null;
       createGrammarResult.clear();
+      // Take the snapshot of the text the grammars are created from
+      final long createdVersion = version.get();
+      final String text = engine.getGrammarText();
       try {
          switch (engine.getType()) {
             case ElementGrammarName.COMBINED:
-               createCombinedGrammar();
+               createCombinedGrammar(text);
                break;
             case ElementGrammarName.TREEPARSER:
             case ElementGrammarName.PARSER:
-               createParserGrammar();
+               createParserGrammar(text);
                break;
             case ElementGrammarName.LEXER:
-               createLexerGrammar();
+               createLexerGrammar(text);
                break;
          }
-         // if no exception, then assume create grammar was successful
-         needsToCreateGrammar = false;
+         // if no exception, then assume create grammar was successful (unless the text
+         // has changed in the meantime)
+         if (!isOutdated(createdVersion))
+            needsToCreateGrammar = false;
       } finally {
          // store the result of creating the grammars
          createGrammarResult.setErrors(el.errors);
@@ -187,11 +228,11 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
       }
    }
 
-   private Grammar createNewGrammar() throws TokenStreamException, RecognitionException, IOException {
+   private Grammar createNewGrammar(String text) throws TokenStreamException, RecognitionException, IOException {
       Grammar g = new Grammar();
       g.setTool(engine.getANTLRTool());
       g.setFileName(engine.getGrammarFileName());
-      g.setGrammarContent(engine.getGrammarText());
+      g.setGrammarContent(text);
       g.composite.createNFAs();
       // don't want errors from a previous grammar to interfere with this new grammar.
       // must reset error state otherwise analysis will not proceed if
@@ -200,8 +241,8 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
       return g;
    }
 
-   private void createCombinedGrammar() throws Exception {
-      createParserGrammar();
+   private void createCombinedGrammar(String text) throws Exception {
+      createParserGrammar(text);
       lexerGrammar = createLexerGrammarFromCombinedGrammar(parserGrammar);
    }
 
@@ -219,12 +260,12 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
       return lexerGrammar;
    }
 
-   private void createParserGrammar() throws TokenStreamException, RecognitionException, IOException {
-      parserGrammar = createNewGrammar();
+   private void createParserGrammar(String text) throws TokenStreamException, RecognitionException, IOException {
+      parserGrammar = createNewGrammar(text);
    }
 
-   private void createLexerGrammar() throws TokenStreamException, RecognitionException, IOException {
-      lexerGrammar = createNewGrammar();
+   private void createLexerGrammar(String text) throws TokenStreamException, RecognitionException, IOException {
+      lexerGrammar = createNewGrammar(text);
    }
 
    private void printLeftRecursionToConsole(List rules) {
@@ -252,8 +293,18 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
       }
    }
 
+   @Override
+   public void setParallelAnalysis(boolean flag) {
+      parallelAnalysis = flag;
+   }
+
    @Override
    public GrammarResult analyze() throws Exception {
+      return analyze(null);
+   }
+
+   @Override
+   public GrammarResult analyze(AnalyzeProgressDelegate delegate) throws Exception {
       // if there is no need to analyze the grammar, return the previous result
       if (!needsToAnalyzeGrammar) {
          GrammarResult r = analyzeCompleted(null);
@@ -266,10 +317,34 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
       // Set the error listener
       ErrorListener el = ErrorListener.getThreadInstance();
       ErrorManager.setErrorListener(el);
+      for (int restart = 0; restart <= MAX_ANALYSIS_RESTARTS; restart++) {
+         final long analyzedVersion = version.get();
+         if (analyze(el, analyzedVersion, delegate) || !isOutdated(analyzedVersion)) {
+            return analyzeCompleted(el);
+         }
+         // The text has changed during the analysis: drop the result and analyze the new text
+         el.clear();
+      }
+      // The text is still being edited: don't hold the caller any longer
+      ErrorManager.removeErrorListener();
+      GrammarResult result = getCompleteResult();
+      result.superseded = true;
+      return result;
+   }
+
+   /**
+    * Analyzes the grammar created from the current version of the text.
+    *
+    * @return false if the analysis has been aborted because the text has changed
+    */
+   private boolean analyze(ErrorListener el, long analyzedVersion, AnalyzeProgressDelegate delegate) throws Exception {
       createGrammars();
+      if (isOutdated(analyzedVersion)) {
+         return false;
+      }
       Grammar g = getDefaultGrammar();
       if (g == null) {
-         return analyzeCompleted(el);
+         return true;
       }
       List rules = g.checkAllRulesForLeftRecursion();
       if (!rules.isEmpty()) {
@@ -277,36 +352,55 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
          markLeftRecursiveRules(rules);
       }
       if (ErrorManager.doNotAttemptAnalysis()) {
-         return analyzeCompleted(el);
+         return true;
       }
       try {
          if (g.nfa == null) {
             g.composite.createNFAs();
          }
-         g.createLookaheadDFAs();
+         createLookaheadDFAs(g, el, delegate);
          if (engine.isCombinedGrammar()) {
             // If the grammar is combined, analyze also the lexer
-            if (lexerGrammar != null) {
+            if (lexerGrammar != null && !isOutdated(analyzedVersion)) {
                lexerGrammar.composite.createNFAs();
-               lexerGrammar.createLookaheadDFAs();
+               createLookaheadDFAs(lexerGrammar, el, delegate);
             }
          }
+         if (isOutdated(analyzedVersion)) {
+            return false;
+         }
          buildNonDeterministicErrors(el);
          markRulesWithWarningsOrErrors();
       } catch (Exception e) {
          // ignore
       }
-      return analyzeCompleted(el);
+      return true;
+   }
+
+   private void createLookaheadDFAs(Grammar g, ErrorListener el, AnalyzeProgressDelegate delegate) {
+      analyzedGrammar = g;
+      try {
+         LookaheadDFACache cache = g == lexerGrammar ? lexerDFACache : parserDFACache;
+         cache.setParallel(parallelAnalysis && AWPrefs.getParallelAnalysis());
+         cache.createLookaheadDFAs(g, el, delegate);
+      } finally {
+         analyzedGrammar = null;
+      }
    }
 
-   private GrammarResult analyzeCompleted(ErrorListener el) throws InvocationTargetException, InterruptedException {
+   private GrammarResult analyzeCompleted(ErrorListener el) {
       if (SwingUtilities.isEventDispatchThread()) {
          engine.antlrGrammarEngineAnalyzeCompleted();
-      } else {
-         SwingUtilities.invokeAndWait(new Runnable() {
+      } else if (completionPending.compareAndSet(false, true)) {
+         // Don't wait for the UI: if several analyses complete before the UI gets
+         // notified, it is notified only once.
+         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-               engine.antlrGrammarEngineAnalyzeCompleted();
+               completionPending.set(false);
+               if (engine != null) {
+                  engine.antlrGrammarEngineAnalyzeCompleted();
+               }
             }
          });
       }
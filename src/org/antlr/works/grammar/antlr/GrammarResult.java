@@ -37,6 +37,8 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 public class GrammarResult {
    public Exception e;
+   /** True if the text changed too many times during the analysis to complete it */
+   public boolean superseded;
    public final List<Message> errors = new LinkedList<Message>();
    public final List<Message> warnings = new LinkedList<Message>();
 
@@ -101,8 +103,12 @@ public class GrammarResult {
       }
    }
 
+   public boolean isSuperseded() {
+      return superseded;
+   }
+
    public boolean isSuccess() {
-      return getErrorCount() == 0 && getWarningCount() == 0 && e == null;
+      return getErrorCount() == 0 && getWarningCount() == 0 && e == null && !superseded;
    }
 
    public void clear() {
@@ -0,0 +1,557 @@
+package org.antlr.works.grammar.antlr;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.antlr.analysis.DFA;
+import org.antlr.analysis.NFAState;
+import org.antlr.grammar.v3.ANTLRParser;
+import org.antlr.tool.GrammarAST;
+import org.antlr.tool.Message;
+import org.antlr.v4.tool.ErrorManager;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.Rule;
+import org.antlr.works.utils.ErrorListener;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-07 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Cache of the lookahead DFAs of a grammar and of the messages (non-determinism, unreachable
+ * alternatives, etc.) reported while creating them.
+ *
+ * The results are cached per rule and are keyed by a hash of the normalized tree of the rule and
+ * of all the rules it references, directly or not, as well as of the options and of the token
+ * vocabulary of the grammar. The DFA states and the messages refer to the NFA states of these
+ * rules by number, so the key also contains the number of the start state of each rule: editing
+ * a rule that shifts the numbering of the NFA states invalidates the rules that follow it. The lookahead DFAs of a rule whose key did not change since the
+ * previous analysis are moved to the new grammar instead of being created again.
+ *
+ * In parallel mode, the LL(*) analysis of the decisions is distributed over all the processors.
+ * The LL(1) analysis and the analysis of the syntactic predicates, which depend on state shared
+ * by the whole grammar, stay on the calling thread. Whatever the mode, the messages are reported
+ * in the order of the decisions.
+ */
+public class LookaheadDFACache {
+   private static ExecutorService executor;
+
+   private Map<String, RuleDecisions> rules = new HashMap<String, RuleDecisions>();
+   private boolean parallel;
+
+   public void setParallel(boolean parallel) {
+      this.parallel = parallel;
+   }
+
+   public void clear() {
+      rules.clear();
+   }
+
+   /**
+    * Creates the lookahead DFAs of the grammar, reusing the cached DFAs of the rules that did not
+    * change. The messages of the reused DFAs are reported to the error listener as if the DFAs had
+    * been created.
+    */
+   public void createLookaheadDFAs(final Grammar g, ErrorListener el, AnalyzeProgressDelegate delegate) {
+      final int count = g.getNumberOfDecisions();
+      final Progress progress = new Progress(count, delegate);
+      final DecisionResult[] results = new DecisionResult[count + 1];
+      boolean[] reused = new boolean[count + 1];
+      RuleDecisions[] owners = new RuleDecisions[count + 1];
+      int[] indexes = new int[count + 1];
+
+      Map<String, String> keys = computeKeys(g);
+      Map<String, RuleDecisions> analyzedRules = new HashMap<String, RuleDecisions>();
+      Map<String, Integer> ruleDecisionIndexes = new HashMap<String, Integer>();
+      Set leftRecursiveRules = g.getLeftRecursiveRules();
+      List<Integer> pendingDecisions = new ArrayList<Integer>();
+      List<Integer> synPredDecisions = new ArrayList<Integer>();
+
+      SynPredNames synPredNames = new SynPredNames(g.synPredNamesUsedInDFA);
+      g.synPredNamesUsedInDFA = synPredNames;
+      if (parallel) {
+         g.decisionsWhoseDFAsUsesSemPreds = Collections.synchronizedSet(g.decisionsWhoseDFAsUsesSemPreds);
+         g.decisionsWhoseDFAsUsesSynPreds = Collections.synchronizedSet(g.decisionsWhoseDFAsUsesSynPreds);
+         g.lineColumnToLookaheadDFAMap = Collections.synchronizedMap(g.lineColumnToLookaheadDFAMap);
+      }
+
+      // The messages of the decisions analyzed by this thread are captured to be
+      // reported in the order of the decisions
+      ErrorListener capture = new ErrorListener();
+      capture.setPrintToConsole(false);
+      ErrorManager.setErrorListener(capture);
+      try {
+         for (int decision = 1; decision <= count; decision++) {
+            NFAState startState = g.getDecisionNFAStartState(decision);
+            if (startState == null || startState.getNumberOfTransitions() <= 1 || leftRecursiveRules.contains(startState.enclosingRule)) {
+               progress.decisionAnalyzed();
+               continue;
+            }
+            String name = startState.enclosingRule.name;
+            RuleDecisions decisions = analyzedRules.get(name);
+            if (decisions == null) {
+               decisions = rules.get(name);
+               if (decisions == null || !decisions.key.equals(keys.get(name))) {
+                  decisions = new RuleDecisions(keys.get(name));
+               }
+               analyzedRules.put(name, decisions);
+            }
+            Integer index = ruleDecisionIndexes.get(name);
+            index = index == null ? 0 : index + 1;
+            ruleDecisionIndexes.put(name, index);
+            owners[decision] = decisions;
+            indexes[decision] = index;
+
+            if (startState.enclosingRule.isSynPred) {
+               // Analyzed only if used by the other decisions
+               synPredDecisions.add(decision);
+            } else if (index < decisions.results.size()) {
+               results[decision] = decisions.results.get(index);
+               reused[decision] = true;
+               synPredNames.addAll(results[decision].synPredNames);
+               progress.decisionAnalyzed();
+            } else if (!g.NFAToDFAConversionExternallyAborted()) {
+               results[decision] = DecisionResult.createLL1(g, decision, capture);
+               if (results[decision] == null) {
+                  pendingDecisions.add(decision);
+               } else {
+                  progress.decisionAnalyzed();
+               }
+            }
+         }
+
+         if (parallel && pendingDecisions.size() > 1) {
+            List<Future<DecisionResult>> futures = new ArrayList<Future<DecisionResult>>();
+            for (final Integer decision : pendingDecisions) {
+               futures.add(getExecutor().submit(new Callable<DecisionResult>() {
+                  @Override
+                  public DecisionResult call() {
+                     // The error listener of the analysis threads does not print the messages
+                     return analyze(g, decision, ErrorListener.getThreadInstance(), progress);
+                  }
+               }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+               results[pendingDecisions.get(i)] = getResult(futures.get(i));
+            }
+         } else {
+            for (Integer decision : pendingDecisions) {
+               results[decision] = analyze(g, decision, capture, progress);
+            }
+         }
+
+         for (Integer decision : synPredDecisions) {
+            if (g.NFAToDFAConversionExternallyAborted()) {
+               break;
+            }
+            NFAState startState = g.getDecisionNFAStartState(decision);
+            if (synPredNames.contains(startState.enclosingRule.name)) {
+               RuleDecisions decisions = owners[decision];
+               if (indexes[decision] < decisions.results.size()) {
+                  results[decision] = decisions.results.get(indexes[decision]);
+                  reused[decision] = true;
+                  synPredNames.addAll(results[decision].synPredNames);
+               } else {
+                  results[decision] = DecisionResult.createLL1(g, decision, capture);
+                  if (results[decision] == null) {
+                     results[decision] = DecisionResult.create(g, decision, capture);
+                  }
+               }
+            }
+            progress.decisionAnalyzed();
+         }
+      } finally {
+         ErrorManager.setErrorListener(el);
+      }
+
+      // Report the messages in the order of the decisions and update the cache
+      boolean complete = !g.NFAToDFAConversionExternallyAborted();
+      for (int decision = 1; decision <= count; decision++) {
+         DecisionResult result = results[decision];
+         if (result == null) {
+            continue;
+         }
+         if (reused[decision]) {
+            result.reuse(g, decision, g.getDecisionNFAStartState(decision));
+         } else if (indexes[decision] == owners[decision].results.size()) {
+            owners[decision].results.add(result);
+         }
+         result.report(el);
+      }
+      // Keep only the rules of the grammar that has been analyzed (an aborted analysis
+      // keeps the previous rules to be reused by the next one)
+      if (complete) {
+         rules = analyzedRules;
+      } else {
+         for (Map.Entry<String, RuleDecisions> entry : analyzedRules.entrySet()) {
+            if (!entry.getValue().results.isEmpty())
+               rules.put(entry.getKey(), entry.getValue());
+         }
+      }
+   }
+
+   private static DecisionResult analyze(Grammar g, int decision, ErrorListener listener, Progress progress) {
+      DecisionResult result = null;
+      if (!g.NFAToDFAConversionExternallyAborted()) {
+         result = DecisionResult.create(g, decision, listener);
+      }
+      progress.decisionAnalyzed();
+      return result;
+   }
+
+   private static DecisionResult getResult(Future<DecisionResult> future) {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return null;
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+         throw new RuntimeException(e.getCause());
+      }
+   }
+
+   private static synchronized ExecutorService getExecutor() {
+      if (executor == null) {
+         int threads = Runtime.getRuntime().availableProcessors();
+         ThreadPoolExecutor e = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+               new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                  private int count;
+
+                  @Override
+                  public Thread newThread(final Runnable r) {
+                     Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                           ErrorListener listener = ErrorListener.getThreadInstance();
+                           listener.setPrintToConsole(false);
+                           // ANTLR keeps the error listeners per thread: register it once for all
+                           ErrorManager.setErrorListener(listener);
+                           r.run();
+                        }
+                     }, "Grammar Analysis " + (++count));
+                     thread.setDaemon(true);
+                     return thread;
+                  }
+               });
+         // Register the error listener of all the threads before any analysis
+         e.prestartAllCoreThreads();
+         executor = e;
+      }
+      return executor;
+   }
+
+   private static Map<String, String> computeKeys(Grammar g) {
+      Map<String, String> ruleHashes = new HashMap<String, String>();
+      Map<String, Set<String>> ruleReferences = new HashMap<String, Set<String>>();
+      for (Object o : g.getRules()) {
+         Rule r = (Rule) o;
+         ruleHashes.put(r.name, hash(r.tree == null ? "" : r.tree.toStringTree()));
+         Set<String> references = new TreeSet<String>();
+         if (r.tree != null) {
+            // Fragment lexer rules are referenced as tokens
+            addReferences(g, r.tree.findAllType(ANTLRParser.RULE_REF), references);
+            addReferences(g, r.tree.findAllType(ANTLRParser.TOKEN_REF), references);
+         }
+         ruleReferences.put(r.name, references);
+      }
+      String header = hash(getHeader(g));
+      Map<String, String> keys = new HashMap<String, String>();
+      for (String name : ruleHashes.keySet()) {
+         Set<String> closure = new TreeSet<String>();
+         addClosure(name, ruleReferences, closure);
+         StringBuilder sb = new StringBuilder(header);
+         for (String rule : closure) {
+            sb.append(';').append(rule).append('=').append(ruleHashes.get(rule));
+            sb.append('@').append(getStartStateNumber(g, rule));
+         }
+         keys.put(name, hash(sb.toString()));
+      }
+      return keys;
+   }
+
+   private static int getStartStateNumber(Grammar g, String rule) {
+      NFAState state = g.getRuleStartState(rule);
+      return state == null ? -1 : state.stateNumber;
+   }
+
+   private static void addReferences(Grammar g, List<GrammarAST> nodes, Set<String> references) {
+      for (GrammarAST node : nodes) {
+         if (g.getRule(node.getText()) != null)
+            references.add(node.getText());
+      }
+   }
+
+   private static void addClosure(String name, Map<String, Set<String>> ruleReferences, Set<String> closure) {
+      if (!closure.add(name))
+         return;
+      Set<String> references = ruleReferences.get(name);
+      if (references == null)
+         return;
+      for (String reference : references) {
+         addClosure(reference, ruleReferences, closure);
+      }
+   }
+
+   private static String getHeader(Grammar g) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(g.type).append(';').append(g.name);
+      for (String option : new String[] { "k", "backtrack", "memoize", "output", "filter" }) {
+         sb.append(';').append(option).append('=').append(g.getOption(option));
+      }
+      // The labels of the DFAs are token types
+      Map<String, Integer> vocabulary = new TreeMap<String, Integer>();
+      for (Object id : g.getTokenIDs()) {
+         vocabulary.put((String) id, g.getTokenType((String) id));
+      }
+      for (Object literal : g.getStringLiterals()) {
+         vocabulary.put((String) literal, g.getTokenType((String) literal));
+      }
+      sb.append(';').append(vocabulary);
+      return sb.toString();
+   }
+
+   private static String hash(String s) {
+      try {
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         byte[] bytes = digest.digest(s.getBytes("UTF-8"));
+         StringBuilder sb = new StringBuilder(bytes.length * 2);
+         for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+         }
+         return sb.toString();
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      } catch (UnsupportedEncodingException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /** Reports the percentage of analyzed decisions each time it changes */
+   private static class Progress {
+      final int count;
+      final AnalyzeProgressDelegate delegate;
+      final AtomicInteger analyzed = new AtomicInteger();
+      final AtomicInteger percent = new AtomicInteger(-1);
+
+      Progress(int count, AnalyzeProgressDelegate delegate) {
+         this.count = count;
+         this.delegate = delegate;
+      }
+
+      void decisionAnalyzed() {
+         if (delegate == null || count == 0)
+            return;
+         int p = analyzed.incrementAndGet() * 100 / count;
+         int previous = percent.get();
+         if (p > previous && percent.compareAndSet(previous, p)) {
+            delegate.analyzeProgress(p);
+         }
+      }
+   }
+
+   /**
+    * Names of the syntactic predicates used by the DFAs of the grammar. Each thread can record
+    * the names it adds, which are the names used by the DFA it is creating.
+    */
+   private static class SynPredNames extends AbstractSet<String> {
+      private final Set<String> names = Collections.synchronizedSet(new TreeSet<String>());
+      private final ThreadLocal<Set<String>> recorded = new ThreadLocal<Set<String>>();
+
+      SynPredNames(Collection<String> names) {
+         if (names != null)
+            this.names.addAll(names);
+      }
+
+      void startRecording() {
+         recorded.set(new TreeSet<String>());
+      }
+
+      Set<String> stopRecording() {
+         Set<String> s = recorded.get();
+         recorded.remove();
+         return s;
+      }
+
+      @Override
+      public boolean add(String name) {
+         Set<String> s = recorded.get();
+         if (s != null)
+            s.add(name);
+         return names.add(name);
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return names.contains(o);
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+         synchronized (names) {
+            return new ArrayList<String>(names).iterator();
+         }
+      }
+
+      @Override
+      public int size() {
+         return names.size();
+      }
+   }
+
+   /** The results of the decisions of a rule, in the order of the decisions */
+   private static class RuleDecisions {
+      final String key;
+      final List<DecisionResult> results = new ArrayList<DecisionResult>();
+
+      RuleDecisions(String key) {
+         this.key = key;
+      }
+   }
+
+   private static class DecisionResult {
+      final DFA dfa;
+      final List<Message> warnings;
+      final List<Message> errors;
+      final Set<String> synPredNames;
+      final boolean usesSemPreds;
+      final boolean usesSynPreds;
+
+      private DecisionResult(Grammar g, DFA dfa, ErrorListener listener, Set<String> synPredNames) {
+         this.dfa = dfa;
+         this.warnings = new ArrayList<Message>(listener.warnings);
+         this.errors = new ArrayList<Message>(listener.errors);
+         this.synPredNames = synPredNames;
+         this.usesSemPreds = dfa != null && g.decisionsWhoseDFAsUsesSemPreds.contains(dfa);
+         this.usesSynPreds = dfa != null && g.decisionsWhoseDFAsUsesSynPreds.contains(dfa);
+         listener.clear();
+      }
+
+      /**
+       * Creates the LL(1) lookahead DFA of the decision if the decision allows it. Must be called
+       * from the thread that analyzes the grammar.
+       *
+       * @return null if the decision is not LL(1)
+       */
+      static DecisionResult createLL1(Grammar g, int decision, ErrorListener listener) {
+         int k = g.getUserMaxLookahead(decision);
+         if (k != 0 && k != 1) {
+            return null;
+         }
+         listener.clear();
+         DFA dfa = g.createLL_1_LookaheadDFA(decision);
+         if (dfa == null) {
+            listener.clear();
+            return null;
+         }
+         return new DecisionResult(g, dfa, listener, Collections.<String>emptySet());
+      }
+
+      /**
+       * Creates the LL(*) lookahead DFA of the decision.
+       *
+       * @return null if the creation has been aborted
+       */
+      static DecisionResult create(Grammar g, int decision, ErrorListener listener) {
+         SynPredNames names = (SynPredNames) g.synPredNamesUsedInDFA;
+         listener.clear();
+         names.startRecording();
+         DFA dfa;
+         Set<String> usedSynPredNames;
+         try {
+            dfa = g.createLookaheadDFA(decision, true);
+         } finally {
+            usedSynPredNames = names.stopRecording();
+         }
+         if (g.NFAToDFAConversionExternallyAborted()) {
+            listener.clear();
+            return null;
+         }
+         if (dfa != null && dfa.startState == null) {
+            // something went wrong: wipe out the DFA
+            g.setLookaheadDFA(decision, null);
+            dfa = null;
+         }
+         return new DecisionResult(g, dfa, listener, usedSynPredNames);
+      }
+
+      /**
+       * Moves the DFA to the decision of the new grammar: the rules it depends on and the numbers
+       * of their NFA states are the same but their decisions and lines may have been shifted by
+       * the other rules.
+       */
+      void reuse(Grammar g, int decision, NFAState startState) {
+         if (dfa == null)
+            return;
+         dfa.decisionNumber = decision;
+         dfa.decisionNFAStartState = startState;
+         dfa.nfa = g.nfa;
+         g.setLookaheadDFA(decision, dfa);
+         GrammarAST ast = g.getDecisionBlockAST(decision);
+         g.lineColumnToLookaheadDFAMap.put(ast.getLine() + ":" + ast.getCharPositionInLine(), dfa);
+         if (usesSemPreds)
+            g.decisionsWhoseDFAsUsesSemPreds.add(dfa);
+         if (usesSynPreds)
+            g.decisionsWhoseDFAsUsesSynPreds.add(dfa);
+      }
+
+      /** The messages refer to the DFA (through their probe) so they always refer to the current grammar */
+      void report(ErrorListener el) {
+         for (Message warning : warnings) {
+            el.warning(warning);
+         }
+         for (Message error : errors) {
+            el.error(error);
+         }
+      }
+   }
+}
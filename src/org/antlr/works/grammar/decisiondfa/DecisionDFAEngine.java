@@ -14,6 +14,7 @@ import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.Rule;
 import org.antlr.works.ate.ATEOverlayManager;
+import org.antlr.works.ate.syntax.misc.ATELineMap;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 
@@ -84,9 +85,14 @@ public class DecisionDFAEngine {
    }
 
    private void discover(int start, int end) throws Exception {
+      // Lines overlapping the range: the lines in between are contiguous
       Set<Integer> lineIndexes = new HashSet<Integer>();
-      for (int index = start; index < end; index++) {
-         lineIndexes.add(window.getTextEditor().getLineIndexAtTextPosition(index));
+      ATELineMap lineMap = window.getTextEditor().getLineMap();
+      if (lineMap != null && start < end) {
+         int last = lineMap.getLineIndexAtPosition(end - 1);
+         for (int lineIndex = lineMap.getLineIndexAtPosition(start); lineIndex <= last; lineIndex++) {
+            lineIndexes.add(lineIndex);
+         }
       }
       ANTLRGrammarEngine antlrEngineGrammar = window.getGrammarEngine().getANTLRGrammarEngine();
       antlrEngineGrammar.analyze();
@@ -52,6 +52,9 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
     public ATEToken colon;
     public ATEToken end;
 
+    // Last token read by the parser up to the end of this rule (used by the incremental parsing)
+    public ATEToken lookahead;
+
     public boolean ignored = false;
     public boolean expanded = true;
     public boolean breakpoint = false;
@@ -151,6 +154,25 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
             return null;
     }
 
+    /**
+     * Called by the parser when this rule is kept by an incremental parsing but
+     * its elements have moved in the parser's lists.
+     */
+    public void shiftIndexes(int refsDelta, int blocksDelta, int actionsDelta) {
+        if(refsStartIndex != -1 && refsEndIndex != -1) {
+            refsStartIndex += refsDelta;
+            refsEndIndex += refsDelta;
+        }
+        if(blocksStartIndex != -1 && blocksEndIndex != -1) {
+            blocksStartIndex += blocksDelta;
+            blocksEndIndex += blocksDelta;
+        }
+        if(actionsStartIndex != -1 && actionsEndIndex != -1) {
+            actionsStartIndex += actionsDelta;
+            actionsEndIndex += actionsDelta;
+        }
+    }
+
     public int getStartIndex() {
         return start.getStartIndex();
     }
@@ -42,7 +42,9 @@ public class ElementToken extends ATEToken {
                         String text)
     {
         super(type, start, end, startLineNumber,  endLineNumber, startLineIndex, endLineIndex, text);
-        this.lexer = isLexerName(attribute);
+        // Same as isLexerName(getAttribute()) but without creating the attribute
+        final char c = text.charAt(start);
+        this.lexer = c == Character.toUpperCase(c);
     }
 
 }
@@ -36,6 +36,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 import org.antlr.v4.Tool;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.grammar.antlr.AnalyzeProgressDelegate;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.grammar.element.ElementAction;
 import org.antlr.works.grammar.element.ElementBlock;
@@ -96,8 +97,11 @@ public interface GrammarEngine {
     List<ATEToken> getTokens();
 
     void updateHierarchy(Map<String, GrammarEngine> engines, Set<GrammarEngine> alreadyVisitedEngines);
+    List<GrammarEngine> getImportedEngines();
+    void setHierarchyIndex(GrammarHierarchyIndex index);
 
     GrammarResult analyze() throws Exception;
+    GrammarResult analyze(AnalyzeProgressDelegate delegate) throws Exception;
     void cancelAnalyze();
 
     void computeRuleErrors(ElementRule rule);
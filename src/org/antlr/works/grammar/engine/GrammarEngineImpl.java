@@ -9,6 +9,7 @@ import org.antlr.v4.Tool;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.grammar.antlr.AnalyzeProgressDelegate;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngineImpl;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.grammar.element.ElementAction;
@@ -57,6 +58,7 @@ public class GrammarEngineImpl implements GrammarEngine {
    private final GrammarProperties properties = new GrammarPropertiesImpl();
    private final ANTLRGrammarEngine antlrEngine = new ANTLRGrammarEngineImpl();
    private final GrammarSyntaxEngine syntaxEngine = new GrammarSyntaxEngine();
+   private volatile GrammarHierarchyIndex hierarchyIndex;
 
    public GrammarEngineImpl(GrammarEngineDelegate delegate) {
       this.delegate = delegate;
@@ -302,12 +304,14 @@ public class GrammarEngineImpl implements GrammarEngine {
    @Override
    public List<String> getGrammarsOverriddenByRule(String name) {
       List<String> grammars = new ArrayList<String>();
+      GrammarHierarchyIndex index = hierarchyIndex;
+      if (index != null && !index.isDeclaredByOther(name, this)) {
+         // no other grammar of the hierarchy declares this name
+         return grammars;
+      }
       for (GrammarEngine child : importedEngines) {
-         for (ATEToken decl : child.getDecls()) {
-            if (decl.getAttribute().equals(name)) {
-               grammars.add(child.getGrammarName());
-               break;
-            }
+         if (isDeclaredBy(index, name, child)) {
+            grammars.add(child.getGrammarName());
          }
          grammars.addAll(child.getGrammarsOverriddenByRule(name));
       }
@@ -320,18 +324,27 @@ public class GrammarEngineImpl implements GrammarEngine {
    @Override
    public List<String> getGrammarsOverridingRule(String name) {
       List<String> grammars = new ArrayList<String>();
+      GrammarHierarchyIndex index = hierarchyIndex;
+      if (index != null && !index.isDeclaredByOther(name, this)) {
+         return grammars;
+      }
       if (parent != null) {
-         for (ATEToken decl : parent.getDecls()) {
-            if (decl.getAttribute().equals(name)) {
-               grammars.add(parent.getGrammarName());
-               break;
-            }
+         if (isDeclaredBy(index, name, parent)) {
+            grammars.add(parent.getGrammarName());
          }
          grammars.addAll(parent.getGrammarsOverridingRule(name));
       }
       return grammars;
    }
 
+   private static boolean isDeclaredBy(GrammarHierarchyIndex index, String name, GrammarEngine engine) {
+      if (index != null) {
+         return index.isDeclaredBy(name, engine);
+      } else {
+         return engine.getFirstDeclarationPosition(name) != -1;
+      }
+   }
+
    @Override
    public List<ATEToken> getTokens() {
       return syntaxEngine.getTokens();
@@ -359,6 +372,23 @@ public class GrammarEngineImpl implements GrammarEngine {
          alreadyVisitedEngines.remove(d);
       }
       resetRules();
+      if (parent == null) {
+         // the root grammar indexes the declarations of the whole hierarchy
+         GrammarHierarchyIndex index = new GrammarHierarchyIndex(this);
+         for (GrammarEngine engine : index.getEngines()) {
+            engine.setHierarchyIndex(index);
+         }
+      }
+   }
+
+   @Override
+   public List<GrammarEngine> getImportedEngines() {
+      return importedEngines;
+   }
+
+   @Override
+   public void setHierarchyIndex(GrammarHierarchyIndex index) {
+      this.hierarchyIndex = index;
    }
 
    @Override
@@ -366,6 +396,11 @@ public class GrammarEngineImpl implements GrammarEngine {
       return antlrEngine.analyze();
    }
 
+   @Override
+   public GrammarResult analyze(AnalyzeProgressDelegate delegate) throws Exception {
+      return antlrEngine.analyze(delegate);
+   }
+
    @Override
    public void cancelAnalyze() {
       antlrEngine.cancel();
@@ -379,6 +414,18 @@ public class GrammarEngineImpl implements GrammarEngine {
    @Override
    public void parserCompleted() {
       properties.parserCompleted();
+      GrammarHierarchyIndex index = hierarchyIndex;
+      if (index != null) {
+         // the rules of the other grammars declaring the same names have to look at the hierarchy again
+         for (String name : index.update(this)) {
+            for (GrammarEngine engine : index.getEngines()) {
+               ElementRule rule = engine.getRuleWithName(name);
+               if (rule != null) {
+                  rule.resetHierarchy();
+               }
+            }
+         }
+      }
    }
 
    @Override
@@ -0,0 +1,128 @@
+package org.antlr.works.grammar.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+import org.antlr.works.ate.syntax.misc.ATEToken;
+
+/**
+ * Index of the declarations of all the grammars of an import hierarchy: for each name, the
+ * grammars that declare it. The index is built by the root grammar when the hierarchy is
+ * updated and is shared by all the grammars of the hierarchy. When a single grammar is
+ * parsed again, only its own declarations are updated.
+ */
+public class GrammarHierarchyIndex {
+   private final Map<String, Set<GrammarEngine>> declarations = new HashMap<String, Set<GrammarEngine>>();
+   private final Map<GrammarEngine, Set<String>> names = new HashMap<GrammarEngine, Set<String>>();
+   private final List<GrammarEngine> engines = new ArrayList<GrammarEngine>();
+
+   public GrammarHierarchyIndex(GrammarEngine root) {
+      add(root);
+   }
+
+   private void add(GrammarEngine engine) {
+      if (names.containsKey(engine)) {
+         return;
+      }
+      engines.add(engine);
+      names.put(engine, Collections.<String> emptySet());
+      update(engine);
+      for (GrammarEngine child : engine.getImportedEngines()) {
+         add(child);
+      }
+   }
+
+   /** Returns all the grammars of the hierarchy, the root first */
+   public synchronized List<GrammarEngine> getEngines() {
+      return new ArrayList<GrammarEngine>(engines);
+   }
+
+   /**
+    * Updates the declarations of a grammar of the hierarchy after it has been parsed.
+    *
+    * @return the names that the grammar declares or no longer declares
+    */
+   public synchronized Set<String> update(GrammarEngine engine) {
+      Set<String> oldNames = names.get(engine);
+      if (oldNames == null) {
+         return Collections.emptySet();
+      }
+      Set<String> newNames = new HashSet<String>();
+      for (ATEToken decl : engine.getDecls()) {
+         newNames.add(decl.getAttribute());
+      }
+      Set<String> changedNames = new LinkedHashSet<String>();
+      for (String name : oldNames) {
+         if (!newNames.contains(name)) {
+            Set<GrammarEngine> declaringEngines = declarations.get(name);
+            declaringEngines.remove(engine);
+            if (declaringEngines.isEmpty()) {
+               declarations.remove(name);
+            }
+            changedNames.add(name);
+         }
+      }
+      for (String name : newNames) {
+         if (!oldNames.contains(name)) {
+            Set<GrammarEngine> declaringEngines = declarations.get(name);
+            if (declaringEngines == null) {
+               declaringEngines = new HashSet<GrammarEngine>(2);
+               declarations.put(name, declaringEngines);
+            }
+            declaringEngines.add(engine);
+            changedNames.add(name);
+         }
+      }
+      names.put(engine, newNames);
+      return changedNames;
+   }
+
+   public synchronized boolean isDeclaredBy(String name, GrammarEngine engine) {
+      Set<GrammarEngine> declaringEngines = declarations.get(name);
+      return declaringEngines != null && declaringEngines.contains(engine);
+   }
+
+   /** Returns true if a grammar of the hierarchy other than this one declares the name */
+   public synchronized boolean isDeclaredByOther(String name, GrammarEngine engine) {
+      Set<GrammarEngine> declaringEngines = declarations.get(name);
+      if (declaringEngines == null) {
+         return false;
+      }
+      return declaringEngines.size() > 1 || !declaringEngines.contains(engine);
+   }
+}
@@ -39,8 +39,6 @@ import java.util.List;
 import java.util.Set;
 
 import org.antlr.v4.tool.Grammar;
-import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
-import org.antlr.works.ate.syntax.generic.ATESyntaxParser;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.element.ElementAction;
@@ -51,9 +49,7 @@ import org.antlr.works.grammar.element.ElementImport;
 import org.antlr.works.grammar.element.ElementReference;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
-import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
 import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
-import org.antlr.xjlib.foundation.XJUtils;
 
 public class GrammarPropertiesImpl implements GrammarProperties {
    private ElementGrammarName name;
@@ -66,8 +62,9 @@ public class GrammarPropertiesImpl implements GrammarProperties {
    private final List<ATEToken> decls = new ArrayList<ATEToken>();
    private final List<ElementRule> duplicateRules = new ArrayList<ElementRule>();
    private final List<ElementReference> undefinedReferences = new ArrayList<ElementReference>();
-   private final Set<String> tokenVocabNames = new HashSet<String>();
+   private Set<String> tokenVocabNames = Collections.emptySet();
    private String tokenVocabName;
+   private final GrammarSymbolTable symbols = new GrammarSymbolTable();
    private GrammarEngine engine;
    private GrammarSyntaxEngine syntaxEngine;
    private ANTLRGrammarEngine antlrEngine;
@@ -97,12 +94,7 @@ public class GrammarPropertiesImpl implements GrammarProperties {
 
    @Override
    public ElementRule getRuleWithName(String name) {
-      List<ElementRule> rules = getRules();
-      for (ElementRule r : rules) {
-         if (r.name.equals(name))
-            return r;
-      }
-      return null;
+      return symbols.getRule(name);
    }
 
    @Override
@@ -178,22 +170,6 @@ public class GrammarPropertiesImpl implements GrammarProperties {
       return getType() == ElementGrammarName.TREEPARSER;
    }
 
-   private List<String> getDeclaredTokenNames() {
-      List<String> names = new ArrayList<String>();
-      if (blocks != null) {
-         for (ElementBlock block : blocks) {
-            if (block.isTokenBlock) {
-               names.addAll(block.getDeclaredTokensAsString());
-            }
-         }
-      }
-      return names;
-   }
-
-   private List<String> getPredefinedReferences() {
-      return GrammarSyntaxParser.predefinedReferences;
-   }
-
    @Override
    public synchronized String getTokenVocab() {
       if (blocks == null)
@@ -267,24 +243,24 @@ public class GrammarPropertiesImpl implements GrammarProperties {
 
    private void resetTokenVocab() {
       tokenVocabName = null;
-      tokenVocabNames.clear();
+      tokenVocabNames = Collections.emptySet();
    }
 
    private Set<String> getTokenVocabNames() {
       String tokenVocab = getTokenVocab();
       if (tokenVocab == null) {
-         tokenVocabName = null;
-         tokenVocabNames.clear();
+         resetTokenVocab();
          return tokenVocabNames;
       }
       if (tokenVocabName != null && tokenVocabName.equals(tokenVocab))
          return tokenVocabNames;
       tokenVocabName = tokenVocab;
-      tokenVocabNames.clear();
+      tokenVocabNames = Collections.emptySet();
       try {
          String file = engine.getTokenVocabFile(tokenVocabName + ".tokens");
          if (file != null) {
-            readTokenVocabFromFile(file, tokenVocabNames);
+            // the file is read again only if it has changed since the last parsing
+            tokenVocabNames = TokenVocabCache.shared().getTokenNames(file);
          }
       } catch (IOException e) {
          e.printStackTrace();
@@ -293,37 +269,10 @@ public class GrammarPropertiesImpl implements GrammarProperties {
    }
 
    public static boolean readTokenVocabFromFile(String filePath, Set<String> tokenNames) throws IOException {
-      // Read the tokens from the file if it exists
-      List<ATEToken> tokens = parsePropertiesString(XJUtils.getStringFromFile(filePath));
-      // Add each token name to the list of tokenVocabNames
-      for (ATEToken t : tokens) {
-         tokenNames.add(t.getAttribute());
-      }
+      tokenNames.addAll(TokenVocabCache.shared().getTokenNames(filePath));
       return true;
    }
 
-   private static List<ATEToken> parsePropertiesString(final String content) {
-      class ParseProperties extends ATESyntaxParser {
-         public List<ATEToken> propertiesTokens;
-
-         @Override
-         public void parseTokens() {
-            propertiesTokens = new ArrayList<ATEToken>();
-            while (nextToken()) {
-               if (T(0).type == ATESyntaxLexer.TOKEN_ID) {
-                  if (isChar(1, "=") || isChar(1, "\n"))
-                     propertiesTokens.add(T(0));
-               }
-            }
-         }
-      }
-      GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
-      lexer.tokenize(content);
-      ParseProperties parser = new ParseProperties();
-      parser.parse(lexer.getTokens());
-      return parser.propertiesTokens;
-   }
-
    private void rebuildHasLeftRecursionRulesList() {
       if (getRules() == null)
          return;
@@ -353,24 +302,29 @@ public class GrammarPropertiesImpl implements GrammarProperties {
    }
 
    private void rebuildUndefinedReferencesList() {
-      List<String> existingReferences = getRuleNames();
-      existingReferences.addAll(getDeclaredTokenNames());
-      existingReferences.addAll(getPredefinedReferences());
       Set<String> tokenVocabNames = getTokenVocabNames();
-      existingReferences.addAll(tokenVocabNames);
+      symbols.setTokenVocabNames(tokenVocabNames);
       syntaxEngine.resolveReferencesWithExternalNames(tokenVocabNames);
       undefinedReferences.clear();
       List<ElementReference> references = getReferences();
       if (references == null)
          return;
+      // The same name is usually referenced many times: look up the imported grammars once per name
+      Set<String> overriddenNames = new HashSet<String>();
+      Set<String> undefinedNames = new HashSet<String>();
       for (ElementReference ref : references) {
-         if (existingReferences.contains(ref.token.getAttribute()))
-            continue;
-         if (!engine.getGrammarsOverriddenByRule(ref.token.getAttribute()).isEmpty())
-            continue;
-         // also check from the root grammar
-         if (!engine.getRootEngine().getGrammarsOverriddenByRule(ref.token.getAttribute()).isEmpty())
+         String name = ref.token.getAttribute();
+         if (symbols.isDefined(name) || overriddenNames.contains(name))
             continue;
+         if (!undefinedNames.contains(name)) {
+            if (!engine.getGrammarsOverriddenByRule(name).isEmpty()
+                  // also check from the root grammar
+                  || !engine.getRootEngine().getGrammarsOverriddenByRule(name).isEmpty()) {
+               overriddenNames.add(name);
+               continue;
+            }
+            undefinedNames.add(name);
+         }
          undefinedReferences.add(ref);
       }
    }
@@ -407,6 +361,9 @@ public class GrammarPropertiesImpl implements GrammarProperties {
       for (ElementRule r : rules) {
          r.setEngine(engine);
       }
+      symbols.setRules(rules);
+      symbols.setDecls(decls);
+      symbols.setBlocks(blocks);
    }
 
    @Override
@@ -440,11 +397,6 @@ public class GrammarPropertiesImpl implements GrammarProperties {
    }
 
    private ATEToken getFirstDeclaration(String name) {
-      for (ATEToken decl : getDecls()) {
-         if (decl.getAttribute().equals(name)) {
-            return decl;
-         }
-      }
-      return null;
+      return symbols.getDeclaration(name);
    }
 }
\ No newline at end of file
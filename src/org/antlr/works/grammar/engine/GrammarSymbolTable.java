@@ -0,0 +1,163 @@
+package org.antlr.works.grammar.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.element.ElementBlock;
+import org.antlr.works.grammar.element.ElementRule;
+import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
+
+/**
+ * Hashed name to declaration maps of a grammar. The maps are rebuilt only when the parser
+ * produces new rules, declarations or blocks, so that resolving a name is a constant time
+ * lookup instead of a scan of the whole grammar. The maps are replaced as a whole and never
+ * modified once published, so they can be read from any thread.
+ */
+public class GrammarSymbolTable {
+   private static final Set<String> PREDEFINED_NAMES = new HashSet<String>(GrammarSyntaxParser.predefinedReferences);
+
+   private volatile Map<String, ElementRule> rules = Collections.emptyMap();
+   private volatile Map<String, ATEToken> decls = Collections.emptyMap();
+   private volatile Set<String> tokens = Collections.emptySet();
+   private volatile Set<String> tokenVocabNames = Collections.emptySet();
+
+   private List<ElementRule> indexedRules;
+   private List<ATEToken> indexedDecls;
+   private List<ElementBlock> indexedBlocks;
+
+   /**
+    * Indexes the rules by name. Like a scan of the list, the first rule wins when the
+    * name is declared more than once.
+    */
+   public void setRules(List<ElementRule> rules) {
+      if (isSameList(indexedRules, rules)) {
+         return;
+      }
+      Map<String, ElementRule> map = new HashMap<String, ElementRule>(capacity(rules.size()));
+      for (ElementRule rule : rules) {
+         if (!map.containsKey(rule.name)) {
+            map.put(rule.name, rule);
+         }
+      }
+      this.rules = map;
+      indexedRules = copy(rules);
+   }
+
+   public void setDecls(List<ATEToken> decls) {
+      if (isSameList(indexedDecls, decls)) {
+         return;
+      }
+      Map<String, ATEToken> map = new HashMap<String, ATEToken>(capacity(decls.size()));
+      for (ATEToken decl : decls) {
+         String name = decl.getAttribute();
+         if (!map.containsKey(name)) {
+            map.put(name, decl);
+         }
+      }
+      this.decls = map;
+      indexedDecls = copy(decls);
+   }
+
+   /** Indexes the tokens declared in the tokens {} blocks */
+   public void setBlocks(List<ElementBlock> blocks) {
+      if (isSameList(indexedBlocks, blocks)) {
+         return;
+      }
+      Set<String> set = new HashSet<String>();
+      for (ElementBlock block : blocks) {
+         if (block.isTokenBlock) {
+            set.addAll(block.getDeclaredTokensAsString());
+         }
+      }
+      this.tokens = set;
+      indexedBlocks = copy(blocks);
+   }
+
+   /** Sets the names of the token vocabulary. The set is not copied and must not be modified afterwards. */
+   public void setTokenVocabNames(Set<String> names) {
+      this.tokenVocabNames = names;
+   }
+
+   public void clear() {
+      rules = Collections.emptyMap();
+      decls = Collections.emptyMap();
+      tokens = Collections.emptySet();
+      tokenVocabNames = Collections.emptySet();
+      indexedRules = null;
+      indexedDecls = null;
+      indexedBlocks = null;
+   }
+
+   public ElementRule getRule(String name) {
+      return rules.get(name);
+   }
+
+   public ATEToken getDeclaration(String name) {
+      return decls.get(name);
+   }
+
+   /**
+    * Returns true if a reference to this name can be resolved in the grammar: it is a rule,
+    * a token of a tokens {} block, a token of the token vocabulary or a predefined name.
+    */
+   public boolean isDefined(String name) {
+      return rules.containsKey(name) || tokens.contains(name) || tokenVocabNames.contains(name)
+            || PREDEFINED_NAMES.contains(name);
+   }
+
+   private static <T> boolean isSameList(List<T> indexed, List<T> list) {
+      if (indexed == null || indexed.size() != list.size()) {
+         return false;
+      }
+      // The incremental parser keeps the elements of the text that did not change
+      for (int i = 0; i < list.size(); i++) {
+         if (indexed.get(i) != list.get(i)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static <T> List<T> copy(List<T> list) {
+      return new ArrayList<T>(list);
+   }
+
+   private static int capacity(int size) {
+      return Math.max(16, size * 4 / 3 + 1);
+   }
+}
@@ -0,0 +1,165 @@
+package org.antlr.works.grammar.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.antlr.xjlib.appkit.document.XJFileWatcher;
+import org.antlr.xjlib.appkit.document.XJFileWatcherListener;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+/**
+ * Application-wide cache of the token names read from the token vocabulary files (*.tokens).
+ * The cached files are watched by XJFileWatcher and invalidated when they change on the disk.
+ * If the file system cannot be watched, a file is read again when its date of modification or
+ * its size has changed. All the grammars of all the windows share the same cache.
+ */
+public class TokenVocabCache implements XJFileWatcherListener {
+   private static final TokenVocabCache shared = new TokenVocabCache();
+
+   private final Map<String, Entry> entries = new HashMap<String, Entry>();
+   private long invalidations;
+
+   public static TokenVocabCache shared() {
+      return shared;
+   }
+
+   /**
+    * Returns the token names of the file. The returned set cannot be modified.
+    */
+   public Set<String> getTokenNames(String filePath) throws IOException {
+      String key = getKey(filePath);
+      long invalidationsBeforeReading;
+      synchronized (this) {
+         Entry entry = entries.get(key);
+         // a watched file is up-to-date until it is invalidated: no need to access the disk
+         if (entry != null && entry.watched) {
+            return entry.names;
+         }
+         invalidationsBeforeReading = invalidations;
+      }
+      // Watch the file before reading it so that no change is missed
+      boolean watched = XJFileWatcher.shared().addListener(key, this);
+      File file = new File(key);
+      long modified = file.lastModified();
+      long length = file.length();
+      synchronized (this) {
+         Entry entry = entries.get(key);
+         if (entry != null && entry.modified == modified && entry.length == length) {
+            return entry.names;
+         }
+      }
+      // Read the file outside of the lock: the other files remain available
+      Set<String> names = Collections.unmodifiableSet(readTokenNames(new FileReader(file)));
+      synchronized (this) {
+         // if the file changed while it was read, fall back to the date and the size
+         watched &= invalidations == invalidationsBeforeReading;
+         entries.put(key, new Entry(modified, length, names, watched));
+      }
+      return names;
+   }
+
+   /** Forgets the content of the file, for example when it is known to have changed */
+   public synchronized void invalidate(String filePath) {
+      invalidations++;
+      entries.remove(getKey(filePath));
+   }
+
+   @Override
+   public void fileChanged(String file) {
+      invalidate(file);
+   }
+
+   private static String getKey(String filePath) {
+      return Paths.get(filePath).toAbsolutePath().normalize().toString();
+   }
+
+   public synchronized void clear() {
+      invalidations++;
+      entries.clear();
+   }
+
+   /**
+    * Reads the token names of a token vocabulary: each line is either "NAME=type" or
+    * "'literal'=type". Only the names are returned, the literals are ignored.
+    */
+   public static Set<String> readTokenNames(Reader reader) throws IOException {
+      Set<String> names = new HashSet<String>();
+      BufferedReader r = new BufferedReader(reader);
+      try {
+         String line;
+         while ((line = r.readLine()) != null) {
+            int equal = line.lastIndexOf('=');
+            String name = (equal == -1 ? line : line.substring(0, equal)).trim();
+            if (isIdentifier(name)) {
+               names.add(name);
+            }
+         }
+      } finally {
+         r.close();
+      }
+      return names;
+   }
+
+   private static boolean isIdentifier(String s) {
+      if (s.length() == 0 || !Character.isJavaIdentifierStart(s.charAt(0))) {
+         return false;
+      }
+      for (int i = 1; i < s.length(); i++) {
+         if (!Character.isJavaIdentifierPart(s.charAt(i))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static class Entry {
+      public final long modified;
+      public final long length;
+      public final Set<String> names;
+      public final boolean watched;
+
+      public Entry(long modified, long length, Set<String> names, boolean watched) {
+         this.modified = modified;
+         this.length = length;
+         this.names = names;
+         this.watched = watched;
+      }
+   }
+}
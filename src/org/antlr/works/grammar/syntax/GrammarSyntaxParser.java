@@ -74,9 +74,26 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
     public final List<ATEToken> decls = new ArrayList<ATEToken>();
 
     private final LabelTable labels = new LabelTable();
-    private final List<ATEToken> unresolvedReferences = new ArrayList<ATEToken>();
+    private final List<ElementReference> internalReferences = new ArrayList<ElementReference>(); // i.e. { ... $foo ... }
+    private final List<ElementReference> unresolvedReferences = new ArrayList<ElementReference>();
     private final Set<String> declaredReferenceNames = new HashSet<String>();
-    private final Map<ATEToken,ElementRule> refsToRules = new HashMap<ATEToken,ElementRule>();
+
+    /** Number of references found while parsing, before any resolution */
+    private int parsedReferencesCount;
+
+    /** Tokens from resetIndex are restored as the lexer created them when first read
+     * by an incremental parsing. The original state of the tokens from saveIndex is
+     * saved in order to restore the ones that turn out to be part of the unchanged rules.
+     */
+    private int resetIndex = Integer.MAX_VALUE;
+    private int saveIndex = Integer.MAX_VALUE;
+    private final List<SavedToken> savedTokens = new ArrayList<SavedToken>();
+
+    /** Index of the farthest token read so far. Note that the parser can look (and even modify the
+     * tokens) far ahead of the element being parsed: for example, an unbalanced block is scanned until
+     * the end of the tokens.
+     */
+    private int lookaheadIndex = -1;
 
     private ElementGrammarName name;
     private ElementRule currentRule;
@@ -126,7 +143,222 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
 
         if(!nextToken()) return;
 
+        parseTopLevel(null, 0);
+        resolveReferences();
+    }
+
+    /**
+     * Parses only the rules touched by the last edit. Parsing restarts at the beginning of the last rule
+     * located before the damaged tokens and stops as soon as it reaches the beginning of a rule located after
+     * them: this rule and all the elements after it are kept from the previous parsing (only their indexes
+     * are shifted). In both cases, the parsing of the elements before the rule must not have read the rule
+     * itself. The references are then resolved across the whole grammar as usual.
+     */
+    @Override
+    public void parse(List<ATEToken> tokens, int damageStart, int damageEnd) {
+        int restartRule = getRestartRuleIndex(tokens, damageStart);
+        if(restartRule == -1) {
+            parse(tokens);
+            return;
+        }
+
+        final int restartIndex = rules.get(restartRule).start.index;
+        final ElementGrammarName oldName = name;
+
+        // Keep only what is located before the restart index and remember what is after
+        references.subList(parsedReferencesCount, references.size()).clear();
+        List<ElementRule> oldRules = split(rules, RULE_ANCHOR, tokens, restartIndex);
+        List<ElementGroup> oldGroups = split(groups, GROUP_ANCHOR, tokens, restartIndex);
+        List<ElementBlock> oldBlocks = split(blocks, BLOCK_ANCHOR, tokens, restartIndex);
+        List<ElementAction> oldActions = split(actions, ACTION_ANCHOR, tokens, restartIndex);
+        List<ElementReference> oldReferences = split(references, REFERENCE_ANCHOR, tokens, restartIndex);
+        List<ElementReference> oldInternalReferences = split(internalReferences, REFERENCE_ANCHOR, tokens, restartIndex);
+        List<ElementImport> oldImports = split(imports, IMPORT_ANCHOR, tokens, restartIndex);
+        List<ATEToken> oldDecls = split(decls, TOKEN_ANCHOR, tokens, restartIndex);
+
+        // Index in the complete lists of the first element of each removed list
+        final int rulesOffset = rules.size();
+        final int blocksOffset = blocks.size();
+        final int referencesOffset = references.size();
+        final int actionsOffset = actions.size();
+
+        // Rules located after the damaged tokens where the parsing can stop
+        int tailRule = tail(oldRules, RULE_ANCHOR, tokens, damageEnd);
+
+        setTokens(tokens, restartIndex-1);
+        resetIndex = restartIndex;
+        saveIndex = damageEnd;
+        savedTokens.clear();
+        lookaheadIndex = rules.get(restartRule-1).lookahead.index;
+        labels.clear();
+
+        int stopRule = nextToken() ? parseTopLevel(oldRules, tailRule) : -1;
+
+        resetIndex = saveIndex = Integer.MAX_VALUE;
+        if(name != oldName) {
+            // The name is used by the imports: parse everything again
+            parse(tokens);
+            return;
+        }
+
+        if(stopRule != -1) {
+            List<ElementRule> stopRules = oldRules.subList(stopRule, oldRules.size());
+            int stopIndex = stopRules.get(0).start.index;
+            restoreSavedTokens(stopIndex);
+
+            int rulesDelta = rules.size() - (rulesOffset + stopRule);
+            rules.addAll(stopRules);
+
+            for(ElementGroup group : oldGroups.subList(tail(oldGroups, GROUP_ANCHOR, tokens, stopIndex), oldGroups.size())) {
+                group.ruleIndex += rulesDelta;
+                groups.add(group);
+            }
+
+            int blocksDelta = append(blocks, oldBlocks, BLOCK_ANCHOR, tokens, stopIndex) - blocksOffset;
+            int referencesDelta = append(references, oldReferences, REFERENCE_ANCHOR, tokens, stopIndex) - referencesOffset;
+            int actionsDelta = append(actions, oldActions, ACTION_ANCHOR, tokens, stopIndex) - actionsOffset;
+            for(int index=actions.size()-1; index >= 0 && actions.get(index).start.index >= stopIndex; index--) {
+                actions.get(index).actionNum = index;
+            }
+            for(ElementRule rule : stopRules) {
+                rule.shiftIndexes(referencesDelta, blocksDelta, actionsDelta);
+            }
+
+            append(internalReferences, oldInternalReferences, REFERENCE_ANCHOR, tokens, stopIndex);
+            append(imports, oldImports, IMPORT_ANCHOR, tokens, stopIndex);
+            append(decls, oldDecls, TOKEN_ANCHOR, tokens, stopIndex);
+        }
+        savedTokens.clear();
+
+        declaredReferenceNames.clear();
+        for(ATEToken decl : decls) {
+            declaredReferenceNames.add(decl.getAttribute());
+        }
+
+        resolveReferences();
+    }
+
+    /**
+     * Returns the index of the last rule starting before the damaged tokens that was not read during the
+     * parsing of the elements before it. The first rule is never returned because the elements before it
+     * (i.e. the name of the grammar, the options, etc) are always parsed again.
+     *
+     * @return the index of the rule or -1 if there is no such rule
+     */
+    private int getRestartRuleIndex(List<ATEToken> tokens, int damageStart) {
+        for(int r=rules.size()-1; r > 0; r--) {
+            ATEToken start = rules.get(r).start;
+            if(!isTokenAlive(tokens, start) || start.index >= damageStart) continue;
+
+            ATEToken lookahead = rules.get(r-1).lookahead;
+            if(lookahead != null && isTokenAlive(tokens, lookahead) && lookahead.index <= start.index) return r;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the token is still part of the tokens (that is, it has not been removed by
+     * an incremental tokenization).
+     */
+    private static boolean isTokenAlive(List<ATEToken> tokens, ATEToken token) {
+        return token.index < tokens.size() && tokens.get(token.index) == token;
+    }
+
+    /**
+     * Removes from the list the elements located after the specified token index
+     *
+     * @return The removed elements
+     */
+    private static <T> List<T> split(List<T> elements, Anchor<T> anchor, List<ATEToken> tokens, int index) {
+        int count = 0;
+        while(count < elements.size()) {
+            ATEToken token = anchor.token(elements.get(count));
+            if(!isTokenAlive(tokens, token) || token.index >= index) break;
+            count++;
+        }
+        List<T> removed = new ArrayList<T>(elements.subList(count, elements.size()));
+        elements.subList(count, elements.size()).clear();
+        return removed;
+    }
+
+    /**
+     * Returns the index of the first element of the tail of the list located from the specified token index
+     */
+    private static <T> int tail(List<T> elements, Anchor<T> anchor, List<ATEToken> tokens, int index) {
+        int start = elements.size();
+        while(start > 0) {
+            ATEToken token = anchor.token(elements.get(start-1));
+            if(!isTokenAlive(tokens, token) || token.index < index) break;
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * Appends to the list the elements of the previous parsing located from the specified token index
+     *
+     * @return The shift of the index of these elements between the old list and the list
+     */
+    private static <T> int append(List<T> elements, List<T> oldElements, Anchor<T> anchor, List<ATEToken> tokens, int index) {
+        int start = tail(oldElements, anchor, tokens, index);
+        int delta = elements.size() - start;
+        elements.addAll(oldElements.subList(start, oldElements.size()));
+        return delta;
+    }
+
+    @Override
+    public ATEToken getToken(int index) {
+        ATEToken token = super.getToken(index);
+        if(token != null) {
+            if(token.index >= resetIndex) {
+                resetTokens(token.index);
+            }
+            lookaheadIndex = Math.max(lookaheadIndex, token.index);
+        }
+        return token;
+    }
+
+    private void resetTokens(int lastIndex) {
+        List<ATEToken> tokens = getTokens();
+        for(int index=resetIndex; index <= lastIndex; index++) {
+            ATEToken token = tokens.get(index);
+            if(index >= saveIndex) {
+                savedTokens.add(new SavedToken(token));
+            }
+            token.reset();
+        }
+        resetIndex = lastIndex+1;
+    }
+
+    private void restoreSavedTokens(int index) {
+        for(SavedToken saved : savedTokens) {
+            if(saved.token.index >= index) {
+                saved.restore();
+            }
+        }
+    }
+
+    /**
+     * Parses the top-level elements of the grammar until the end of the tokens or until the current
+     * token is the start of one of the rules of the previous parsing (if specified) and no token was
+     * read beyond it, both by this parsing and by the previous one.
+     *
+     * @param oldRules The rules of the previous parsing (sorted by position)
+     * @param stopRule The index of the first rule of the previous parsing where the parsing can stop
+     * @return the index of the rule where the parsing stopped or -1
+     */
+    private int parseTopLevel(List<ElementRule> oldRules, int stopRule) {
         while(true) {
+            updateLookahead();
+
+            if(oldRules != null) {
+                while(stopRule < oldRules.size() && oldRules.get(stopRule).start.index < getPosition()) {
+                    stopRule++;
+                }
+                if(stopRule < oldRules.size() && canStopAt(oldRules, stopRule)) {
+                    return stopRule;
+                }
+            }
 
             if(matchName()) continue;
             if(matchScope()) continue; // scope before block
@@ -142,8 +374,24 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
             // Nothing matches, go to next token
             if(!nextToken()) break;
         }
+        updateLookahead();
+        return -1;
+    }
 
-        resolveReferences();
+    private boolean canStopAt(List<ElementRule> oldRules, int stopRule) {
+        int index = oldRules.get(stopRule).start.index;
+        if(index != getPosition() || lookaheadIndex > index) return false;
+        if(stopRule == 0) return true;
+
+        // Make sure the previous parsing of the rules before didn't read it either
+        ATEToken lookahead = oldRules.get(stopRule-1).lookahead;
+        return lookahead != null && isTokenAlive(getTokens(), lookahead) && lookahead.index <= index;
+    }
+
+    private void updateLookahead() {
+        if(!rules.isEmpty() && lookaheadIndex >= 0) {
+            rules.get(rules.size()-1).lookahead = getTokens().get(lookaheadIndex);
+        }
     }
 
     private void clear() {
@@ -155,9 +403,15 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         imports.clear();
         decls.clear();
         currentRule = null;
+        name = null;
+        labels.clear();
         declaredReferenceNames.clear();
+        internalReferences.clear();
         unresolvedReferences.clear();
-        refsToRules.clear();
+        parsedReferencesCount = 0;
+        resetIndex = saveIndex = Integer.MAX_VALUE;
+        savedTokens.clear();
+        lookaheadIndex = -1;
     }
 
     /**
@@ -169,25 +423,33 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
      */
     public void resolveReferencesWithExternalNames(Set<String> externalNames) {
         for(int i=unresolvedReferences.size()-1; i >= 0; i--) {
-            ATEToken ref = unresolvedReferences.get(i);
-            if(externalNames.contains(ref.getAttribute())) {
-                ref.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
-                references.add(new ElementReference(refsToRules.get(ref), ref));
+            ElementReference ref = unresolvedReferences.get(i);
+            if(externalNames.contains(ref.getName())) {
+                ref.token.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
+                references.add(ref);
                 unresolvedReferences.remove(i);
             }
         }
     }
 
     /**
-     * Resolves the unresolved references by looking at the set of declared references
+     * Resolves the internal references by looking at the set of declared references
      */
     private void resolveReferences() {
-        for(int i=unresolvedReferences.size()-1; i >= 0; i--) {
-            ATEToken ref = unresolvedReferences.get(i);
-            if(declaredReferenceNames.contains(ref.getAttribute())) {
-                ref.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
-                references.add(new ElementReference(refsToRules.get(ref), ref));
-                unresolvedReferences.remove(i);
+        parsedReferencesCount = references.size();
+        unresolvedReferences.clear();
+        for(int i=internalReferences.size()-1; i >= 0; i--) {
+            ElementReference ref = internalReferences.get(i);
+            if(declaredReferenceNames.contains(ref.getName())) {
+                ref.token.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
+                references.add(ref);
+            }
+        }
+        for(ElementReference ref : internalReferences) {
+            if(!declaredReferenceNames.contains(ref.getName())) {
+                // The token may have been resolved by a previous parsing
+                ref.token.type = ATESyntaxLexer.TOKEN_ID;
+                unresolvedReferences.add(ref);
             }
         }
     }
@@ -534,6 +796,9 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         // Indicate to the rule that is has been parsed completely.
         currentRule.completed();
 
+        // The labels are only visible inside the rule
+        labels.clear();
+
         // Return the rule
         rules.add(currentRule);
         return true;
@@ -830,13 +1095,12 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         if(!isSingleComment(0)) return false;
 
         ATEToken token = T(0);
-        String comment = token.getAttribute();
-
-        if(comment.startsWith(BEGIN_GROUP)) {
+        if(token.attributeStartsWith(BEGIN_GROUP)) {
+            String comment = token.getAttribute();
             groups.add(new ElementGroup(comment.substring(BEGIN_GROUP.length(), comment.length()-1), rules.size()-1, token));
             nextToken();
             return true;
-        } else if(comment.startsWith(END_GROUP)) {
+        } else if(token.attributeStartsWith(END_GROUP)) {
             groups.add(new ElementGroup(rules.size()-1, token));
             nextToken();
             return true;
@@ -852,7 +1116,6 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
      * @return True if the reference is a label reference
      */
     private boolean addReference(ATEToken ref, boolean addOnlyIfKnownLabel) {
-        refsToRules.put(ref, currentRule);
         if(labels.lookup(ref.getAttribute())) {
             // Reference is to a label, not a lexer/parser rule
             ref.type = GrammarSyntaxLexer.TOKEN_LABEL;
@@ -860,7 +1123,7 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         } else {
             if(!addOnlyIfKnownLabel) {
                 ref.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
-                references.add(new ElementReference(refsToRules.get(ref), ref));
+                references.add(new ElementReference(currentRule, ref));
             }
             return false;
         }
@@ -919,7 +1182,7 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
                 // after parsing if they are listed as a lexer or parser declaration. Otherwise, we
                 // skip these references.
 
-                unresolvedReferences.add(ref);
+                internalReferences.add(new ElementReference(currentRule, ref));
             }
         }
     }
@@ -1047,4 +1310,74 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         }
     }
 
+    /**
+     * Returns the token that gives the position of an element
+     */
+    private static abstract class Anchor<T> {
+        public abstract ATEToken token(T element);
+    }
+
+    private static final Anchor<ElementRule> RULE_ANCHOR = new Anchor<ElementRule>() {
+        public ATEToken token(ElementRule element) {
+            return element.start;
+        }
+    };
+
+    private static final Anchor<ElementGroup> GROUP_ANCHOR = new Anchor<ElementGroup>() {
+        public ATEToken token(ElementGroup element) {
+            return element.token;
+        }
+    };
+
+    private static final Anchor<ElementBlock> BLOCK_ANCHOR = new Anchor<ElementBlock>() {
+        public ATEToken token(ElementBlock element) {
+            return element.start;
+        }
+    };
+
+    private static final Anchor<ElementAction> ACTION_ANCHOR = new Anchor<ElementAction>() {
+        public ATEToken token(ElementAction element) {
+            return element.start;
+        }
+    };
+
+    private static final Anchor<ElementReference> REFERENCE_ANCHOR = new Anchor<ElementReference>() {
+        public ATEToken token(ElementReference element) {
+            return element.token;
+        }
+    };
+
+    private static final Anchor<ElementImport> IMPORT_ANCHOR = new Anchor<ElementImport>() {
+        public ATEToken token(ElementImport element) {
+            return element.token;
+        }
+    };
+
+    private static final Anchor<ATEToken> TOKEN_ANCHOR = new Anchor<ATEToken>() {
+        public ATEToken token(ATEToken element) {
+            return element;
+        }
+    };
+
+    /**
+     * State of a token before it has been reset by an incremental parsing
+     */
+    private static class SavedToken {
+
+        final ATEToken token;
+        final int type;
+        final ATEScope scope;
+
+        public SavedToken(ATEToken token) {
+            this.token = token;
+            this.type = token.type;
+            this.scope = token.scope;
+        }
+
+        public void restore() {
+            token.type = type;
+            token.scope = scope;
+        }
+    }
+
 }
@@ -31,21 +31,25 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.interpreter;
 
 import java.awt.Color;
-import java.util.Enumeration;
+import java.util.List;
 
 import javax.swing.tree.DefaultTreeModel;
-import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 
 import org.antlr.runtime.CommonToken;
 import org.antlr.runtime.NoViableAltException;
-import org.antlr.runtime.tree.ParseTree;
-import org.antlr.runtime.tree.Tree;
 import org.antlr.v4.tool.Grammar;
+import org.antlr.works.utils.awtree.AWTreeModel;
 import org.antlr.works.utils.awtree.AWTreeNode;
 
+/**
+ * Parse tree of the interpreter. The nodes are created by the interpreter thread and are appended
+ * to the tree on the event thread: the nodes added since the last display are also recorded in the
+ * graph model so the graph view only lays out these nodes.
+ */
 public class EditorInterpreterTreeModel extends DefaultTreeModel {
    protected Grammar grammar;
+   protected final AWTreeModel graphModel = new AWTreeModel();
 
    public EditorInterpreterTreeModel() {
       super(null);
@@ -55,40 +59,35 @@ public class EditorInterpreterTreeModel extends DefaultTreeModel {
       this.grammar = grammar;
    }
 
-   public void setTree(Tree tree) {
-      setRoot(new InterpreterTreeNode(null, tree));
+   public AWTreeModel getGraphModel() {
+      return graphModel;
    }
 
-   public class InterpreterTreeNode extends AWTreeNode {
-      protected Tree tree;
-
-      public InterpreterTreeNode(TreeNode parent, Tree tree) {
-         this.parent = (MutableTreeNode) parent;
-         this.tree = tree;
-      }
+   public InterpreterTreeNode createNode(Object payload) {
+      return new InterpreterTreeNode(payload);
+   }
 
-      @Override
-      public TreeNode getChildAt(int childIndex) {
-         return new InterpreterTreeNode(this, tree.getChild(childIndex));
-      }
+   @Override
+   public void setRoot(TreeNode root) {
+      graphModel.clear();
+      super.setRoot(root);
+   }
 
-      @Override
-      public int getChildCount() {
-         return tree.getChildCount();
+   /**
+    * Appends the nodes to the tree. Each entry contains the parent node followed by the new node.
+    */
+   public void addNodes(List<InterpreterTreeNode[]> nodes) {
+      for (InterpreterTreeNode[] node : nodes) {
+         graphModel.addNode(node[0], node[1]);
+         nodesWereInserted(node[0], new int[] { node[0].getChildCount() - 1 });
       }
+   }
 
-      @Override
-      public TreeNode getParent() {
-         return parent;
-      }
+   public class InterpreterTreeNode extends AWTreeNode {
+      protected final Object payload;
 
-      @Override
-      public int getIndex(TreeNode node) {
-         for (int i = 0; i < tree.getChildCount(); i++) {
-            if (tree.getChild(i) == node)
-               return i;
-         }
-         return -1;
+      public InterpreterTreeNode(Object payload) {
+         this.payload = payload;
       }
 
       @Override
@@ -96,21 +95,8 @@ public class EditorInterpreterTreeModel extends DefaultTreeModel {
          return true;
       }
 
-      @Override
-      public boolean isLeaf() {
-         return getChildCount() == 0;
-      }
-
-      @Override
-      public Enumeration children() {
-         return null;
-      }
-
       public Object getPayload() {
-         if (tree instanceof ParseTree)
-            return ((ParseTree) tree).payload;
-         else
-            return null;
+         return payload;
       }
 
       @Override
@@ -38,6 +38,8 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -45,16 +47,19 @@ import java.util.StringTokenizer;
 
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTextPane;
 import javax.swing.SwingUtilities;
 import javax.swing.tree.TreeNode;
 
+import org.antlr.runtime.ANTLRFileStream;
 import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CharStream;
 import org.antlr.runtime.CommonTokenStream;
@@ -62,14 +67,19 @@ import org.antlr.runtime.IntStream;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.TokenSource;
-import org.antlr.runtime.tree.ParseTree;
+import org.antlr.runtime.debug.DebugEventHub;
+import org.antlr.runtime.debug.DebugEventListener;
 import org.antlr.v4.tool.Grammar;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.components.GrammarWindowMenu;
+import org.antlr.works.debugger.profiler.DBProfiler;
+import org.antlr.works.debugger.profiler.DBProfilerEventListener;
+import org.antlr.works.debugger.profiler.DBProfilerView;
 import org.antlr.works.editor.GrammarWindowTab;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.element.ElementRule;
+import org.antlr.works.interpreter.EditorInterpreterTreeModel.InterpreterTreeNode;
 import org.antlr.works.menu.ContextualMenuFactory;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.stats.StatisticsAW;
@@ -83,9 +93,13 @@ import org.antlr.xjlib.appkit.gview.GView;
 import org.antlr.xjlib.appkit.swing.XJRollOverButton;
 import org.antlr.xjlib.appkit.utils.XJAlert;
 import org.antlr.xjlib.appkit.utils.XJDialogProgress;
+import org.antlr.xjlib.appkit.utils.XJDialogProgressDelegate;
+import org.antlr.xjlib.appkit.utils.XJFileChooser;
 import org.stringtemplate.v4.Interpreter;
 
-public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTreePanelDelegate {
+public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTreePanelDelegate, XJDialogProgressDelegate,
+      StreamingParseTreeBuilderDelegate {
+
    public static class FilteringTokenStream extends CommonTokenStream {
       public FilteringTokenStream(TokenSource src) {
          super(src);
@@ -111,18 +125,29 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
    protected JScrollPane textScrollPane;
    protected EditorInterpreterTreeModel treeModel;
    protected AWTreePanel awTreePanel;
+   protected DBProfilerView profilerView;
+   protected JCheckBox profileButton;
    protected JComboBox rulesCombo;
    protected JComboBox eolCombo;
    protected JLabel tokensToIgnoreLabel;
    protected XJDialogProgress progress;
    protected String startSymbol = null;
 
+   /** The file to interpret or null to interpret the text of the text pane */
+   protected String inputFile;
+   protected volatile boolean cancelled;
+
+   protected final DBProfiler profiler = new DBProfiler();
+   protected final InterpreterTokenCache tokenCache = new InterpreterTokenCache();
+   protected boolean profiling;
+
    public InterpreterTab(GrammarWindow window) {
       super(window);
    }
 
    public void close() {
       awTreePanel.setDelegate(null);
+      tokenCache.clear();
    }
 
    public void awake() {
@@ -139,11 +164,17 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
       treeModel = new EditorInterpreterTreeModel();
       awTreePanel = new AWTreePanel(treeModel);
       awTreePanel.setDelegate(this);
+      awTreePanel.setAWTreeModel(treeModel.getGraphModel());
       splitPane = new JSplitPane();
       splitPane.setBorder(null);
       splitPane.setOrientation(JSplitPane.HORIZONTAL_SPLIT);
       splitPane.setLeftComponent(textScrollPane);
-      splitPane.setRightComponent(awTreePanel);
+      profilerView = new DBProfilerView();
+      profilerView.setProfiler(profiler);
+      JTabbedPane resultTabs = new JTabbedPane();
+      resultTabs.addTab("Parse Tree", awTreePanel);
+      resultTabs.addTab("Profile", profilerView);
+      splitPane.setRightComponent(resultTabs);
       splitPane.setContinuousLayout(true);
       splitPane.setOneTouchExpandable(true);
       panel.add(createControlPanel(), BorderLayout.NORTH);
@@ -154,11 +185,14 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
    public Box createControlPanel() {
       Toolbar box = Toolbar.createHorizontalToolbar();
       box.addElement(createRunButton());
+      box.addElement(createRunFileButton());
       box.addElement(createRulesPopUp());
       box.addGroupSeparator();
       box.addElement(new JLabel("Line Endings:"));
       box.addElement(createEOLCombo());
       box.addGroupSeparator();
+      box.addElement(createProfileButton());
+      box.addGroupSeparator();
       createTokensToIgnoreField(box);
       return box;
    }
@@ -183,6 +217,22 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
       return button;
    }
 
+   public JButton createRunFileButton() {
+      JButton button = new JButton("Run File...");
+      button.setFocusable(false);
+      button.setToolTipText("Interpret the content of a file instead of the text");
+      button.addActionListener(new ActionListener() {
+         @Override
+         public void actionPerformed(ActionEvent event) {
+            if (XJFileChooser.shared().displayOpenDialog(getContainer(), false)) {
+               StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_INTERPRETER_BUTTON);
+               interpretFile(XJFileChooser.shared().getSelectedFilePath());
+            }
+         }
+      });
+      return button;
+   }
+
    public JComboBox createRulesPopUp() {
       rulesCombo = new JComboBox();
       rulesCombo.setFocusable(false);
@@ -206,6 +256,13 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
       return eolCombo;
    }
 
+   public JCheckBox createProfileButton() {
+      profileButton = new JCheckBox("Profile");
+      profileButton.setFocusable(false);
+      profileButton.setToolTipText("Count and time the rules and decisions evaluated by the interpreter");
+      return profileButton;
+   }
+
    public Box createTokensToIgnoreField(Toolbar box) {
       box.addElement(new JLabel("Ignore rules:"));
       tokensToIgnoreLabel = new JLabel();
@@ -264,13 +321,29 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
    }
 
    public void interpret() {
+      interpret(null);
+   }
+
+   /**
+    * Interprets the file without loading it in the text pane. The parse tree is delivered
+    * while the file is being interpreted.
+    */
+   public void interpretFile(String file) {
+      interpret(file);
+   }
+
+   protected void interpret(String file) {
+      inputFile = file;
+      cancelled = false;
+      profiling = profileButton.isSelected();
       window.consoleTab.makeCurrent();
       if (progress == null)
          progress = new XJDialogProgress(window);
       progress.setInfo("Interpreting...");
       // AW-42: guess always before running the interpreterTab
       window.findTokensToIgnore(false);
-      progress.setCancellable(false);
+      progress.setCancellable(true);
+      progress.setDelegate(this);
       progress.setIndeterminate(true);
       progress.display();
       new Thread(this).start();
@@ -288,6 +361,11 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
       }
    }
 
+   @Override
+   public void dialogDidCancel() {
+      cancelled = true;
+   }
+
    public void runEnded() {
       SwingUtilities.invokeLater(new Runnable() {
          @Override
@@ -300,7 +378,7 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
    protected void process() {
       progress.setInfo("Interpreting...");
       window.consoleTab.println("Interpreting...");
-      CharStream input = new ANTLRStringStream(Utils.convertRawTextWithEOL(textPane.getText(), eolCombo));
+      String text = inputFile == null ? Utils.convertRawTextWithEOL(textPane.getText(), eolCombo) : null;
       ANTLRGrammarEngine eg = window.getGrammarEngine().getANTLRGrammarEngine();
       try {
          eg.createGrammars();
@@ -313,27 +391,109 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
       if (lexer == null) {
          throw new RuntimeException("Lexer is null. Check the grammar before running the interpreterTab.");
       }
-      Interpreter lexEngine = new CustomInterpreter(lexer, input);
-      FilteringTokenStream tokens = new FilteringTokenStream(lexEngine);
+      // The tokens of the previous run are reused if neither the lexer nor the input changed
+      String tokensKey = getTokensKey(lexer, text);
+      TokenSource tokenSource = ATEToken.isLexerName(startSymbol) ? null : tokenCache.get(tokensKey);
+      Interpreter lexEngine = null;
+      if (tokenSource == null) {
+         try {
+            lexEngine = new CustomInterpreter(lexer, createInput(text));
+         } catch (IOException e) {
+            window.consoleTab.println(e);
+            return;
+         }
+         tokenSource = ATEToken.isLexerName(startSymbol) ? lexEngine : tokenCache.record(tokensKey, lexEngine);
+      }
+      FilteringTokenStream tokens = new FilteringTokenStream(tokenSource);
       StringTokenizer tk = new StringTokenizer(tokensToIgnoreLabel.getText(), " ");
       while (tk.hasMoreTokens()) {
          String tokenName = tk.nextToken();
          tokens.setTokenTypeChannel(lexer.getTokenType(tokenName), Token.HIDDEN_CHANNEL);
       }
       Interpreter parseEngine = new CustomInterpreter(parser, tokens);
-      ParseTree t = null;
+      StreamingParseTreeBuilder builder = new StreamingParseTreeBuilder(parser == null ? null : parser.name, treeModel, this);
+      SwingUtilities.invokeLater(new ResetTree(parser, builder.getRoot()));
+      DebugEventListener listener = builder;
+      profiler.reset();
+      if (profiling) {
+         listener = new DebugEventHub(builder, new DBProfilerEventListener(profiler));
+      }
       try {
          if (ATEToken.isLexerName(startSymbol)) {
-            t = lexEngine.parse(startSymbol);
+            lexEngine.parse(startSymbol, listener, null);
          } else {
-            t = parseEngine.parse(startSymbol);
+            parseEngine.parse(startSymbol, listener, null);
          }
+      } catch (InterpreterCancelledException e) {
+         window.consoleTab.println("Interpreter cancelled after " + builder.getTokenCount() + " tokens");
       } catch (Exception e) {
          window.consoleTab.println(e);
       }
-      if (parser != null && t != null) {
-         SwingUtilities.invokeLater(new Refresh(parser, t));
+      builder.flush();
+   }
+
+   protected CharStream createInput(String text) throws IOException {
+      if (inputFile == null) {
+         return new ANTLRStringStream(text);
+      } else {
+         // The file is read directly: its content never goes through the text pane
+         return new ANTLRFileStream(inputFile, "UTF-8");
+      }
+   }
+
+   /**
+    * Returns the key of the tokens of the input: the digest of the lexer grammar, including the
+    * grammars it imports, and of the text, or of the path, size and date of the input file.
+    */
+   protected String getTokensKey(Grammar lexer, String text) {
+      String input;
+      if (inputFile == null) {
+         input = text;
+      } else {
+         File file = new File(inputFile);
+         input = file.getAbsolutePath() + "\n" + file.length() + "\n" + file.lastModified();
+      }
+      return InterpreterTokenCache.createKey(getLexerText(lexer), input);
+   }
+
+   /**
+    * Returns the text of the lexer grammar actually used: the grammar of the window is not enough
+    * because the lexer of a combined grammar and the imported grammars are created from other texts.
+    */
+   protected static String getLexerText(Grammar lexer) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(lexer.getGrammarTree().toStringTree());
+      for (Grammar delegate : lexer.getDelegates()) {
+         sb.append('\n').append(delegate.getFileName());
+         sb.append('\n').append(delegate.getGrammarTree().toStringTree());
       }
+      return sb.toString();
+   }
+
+   /**
+    * Thrown by the parse tree builder to stop the interpreter when the user cancels.
+    */
+   public static class InterpreterCancelledException extends RuntimeException {
+   }
+
+   @Override
+   public boolean parseTreeBuilderIsCancelled() {
+      return cancelled;
+   }
+
+   @Override
+   public void parseTreeBuilderDidAddNodes(final List<InterpreterTreeNode[]> nodes, final int tokenCount,
+         final long tokensPerSecond) {
+      SwingUtilities.invokeLater(new Runnable() {
+         @Override
+         public void run() {
+            progress.setInfo("Interpreting... " + tokenCount + " tokens (" + tokensPerSecond + " tokens/s)");
+            treeModel.addNodes(nodes);
+            // Only the graph view is refreshed: the list view is notified of each inserted node
+            awTreePanel.getGraphView().refresh();
+            profilerView.refresh();
+         }
+      });
    }
 
    public class CustomInterpreter extends Interpreter {
@@ -348,20 +508,25 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
       }
    }
 
-   public class Refresh implements Runnable {
+   /**
+    * Replaces the tree of the previous run by the empty tree of the new run.
+    */
+   public class ResetTree implements Runnable {
       Grammar g;
-      ParseTree t;
+      InterpreterTreeNode root;
 
-      public Refresh(Grammar grammar, ParseTree t) {
+      public ResetTree(Grammar grammar, InterpreterTreeNode root) {
          this.g = grammar;
-         this.t = t;
+         this.root = root;
       }
 
       @Override
       public void run() {
          treeModel.setGrammar(g);
-         treeModel.setTree(t);
-         awTreePanel.setRoot((TreeNode) treeModel.getRoot());
+         awTreePanel.setRoot(root);
+         awTreePanel.clear();
+         // The graph view only lays out the new nodes: remove the graph of the previous run
+         awTreePanel.getGraphView().setRootElement(null);
          awTreePanel.refresh();
       }
    }
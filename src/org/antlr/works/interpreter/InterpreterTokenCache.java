@@ -0,0 +1,173 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+package org.antlr.works.interpreter;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.Token;
+import org.antlr.runtime.TokenSource;
+
+/**
+ * Keeps the tokens produced by the lexer during the last run of the interpreter, so the parser
+ * can be run again with another start rule or other ignored tokens without lexing the input
+ * again. The tokens are only kept if the lexer reached the end of the input.
+ */
+public class InterpreterTokenCache {
+
+   private static final int DIGEST_CHUNK = 1 << 16;
+
+   private String key;
+   private List<Token> tokens;
+   private int[] channels;
+
+   /**
+    * Returns a token source replaying the cached tokens if they have been produced for the key,
+    * null otherwise.
+    */
+   public synchronized TokenSource get(String key) {
+      if (tokens == null || !key.equals(this.key))
+         return null;
+      return new CachedTokenSource(tokens, channels);
+   }
+
+   /**
+    * Returns a token source recording the tokens of the lexer. They are cached for the key once
+    * the lexer has returned the end-of-file token.
+    */
+   public TokenSource record(String key, TokenSource lexer) {
+      clear();
+      return new RecordingTokenSource(key, lexer);
+   }
+
+   /** Returns a key identifying the tokens of the input lexed by the grammar */
+   public static String createKey(String grammarText, String input) {
+      try {
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         update(digest, String.valueOf(grammarText));
+         digest.update((byte) 0);
+         update(digest, String.valueOf(input));
+         return new BigInteger(1, digest.digest()).toString(16);
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      } catch (UnsupportedEncodingException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /** Digests the text by chunks to avoid encoding a large input at once */
+   private static void update(MessageDigest digest, String text) throws UnsupportedEncodingException {
+      for (int start = 0; start < text.length(); start += DIGEST_CHUNK) {
+         digest.update(text.substring(start, Math.min(text.length(), start + DIGEST_CHUNK)).getBytes("UTF-8"));
+      }
+   }
+
+   public synchronized void clear() {
+      key = null;
+      tokens = null;
+      channels = null;
+   }
+
+   private synchronized void put(String key, List<Token> tokens, int[] channels) {
+      this.key = key;
+      this.tokens = tokens;
+      this.channels = channels;
+   }
+
+   private class RecordingTokenSource implements TokenSource {
+
+      private final String key;
+      private final TokenSource lexer;
+      private final List<Token> tokens = new ArrayList<Token>();
+      private int[] channels = new int[1024];
+      private boolean ended;
+
+      public RecordingTokenSource(String key, TokenSource lexer) {
+         this.key = key;
+         this.lexer = lexer;
+      }
+
+      @Override
+      public Token nextToken() {
+         Token token = lexer.nextToken();
+         if (ended)
+            return token;
+         // The channel is recorded before the token stream hides the ignored tokens
+         if (tokens.size() == channels.length) {
+            int[] newChannels = new int[channels.length * 2];
+            System.arraycopy(channels, 0, newChannels, 0, channels.length);
+            channels = newChannels;
+         }
+         channels[tokens.size()] = token.getChannel();
+         tokens.add(token);
+         if (token.getType() == Token.EOF) {
+            ended = true;
+            put(key, tokens, channels);
+         }
+         return token;
+      }
+
+      @Override
+      public String getSourceName() {
+         return lexer.getSourceName();
+      }
+   }
+
+   private static class CachedTokenSource implements TokenSource {
+
+      private final List<Token> tokens;
+      private final int[] channels;
+      private int index;
+
+      public CachedTokenSource(List<Token> tokens, int[] channels) {
+         this.tokens = tokens;
+         this.channels = channels;
+      }
+
+      @Override
+      public Token nextToken() {
+         int i = Math.min(index++, tokens.size() - 1);
+         Token token = tokens.get(i);
+         token.setChannel(channels[i]);
+         return token;
+      }
+
+      @Override
+      public String getSourceName() {
+         return "cached tokens";
+      }
+   }
+
+}
@@ -0,0 +1,161 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+package org.antlr.works.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.BlankDebugEventListener;
+import org.antlr.runtime.debug.ParseTreeBuilder;
+import org.antlr.works.interpreter.EditorInterpreterTreeModel.InterpreterTreeNode;
+
+/**
+ * Builds the parse tree and delivers the nodes added to it at regular intervals. The events are
+ * handled like {@link ParseTreeBuilder} does but only the nodes of the tree model are created:
+ * they are only created by the interpreter thread, the delegate appends them to the tree model so
+ * the displayed tree is never modified by the interpreter.
+ */
+public class StreamingParseTreeBuilder extends BlankDebugEventListener {
+
+   /** Minimum time (in ms) between two deliveries of the new nodes */
+   public static final int PUBLISH_INTERVAL = 1000;
+
+   private final EditorInterpreterTreeModel model;
+   private final StreamingParseTreeBuilderDelegate delegate;
+   private final InterpreterTreeNode root;
+
+   /** The nodes of the rules being parsed */
+   private final Stack<InterpreterTreeNode> rules = new Stack<InterpreterTreeNode>();
+   /** One entry for each rule being parsed: true until a node is added to the rule */
+   private final Stack<Boolean> rulesEmpty = new Stack<Boolean>();
+   /** The nodes are not created while the interpreter is predicting an alternative */
+   private int backtracking;
+
+   private List<InterpreterTreeNode[]> newNodes = new ArrayList<InterpreterTreeNode[]>();
+
+   private final long startTime = System.currentTimeMillis();
+   private long lastPublishTime = startTime;
+   private int tokenCount;
+
+   public StreamingParseTreeBuilder(String grammarName, EditorInterpreterTreeModel model,
+         StreamingParseTreeBuilderDelegate delegate) {
+      this.model = model;
+      this.delegate = delegate;
+      root = model.createNode("<grammar " + grammarName + ">");
+      rules.push(root);
+      rulesEmpty.push(true);
+   }
+
+   public InterpreterTreeNode getRoot() {
+      return root;
+   }
+
+   public int getTokenCount() {
+      return tokenCount;
+   }
+
+   @Override
+   public void enterDecision(int decisionNumber, boolean couldBacktrack) {
+      backtracking++;
+   }
+
+   @Override
+   public void exitDecision(int decisionNumber) {
+      backtracking--;
+   }
+
+   @Override
+   public void enterRule(String filename, String ruleName) {
+      checkCancelled();
+      if (backtracking > 0)
+         return;
+      rules.push(addNode(ruleName));
+      rulesEmpty.push(true);
+   }
+
+   @Override
+   public void exitRule(String filename, String ruleName) {
+      if (backtracking > 0 || rules.size() == 1)
+         return;
+      if (rulesEmpty.peek())
+         addNode(ParseTreeBuilder.EPSILON_PAYLOAD);
+      rules.pop();
+      rulesEmpty.pop();
+   }
+
+   @Override
+   public void consumeToken(Token token) {
+      if (backtracking == 0)
+         addNode(token);
+      tokenCount++;
+      checkCancelled();
+
+      long now = System.currentTimeMillis();
+      if (now - lastPublishTime >= PUBLISH_INTERVAL) {
+         publish(now);
+      }
+   }
+
+   @Override
+   public void recognitionException(RecognitionException e) {
+      if (backtracking == 0)
+         addNode(e);
+   }
+
+   /**
+    * Delivers the nodes created since the last delivery. Called when the interpreter has ended.
+    */
+   public void flush() {
+      publish(System.currentTimeMillis());
+   }
+
+   private InterpreterTreeNode addNode(Object payload) {
+      InterpreterTreeNode node = model.createNode(payload);
+      newNodes.add(new InterpreterTreeNode[] { rules.peek(), node });
+      rulesEmpty.set(rulesEmpty.size() - 1, false);
+      return node;
+   }
+
+   private void checkCancelled() {
+      if (delegate.parseTreeBuilderIsCancelled())
+         throw new InterpreterTab.InterpreterCancelledException();
+   }
+
+   private void publish(long now) {
+      lastPublishTime = now;
+      List<InterpreterTreeNode[]> nodes = newNodes;
+      newNodes = new ArrayList<InterpreterTreeNode[]>();
+      delegate.parseTreeBuilderDidAddNodes(nodes, tokenCount, tokenCount * 1000L / Math.max(1, now - startTime));
+   }
+}
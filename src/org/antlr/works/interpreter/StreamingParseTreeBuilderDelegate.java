@@ -0,0 +1,51 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+package org.antlr.works.interpreter;
+
+import java.util.List;
+
+import org.antlr.works.interpreter.EditorInterpreterTreeModel.InterpreterTreeNode;
+
+public interface StreamingParseTreeBuilderDelegate {
+   /**
+    * Returns true to stop the interpreter.
+    */
+   boolean parseTreeBuilderIsCancelled();
+
+   /**
+    * Called from the interpreter thread with the nodes created since the previous call. Each entry
+    * contains the parent node followed by the new node: the nodes must be appended in this order.
+    *
+    * @param tokenCount number of tokens consumed so far
+    * @param tokensPerSecond average number of tokens consumed per second
+    */
+   void parseTreeBuilderDidAddNodes(List<InterpreterTreeNode[]> nodes, int tokenCount, long tokensPerSecond);
+}
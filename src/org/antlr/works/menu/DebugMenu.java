@@ -5,6 +5,7 @@ import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.stats.StatisticsAW;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.StreamWatcher;
+import org.antlr.xjlib.appkit.utils.XJFileChooser;
 
 /*
 
@@ -38,6 +39,8 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 public class DebugMenu {
 
+    public static final String RECORDING_EXTENSION = "awrec";
+
     private final GrammarWindow window;
 
     public DebugMenu(GrammarWindow window) {
@@ -78,6 +81,15 @@ public class DebugMenu {
         window.getDebuggerTab().launchRemoteDebugger();
     }
 
+    public void openRecording() {
+        if(!XJFileChooser.shared().displayOpenDialog(window.getJavaContainer(), RECORDING_EXTENSION, "Debugger recording", false))
+            return;
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if(file != null)
+            window.getDebuggerTab().openRecording(file);
+    }
+
     public void toggleInputTokens() {
         window.getDebuggerTab().toggleInputTokensBox();
         StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_DEBUGGER_TOGGLE_INPUT_TOKENS);
@@ -35,6 +35,8 @@ import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.editor.GrammarWindowTab;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.stats.StatisticsAW;
+import org.antlr.works.visualization.SDBatchExportDelegate;
+import org.antlr.works.visualization.SDBatchExporter;
 import org.antlr.works.visualization.SDGenerator;
 import org.antlr.works.visualization.SyntaxDiagramTab;
 import org.antlr.works.visualization.graphics.GContext;
@@ -43,10 +45,12 @@ import org.antlr.works.visualization.graphics.GEnginePS;
 import org.antlr.works.visualization.graphics.graph.GGraphAbstract;
 import org.antlr.xjlib.appkit.gview.GView;
 import org.antlr.xjlib.appkit.utils.XJAlert;
+import org.antlr.xjlib.appkit.utils.XJDialogProgressDelegate;
 import org.antlr.xjlib.appkit.utils.XJFileChooser;
 import org.antlr.xjlib.foundation.XJUtils;
 
 import javax.imageio.ImageIO;
+import javax.swing.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileWriter;
@@ -81,6 +85,21 @@ public class ExportMenu {
         }
     }
 
+    public void exportEventsAsRecording() {
+        if(!XJFileChooser.shared().displaySaveDialog(window.getJavaContainer(), DebugMenu.RECORDING_EXTENSION, "Debugger recording", false))
+            return;
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if(file == null)
+            return;
+
+        try {
+            window.getDebuggerTab().saveRecording(file);
+        } catch (IOException e) {
+            XJAlert.display(window.getJavaContainer(), "Error", "Cannot save recording: "+file+"\nError: "+e);
+        }
+    }
+
     public void exportAsImage() {
         StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_EXPORT_AS_BITMAP);
 
@@ -114,18 +133,11 @@ public class ExportMenu {
         String directory = XJFileChooser.shared().getSelectedFilePath();
         String extension = XJFileChooser.shared().getSelectedFileExtension();
 
-        SDGenerator sd = new SDGenerator(window.getGrammarEngine());
+        List<String> rules = new ArrayList<String>();
         for(ElementRule rule : window.getRules()) {
-            try {
-                if(asImage) {
-                    sd.renderRuleToBitmapFile(rule.name, extension, XJUtils.concatPath(directory, rule.name+"."+extension));
-                } else {
-                    sd.renderRuleToEPSFile(rule.name, XJUtils.concatPath(directory, rule.name+".eps"));
-                }
-            } catch (Exception e) {
-                XJAlert.display(window.getJavaContainer(), "Error", "Images cannot be saved because:\n"+e);
-            }
+            rules.add(rule.name);
         }
+        new Thread(new ExportAllRules(rules, asImage ? extension : SDGenerator.FORMAT_EPS, directory)).start();
     }
 
     public void exportRuleAsImage() {
@@ -250,4 +262,60 @@ public class ExportMenu {
         }
     }
 
+    /** Exports the rules in the background while the progress dialog is displayed */
+    protected class ExportAllRules implements Runnable, SDBatchExportDelegate, XJDialogProgressDelegate {
+
+        private final List<String> rules;
+        private final String format;
+        private final String directory;
+        private final SDBatchExporter exporter;
+
+        public ExportAllRules(List<String> rules, String format, String directory) {
+            this.rules = rules;
+            this.format = format;
+            this.directory = directory;
+            this.exporter = new SDBatchExporter(window.getGrammarEngine());
+            window.showProgress("Exporting Rules...", this);
+        }
+
+        public void run() {
+            List<String> failures = null;
+            Exception error = null;
+            try {
+                failures = exporter.export(rules, format, directory, this);
+            } catch (Exception e) {
+                error = e;
+            }
+            final String message;
+            if(error != null)
+                message = error.toString();
+            else if(failures != null && !failures.isEmpty() && !exporter.isCancelled())
+                message = failures.get(0);
+            else
+                message = null;
+
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    window.hideProgress();
+                    if(message != null) {
+                        XJAlert.display(window.getJavaContainer(), "Error", "Images cannot be saved because:\n"+message);
+                    }
+                }
+            });
+        }
+
+        public void batchExportProgress(String rule, final int exported, final int total) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    if(!exporter.isCancelled())
+                        window.setProgress(exported*100/total);
+                }
+            });
+        }
+
+        public void dialogDidCancel() {
+            exporter.cancel();
+        }
+    }
+
 }
@@ -186,8 +186,15 @@ public class GenerateMenu implements CodeGenerateDelegate, CheckGrammarDelegate
         // do nothing
     }
 
+    public void checkGrammarProgress(CheckGrammar source, int percent) {
+        // do nothing
+    }
+
     public void checkGrammarDidEnd(CheckGrammar source, GrammarResult result) {
-        if(result.getErrorCount() == 0) {
+        if(result.isSuperseded()) {
+            generating = false;
+            XJAlert.display(window.getJavaContainer(), "Warning", "The grammar has been modified during Check Grammar.\nGenerate the code again once the grammar is checked.");
+        } else if(result.getErrorCount() == 0) {
             generateCodeProcessContinued();
         } else {
             generating = false;
@@ -33,6 +33,7 @@ package org.antlr.works.menu;
 import java.util.List;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import org.antlr.v4.tool.Grammar;
 import org.antlr.works.ate.syntax.misc.ATEToken;
@@ -168,6 +169,19 @@ public class GrammarMenu implements CheckGrammarDelegate, XJDialogProgressDelega
       checkingGrammar = true;
    }
 
+   @Override
+   public void checkGrammarProgress(CheckGrammar source, final int percent) {
+      // Called from the threads analyzing the grammar
+      SwingUtilities.invokeLater(new Runnable() {
+         @Override
+         public void run() {
+            if (checkingGrammar) {
+               window.setProgress(percent);
+            }
+         }
+      });
+   }
+
    @Override
    public void checkGrammarDidEnd(CheckGrammar source, GrammarResult result) {
       checkGrammar.close();
@@ -182,7 +196,9 @@ public class GrammarMenu implements CheckGrammarDelegate, XJDialogProgressDelega
             AWPrefs.setAlertCheckGrammarSuccess(!alert.isDoNotShowAgain());
          }
       } else {
-         if (result.getErrorCount() > 0) {
+         if (result.isSuperseded()) {
+            XJAlert.display(window.getJavaContainer(), "Warning", "The grammar has been modified during Check Grammar.\nCheck the grammar again to analyze the current text.");
+         } else if (result.getErrorCount() > 0) {
             XJAlert.display(window.getJavaContainer(), "Error", "Check Grammar reported some errors:\n" + result.getFirstErrorMessage() + "\nConsult the console for more information.");
          } else if (result.getWarningCount() > 0) {
             XJAlert.display(window.getJavaContainer(), "Warning", "Check Grammar reported some warnings:\n" + result.getFirstWarningMessage() + "\nConsult the console for more information.");
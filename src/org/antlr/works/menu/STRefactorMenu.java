@@ -1,15 +1,13 @@
 package org.antlr.works.menu;
 
 import org.antlr.works.ate.syntax.misc.ATEToken;
-import org.antlr.works.grammar.RefactorMutator;
+import org.antlr.works.grammar.EditorTextMutator;
 import org.antlr.works.stats.StatisticsAW;
 import org.antlr.works.stringtemplate.STWindow;
 import org.antlr.works.stringtemplate.element.ElementTemplateRule;
 import org.antlr.works.stringtemplate.syntax.ATEStringTemplateSyntaxLexer;
-import org.antlr.xjlib.appkit.undo.XJUndo;
 
 import javax.swing.*;
-import javax.swing.undo.AbstractUndoableEdit;
 import java.util.List;
 
 /*
@@ -120,7 +118,7 @@ public class STRefactorMenu implements ActionRefactor {
 
     protected void beginRefactor(String name) {
         window.beginGroupChange(name);
-        mutator = new EditorTextMutator();
+        mutator = new EditorTextMutator(window);
     }
 
     protected void endRefactor() {
@@ -150,76 +148,4 @@ public class STRefactorMenu implements ActionRefactor {
     public void deleteRuleAtIndex(int index){}
     public int insertionIndexForRule(boolean lexer){return -1;}
     public String createRule(String name, String content){return null;}
-
-    protected void refactorReplaceEditorText(String text) {
-        int oldCaretPosition = window.getCaretPosition();
-        window.disableTextPaneUndo();
-        window.setText(text);
-        window.enableTextPaneUndo();
-        window.getTextEditor().setCaretPosition(Math.min(oldCaretPosition, text.length()), false, false);
-    }
-
-    public class EditorTextMutator implements RefactorMutator {
-
-        public StringBuilder mutableText;
-
-        public EditorTextMutator() {
-            mutableText = new StringBuilder(window.getText());
-        }
-
-        public void replace(int start, int end, String s) {
-            mutableText.replace(start, end, s);
-        }
-
-        public void insert(int index, String s) {
-            mutableText.insert(index, s);
-        }
-
-        public void insertAtLinesBoundary(int index, String s) {
-            if(!(mutableText.charAt(index) == '\n' && mutableText.charAt(index-1) == '\n')) {
-                mutableText.insert(index++, '\n');
-            }
-            mutableText.insert(index, s);
-            int end = index+s.length();
-            if(!(mutableText.charAt(end) == '\n' && end+1 < mutableText.length() && mutableText.charAt(end+1) == '\n'))
-            {
-                mutableText.insert(end, '\n');
-            }
-        }
-
-        public void delete(int start, int end) {
-            mutableText.delete(start, end);
-        }
-
-        public void apply() {
-            String text = mutableText.toString();
-            String oldContent = window.getText();
-
-            refactorReplaceEditorText(text);
-
-            XJUndo undo = window.getUndo(window.getTextPane());
-            undo.addEditEvent(new UndoableRefactoringEdit(oldContent, text));
-        }
-    }
-
-    protected class UndoableRefactoringEdit extends AbstractUndoableEdit {
-
-        public String oldContent;
-        public String newContent;
-
-        public UndoableRefactoringEdit(String oldContent, String newContent) {
-            this.oldContent = oldContent;
-            this.newContent = newContent;
-        }
-
-        public void redo() {
-            super.redo();
-            refactorReplaceEditorText(newContent);
-        }
-
-        public void undo() {
-            super.undo();
-            refactorReplaceEditorText(oldContent);
-        }
-    }
 }
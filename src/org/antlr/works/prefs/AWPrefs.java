@@ -54,6 +54,10 @@ public class AWPrefs {
 
     public static final String PREF_DEBUG_VERBOSE = "PREF_DEBUG_VERBOSE";
     public static final String PREF_DEBUG_DONT_OPTIMIZE_NFA = "PREF_DONT_OPTIMIZE_NFA";
+    public static final String PREF_PARALLEL_ANALYSIS = "PREF_PARALLEL_ANALYSIS";
+    public static final boolean DEFAULT_PARALLEL_ANALYSIS = true;
+    public static final String PREF_SD_CACHE_TO_DISK = "PREF_SD_CACHE_TO_DISK";
+    public static final boolean DEFAULT_SD_CACHE_TO_DISK = false;
 
     public static final String PREF_DOT_TOOL_PATH = "PREF_DOT_TOOL_PATH";
     public static final String PREF_ANTLR3_OPTIONS = "PREF_ANTLR3_OPTIONS";
@@ -177,7 +181,7 @@ public class AWPrefs {
     public static final String DEFAULT_JAVAC_PATH = "";
     public static final String DEFAULT_JIKES_PATH = "";
     public static final String DEFAULT_PREF_CUSTOM_CLASS_PATH = "";
-    public static final String DEFAULT_COMPILER = "javac";
+    public static final String DEFAULT_COMPILER = "integrated";
     public static final boolean DEFAULT_CLASSPATH_SYSTEM = true;
     public static final boolean DEFAULT_CLASSPATH_CUSTOM = false;
 
@@ -227,6 +231,9 @@ public class AWPrefs {
     public static final String PREF_DEBUGGER_ASK_GEN = "PREF_DEBUGGER_ASK_GEN";
     public static final boolean DEFAULT_DEBUGGER_ASK_GEN = false;
 
+    public static final String PREF_DEBUG_RECORD_TO_DISK = "PREF_DEBUG_RECORD_TO_DISK";
+    public static final boolean DEFAULT_DEBUG_RECORD_TO_DISK = false;
+
     // Avanced
 
     public static final String PREF_ALERT_CHECK_GRAMMAR_SUCCESS = "PREF_ALERT_CHECK_GRAMMAR_SUCCESS";
@@ -301,6 +308,14 @@ public class AWPrefs {
         return getPreferences().getBoolean(PREF_DEBUG_DONT_OPTIMIZE_NFA, false);
     }
 
+    public static boolean getParallelAnalysis() {
+        return getPreferences().getBoolean(PREF_PARALLEL_ANALYSIS, DEFAULT_PARALLEL_ANALYSIS);
+    }
+
+    public static boolean getSDCacheToDisk() {
+        return getPreferences().getBoolean(PREF_SD_CACHE_TO_DISK, DEFAULT_SD_CACHE_TO_DISK);
+    }
+
     public static int getDebugDefaultLocalPort() {
         return getPreferences().getInt(PREF_DEBUG_LOCALPORT, DEFAULT_DEBUG_LOCALPORT);
     }
@@ -309,6 +324,10 @@ public class AWPrefs {
         return getPreferences().getInt(PREF_DEBUG_LAUNCHTIMEOUT, DEFAULT_DEBUG_LAUNCHTIMEOUT);
     }
 
+    public static boolean getDebugRecordToDisk() {
+        return getPreferences().getBoolean(PREF_DEBUG_RECORD_TO_DISK, DEFAULT_DEBUG_RECORD_TO_DISK);
+    }
+
     public static void setOutputPath(String path) {
         getPreferences().setString(PREF_OUTPUT_PATH, path);
     }
@@ -6,6 +6,7 @@ import org.antlr.works.editor.*;
 import org.antlr.works.editor.completion.*;
 import org.antlr.works.editor.navigation.*;
 import org.antlr.works.find.*;
+import org.antlr.works.grammar.EditorTextMutatorDelegate;
 import org.antlr.works.grammar.element.Jumpable;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.menu.*;
@@ -60,7 +61,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 public class STWindow extends XJWindow
         implements AutoCompletionMenuDelegate, XJUndoDelegate,
         GoToRuleDelegate, FindAndReplaceDelegate, FindMenuDelegate,
-        GoToMenuDelegate {
+        GoToMenuDelegate, EditorTextMutatorDelegate {
 
     private STWindowMenu stringTemplateMenu;
 
@@ -607,6 +608,10 @@ public class STWindow extends XJWindow
         textEditor.enableUndo();
     }
 
+    public void reportError(Exception e) {
+        XJAlert.display(getJavaContainer(), "Error", "An error occurred:\n"+e.toString());
+    }
+
     public void undoManagerWillUndo(boolean redo) {
     }
 
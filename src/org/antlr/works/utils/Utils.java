@@ -157,4 +157,29 @@ public class Utils {
         System.arraycopy(b, 0, n, a.length, b.length);
         return n;
     }
+
+    /** Returns the string quoted and escaped as a JSON string */
+    public static String toJSONString(String s) {
+        if(s == null) return "null";
+
+        StringBuilder sb = new StringBuilder(s.length()+2);
+        sb.append('"');
+        for(int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            switch(c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if(c < 0x20)
+                        sb.append(String.format("\\u%04x", (int)c));
+                    else
+                        sb.append(c);
+            }
+        }
+        sb.append('"');
+        return sb.toString();
+    }
 }
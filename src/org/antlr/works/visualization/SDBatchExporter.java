@@ -0,0 +1,198 @@
+package org.antlr.works.visualization;
+
+import org.antlr.v4.tool.Grammar;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.visualization.graphics.graph.GGraph;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Exports the syntax diagram of many rules at once. The grammars are created once on the
+ * calling thread, then the rules are rendered and written in parallel: each worker has its
+ * own SDGenerator, and therefore its own GContext and GEngine.
+ */
+public class SDBatchExporter {
+
+    private final GrammarEngine engine;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private volatile boolean cancelled;
+
+    public SDBatchExporter(GrammarEngine engine) {
+        this.engine = engine;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /** Stops the export: the rules being written are completed but no other rule is exported */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Writes the syntax diagram of each rule to "outputDirectory/rule.format".
+     *
+     * @param format 'eps', 'svg' or any bitmap format supported by ImageIO
+     * @param delegate progress callback, can be null
+     * @return one message for each rule that could not be exported
+     */
+    public List<String> export(List<String> rules, String format, String outputDirectory,
+                               SDBatchExportDelegate delegate) throws Exception
+    {
+        new File(outputDirectory).mkdirs();
+
+        List<Job> jobs = createJobs(rules, format, outputDirectory);
+        List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        int workers = Math.min(threads, jobs.size());
+        if(workers <= 1) {
+            new Worker(jobs, new AtomicInteger(), new AtomicInteger(), failures, delegate).call();
+            return failures;
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger exported = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for(int i=0; i<workers; i++) {
+                futures.add(executor.submit(new Worker(jobs, next, exported, failures, delegate)));
+            }
+            for(Future<Object> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if(cause instanceof Error) throw (Error)cause;
+                    throw (Exception)cause;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return failures;
+    }
+
+    /**
+     * Resolves the grammar of each rule on the calling thread: the creation of the grammars
+     * is not thread-safe and must not happen from the workers.
+     */
+    private List<Job> createJobs(List<String> rules, String format, String outputDirectory) throws Exception {
+        ANTLRGrammarEngine antlrEngine = engine.getANTLRGrammarEngine();
+        Grammar lexerGrammar = null;
+        Grammar parserGrammar = null;
+        List<Job> jobs = new ArrayList<Job>(rules.size());
+        for(String rule : rules) {
+            Grammar grammar;
+            if(ATEToken.isLexerName(rule)) {
+                if(lexerGrammar == null) lexerGrammar = antlrEngine.getGrammarForRule(rule);
+                grammar = lexerGrammar;
+            } else {
+                if(parserGrammar == null) parserGrammar = antlrEngine.getGrammarForRule(rule);
+                grammar = parserGrammar;
+            }
+            jobs.add(new Job(rule, grammar, XJUtils.concatPath(outputDirectory, rule+"."+format), format));
+        }
+        return jobs;
+    }
+
+    private static class Job {
+
+        public final String rule;
+        public final Grammar grammar;
+        public final String file;
+        public final String format;
+
+        public Job(String rule, Grammar grammar, String file, String format) {
+            this.rule = rule;
+            this.grammar = grammar;
+            this.file = file;
+            this.format = format;
+        }
+    }
+
+    private class Worker implements Callable<Object> {
+
+        private final List<Job> jobs;
+        private final AtomicInteger next;
+        private final AtomicInteger exported;
+        private final List<String> failures;
+        private final SDBatchExportDelegate delegate;
+
+        public Worker(List<Job> jobs, AtomicInteger next, AtomicInteger exported, List<String> failures,
+                      SDBatchExportDelegate delegate)
+        {
+            this.jobs = jobs;
+            this.next = next;
+            this.exported = exported;
+            this.failures = failures;
+            this.delegate = delegate;
+        }
+
+        public Object call() throws Exception {
+            SDGenerator generator = new SDGenerator(engine);
+            int index;
+            while(!cancelled && (index = next.getAndIncrement()) < jobs.size()) {
+                Job job = jobs.get(index);
+                try {
+                    GGraph graph = job.grammar == null ? null : generator.createGraph(job.grammar, job.rule);
+                    if(graph == null) {
+                        failures.add(job.rule+": rule not found in the grammar");
+                    } else {
+                        generator.renderGraphToFile(graph, job.format, job.file);
+                    }
+                } catch (Exception e) {
+                    failures.add(job.rule+": "+e);
+                }
+                if(delegate != null) {
+                    delegate.batchExportProgress(job.rule, exported.incrementAndGet(), jobs.size());
+                }
+            }
+            return null;
+        }
+    }
+
+}
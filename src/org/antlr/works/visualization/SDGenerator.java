@@ -1,5 +1,6 @@
 package org.antlr.works.visualization;
 
+import org.antlr.v4.tool.Grammar;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
@@ -48,6 +49,9 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 public class SDGenerator implements GContextProvider {
 
+    public static final String FORMAT_EPS = "eps";
+    public static final String FORMAT_SVG = "svg";
+
     public GrammarEngine engine;
     public GContext context;
 
@@ -65,16 +69,46 @@ public class SDGenerator implements GContextProvider {
     }
 
     public void renderRuleToEPSFile(String ruleName, String file) throws Exception {
-        GGraph graph = createGraph(ruleName);
+        renderGraphToEPSFile(createGraph(ruleName), file);
+    }
+
+    public void renderRuleToSVGFile(String ruleName, String file) throws Exception {
+        renderGraphToSVGFile(createGraph(ruleName), file);
+    }
+
+    public void renderRuleToBitmapFile(String ruleName, String imageFormat, String file) throws Exception {
+        renderGraphToBitmapFile(createGraph(ruleName), imageFormat, file);
+    }
+
+    /**
+     * Renders the graph to a file of the specified format: 'eps', 'svg' or any bitmap
+     * format supported by ImageIO.
+     */
+    public void renderGraphToFile(GGraph graph, String format, String file) throws Exception {
+        if(format.equals(FORMAT_EPS)) {
+            renderGraphToEPSFile(graph, file);
+        } else if(format.equals(FORMAT_SVG)) {
+            renderGraphToSVGFile(graph, file);
+        } else {
+            renderGraphToBitmapFile(graph, format, file);
+        }
+    }
+
+    public void renderGraphToEPSFile(GGraph graph, String file) throws Exception {
         GEnginePS engine = new GEnginePS();
         context.setEngine(engine);
         graph.draw();
         XJUtils.writeStringToFile(engine.getPSText(), file);
     }
 
-    public void renderRuleToBitmapFile(String ruleName, String imageFormat, String file) throws Exception {
-        GGraph graph = createGraph(ruleName);
+    public void renderGraphToSVGFile(GGraph graph, String file) throws Exception {
+        GEngineSVG engine = new GEngineSVG();
+        context.setEngine(engine);
+        graph.draw();
+        XJUtils.writeStringToFile(engine.getSVGText(), file);
+    }
 
+    public void renderGraphToBitmapFile(GGraph graph, String imageFormat, String file) throws Exception {
         int width = (int)(graph.getWidth()+1);
         int height = (int)(graph.getHeight()+1);
 
@@ -96,7 +130,19 @@ public class SDGenerator implements GContextProvider {
     }
 
     private GGraph createGraph(String ruleName) throws Exception {
-        GGraph graph = new GFactory().buildGraphsForRule(engine.getANTLRGrammarEngine(), ruleName);
+        return prepareGraph(new GFactory().buildGraphsForRule(engine.getANTLRGrammarEngine(), ruleName));
+    }
+
+    /**
+     * Creates the graph of a rule of an already created grammar, or returns null if the rule
+     * does not exist. See SDBatchExporter.
+     */
+    public GGraph createGraph(Grammar grammar, String ruleName) {
+        GGraph graph = new GFactory().buildGraphForRule(grammar, ruleName);
+        return graph == null ? null : prepareGraph(graph);
+    }
+
+    private GGraph prepareGraph(GGraph graph) {
         graph.setContext(context);
         graph.render(0,0);
         return graph;
@@ -30,6 +30,8 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package org.antlr.works.visualization;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,11 +40,17 @@ import javax.swing.SwingUtilities;
 
 import org.antlr.analysis.NFAState;
 import org.antlr.works.ate.syntax.misc.ATEThread;
+import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.prefs.AWPrefs;
+import org.antlr.works.stats.StatisticsManager;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.ErrorListener;
+import org.antlr.works.visualization.fa.FAState;
 import org.antlr.works.visualization.graphics.GFactory;
+import org.antlr.works.visualization.graphics.graph.GGraph;
+import org.antlr.works.visualization.graphics.graph.GGraphCache;
+import org.antlr.works.visualization.serializable.SDigestEncoder;
 
 public class VisualDrawing extends ATEThread {
    protected SyntaxDiagramTab syntaxDiagramTab;
@@ -52,7 +60,18 @@ public class VisualDrawing extends ATEThread {
    protected String threadText;
    protected ElementRule threadRule;
    protected ElementRule threadLastProcessedRule;
-   protected Map<ElementRule, List> cacheGraphs = new HashMap<ElementRule, List>();
+   protected static final int CACHE_CAPACITY = 256;
+   protected static final long CACHE_MAX_DISK_BYTES = 64L * 1024 * 1024;
+   // The graphs are spilled to a directory of the user which is not accessible to the other users
+   protected static final File CACHE_DIRECTORY = new File(StatisticsManager.getAbsoluteFileName("sd-cache"));
+   // Rendered graphs indexed by the digest of the FA of their rule: they survive the text changes
+   protected GGraphCache cacheGraphs = new GGraphCache(CACHE_CAPACITY, AWPrefs.getSDCacheToDisk() ? CACHE_DIRECTORY : null, CACHE_MAX_DISK_BYTES);
+   // Digest of the FA of each rule for the current version of the grammar
+   protected Map<String, String> ruleDigests = new HashMap<String, String>();
+   // Last digest of each rule, used to evict the graph of a rule when the rule changes
+   protected Map<String, String> lastRuleDigests = new HashMap<String, String>();
+   // Graphs of the rules with errors which reference the states of the current version of the grammar
+   protected Map<ElementRule, List> cacheErrorGraphs = new HashMap<ElementRule, List>();
 
    public VisualDrawing(SyntaxDiagramTab syntaxDiagramTab) {
       this.syntaxDiagramTab = syntaxDiagramTab;
@@ -80,15 +99,33 @@ public class VisualDrawing extends ATEThread {
       awakeThread(immediate ? 0 : 500);
    }
 
+   /**
+    * Forgets the graphs of the current version of the grammar. The rendered graphs stay in cache
+    * and are reused for each rule whose FA did not change.
+    */
    public synchronized void clearCacheGraphs() {
-      cacheGraphs.clear();
+      ruleDigests.clear();
+      cacheErrorGraphs.clear();
+   }
+
+   protected synchronized List getCachedGraphs(ElementRule rule) {
+      if (rule == null)
+         return null;
+      List graphs = cacheErrorGraphs.get(rule);
+      if (graphs != null)
+         return graphs;
+      String digest = ruleDigests.get(rule.name);
+      if (digest == null)
+         return null;
+      GGraph graph = cacheGraphs.get(digest);
+      return graph == null ? null : Collections.singletonList(graph);
    }
 
    /**
     * Tries to refresh the current graph in cache. If the graphs are not in cache, return false.
     */
    public synchronized boolean refresh() {
-      final List graphs = cacheGraphs.get(threadLastProcessedRule);
+      final List graphs = getCachedGraphs(threadLastProcessedRule);
       if (graphs == null || graphs.isEmpty()) {
          return false;
       } else {
@@ -124,6 +161,11 @@ public class VisualDrawing extends ATEThread {
       rule = null;
    }
 
+   private synchronized void threadRequeueRule() {
+      if (rule == null)
+         rule = threadRule;
+   }
+
    private void threadProcessText() {
       if (threadText == null)
          return;
@@ -133,7 +175,7 @@ public class VisualDrawing extends ATEThread {
       } catch (Exception e) {
          // ignore
       } finally {
-         // Flush all caches in cache because the grammar has changed
+         // The grammar has changed: the digest of each rule has to be computed again
          clearCacheGraphs();
       }
    }
@@ -169,16 +211,40 @@ public class VisualDrawing extends ATEThread {
    }
 
    protected synchronized void createGraphsForRule(ElementRule rule) throws Exception {
-      List graphs = cacheGraphs.get(rule);
-      if (graphs == null) {
-         factory.setOptimize(!AWPrefs.getDebugDontOptimizeNFA());
-         factory.setConsole(syntaxDiagramTab.getConsole());
-         graphs = factory.buildGraphsForRule(syntaxDiagramTab.getEngineGrammar(), rule.name, rule.errors);
+      if (getCachedGraphs(rule) != null)
+         return;
+      factory.setOptimize(!AWPrefs.getDebugDontOptimizeNFA());
+      factory.setConsole(syntaxDiagramTab.getConsole());
+      ANTLRGrammarEngine engine = syntaxDiagramTab.getEngineGrammar();
+      if (rule.hasErrors()) {
+         List graphs = factory.buildGraphsForRule(engine, rule.name, rule.errors);
          if (graphs != null)
-            cacheGraphs.put(rule, graphs);
+            cacheErrorGraphs.put(rule, graphs);
+         return;
+      }
+      // Building the FA is cheap compared to its rendering: use its digest to find out
+      // if the rule has already been rendered, even in a previous version of the grammar.
+      FAState state = factory.buildNFAForRule(engine, rule.name);
+      if (state == null)
+         return;
+      String digest = getDigest(rule.name, state);
+      String lastDigest = lastRuleDigests.put(rule.name, digest);
+      if (lastDigest != null && !lastDigest.equals(digest)) {
+         cacheGraphs.remove(lastDigest);
+      }
+      ruleDigests.put(rule.name, digest);
+      if (cacheGraphs.get(digest) == null) {
+         cacheGraphs.put(digest, factory.renderGraph(state, rule.name));
       }
    }
 
+   private static String getDigest(String rule, FAState state) {
+      SDigestEncoder encoder = new SDigestEncoder();
+      encoder.write(rule);
+      encoder.write(state);
+      return encoder.getDigest();
+   }
+
    @Override
    public void threadReportException(Exception e) {
       syntaxDiagramTab.getConsole().println(e);
@@ -191,6 +257,11 @@ public class VisualDrawing extends ATEThread {
          threadPrepareProcess();
          // Process any text
          threadProcessText();
+         if (cancel()) {
+            // Superseded: the rule will be processed by the next run
+            threadRequeueRule();
+            return;
+         }
          // Process any rule
          threadProcessRule();
       }
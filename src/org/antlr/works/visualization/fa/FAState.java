@@ -35,6 +35,7 @@ import org.antlr.analysis.NFAState;
 import org.antlr.works.visualization.serializable.SEncoder;
 import org.antlr.works.visualization.serializable.SSerializable;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,7 +44,7 @@ import java.util.List;
  *
  */
 
-public class FAState implements SSerializable {
+public class FAState implements SSerializable, Serializable {
 
     public int stateNumber = -1;
     public boolean acceptedState = false;
@@ -35,9 +35,10 @@ package org.antlr.works.visualization.fa;
 import org.antlr.works.visualization.serializable.SEncoder;
 import org.antlr.works.visualization.serializable.SSerializable;
 
+import java.io.Serializable;
 import java.util.List;
 
-public class FATransition implements SSerializable {
+public class FATransition implements SSerializable, Serializable {
 
     public FAState source;
     public String label;
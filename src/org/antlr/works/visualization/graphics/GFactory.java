@@ -74,10 +74,36 @@ public class GFactory {
    }
 
    public GGraph buildGraphsForRule(ANTLRGrammarEngine antlrEngineGrammar, String rule) throws Exception {
+      FAState state = buildNFAForRule(antlrEngineGrammar, rule);
+      if (state == null)
+         return null;
+      return renderGraph(state, rule);
+   }
+
+   /**
+    * Builds the graph of a rule of an already created grammar. Unlike the other methods, it does not
+    * ask the grammar engine to create the grammar and can be called from several threads at once as
+    * long as each thread uses its own factory.
+    */
+   public GGraph buildGraphForRule(Grammar grammar, String rule) {
+      NFAState startState = grammar.getRuleStartState(rule);
+      if (startState == null)
+         return null;
+      return renderGraph(new FAFactory(grammar).buildNFA(startState, optimize), rule);
+   }
+
+   /**
+    * Builds the FA of the rule without rendering it. The FA is cheap to build compared to
+    * the rendering and can be used to find out if a previously rendered graph is still valid.
+    */
+   public FAState buildNFAForRule(ANTLRGrammarEngine antlrEngineGrammar, String rule) throws Exception {
       NFAState startState = antlrEngineGrammar.getRuleStartState(rule);
       if (startState == null)
          return null;
-      FAState state = new FAFactory(antlrEngineGrammar.getGrammarForRule(rule)).buildNFA(startState, optimize);
+      return new FAFactory(antlrEngineGrammar.getGrammarForRule(rule)).buildNFA(startState, optimize);
+   }
+
+   public GGraph renderGraph(FAState state, String rule) {
       GGraph graph = renderer.render(state);
       graph.setName(rule);
       return graph;
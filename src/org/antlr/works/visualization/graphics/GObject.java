@@ -32,10 +32,11 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.visualization.graphics;
 
 import java.awt.*;
+import java.io.Serializable;
 
-public class GObject {
+public class GObject implements Serializable {
 
-    protected GContext context;
+    protected transient GContext context;
 
     public void setContext(GContext context) {
         this.context = context;
@@ -0,0 +1,322 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.visualization.graphics.graph;
+
+import java.io.*;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+
+/**
+ * Cache of rendered graphs indexed by the digest of the FA they were rendered from.
+ * The most recently used graphs are kept in memory and, if a spill directory is
+ * specified, every graph is also written to disk so it can be reloaded once it has
+ * been evicted from memory or in a later session.
+ *
+ * The spill directory must belong to the current user and is restricted to its owner:
+ * otherwise the graphs are only cached in memory. The files on disk are limited to a
+ * number of bytes (the least recently used files are deleted first) and reading them
+ * back only accepts the classes of the graphs.
+ */
+public class GGraphCache {
+
+    private static final String SPILL_EXTENSION = ".graph";
+    private static final long DEFAULT_MAX_SPILL_BYTES = 64L*1024*1024;
+
+    /** Classes outside of the visualization packages a cached graph is made of */
+    private static final Set<String> SPILL_CLASSES = new HashSet<String>(Arrays.asList(
+            "java.lang.Boolean", "java.lang.Float", "java.lang.Integer", "java.lang.Number", "java.lang.String",
+            "java.util.ArrayList", "java.util.LinkedList"));
+    private static final String SPILL_PACKAGE = "org.antlr.works.visualization.";
+
+    private final File spillDirectory;
+    private final long maxSpillBytes;
+    private final Map<String, GGraph> graphs;
+
+    /** Size of each file in the spill directory, from the least to the most recently used */
+    private final LinkedHashMap<String, Long> spillSizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private long spillBytes;
+
+    public GGraphCache(int capacity, File spillDirectory) {
+        this(capacity, spillDirectory, DEFAULT_MAX_SPILL_BYTES);
+    }
+
+    public GGraphCache(final int capacity, File spillDirectory, long maxSpillBytes) {
+        this.spillDirectory = spillDirectory != null && prepareSpillDirectory(spillDirectory) ? spillDirectory : null;
+        this.maxSpillBytes = maxSpillBytes;
+        this.graphs = new LinkedHashMap<String, GGraph>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GGraph> eldest) {
+                return size() > capacity;
+            }
+        };
+        if(this.spillDirectory != null) {
+            loadSpillSizes();
+        }
+    }
+
+    public synchronized boolean isSpilling() {
+        return spillDirectory != null;
+    }
+
+    public synchronized long getSpillBytes() {
+        return spillBytes;
+    }
+
+    public synchronized GGraph get(String digest) {
+        GGraph graph = graphs.get(digest);
+        if(graph == null) {
+            graph = load(digest);
+            if(graph != null) {
+                graphs.put(digest, graph);
+            }
+        }
+        return graph;
+    }
+
+    public synchronized void put(String digest, GGraph graph) {
+        graphs.put(digest, graph);
+        store(digest, graph);
+    }
+
+    public synchronized void remove(String digest) {
+        graphs.remove(digest);
+        deleteSpillFile(digest);
+    }
+
+    public synchronized void clear() {
+        graphs.clear();
+    }
+
+    private File getSpillFile(String digest) {
+        if(spillDirectory == null) {
+            return null;
+        } else {
+            return new File(spillDirectory, digest+SPILL_EXTENSION);
+        }
+    }
+
+    /**
+     * Creates the spill directory readable and writable only by its owner. Returns false if the
+     * directory cannot be used: it belongs to another user or its permissions cannot be restricted.
+     */
+    private static boolean prepareSpillDirectory(File directory) {
+        try {
+            Path path = directory.toPath();
+            boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+            Set<PosixFilePermission> ownerOnly = EnumSet.of(PosixFilePermission.OWNER_READ,
+                    PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+            if(!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                if(path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                if(posix) {
+                    Files.createDirectory(path, PosixFilePermissions.asFileAttribute(ownerOnly));
+                } else {
+                    Files.createDirectory(path);
+                }
+            }
+            if(!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) || !isOwnedByCurrentUser(path)) {
+                return false;
+            }
+            if(posix) {
+                Files.setPosixFilePermissions(path, ownerOnly);
+                return true;
+            } else {
+                return directory.setReadable(false, false) && directory.setReadable(true, true)
+                        && directory.setWritable(false, false) && directory.setWritable(true, true)
+                        && directory.setExecutable(false, false) && directory.setExecutable(true, true);
+            }
+        } catch (Exception e) {
+            // The graphs are only cached in memory
+            return false;
+        }
+    }
+
+    private static boolean isOwnedByCurrentUser(Path path) throws IOException {
+        String user = System.getProperty("user.name");
+        String owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).getName();
+        // The owner can be prefixed with its domain (i.e. on Windows)
+        return user != null && (owner.equals(user) || owner.endsWith("\\"+user));
+    }
+
+    private void loadSpillSizes() {
+        File[] files = spillDirectory.listFiles();
+        if(files == null) return;
+
+        // Oldest files first: they are the first ones deleted when the cache is full
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long d = a.lastModified() - b.lastModified();
+                return d < 0 ? -1 : (d > 0 ? 1 : 0);
+            }
+        });
+        for(File file : files) {
+            String name = file.getName();
+            if(name.endsWith(SPILL_EXTENSION) && file.isFile()) {
+                String digest = name.substring(0, name.length()-SPILL_EXTENSION.length());
+                spillSizes.put(digest, file.length());
+                spillBytes += file.length();
+            } else if(name.endsWith(".tmp")) {
+                file.delete();
+            }
+        }
+        trimSpill();
+    }
+
+    private void deleteSpillFile(String digest) {
+        File file = getSpillFile(digest);
+        if(file == null) return;
+
+        file.delete();
+        Long size = spillSizes.remove(digest);
+        if(size != null) {
+            spillBytes -= size;
+        }
+    }
+
+    /** Deletes the least recently used files until the files fit in the limit */
+    private void trimSpill() {
+        Iterator<Map.Entry<String, Long>> iterator = spillSizes.entrySet().iterator();
+        while(spillBytes > maxSpillBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            getSpillFile(entry.getKey()).delete();
+            spillBytes -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    private GGraph load(String digest) {
+        File file = getSpillFile(digest);
+        if(file == null || spillSizes.get(digest) == null) return null;
+
+        GGraph graph = null;
+        ObjectInputStream in = null;
+        try {
+            in = new GraphInputStream(new BufferedInputStream(new FileInputStream(file)));
+            graph = (GGraph) in.readObject();
+        } catch (Exception e) {
+            // Corrupted, incompatible or unexpected file
+        } finally {
+            close(in);
+        }
+        if(graph == null) {
+            // Forget about the file: the graph will be rendered again
+            deleteSpillFile(digest);
+            return null;
+        }
+        graph.setRendered(false);
+        // Mark the file as recently used for the next sessions too
+        file.setLastModified(System.currentTimeMillis());
+        return graph;
+    }
+
+    private void store(String digest, GGraph graph) {
+        File file = getSpillFile(digest);
+        if(file == null || spillSizes.containsKey(digest)) return;
+
+        File temp = new File(spillDirectory, digest+".tmp");
+        ObjectOutputStream out = null;
+        boolean written = false;
+        try {
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeObject(graph);
+            out.close();
+            written = true;
+        } catch (IOException e) {
+            // The graph is still in memory: spilling is only an optimization
+        } finally {
+            close(out);
+        }
+        if(!written || temp.length() > maxSpillBytes || !temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        spillSizes.put(digest, file.length());
+        spillBytes += file.length();
+        trimSpill();
+    }
+
+    private static void close(Closeable c) {
+        if(c == null) return;
+        try {
+            c.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /** Only reads the classes a graph is made of */
+    private static class GraphInputStream extends ObjectInputStream {
+
+        public GraphInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if(!isSpillClass(desc.getName()))
+                throw new InvalidClassException(desc.getName(), "Unexpected class in a cached graph");
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Unexpected proxy class in a cached graph");
+        }
+
+        private static boolean isSpillClass(String name) {
+            // Arrays: check the type of their elements
+            int dimensions = 0;
+            while(dimensions < name.length() && name.charAt(dimensions) == '[') {
+                dimensions++;
+            }
+            if(dimensions > 0) {
+                String element = name.substring(dimensions);
+                if(element.length() == 1) {
+                    // Array of a primitive type
+                    return true;
+                }
+                if(!element.startsWith("L") || !element.endsWith(";")) {
+                    return false;
+                }
+                name = element.substring(1, element.length()-1);
+            }
+            return name.startsWith(SPILL_PACKAGE) || SPILL_CLASSES.contains(name);
+        }
+    }
+
+}
@@ -35,7 +35,9 @@ import org.antlr.works.visualization.graphics.GContext;
 import org.antlr.works.visualization.serializable.SEncoder;
 import org.antlr.works.visualization.serializable.SSerializable;
 
-public class GDimension implements SSerializable {
+import java.io.Serializable;
+
+public class GDimension implements SSerializable, Serializable {
 
     public String width = "";
     public String up = "";
@@ -33,7 +33,9 @@ package org.antlr.works.visualization.graphics.primitive;
 
 import org.antlr.works.visualization.graphics.GContext;
 
-public class GPoint {
+import java.io.Serializable;
+
+public class GPoint implements Serializable {
 
     public String x = "";
     public String y = "";
@@ -0,0 +1,147 @@
+package org.antlr.works.visualization.serializable;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-07 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Encoder that computes a digest of an object graph instead of writing it somewhere.
+ * Two object graphs with the same structure produce the same digest: objects already
+ * encoded are written as a reference to their encoding order and integers are renumbered
+ * in order of first appearance. The only integers of a rule FA are its state numbers:
+ * they are renumbered from the start state of the rule, so the digest does not depend on
+ * the absolute state numbers assigned by ANTLR across the whole grammar, which change
+ * with any edit of a previous rule.
+ */
+public class SDigestEncoder implements SEncoder {
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_REFERENCE = 1;
+    private static final byte TAG_OBJECT = 2;
+    private static final byte TAG_STRING = 3;
+    private static final byte TAG_INT = 4;
+    private static final byte TAG_BOOLEAN = 5;
+
+    private final MessageDigest digest;
+    private final Map<SSerializable, Integer> objects = new IdentityHashMap<SSerializable, Integer>();
+    /** Relative number of each integer written, in order of first appearance */
+    private final Map<Integer, Integer> integers = new HashMap<Integer, Integer>();
+
+    public SDigestEncoder() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void write(SSerializable object) {
+        if(object == null) {
+            digest.update(TAG_NULL);
+            return;
+        }
+
+        Integer index = objects.get(object);
+        if(index == null) {
+            objects.put(object, objects.size());
+            digest.update(TAG_OBJECT);
+            update(object.getClass().getName());
+            object.encode(this);
+        } else {
+            // already being encoded
+            digest.update(TAG_REFERENCE);
+            update(index);
+        }
+    }
+
+    public void write(String value) {
+        if(value == null) {
+            digest.update(TAG_NULL);
+        } else {
+            digest.update(TAG_STRING);
+            update(value);
+        }
+    }
+
+    public void write(int value) {
+        Integer number = integers.get(value);
+        if(number == null) {
+            integers.put(value, number = integers.size());
+        }
+        digest.update(TAG_INT);
+        update(number);
+    }
+
+    public void write(boolean value) {
+        digest.update(TAG_BOOLEAN);
+        digest.update((byte)(value ? 1 : 0));
+    }
+
+    /**
+     * Returns the digest of everything written so far as an hexadecimal string
+     * and resets the encoder.
+     */
+    public String getDigest() {
+        byte[] bytes = digest.digest();
+        objects.clear();
+        integers.clear();
+
+        StringBuilder sb = new StringBuilder(bytes.length*2);
+        for(byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private void update(int value) {
+        digest.update((byte)(value >>> 24));
+        digest.update((byte)(value >>> 16));
+        digest.update((byte)(value >>> 8));
+        digest.update((byte)value);
+    }
+
+    private void update(String value) {
+        try {
+            byte[] bytes = value.getBytes("UTF-8");
+            update(bytes.length);
+            digest.update(bytes);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ import org.antlr.xjlib.appkit.utils.XJLocalizable;
 import org.antlr.xjlib.foundation.XJObject;
 import org.antlr.xjlib.foundation.XJUtils;
 
+import javax.swing.*;
 import java.awt.*;
 import java.io.*;
 import java.util.List;
@@ -70,6 +71,18 @@ public class XJDocument extends XJObject {
     public XJDocument() {
         this.firstDocument = absoluteCounter == 0;
         absoluteCounter++;
+        fileMonitor.setListener(new XJFileWatcherListener() {
+            public void fileChanged(String file) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        // An inactive window reloads its documents when it is activated
+                        if(documentWindow != null && documentWindow.isActive()) {
+                            documentWindow.reloadDocuments();
+                        }
+                    }
+                });
+            }
+        });
     }
 
     @Override
@@ -232,6 +245,7 @@ public class XJDocument extends XJObject {
 
     public boolean close(boolean force) {
         if(performClose(force)) {
+            fileMonitor.close();
             if(!isInternalOnly()) {
                 XJApplication.shared().addRecentFile(getDocumentPath());
             }
@@ -32,16 +32,75 @@ THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
 THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 */
-public class XJFileMonitor {
+/**
+ * Tells if a file has been modified on the disk since the last time it was read or written.
+ * When the file system supports it, the file is watched by XJFileWatcher and checking the
+ * file does not access the disk: the date of modification is only checked again in the
+ * background in case the watcher missed a change, which is then reported to the listener.
+ * Otherwise, the date of modification of the file is checked.
+ */
+public class XJFileMonitor implements XJFileWatcherListener {
 
-    private long lastModifiedOnDisk = 0;
+    private volatile long lastModifiedOnDisk = 0;
+    private volatile boolean modified;
+    private String watchedFile;
+    private XJFileWatcherListener listener;
 
-    public void synchronizeLastModifiedDate(String file) {
+    /**
+     * Sets the listener notified, on the thread of the file watcher, when the file
+     * is modified on the disk.
+     */
+    public void setListener(XJFileWatcherListener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void synchronizeLastModifiedDate(String file) {
+        watch(file);
         lastModifiedOnDisk = getDateOfModificationOnDisk(file);
+        modified = false;
     }
 
     public boolean isModifiedOnDisk(String file) {
-        return lastModifiedOnDisk != getDateOfModificationOnDisk(file);
+        if(isWatching(file)) {
+            if(!modified) {
+                XJFileWatcher.shared().recheck(file, this);
+            }
+            return modified;
+        } else {
+            return lastModifiedOnDisk != getDateOfModificationOnDisk(file);
+        }
+    }
+
+    /** Stops watching the file */
+    public synchronized void close() {
+        watch(null);
+    }
+
+    private synchronized boolean isWatching(String file) {
+        return watchedFile != null && watchedFile.equals(file);
+    }
+
+    private void watch(String file) {
+        if(watchedFile != null && watchedFile.equals(file)) return;
+
+        if(watchedFile != null) {
+            XJFileWatcher.shared().removeListener(watchedFile, this);
+            watchedFile = null;
+        }
+        if(file != null && XJFileWatcher.shared().addListener(file, this)) {
+            watchedFile = file;
+        }
+    }
+
+    public void fileChanged(String file) {
+        // Ignore the events caused by our own writes, once the date has been synchronized
+        if(getDateOfModificationOnDisk(file) == lastModifiedOnDisk) return;
+
+        modified = true;
+        XJFileWatcherListener l = listener;
+        if(l != null) {
+            l.fileChanged(file);
+        }
     }
 
     public long getDateOfModificationOnDisk(String file) {
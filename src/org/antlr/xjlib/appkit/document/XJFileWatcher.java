@@ -0,0 +1,297 @@
+package org.antlr.xjlib.appkit.document;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-08 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Watches files for external changes using the WatchService of the file system, so that
+ * the files do not have to be checked one by one with a call to the disk. The directory
+ * of each watched file is registered once. The changes are debounced: a file that is
+ * written several times in a row is reported once, when the writes have stopped for
+ * DEBOUNCE_DELAY. The listeners are invoked on a background thread.
+ *
+ * The files of network file systems are not watched: the watch service is not notified
+ * of the changes made by the other hosts.
+ */
+public class XJFileWatcher {
+
+    public static final long DEBOUNCE_DELAY = 300;
+    /** Files that keep changing are reported at least this often */
+    public static final long MAX_DEBOUNCE_DELAY = 2000;
+
+    /** Types of the file stores whose changes can be made by other hosts */
+    private static final Set<String> REMOTE_FILE_STORE_TYPES = new HashSet<String>(Arrays.asList(
+            "nfs", "nfs4", "cifs", "smbfs", "smb2", "smb3", "afpfs", "webdav", "davfs", "fuse.sshfs",
+            "9p", "afs", "coda", "ncpfs"));
+
+    private static XJFileWatcher shared;
+
+    private final WatchService service;
+    private final Map<Path, WatchKey> keys = new HashMap<Path, WatchKey>();
+    private final Map<Path, List<XJFileWatcherListener>> listeners = new HashMap<Path, List<XJFileWatcherListener>>();
+    private final Set<Path> pendingFiles = new LinkedHashSet<Path>();
+    private final ScheduledExecutorService delivery;
+    private ScheduledFuture<?> pendingDelivery;
+    private long pendingSince;
+
+    public static synchronized XJFileWatcher shared() {
+        if(shared == null) {
+            shared = new XJFileWatcher();
+        }
+        return shared;
+    }
+
+    public XJFileWatcher() {
+        WatchService s = null;
+        try {
+            s = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            // Not supported: isAvailable() returns false and the clients poll the files
+        } catch (UnsupportedOperationException e) {
+            // same as above
+        }
+        service = s;
+        delivery = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("File Watcher Delivery"));
+        if(service != null) {
+            Thread t = new DaemonThreadFactory("File Watcher").newThread(new Runnable() {
+                public void run() {
+                    watch();
+                }
+            });
+            t.start();
+        }
+    }
+
+    public boolean isAvailable() {
+        return service != null;
+    }
+
+    /**
+     * Starts watching the file. The file does not have to exist but its directory must exist.
+     *
+     * @return false if the file cannot be watched: the client has to check the file itself
+     */
+    public synchronized boolean addListener(String file, XJFileWatcherListener listener) {
+        if(service == null || file == null) return false;
+
+        Path path = getPath(file);
+        Path directory = path.getParent();
+        if(directory == null) return false;
+
+        if(!keys.containsKey(directory)) {
+            if(isRemote(directory)) return false;
+            try {
+                keys.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        List<XJFileWatcherListener> l = listeners.get(path);
+        if(l == null) {
+            l = new ArrayList<XJFileWatcherListener>(1);
+            listeners.put(path, l);
+        }
+        if(!l.contains(listener)) {
+            l.add(listener);
+        }
+        return true;
+    }
+
+    public synchronized void removeListener(String file, XJFileWatcherListener listener) {
+        if(service == null || file == null) return;
+
+        Path path = getPath(file);
+        List<XJFileWatcherListener> l = listeners.get(path);
+        if(l == null) return;
+
+        l.remove(listener);
+        if(!l.isEmpty()) return;
+
+        listeners.remove(path);
+        // Stop watching the directory if no other file of this directory is watched
+        Path directory = path.getParent();
+        for(Path p : listeners.keySet()) {
+            if(directory.equals(p.getParent())) return;
+        }
+        WatchKey key = keys.remove(directory);
+        if(key != null) {
+            key.cancel();
+        }
+    }
+
+    /**
+     * Reports the file to the listener on the delivery thread, as if it had changed. The watch
+     * service can miss some changes: the listener checks the file itself without blocking
+     * the caller.
+     */
+    public void recheck(final String file, final XJFileWatcherListener listener) {
+        delivery.execute(new Runnable() {
+            public void run() {
+                try {
+                    listener.fileChanged(file);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private static boolean isRemote(Path directory) {
+        try {
+            return REMOTE_FILE_STORE_TYPES.contains(Files.getFileStore(directory).type().toLowerCase());
+        } catch (IOException e) {
+            // Unknown file store: the client checks the file itself
+            return true;
+        }
+    }
+
+    private static Path getPath(String file) {
+        return Paths.get(file).toAbsolutePath().normalize();
+    }
+
+    private void watch() {
+        while(true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException e) {
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for(WatchEvent<?> event : key.pollEvents()) {
+                if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Some events have been lost: report all the files of the directory
+                    directoryChanged(directory);
+                } else {
+                    fileChanged(directory.resolve((Path) event.context()));
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private synchronized void directoryChanged(Path directory) {
+        for(Path p : listeners.keySet()) {
+            if(directory.equals(p.getParent())) {
+                fileChanged(p);
+            }
+        }
+    }
+
+    private synchronized void fileChanged(Path file) {
+        if(!listeners.containsKey(file)) return;
+
+        pendingFiles.add(file);
+        long now = System.currentTimeMillis();
+        if(pendingDelivery == null) {
+            pendingSince = now;
+        } else if(now-pendingSince < MAX_DEBOUNCE_DELAY) {
+            // Wait for the files to be quiet before reporting them
+            pendingDelivery.cancel(false);
+        } else {
+            return;
+        }
+        pendingDelivery = delivery.schedule(new Runnable() {
+            public void run() {
+                deliver();
+            }
+        }, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver() {
+        Map<Path, List<XJFileWatcherListener>> changes = new HashMap<Path, List<XJFileWatcherListener>>();
+        synchronized(this) {
+            for(Path file : pendingFiles) {
+                List<XJFileWatcherListener> l = listeners.get(file);
+                if(l != null) {
+                    changes.put(file, new ArrayList<XJFileWatcherListener>(l));
+                }
+            }
+            pendingFiles.clear();
+            pendingDelivery = null;
+        }
+        // Invoke the listeners outside of the lock: they can add or remove listeners
+        for(Map.Entry<Path, List<XJFileWatcherListener>> change : changes.entrySet()) {
+            for(XJFileWatcherListener listener : change.getValue()) {
+                try {
+                    listener.fileChanged(change.getKey().toString());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        public DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package org.antlr.xjlib.appkit.swing;
+
+import java.awt.*;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Graphics2D that produces an SVG document. It reuses the shape decomposition of
+ * XJGraphics2DPS: each shape, including the text outlines, becomes a SVG path.
+ */
+public class XJGraphics2DSVG extends XJGraphics2DPS {
+
+    protected StringBuilder svg = new StringBuilder();
+
+    public XJGraphics2DSVG() {
+        super();
+        color = Color.black;
+    }
+
+    public String getSVGText() {
+        // Apply margins
+        int x = upperLeftCorner.x - marginWidth;
+        int y = upperLeftCorner.y - marginHeight;
+        int width = lowerRightCorner.x - upperLeftCorner.x + 2*marginWidth;
+        int height = lowerRightCorner.y - upperLeftCorner.y + 2*marginHeight;
+
+        StringBuilder doc = new StringBuilder();
+        doc.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        doc.append(NEWLINE);
+        doc.append("<!-- Creator: XJGraphics2DSVG -->");
+        doc.append(NEWLINE);
+        doc.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\"");
+        doc.append(" width=\"").append(width).append("\" height=\"").append(height).append("\"");
+        doc.append(" viewBox=\"").append(x).append(" ").append(y).append(" ").append(width).append(" ").append(height).append("\">");
+        doc.append(NEWLINE);
+        doc.append(svg);
+        doc.append("</svg>");
+        doc.append(NEWLINE);
+        return doc.toString();
+    }
+
+    @Override
+    public void setColor(Color c) {
+        this.color = c;
+    }
+
+    @Override
+    public void setStroke(Stroke s) {
+        this.stroke = s;
+    }
+
+    @Override
+    public void psDrawShape(Shape s, boolean fill) {
+        double coord[] = new double[6];
+
+        // Transform the shape
+        s = transform.createTransformedShape(s);
+
+        // Update the bounding box
+        Rectangle2D r = s.getBounds2D();
+        upperLeftCorner.x = (int) Math.min(upperLeftCorner.x, r.getMinX());
+        upperLeftCorner.y = (int) Math.min(upperLeftCorner.y, r.getMinY());
+        lowerRightCorner.x = (int) Math.max(lowerRightCorner.x, Math.ceil(r.getMaxX()));
+        lowerRightCorner.y = (int) Math.max(lowerRightCorner.y, Math.ceil(r.getMaxY()));
+
+        svg.append("<path d=\"");
+        PathIterator iter = s.getPathIterator(null);
+        while(!iter.isDone()) {
+            switch(iter.currentSegment(coord)) {
+                case PathIterator.SEG_MOVETO:
+                    svgAppend("M", coord, 1);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    svgAppend("L", coord, 1);
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    svgAppend("Q", coord, 2);
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    svgAppend("C", coord, 3);
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    svg.append("Z");
+                    break;
+            }
+            iter.next();
+        }
+        svg.append("\"");
+
+        if(fill) {
+            svg.append(" fill=\"").append(svgColor()).append("\"");
+            if(iter.getWindingRule() == PathIterator.WIND_EVEN_ODD)
+                svg.append(" fill-rule=\"evenodd\"");
+        } else {
+            svg.append(" fill=\"none\" stroke=\"").append(svgColor()).append("\"");
+            if(stroke instanceof BasicStroke) {
+                svg.append(" stroke-width=\"").append(df.format(((BasicStroke)stroke).getLineWidth())).append("\"");
+            }
+        }
+        svg.append("/>");
+        svg.append(NEWLINE);
+    }
+
+    protected void svgAppend(String command, double[] coord, int points) {
+        svg.append(command);
+        for(int index=0; index<points*2; index++) {
+            if(index > 0)
+                svg.append(' ');
+            svg.append(df.format(coord[index]));
+        }
+    }
+
+    protected String svgColor() {
+        Color c = color == null ? Color.black : color;
+        return "rgb("+c.getRed()+","+c.getGreen()+","+c.getBlue()+")";
+    }
+
+}
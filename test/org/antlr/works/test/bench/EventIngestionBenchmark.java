@@ -0,0 +1,181 @@
+package org.antlr.works.test.bench;
+
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventFactory;
+import org.antlr.works.debugger.tivo.DBEventQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Measures how many events per second the thread reading the remote parser can hand over
+ * to the event dispatch thread while the event dispatch thread plays the new events at
+ * each frame. The "locked" mode adds each event to a synchronized list while holding the
+ * recorder lock, which is also held while the events are played, as the recorder used to
+ * do. The "queue" mode uses the lock-free queue of the recorder and only takes the lock
+ * to move the events to the recorded events.
+ *
+ * Usage: EventIngestionBenchmark [number of events]
+ */
+public class EventIngestionBenchmark {
+
+    private static final int FRAME_INTERVAL_MS = 33;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        DBEvent[] events = createEvents(count);
+
+        for(int i=0; i<WARMUP_ITERATIONS; i++) {
+            runLocked(events);
+            runQueue(events);
+        }
+
+        long locked = 0;
+        long queue = 0;
+        for(int i=0; i<ITERATIONS; i++) {
+            locked += runLocked(events);
+            queue += runQueue(events);
+        }
+
+        System.out.println("Events: "+count);
+        System.out.println("Locked: "+formatRate(count, locked/ITERATIONS));
+        System.out.println("Queue:  "+formatRate(count, queue/ITERATIONS));
+    }
+
+    private static DBEvent[] createEvents(int count) {
+        DBEvent[] events = new DBEvent[count];
+        for(int i=0; i<count; i++) {
+            switch(i % 4) {
+                case 0: events[i] = DBEventFactory.createLocation(i, 1); break;
+                case 1: events[i] = DBEventFactory.createEnterDecision(i); break;
+                case 2: events[i] = DBEventFactory.createEnterAlt(1); break;
+                default: events[i] = DBEventFactory.createExitDecision(i); break;
+            }
+        }
+        return events;
+    }
+
+    /** Returns the time in nanoseconds taken by the producer to hand over all the events */
+    private static long runLocked(DBEvent[] events) throws InterruptedException {
+        final Object lock = new Object();
+        final List<DBEvent> recorded = Collections.synchronizedList(new ArrayList<DBEvent>());
+        final Player player = new Player() {
+            public boolean frame() {
+                synchronized(lock) {
+                    return play(recorded, recorded.size());
+                }
+            }
+        };
+
+        long start = System.nanoTime();
+        player.start();
+        for(DBEvent event : events) {
+            synchronized(lock) {
+                recorded.add(event);
+            }
+        }
+        long time = System.nanoTime()-start;
+        player.finish(events.length);
+        return time;
+    }
+
+    private static long runQueue(DBEvent[] events) throws InterruptedException {
+        final Object lock = new Object();
+        final DBEventQueue queue = new DBEventQueue(1 << 16);
+        final List<DBEvent> recorded = new ArrayList<DBEvent>();
+        final Player player = new Player() {
+            public boolean frame() {
+                int size;
+                synchronized(lock) {
+                    queue.drainTo(recorded);
+                    size = recorded.size();
+                }
+                return play(recorded, size);
+            }
+        };
+
+        long start = System.nanoTime();
+        player.start();
+        for(DBEvent event : events) {
+            while(!queue.offer(event)) {
+                // Like DBRecorder.requestDrain(): wake up the player to drain the queue
+                LockSupport.unpark(player);
+                LockSupport.parkNanos(100000);
+            }
+        }
+        long time = System.nanoTime()-start;
+        player.finish(events.length);
+        return time;
+    }
+
+    private static String formatRate(int count, long nanos) {
+        return String.format("%,.0f events/sec", count/(nanos/1e9));
+    }
+
+    /** Simulates the event dispatch thread: at each frame, the new events are played */
+    private static abstract class Player extends Thread {
+
+        private int played;
+        private volatile int expected = -1;
+        public long checksum;
+
+        public Player() {
+            setDaemon(true);
+        }
+
+        public abstract boolean frame();
+
+        public boolean play(List<DBEvent> events, int size) {
+            // Playing an event updates the views: use its description as the work to do
+            for(; played < size; played++) {
+                checksum += events.get(played).toString().length();
+            }
+            return expected != -1 && played >= expected;
+        }
+
+        public void run() {
+            while(!frame()) {
+                LockSupport.parkNanos(FRAME_INTERVAL_MS*1000000L);
+            }
+        }
+
+        public void finish(int count) throws InterruptedException {
+            expected = count;
+            join();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.antlr.works.test.bench;
+
+import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.test.TestConstants;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.util.Random;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** Compares the time needed to tokenize a large grammar after each keystroke
+ * when the whole text is lexed again and when only the damaged region is.
+ *
+ * Usage: LexerBenchmark [grammar file] [minimum number of lines]
+ */
+public class LexerBenchmark {
+
+    private static final int KEYSTROKES = 2000;
+
+    public static void main(String[] args) throws Exception {
+        String text;
+        if(args.length > 0)
+            text = XJUtils.getStringFromFile(args[0]);
+        else
+            text = XJUtils.getStringFromFile(LexerBenchmark.class.getResource(TestConstants.MANTRA).getFile());
+
+        int minLines = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        StringBuilder sb = new StringBuilder(text);
+        while(countLines(sb) < minLines) {
+            sb.append(text);
+        }
+        text = sb.toString();
+        System.out.println("Grammar: "+countLines(sb)+" lines, "+text.length()+" characters");
+
+        // Warm-up both modes before measuring
+        run(text, false, 200);
+        run(text, true, 200);
+
+        long full = run(text, false, KEYSTROKES);
+        long incremental = run(text, true, KEYSTROKES);
+        System.out.println("Full lexing:        "+format(full));
+        System.out.println("Incremental lexing: "+format(incremental));
+        System.out.println("Speed-up:           "+(incremental == 0 ? "-" : String.valueOf(full/incremental))+"x");
+    }
+
+    private static long run(String text, boolean incremental, int keystrokes) {
+        ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(text);
+
+        // Always use the same sequence of edits so both modes do the same work
+        Random random = new Random(0);
+        long total = 0;
+        for(int i=0; i<keystrokes; i++) {
+            int offset = random.nextInt(text.length());
+            if(i % 2 == 0) {
+                text = text.substring(0, offset)+"x"+text.substring(offset);
+            } else {
+                text = text.substring(0, offset)+text.substring(offset+1);
+            }
+            long start = System.nanoTime();
+            if(incremental)
+                lexer.tokenize(text, offset, i % 2 == 0 ? 1 : -1);
+            else
+                lexer.tokenize(text);
+            total += System.nanoTime()-start;
+        }
+        return total/keystrokes;
+    }
+
+    private static int countLines(CharSequence text) {
+        int count = 1;
+        for(int i=0; i<text.length(); i++) {
+            if(text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.3f ms per keystroke", nanos/1000000.0);
+    }
+}
@@ -0,0 +1,129 @@
+package org.antlr.works.test.bench;
+
+import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
+import org.antlr.works.test.TestConstants;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Measures the memory retained by the tokens of a large grammar and the throughput of a full
+ * tokenization followed by a full parsing. The "eager" mode creates the attribute of every token
+ * right after the tokenization, as the tokens used to do, while the "lazy" mode only creates
+ * the attributes needed by the parser.
+ *
+ * Usage: TokenBenchmark [grammar file] [min characters]
+ */
+public class TokenBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 30;
+
+    public static void main(String[] args) throws Exception {
+        String text;
+        if(args.length > 0)
+            text = XJUtils.getStringFromFile(args[0]);
+        else
+            text = XJUtils.getStringFromFile(TokenBenchmark.class.getResource(TestConstants.MANTRA).getFile());
+
+        int minLength = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+        StringBuilder sb = new StringBuilder(text);
+        while(sb.length() < minLength) {
+            sb.append(text);
+        }
+        text = sb.toString();
+        System.out.println("Grammar: "+text.length()+" characters");
+
+        for(int i=0; i<WARMUP_ITERATIONS; i++) {
+            run(text, false);
+            run(text, true);
+        }
+
+        long eagerTime = time(text, true);
+        long lazyTime = time(text, false);
+        long eagerMemory = retainedMemory(text, true);
+        long lazyMemory = retainedMemory(text, false);
+
+        System.out.println("Eager attributes: "+formatTime(eagerTime)+", "+formatMemory(eagerMemory));
+        System.out.println("Lazy attributes:  "+formatTime(lazyTime)+", "+formatMemory(lazyMemory));
+    }
+
+    private static List<ATEToken> run(String text, boolean eager) {
+        ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(text);
+        List<ATEToken> tokens = new ArrayList<ATEToken>(lexer.getTokens());
+        if(eager) {
+            for(ATEToken token : tokens) {
+                token.getAttribute();
+            }
+        }
+        new GrammarSyntaxParser().parse(tokens);
+        return tokens;
+    }
+
+    private static long time(String text, boolean eager) {
+        long start = System.nanoTime();
+        for(int i=0; i<ITERATIONS; i++) {
+            run(text, eager);
+        }
+        return (System.nanoTime()-start)/ITERATIONS;
+    }
+
+    private static long retainedMemory(String text, boolean eager) {
+        long before = usedMemory();
+        List<ATEToken> tokens = run(text, eager);
+        long after = usedMemory();
+        // Make sure the tokens are still reachable when measuring
+        return tokens.isEmpty() ? 0 : (after-before)/tokens.size();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i=0; i<4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory()-runtime.freeMemory();
+    }
+
+    private static String formatTime(long nanos) {
+        return String.format("%.2f ms per tokenization and parsing", nanos/1000000.0);
+    }
+
+    private static String formatMemory(long bytes) {
+        return bytes+" bytes retained per token";
+    }
+}
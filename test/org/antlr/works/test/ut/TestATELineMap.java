@@ -0,0 +1,107 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
+import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineMap;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestATELineMap extends TestCase {
+
+    private static final String TEXT = "grammar g;\n\na : B\n  | c\n  ;\n\nc : 'c' ;\nB : 'b' ;";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestATELineMap.class));
+    }
+
+    public void testLineIndexAtPosition() {
+        ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(TEXT);
+        assertSameLines(lexer, TEXT);
+
+        ATELineMap lineMap = lexer.getLineMap();
+        assertEquals(0, lineMap.getLineIndexAtPosition(0));
+        assertEquals(0, lineMap.getLineIndexAtPosition(TEXT.indexOf('\n')));
+        assertEquals(1, lineMap.getLineIndexAtPosition(TEXT.indexOf('\n')+1));
+        assertEquals(lineMap.getLineCount()-1, lineMap.getLineIndexAtPosition(TEXT.length()+10));
+    }
+
+    public void testLineRange() {
+        ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(TEXT);
+
+        ATELineMap lineMap = lexer.getLineMap();
+        int start = TEXT.indexOf("a :");
+        int line = lineMap.getLineIndexAtPosition(start);
+        assertEquals(start, lineMap.getLineStart(line));
+        assertEquals(TEXT.indexOf('\n', start), lineMap.getLineEnd(line));
+        assertEquals(-1, lineMap.getLineEnd(lineMap.getLineCount()-1));
+    }
+
+    public void testIncrementalTokenize() {
+        ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(TEXT);
+        lexer.getLineMap();
+
+        int offset = TEXT.indexOf("c : ");
+        String text = TEXT.substring(0, offset)+"d : c\n  ;\n"+TEXT.substring(offset);
+        lexer.tokenize(text, offset, 10);
+        assertSameLines(lexer, text);
+
+        text = text.substring(0, offset)+text.substring(offset+10);
+        lexer.tokenize(text, offset, -10);
+        assertSameLines(lexer, text);
+    }
+
+    /** Compares the line map with a linear scan of the lines */
+    private static void assertSameLines(ATESyntaxLexer lexer, String text) {
+        List<ATELine> lines = lexer.getLines();
+        ATELineMap lineMap = lexer.getLineMap();
+        assertEquals(lines.size(), lineMap.getLineCount());
+        for(int pos=0; pos<=text.length(); pos++) {
+            int expected = lines.size()-1;
+            for(int i=0; i<lines.size(); i++) {
+                if(lines.get(i).position > pos) {
+                    expected = i-1;
+                    break;
+                }
+            }
+            assertEquals("position "+pos, expected, lineMap.getLineIndexAtPosition(pos));
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.misc.ATEThread;
+
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestATEThread extends TestCase {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestATEThread.class));
+    }
+
+    public void testCoalesceRequests() throws Exception {
+        CountingThread thread = new CountingThread(50);
+        for(int i=0; i<20; i++) {
+            thread.awakeThread();
+        }
+        Thread.sleep(400);
+        assertEquals(1, thread.getRunCount());
+        thread.stop();
+    }
+
+    public void testDebounceWithDeadline() throws Exception {
+        CountingThread thread = new CountingThread(200);
+        long start = System.currentTimeMillis();
+        thread.awakeThread();
+        Thread.sleep(100);
+        thread.awakeThread();
+        Thread.sleep(600);
+        assertEquals(1, thread.getRunCount());
+        assertTrue(thread.getRunTimes().get(0) - start >= 290);
+        thread.stop();
+    }
+
+    public void testImmediateRequest() throws Exception {
+        CountingThread thread = new CountingThread(10000);
+        thread.awakeThread();
+        thread.awakeThread(0);
+        Thread.sleep(300);
+        assertEquals(1, thread.getRunCount());
+        thread.stop();
+    }
+
+    public void testSkip() throws Exception {
+        CountingThread thread = new CountingThread(50);
+        thread.awakeThread();
+        thread.skip();
+        Thread.sleep(300);
+        assertEquals(0, thread.getRunCount());
+        thread.stop();
+    }
+
+    public void testCancelSupersededRun() throws Exception {
+        final List<Boolean> cancelled = new ArrayList<Boolean>();
+        ATEThread thread = new ATEThread() {
+            {
+                setDefaultThreshold(0);
+                start();
+            }
+
+            @Override
+            protected void threadRun() throws Exception {
+                long start = System.currentTimeMillis();
+                while(!cancel() && System.currentTimeMillis() - start < 2000) {
+                    Thread.sleep(5);
+                }
+                synchronized(cancelled) {
+                    cancelled.add(cancel());
+                }
+            }
+        };
+        thread.awakeThread();
+        Thread.sleep(100);
+        // Supersede the first run: it must be cancelled and a new one executed
+        thread.awakeThread();
+        Thread.sleep(300);
+        thread.stop();
+        Thread.sleep(100);
+        synchronized(cancelled) {
+            assertEquals(2, cancelled.size());
+            assertTrue(cancelled.get(0));
+        }
+    }
+
+    public void testSupersededRunStopsBetweenUnits() throws Exception {
+        final int units = 50;
+        final List<Integer> processed = new ArrayList<Integer>();
+        ATEThread thread = new ATEThread() {
+            {
+                setDefaultThreshold(0);
+                start();
+            }
+
+            @Override
+            protected void threadRun() throws Exception {
+                int count = 0;
+                for(int unit=0; unit<units; unit++) {
+                    if(cancel()) break;
+                    Thread.sleep(10);
+                    count++;
+                }
+                synchronized(processed) {
+                    processed.add(count);
+                }
+            }
+        };
+        thread.awakeThread();
+        Thread.sleep(100);
+        // The second request arrives while the first run is processing its units
+        thread.awakeThread();
+        Thread.sleep(1000);
+        thread.stop();
+        synchronized(processed) {
+            assertEquals(2, processed.size());
+            assertTrue(processed.get(0) < units);
+            assertEquals(units, processed.get(1).intValue());
+        }
+    }
+
+    public void testStop() throws Exception {
+        CountingThread thread = new CountingThread(50);
+        assertTrue(thread.isRunning());
+        thread.awakeThread();
+        thread.stop();
+        Thread.sleep(200);
+        assertFalse(thread.isRunning());
+        assertEquals(0, thread.getRunCount());
+    }
+
+    private static class CountingThread extends ATEThread {
+
+        private final List<Long> runTimes = new ArrayList<Long>();
+
+        public CountingThread(int threshold) {
+            setDefaultThreshold(threshold);
+            start();
+        }
+
+        @Override
+        protected synchronized void threadRun() throws Exception {
+            runTimes.add(System.currentTimeMillis());
+        }
+
+        public synchronized int getRunCount() {
+            return runTimes.size();
+        }
+
+        public synchronized List<Long> getRunTimes() {
+            return new ArrayList<Long>(runTimes);
+        }
+    }
+}
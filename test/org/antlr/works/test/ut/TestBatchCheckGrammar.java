@@ -0,0 +1,116 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.BatchCheckGrammar;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestBatchCheckGrammar extends TestCase {
+
+    private File dir;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestBatchCheckGrammar.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("check", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XJUtils.deleteDirectory(dir.getAbsolutePath());
+    }
+
+    public void testFindGrammarFiles() throws Exception {
+        createFile("b.g");
+        createFile("a.g");
+        createFile("a.tokens");
+        createFile("sub/c.g");
+
+        List<String> files = BatchCheckGrammar.findGrammarFiles(dir.getAbsolutePath());
+        assertEquals(Arrays.asList(path("a.g"), path("b.g"), path("sub/c.g")), files);
+    }
+
+    public void testFindGrammarFilesOfMissingDirectory() throws Exception {
+        try {
+            BatchCheckGrammar.findGrammarFiles(path("missing"));
+            fail();
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+        assertTrue(BatchCheckGrammar.findGrammarFiles(dir.getAbsolutePath()).isEmpty());
+    }
+
+    public void testJSON() {
+        BatchCheckGrammar.Report ok = new BatchCheckGrammar.Report("/g/A.g");
+        ok.name = "A";
+        ok.type = "combined";
+        ok.parseTime = 2000000;
+        ok.analyzeTime = 3000000;
+
+        BatchCheckGrammar.Report failed = new BatchCheckGrammar.Report("/g/\"B\".g");
+        failed.errors.add(new BatchCheckGrammar.Problem(null, 3, 4, "syntax error"));
+        failed.decisions.add(new BatchCheckGrammar.Problem("r", 7, -1, "Decision can match input such as \"ID\""));
+
+        assertFalse(ok.hasErrors());
+        assertTrue(failed.hasErrors());
+
+        String json = BatchCheckGrammar.toJSON(Arrays.asList(ok, failed));
+        assertTrue(json.contains("{\"file\": \"/g/A.g\", \"name\": \"A\", \"type\": \"combined\", \"timeMs\": 5, \"parseTimeMs\": 2, \"analyzeTimeMs\": 3,"));
+        assertTrue(json.contains("\"file\": \"/g/\\\"B\\\".g\", \"name\": null"));
+        assertTrue(json.contains("\"errors\": [{\"line\": 3, \"column\": 4, \"message\": \"syntax error\"}]"));
+        assertTrue(json.contains("\"decisions\": [{\"rule\": \"r\", \"line\": 7, \"column\": -1, \"message\": \"Decision can match input such as \\\"ID\\\"\"}]"));
+        assertTrue(json.contains("\"errors\": 1, \"warnings\": 0, \"decisions\": 1"));
+    }
+
+    private String path(String name) {
+        return new File(dir, name).getAbsolutePath();
+    }
+
+    private void createFile(String name) throws Exception {
+        File file = new File(dir, name);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.debugger.local.DBBuildCache;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.IOException;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestDBBuildCache extends TestCase {
+
+    private File outputDir;
+    private File classesDir;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestDBBuildCache.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        outputDir = File.createTempFile("dbbuild", "");
+        outputDir.delete();
+        classesDir = new File(outputDir, "classes");
+        classesDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XJUtils.deleteDirectory(outputDir.getAbsolutePath());
+    }
+
+    public void testUpToDate() throws Exception {
+        String[] sources = { "/out/TLexer.java", "/out/TParser.java" };
+        createClass("TLexer.class");
+        createClass("TParser.class");
+
+        DBBuildCache cache = createCache();
+        assertFalse(cache.isUpToDate(DBBuildCache.STEP_GRAMMAR, "k1", sources));
+        cache.record(DBBuildCache.STEP_GRAMMAR, "k1", sources);
+        assertTrue(cache.isUpToDate(DBBuildCache.STEP_GRAMMAR, "k1", sources));
+        assertFalse(cache.isUpToDate(DBBuildCache.STEP_GRAMMAR, "k2", sources));
+
+        // The state is saved with the classes
+        assertTrue(createCache().isUpToDate(DBBuildCache.STEP_GRAMMAR, "k1", sources));
+
+        // A missing class file makes the step stale
+        new File(classesDir, "TParser.class").delete();
+        assertFalse(cache.isUpToDate(DBBuildCache.STEP_GRAMMAR, "k1", sources));
+    }
+
+    public void testInvalidateOnlyDeletesOwnedClasses() throws Exception {
+        File lexer = createClass("TLexer.class");
+        File dfa = createClass("pkg/TLexer$DFA1.class");
+        File glue = createClass("__Test__.class");
+        File other = createClass("TLexerHelper.class");
+
+        DBBuildCache cache = createCache();
+        cache.record(DBBuildCache.STEP_GRAMMAR, "k", new String[] { "/out/TLexer.java" });
+        cache.record(DBBuildCache.STEP_GLUE, "g", new String[] { "/out/__Test__.java" });
+        cache.invalidate(DBBuildCache.STEP_GRAMMAR);
+
+        assertFalse(lexer.exists());
+        assertFalse(dfa.exists());
+        assertTrue(glue.exists());
+        assertTrue(other.exists());
+        assertTrue(cache.isUpToDate(DBBuildCache.STEP_GLUE, "g", new String[] { "/out/__Test__.java" }));
+    }
+
+    public void testHash() {
+        assertEquals(DBBuildCache.hash("a", "b"), DBBuildCache.hash("a", "b"));
+        assertFalse(DBBuildCache.hash("ab", "").equals(DBBuildCache.hash("a", "b")));
+        assertFalse(DBBuildCache.hash((String)null).equals(DBBuildCache.hash("")));
+    }
+
+    private DBBuildCache createCache() {
+        return new DBBuildCache(outputDir.getAbsolutePath(), classesDir.getAbsolutePath());
+    }
+
+    private File createClass(String name) throws IOException {
+        File file = new File(classesDir, name);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        return file;
+    }
+
+}
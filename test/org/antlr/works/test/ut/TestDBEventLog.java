@@ -0,0 +1,189 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.MismatchedTokenException;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener.ProxyToken;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener.ProxyTree;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.tivo.DBEventLog;
+import org.antlr.works.debugger.tree.DBTreeToken;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestDBEventLog extends TestCase {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestDBEventLog.class));
+    }
+
+    public void testAddAndGet() throws Exception {
+        List<DBEvent> events = createEvents(5000);
+        DBEventLog log = DBEventLog.create();
+        try {
+            for(DBEvent event : events) {
+                log.add(event);
+            }
+            assertSameEvents(events, log);
+        } finally {
+            log.close();
+        }
+    }
+
+    public void testLargeToken() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for(int i=0; i<10000000; i++) {
+            text.append((char)('a'+i%26));
+        }
+        List<DBEvent> events = createEvents(10);
+        events.add(5, DBEventFactory.createConsumeToken(new ProxyToken(1, 2, 0, 3, 4, text.toString())));
+
+        DBEventLog log = DBEventLog.create();
+        try {
+            log.addAll(events);
+            assertSameEvents(events, log);
+        } finally {
+            log.close();
+        }
+    }
+
+    public void testSaveAndOpen() throws Exception {
+        List<DBEvent> events = createEvents(5000);
+        File file = File.createTempFile("events", ".awrec");
+        try {
+            DBEventLog.save(events, file);
+            DBEventLog log = DBEventLog.open(file);
+            try {
+                assertSameEvents(events, log);
+                log.save(file);
+            } finally {
+                log.close();
+            }
+
+            log = DBEventLog.open(file);
+            try {
+                assertSameEvents(events, log);
+            } finally {
+                log.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testCloseDeletesFiles() throws Exception {
+        Set<String> existing = listLogFiles();
+        DBEventLog log = DBEventLog.create();
+        log.addAll(createEvents(1000));
+
+        Set<String> created = listLogFiles();
+        created.removeAll(existing);
+        assertEquals(2, created.size());
+
+        log.close();
+        log.close();
+        Set<String> remaining = listLogFiles();
+        remaining.retainAll(created);
+        assertTrue(remaining.isEmpty());
+
+        try {
+            log.get(0);
+            fail("The closed log must not be read");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static Set<String> listLogFiles() {
+        Set<String> names = new HashSet<String>();
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles();
+        if(files != null) {
+            for(File file : files) {
+                if(file.getName().startsWith("antlrworks-events"))
+                    names.add(file.getName());
+            }
+        }
+        return names;
+    }
+
+    private static List<DBEvent> createEvents(int count) {
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        events.add(DBEventFactory.createCommence());
+        for(int i=0; i<count; i++) {
+            DBEvent event;
+            switch(i % 8) {
+                case 0: event = DBEventFactory.createEnterRule("/tmp/T.g", "rule"+i); break;
+                case 1: event = DBEventFactory.createLocation(i, i % 80); break;
+                case 2: event = DBEventFactory.createConsumeToken(new ProxyToken(i, 4, 0, i, 2, "token"+i)); break;
+                case 3: event = DBEventFactory.createLT(1, new DBTreeToken(new ProxyTree(i, 5, i, 3, i, "node"+i))); break;
+                case 4: event = DBEventFactory.createEndBacktrack(i, i % 3 == 0); break;
+                case 5: event = DBEventFactory.createCreateNode(i, "imaginary", 6); break;
+                case 6: {
+                    MismatchedTokenException e = new MismatchedTokenException();
+                    e.line = i;
+                    event = DBEventFactory.createRecognitionException(e);
+                    break;
+                }
+                default: event = DBEventFactory.createExitRule("/tmp/T.g", "rule"+i); break;
+            }
+            if(event.getEventType() != DBEvent.ENTER_RULE)
+                event.setGrammarName("T");
+            events.add(event);
+        }
+        events.add(DBEventFactory.createTerminate());
+        return events;
+    }
+
+    private static void assertSameEvents(List<DBEvent> expected, List<DBEvent> actual) {
+        assertEquals(expected.size(), actual.size());
+        // Read the events backward to make sure they are not only read sequentially
+        for(int i=expected.size()-1; i>=0; i--) {
+            DBEvent e = expected.get(i);
+            DBEvent a = actual.get(i);
+            assertEquals(e.getEventType(), a.getEventType());
+            assertEquals(e.getGrammarName(), a.getGrammarName());
+            if(e instanceof DBEventRecognitionException) {
+                assertEquals(((DBEventRecognitionException)e).e.getClass(), ((DBEventRecognitionException)a).e.getClass());
+                assertEquals(((DBEventRecognitionException)e).e.line, ((DBEventRecognitionException)a).e.line);
+            } else {
+                assertEquals(e.toString(), a.toString());
+            }
+        }
+    }
+
+}
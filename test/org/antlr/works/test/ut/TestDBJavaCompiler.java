@@ -0,0 +1,104 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.debugger.local.DBJavaCompiler;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestDBJavaCompiler extends TestCase {
+
+    private File outputDir;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestDBJavaCompiler.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        outputDir = File.createTempFile("dbcompile", "");
+        outputDir.delete();
+        outputDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XJUtils.deleteDirectory(outputDir.getAbsolutePath());
+    }
+
+    public void testCompile() throws Exception {
+        DBJavaCompiler compiler = new DBJavaCompiler();
+        if(!compiler.isAvailable()) return;
+
+        File source = createSource("TParser.java", "public class TParser { class Rule { } }");
+        DBJavaCompiler.Result result = compiler.compile(new String[] { source.getAbsolutePath() },
+                outputDir.getAbsolutePath(), "");
+
+        assertTrue(result.getError(), result.success);
+        assertNull(result.getError());
+        assertTrue(new File(outputDir, "TParser.class").exists());
+        assertTrue(new File(outputDir, "TParser$Rule.class").exists());
+
+        // The same compiler can be used again
+        result = compiler.compile(new String[] { source.getAbsolutePath() }, outputDir.getAbsolutePath(), "");
+        assertTrue(result.getError(), result.success);
+    }
+
+    public void testCompileError() throws Exception {
+        DBJavaCompiler compiler = new DBJavaCompiler();
+        if(!compiler.isAvailable()) return;
+
+        File source = createSource("TLexer.java", "public class TLexer { int x = ; }");
+        DBJavaCompiler.Result result = compiler.compile(new String[] { source.getAbsolutePath() },
+                outputDir.getAbsolutePath(), "");
+
+        assertFalse(result.success);
+        assertTrue(result.getError(), result.getError().contains("TLexer.java:1"));
+        assertFalse(new File(outputDir, "TLexer.class").exists());
+    }
+
+    private File createSource(String name, String text) throws IOException {
+        File file = new File(outputDir, name);
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
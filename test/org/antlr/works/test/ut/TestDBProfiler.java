@@ -0,0 +1,136 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.profiler.DBProfiler;
+
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestDBProfiler extends TestCase {
+
+    private static final String GRAMMAR = "T.g";
+
+    private DBProfiler profiler;
+    private long time;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestDBProfiler.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        profiler = new DBProfiler();
+        time = 0;
+    }
+
+    public void testRuleTimes() {
+        event(new DBEventEnterRule(GRAMMAR, "a"), 0);
+        event(new DBEventEnterRule(GRAMMAR, "b"), 10);
+        event(new DBEventExitRule(GRAMMAR, "b"), 30);
+        event(new DBEventEnterRule(GRAMMAR, "b"), 0);
+        event(new DBEventExitRule(GRAMMAR, "b"), 5);
+        event(new DBEventExitRule(GRAMMAR, "a"), 5);
+
+        List<DBProfiler.RuleStats> rules = profiler.getRuleStats();
+        assertEquals(2, rules.size());
+        assertRule(rules.get(0), "a", 1, 50, 15);
+        assertRule(rules.get(1), "b", 2, 35, 35);
+    }
+
+    public void testRecursiveRuleIsCountedOnce() {
+        event(new DBEventEnterRule(GRAMMAR, "e"), 0);
+        event(new DBEventEnterRule(GRAMMAR, "e"), 10);
+        event(new DBEventExitRule(GRAMMAR, "e"), 10);
+        event(new DBEventExitRule(GRAMMAR, "e"), 10);
+
+        List<DBProfiler.RuleStats> rules = profiler.getRuleStats();
+        assertEquals(1, rules.size());
+        assertRule(rules.get(0), "e", 2, 30, 30);
+    }
+
+    public void testDecisions() {
+        event(new DBEventEnterRule(GRAMMAR, "a"), 0);
+        event(new DBEventEnterDecision(3), 0);
+        event(new DBEventLT(1, null), 0);
+        event(new DBEventLT(2, null), 0);
+        event(new DBEventBeginBacktrack(1), 0);
+        event(new DBEventLT(4, null), 0);
+        event(new DBEventEndBacktrack(1, true), 0);
+        event(new DBEventExitDecision(3), 0);
+        event(new DBEventEnterDecision(3), 0);
+        event(new DBEventLT(1, null), 0);
+        event(new DBEventExitDecision(3), 0);
+        event(DBEventFactory.createTerminate(), 0);
+
+        List<DBProfiler.DecisionStats> decisions = profiler.getDecisionStats();
+        assertEquals(1, decisions.size());
+        DBProfiler.DecisionStats d = decisions.get(0);
+        assertEquals("a", d.ruleName);
+        assertEquals(2, d.evaluations);
+        assertEquals(4, d.maxLookahead);
+        assertEquals(2.5, d.getAverageLookahead(), 0.001);
+        assertEquals(1, d.backtracks);
+        assertEquals(1, profiler.getRuleStats().get(0).backtracks);
+    }
+
+    public void testExport() {
+        event(new DBEventEnterRule(GRAMMAR, "a"), 0);
+        event(new DBEventEnterDecision(1), 0);
+        event(new DBEventExitDecision(1), 0);
+        event(new DBEventExitRule(GRAMMAR, "a"), 2000000);
+
+        String[] lines = profiler.toCSV().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("rule,T,a,1,2.000,2.000,0,,", lines[1]);
+        assertEquals("decision,T,a #1,1,0.000,,0,0,0.000", lines[2]);
+
+        String json = profiler.toJSON();
+        assertTrue(json.contains("{\"grammar\": \"T\", \"name\": \"a\", \"invocations\": 1, \"timeMs\": 2.000"));
+        assertTrue(json.contains("\"decision\": 1, \"rule\": \"a\", \"evaluations\": 1"));
+    }
+
+    private void event(DBEvent event, long elapsed) {
+        time += elapsed;
+        profiler.event(event, time);
+    }
+
+    private static void assertRule(DBProfiler.RuleStats stats, String name, int invocations, long time, long selfTime) {
+        assertEquals(name, stats.name);
+        assertEquals(invocations, stats.invocations);
+        assertEquals(time, stats.time);
+        assertEquals(selfTime, stats.selfTime);
+    }
+
+}
@@ -0,0 +1,204 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.visualization.fa.FAState;
+import org.antlr.works.visualization.fa.FATransition;
+import org.antlr.works.visualization.graphics.graph.GGraph;
+import org.antlr.works.visualization.graphics.graph.GGraphCache;
+import org.antlr.works.visualization.graphics.shape.GNode;
+import org.antlr.works.visualization.serializable.SDigestEncoder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestGGraphCache extends TestCase {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestGGraphCache.class));
+    }
+
+    public void testDigestIgnoresStateNumbers() {
+        assertEquals(digest("a", createFA(1, "x")), digest("a", createFA(40, "x")));
+        assertFalse(digest("a", createFA(1, "x")).equals(digest("a", createFA(1, "y"))));
+        assertFalse(digest("a", createFA(1, "x")).equals(digest("b", createFA(1, "x"))));
+    }
+
+    public void testDigestIgnoresPreviousRules() {
+        // ANTLR numbers the start and stop states of all the rules before the states of their
+        // body: an edit of a previous rule only shifts the numbers of the body states
+        assertEquals(digest("a", createRuleFA(3, 4, 20, "x")), digest("a", createRuleFA(3, 4, 35, "x")));
+        assertFalse(digest("a", createRuleFA(3, 4, 20, "x")).equals(digest("a", createRuleFA(3, 4, 35, "y"))));
+    }
+
+    public void testEviction() {
+        GGraphCache cache = new GGraphCache(1, null);
+        cache.put("a", createGraph("a"));
+        cache.put("b", createGraph("b"));
+        assertNull(cache.get("a"));
+        assertEquals("b", cache.get("b").name);
+    }
+
+    public void testSpill() throws Exception {
+        File directory = File.createTempFile("graphs", "");
+        assertTrue(directory.delete());
+        try {
+            GGraphCache cache = new GGraphCache(1, directory);
+            cache.put("a", createGraph("a"));
+            cache.put("b", createGraph("b"));
+            assertEquals("a", cache.get("a").name);
+
+            // A new cache finds the graphs of the previous one
+            cache = new GGraphCache(1, directory);
+            GGraph graph = cache.get("b");
+            assertEquals("b", graph.name);
+            assertEquals("x", graph.nodes.get(0).state.transitions.get(0).label);
+
+            cache.remove("b");
+            assertNull(new GGraphCache(1, directory).get("b"));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    public void testSpillLimit() throws Exception {
+        File directory = File.createTempFile("graphs", "");
+        assertTrue(directory.delete());
+        try {
+            GGraphCache cache = new GGraphCache(1, directory, Long.MAX_VALUE);
+            cache.put("a", createGraph("a"));
+            long size = cache.getSpillBytes();
+            assertTrue(size > 0);
+
+            // Only one graph fits on disk: the least recently used one is deleted
+            cache = new GGraphCache(1, directory, size+size/2);
+            assertEquals(size, cache.getSpillBytes());
+            cache.put("b", createGraph("b"));
+            cache.put("c", createGraph("c"));
+            assertTrue(cache.getSpillBytes() <= size+size/2);
+            assertFalse(new File(directory, "a.graph").exists());
+            assertNull(new GGraphCache(1, directory).get("b"));
+            assertEquals("c", new GGraphCache(1, directory).get("c").name);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    public void testSpillDirectoryIsPrivate() throws Exception {
+        File directory = File.createTempFile("graphs", "");
+        assertTrue(directory.delete());
+        try {
+            assertTrue(new GGraphCache(1, directory).isSpilling());
+            if(FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(directory.toPath()));
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    public void testUnexpectedClassIsNotRead() throws Exception {
+        File directory = File.createTempFile("graphs", "");
+        assertTrue(directory.delete());
+        try {
+            GGraphCache cache = new GGraphCache(1, directory);
+            // A file planted in the directory with an object which is not a graph
+            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(directory, "x.graph")));
+            out.writeObject(new java.util.Date());
+            out.close();
+
+            cache = new GGraphCache(1, directory);
+            assertNull(cache.get("x"));
+            assertFalse(new File(directory, "x.graph").exists());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static String digest(String rule, FAState state) {
+        SDigestEncoder encoder = new SDigestEncoder();
+        encoder.write(rule);
+        encoder.write(state);
+        return encoder.getDigest();
+    }
+
+    private static FAState createFA(int firstStateNumber, String label) {
+        FAState start = new FAState(firstStateNumber);
+        FAState end = new FAState(firstStateNumber+1);
+        end.acceptedState = true;
+        start.addTransition(new FATransition(label, end));
+        return start;
+    }
+
+    private static FAState createRuleFA(int startStateNumber, int stopStateNumber, int firstBodyStateNumber, String label) {
+        FAState start = new FAState(startStateNumber);
+        FAState body = new FAState(firstBodyStateNumber);
+        FAState end = new FAState(firstBodyStateNumber+2);
+        FAState stop = new FAState(stopStateNumber);
+        stop.acceptedState = true;
+        List<Integer> skippedStates = new ArrayList<Integer>();
+        skippedStates.add(firstBodyStateNumber+1);
+        start.addTransition(new FATransition(body));
+        body.addTransition(new FATransition(label, end));
+        end.addTransition(new FATransition(stop, skippedStates));
+        return start;
+    }
+
+    private static GGraph createGraph(String name) {
+        GNode node = new GNode();
+        node.setState(createFA(1, "x"));
+        GGraph graph = new GGraph();
+        graph.setName(name);
+        graph.nodes = new ArrayList<GNode>();
+        graph.nodes.add(node);
+        return graph;
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.grammar.engine.GrammarHierarchyIndex;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestGrammarHierarchyIndex extends TestCase {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestGrammarHierarchyIndex.class));
+    }
+
+    public void testDeclarations() {
+        MockEngine leaf = new MockEngine("a", "ID");
+        MockEngine middle = new MockEngine("a", "b");
+        MockEngine root = new MockEngine("r", "b");
+        root.imports.add(middle.engine);
+        root.imports.add(leaf.engine);
+        middle.imports.add(leaf.engine);
+
+        GrammarHierarchyIndex index = new GrammarHierarchyIndex(root.engine);
+        // Each grammar is indexed once even if it is imported twice
+        assertEquals(Arrays.asList(root.engine, middle.engine, leaf.engine), index.getEngines());
+
+        assertTrue(index.isDeclaredBy("a", leaf.engine));
+        assertFalse(index.isDeclaredBy("a", root.engine));
+        assertTrue(index.isDeclaredByOther("a", leaf.engine));
+        assertTrue(index.isDeclaredByOther("b", root.engine));
+        assertFalse(index.isDeclaredByOther("r", root.engine));
+        assertFalse(index.isDeclaredByOther("ID", leaf.engine));
+        assertTrue(index.isDeclaredByOther("ID", root.engine));
+        assertFalse(index.isDeclaredByOther("unknown", root.engine));
+    }
+
+    public void testUpdate() {
+        MockEngine leaf = new MockEngine("a", "b");
+        MockEngine root = new MockEngine("r", "a");
+        root.imports.add(leaf.engine);
+        GrammarHierarchyIndex index = new GrammarHierarchyIndex(root.engine);
+
+        leaf.setDecls("a", "c");
+        assertEquals(new HashSet<String>(Arrays.asList("b", "c")), index.update(leaf.engine));
+        assertFalse(index.isDeclaredBy("b", leaf.engine));
+        assertTrue(index.isDeclaredBy("c", leaf.engine));
+        assertTrue(index.isDeclaredByOther("a", root.engine));
+
+        leaf.setDecls("c");
+        assertEquals(new HashSet<String>(Arrays.asList("a")), index.update(leaf.engine));
+        assertFalse(index.isDeclaredByOther("a", root.engine));
+        assertTrue(index.update(leaf.engine).isEmpty());
+
+        // A grammar outside of the hierarchy is ignored
+        assertTrue(index.update(new MockEngine("a").engine).isEmpty());
+        assertFalse(index.isDeclaredByOther("a", root.engine));
+    }
+
+    /** A grammar engine that only knows its declarations and its imports */
+    private static class MockEngine implements InvocationHandler {
+
+        public final GrammarEngine engine;
+        public final List<GrammarEngine> imports = new ArrayList<GrammarEngine>();
+        private List<ATEToken> decls;
+
+        public MockEngine(String... names) {
+            engine = (GrammarEngine) Proxy.newProxyInstance(GrammarEngine.class.getClassLoader(),
+                    new Class[] { GrammarEngine.class }, this);
+            setDecls(names);
+        }
+
+        public void setDecls(String... names) {
+            decls = new ArrayList<ATEToken>();
+            for(String name : names) {
+                decls.add(new ATEToken(0, 0, name.length(), 0, 0, 0, 0, name));
+            }
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if(name.equals("getDecls")) return decls;
+            if(name.equals("getImportedEngines")) return imports;
+            if(name.equals("hashCode")) return System.identityHashCode(proxy);
+            if(name.equals("equals")) return proxy == args[0];
+            if(name.equals("toString")) return decls.toString();
+            throw new UnsupportedOperationException(name);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.engine.GrammarSymbolTable;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestGrammarSymbolTable extends TestCase {
+
+    private static final String GRAMMAR = "grammar g;\n" +
+            "tokens { PLUS='+'; }\n" +
+            "a : b ID PLUS EOF ;\n" +
+            "b : 'b' ;\n" +
+            "a : 'other' ;\n" +
+            "ID : 'id' ;\n";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestGrammarSymbolTable.class));
+    }
+
+    public void testLookup() {
+        GrammarSyntaxParser parser = parse(GRAMMAR);
+        GrammarSymbolTable symbols = createTable(parser);
+
+        // The first declaration wins, like a scan of the rules
+        assertSame(parser.rules.get(0), symbols.getRule("a"));
+        assertSame(parser.rules.get(1), symbols.getRule("b"));
+        assertNull(symbols.getRule("c"));
+        assertEquals(parser.rules.get(0).start.start, symbols.getDeclaration("a").start);
+        assertNull(symbols.getDeclaration("c"));
+
+        assertTrue(symbols.isDefined("b"));
+        assertTrue(symbols.isDefined("ID"));
+        assertTrue(symbols.isDefined("PLUS"));
+        assertTrue(symbols.isDefined("EOF"));
+        assertFalse(symbols.isDefined("MINUS"));
+
+        symbols.setTokenVocabNames(Collections.singleton("MINUS"));
+        assertTrue(symbols.isDefined("MINUS"));
+    }
+
+    public void testUpdate() {
+        GrammarSymbolTable symbols = createTable(parse(GRAMMAR));
+        GrammarSyntaxParser parser = parse(GRAMMAR.replace("b : 'b'", "c : 'b'"));
+        symbols.setRules(parser.rules);
+        symbols.setDecls(parser.decls);
+        symbols.setBlocks(parser.blocks);
+
+        assertNull(symbols.getRule("b"));
+        assertSame(parser.rules.get(1), symbols.getRule("c"));
+        assertFalse(symbols.isDefined("b"));
+
+        symbols.clear();
+        assertNull(symbols.getRule("c"));
+        assertFalse(symbols.isDefined("ID"));
+    }
+
+    private static GrammarSymbolTable createTable(GrammarSyntaxParser parser) {
+        GrammarSymbolTable symbols = new GrammarSymbolTable();
+        symbols.setRules(parser.rules);
+        symbols.setDecls(parser.decls);
+        symbols.setBlocks(parser.blocks);
+        return symbols;
+    }
+
+    private static GrammarSyntaxParser parse(String text) {
+        ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(text);
+        GrammarSyntaxParser parser = new GrammarSyntaxParser();
+        parser.parse(new ArrayList<ATEToken>(lexer.getTokens()));
+        return parser;
+    }
+
+}
@@ -0,0 +1,139 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
+import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.util.Random;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestIncrementalLexer extends AbstractTest {
+
+    private static final String INSERTED_CHARS = "ab_ \n\t'\"/\\*{}()@-><:;\r";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestIncrementalLexer.class));
+    }
+
+    public void testInsertInID() throws Exception {
+        assertIncremental("a : b ;", 5, "c");
+    }
+
+    public void testOpenComment() throws Exception {
+        assertIncremental("a : b ;\nc : d ;\n", 3, "/*");
+    }
+
+    public void testCloseComment() throws Exception {
+        assertIncremental("a : /*b ;\nc : d ;\n", 15, "*/");
+    }
+
+    public void testRemoveQuote() throws Exception {
+        assertIncremental("a : 'b' ;\nc : 'd' ;\n", 4, -1);
+    }
+
+    public void testEscapedQuote() throws Exception {
+        assertIncremental("a : 'b' ;\nc : 'd' ;\n", 4, "\\");
+    }
+
+    public void testNewLine() throws Exception {
+        assertIncremental("a : b ;\nc : d ;\n", 5, "\n\n");
+    }
+
+    public void testRandomEdits() throws Exception {
+        String text = getTextFromFile(TestConstants.MANTRA);
+        ATESyntaxLexer incremental = new GrammarSyntaxLexer();
+        incremental.tokenize(text);
+
+        Random random = new Random(0);
+        for(int i=0; i<500; i++) {
+            int offset = random.nextInt(text.length()+1);
+            String newText;
+            int length;
+            if(random.nextBoolean() && offset < text.length()) {
+                length = -(1 + random.nextInt(Math.min(5, text.length()-offset)));
+                newText = text.substring(0, offset)+text.substring(offset-length);
+            } else {
+                StringBuilder inserted = new StringBuilder();
+                for(int c=0; c<1+random.nextInt(4); c++) {
+                    inserted.append(INSERTED_CHARS.charAt(random.nextInt(INSERTED_CHARS.length())));
+                }
+                length = inserted.length();
+                newText = text.substring(0, offset)+inserted+text.substring(offset);
+            }
+
+            incremental.tokenize(newText, offset, length);
+            assertSameTokens("edit "+i+" at "+offset, newText, incremental);
+            text = newText;
+        }
+    }
+
+    private void assertIncremental(String text, int offset, String inserted) {
+        assertIncremental(text, text.substring(0, offset)+inserted+text.substring(offset), offset, inserted.length());
+    }
+
+    private void assertIncremental(String text, int offset, int length) {
+        assertIncremental(text, text.substring(0, offset)+text.substring(offset-length), offset, length);
+    }
+
+    private void assertIncremental(String text, String newText, int offset, int length) {
+        ATESyntaxLexer incremental = new GrammarSyntaxLexer();
+        incremental.tokenize(text);
+        assertTrue("incremental", incremental.tokenize(newText, offset, length));
+        assertSameTokens(newText, newText, incremental);
+    }
+
+    private void assertSameTokens(String message, String text, ATESyntaxLexer incremental) {
+        ATESyntaxLexer full = new GrammarSyntaxLexer();
+        full.tokenize(text);
+        assertEquals(message, describe(full), describe(incremental));
+    }
+
+    private static String describe(ATESyntaxLexer lexer) {
+        StringBuilder sb = new StringBuilder();
+        for(ATEToken t : lexer.getTokens()) {
+            sb.append(t.index).append(' ').append(t).append(" lines=");
+            sb.append(t.startLineNumber).append(',').append(t.endLineNumber).append(',');
+            sb.append(t.startLineIndex).append(',').append(t.endLineIndex).append('\n');
+        }
+        for(ATELine line : lexer.getLines()) {
+            sb.append(line.position).append(' ');
+        }
+        sb.append("count=").append(lexer.getLineNumber());
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.element.*;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestIncrementalParser extends AbstractTest {
+
+    private static final String INSERTED_CHARS = "ab_ \n'\"/*{}()[]@-><:;|$=,\\X";
+
+    private static final String GRAMMAR = "grammar g;\n" +
+            "a : x=b {$x.text;} ;\n" +
+            "b : C | c ;\n" +
+            "c : 'c' ;\n" +
+            "C : 'C' ;\n";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestIncrementalParser.class));
+    }
+
+    public void testKeepRulesAfterEdit() throws Exception {
+        Parsing parsing = new Parsing(GRAMMAR);
+        ElementRule lastRule = parsing.parser.rules.get(3);
+
+        int offset = GRAMMAR.indexOf("C |");
+        parsing.edit(GRAMMAR.substring(0, offset)+"D | "+GRAMMAR.substring(offset), offset, 4);
+
+        assertSame(lastRule, parsing.parser.rules.get(3));
+        assertSameParsing(parsing);
+    }
+
+    public void testRenameRule() throws Exception {
+        Parsing parsing = new Parsing(GRAMMAR);
+        int offset = GRAMMAR.indexOf("c : ");
+        parsing.edit(GRAMMAR.substring(0, offset)+"d"+GRAMMAR.substring(offset+1), offset, 1);
+        assertSameParsing(parsing);
+    }
+
+    public void testAddRule() throws Exception {
+        Parsing parsing = new Parsing(GRAMMAR);
+        int offset = GRAMMAR.indexOf("c : ");
+        parsing.edit(GRAMMAR.substring(0, offset)+"d : c ;\n"+GRAMMAR.substring(offset), offset, 8);
+        assertSameParsing(parsing);
+    }
+
+    public void testUnbalancedBlock() throws Exception {
+        Parsing parsing = new Parsing(GRAMMAR);
+        int offset = GRAMMAR.indexOf("c ;");
+        parsing.edit(GRAMMAR.substring(0, offset)+"["+GRAMMAR.substring(offset), offset, 1);
+        assertSameParsing(parsing);
+        parsing.edit(GRAMMAR, offset, -1);
+        assertSameParsing(parsing);
+    }
+
+    public void testRandomEdits() throws Exception {
+        String text = getTextFromFile(TestConstants.MANTRA);
+        Parsing parsing = new Parsing(text);
+
+        Random random = new Random(0);
+        for(int i=0; i<300; i++) {
+            int offset = random.nextInt(text.length()+1);
+            String newText;
+            int length;
+            if(random.nextBoolean() && offset < text.length()) {
+                length = -(1 + random.nextInt(Math.min(5, text.length()-offset)));
+                newText = text.substring(0, offset)+text.substring(offset-length);
+            } else {
+                StringBuilder inserted = new StringBuilder();
+                for(int c=0; c<1+random.nextInt(3); c++) {
+                    inserted.append(INSERTED_CHARS.charAt(random.nextInt(INSERTED_CHARS.length())));
+                }
+                length = inserted.length();
+                newText = text.substring(0, offset)+inserted+text.substring(offset);
+            }
+
+            parsing.edit(newText, offset, length);
+            assertSameParsing(parsing);
+            text = newText;
+        }
+    }
+
+    private void assertSameParsing(Parsing incremental) {
+        Parsing full = new Parsing(incremental.text);
+        assertEquals(describe(full), describe(incremental));
+    }
+
+    private static String describe(Parsing parsing) {
+        GrammarSyntaxParser parser = parsing.parser;
+        StringBuilder sb = new StringBuilder();
+        for(ATEToken t : parsing.lexer.getTokens()) {
+            sb.append(t.index).append(' ').append(t).append(' ').append(t.type).append(' ').append(t.scope == null ? null : t.scope.getClass().getSimpleName()).append('\n');
+        }
+        sb.append(parser.getName() == null ? null : parser.getName().getName()).append('\n');
+        for(ElementRule rule : parser.rules) {
+            sb.append(rule.name).append(' ').append(rule.start.index).append(' ').append(rule.end.index).append('\n');
+            describeReferences(sb, rule.getReferences());
+            describeBlocks(sb, rule.getBlocks());
+            describeActions(sb, rule.getActions());
+        }
+        for(ElementGroup group : parser.groups) {
+            sb.append(group).append('\n');
+        }
+        describeReferences(sb, parser.references);
+        describeBlocks(sb, parser.blocks);
+        describeActions(sb, parser.actions);
+        for(ElementImport i : parser.imports) {
+            sb.append(i.token.index).append(' ');
+        }
+        for(ATEToken decl : parser.decls) {
+            sb.append(decl.index).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static void describeReferences(StringBuilder sb, List<ElementReference> references) {
+        if(references == null) return;
+        for(ElementReference reference : references) {
+            sb.append("ref ").append(reference.token.index).append(' ').append(reference.rule == null ? null : reference.rule.name).append('\n');
+        }
+    }
+
+    private static void describeBlocks(StringBuilder sb, List<ElementBlock> blocks) {
+        if(blocks == null) return;
+        for(ElementBlock block : blocks) {
+            sb.append("block ").append(block.name).append(' ').append(block.start.index).append('\n');
+        }
+    }
+
+    private static void describeActions(StringBuilder sb, List<ElementAction> actions) {
+        if(actions == null) return;
+        for(ElementAction action : actions) {
+            sb.append("action ").append(action.actionNum).append(' ').append(action.start.index).append(' ').append(action.rule == null ? null : action.rule.name).append('\n');
+        }
+    }
+
+    private static class Parsing {
+
+        public final ATESyntaxLexer lexer = new GrammarSyntaxLexer();
+        public final GrammarSyntaxParser parser = new GrammarSyntaxParser();
+        public String text;
+
+        public Parsing(String text) {
+            this.text = text;
+            lexer.tokenize(text);
+            parser.parse(new ArrayList<ATEToken>(lexer.getTokens()));
+        }
+
+        public void edit(String newText, int offset, int length) {
+            text = newText;
+            boolean incremental = lexer.tokenize(newText, offset, length);
+            List<ATEToken> tokens = new ArrayList<ATEToken>(lexer.getTokens());
+            if(incremental) {
+                parser.parse(tokens, lexer.getDamageStartIndex(), lexer.getDamageEndIndex());
+            } else {
+                parser.parse(tokens);
+            }
+        }
+    }
+
+}
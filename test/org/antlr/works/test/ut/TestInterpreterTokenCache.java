@@ -0,0 +1,100 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.TokenSource;
+import org.antlr.works.interpreter.InterpreterTokenCache;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestInterpreterTokenCache extends TestCase {
+
+    private static final int ID = 4;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestInterpreterTokenCache.class));
+    }
+
+    public void testTokensAreReplayedWithTheirChannel() {
+        InterpreterTokenCache cache = new InterpreterTokenCache();
+        String key = InterpreterTokenCache.createKey("grammar", "a b");
+        Lexer lexer = new Lexer(2);
+
+        TokenSource source = cache.record(key, lexer);
+        assertNull(cache.get(key));
+        Token first = source.nextToken();
+        first.setChannel(Token.HIDDEN_CHANNEL);
+        source.nextToken();
+        // The tokens are only cached when the whole input has been lexed
+        assertNull(cache.get(key));
+        assertEquals(Token.EOF, source.nextToken().getType());
+
+        TokenSource cached = cache.get(key);
+        assertNotNull(cached);
+        Token replayed = cached.nextToken();
+        assertSame(first, replayed);
+        assertEquals(Token.DEFAULT_CHANNEL, replayed.getChannel());
+        assertEquals(ID, cached.nextToken().getType());
+        assertEquals(Token.EOF, cached.nextToken().getType());
+        assertEquals(Token.EOF, cached.nextToken().getType());
+        assertEquals(3, lexer.count);
+
+        assertNull(cache.get(InterpreterTokenCache.createKey("grammar", "a c")));
+        assertNull(cache.get(InterpreterTokenCache.createKey("grammar2", "a b")));
+    }
+
+    public void testKey() {
+        assertEquals(InterpreterTokenCache.createKey("g", "input"), InterpreterTokenCache.createKey("g", "input"));
+        assertFalse(InterpreterTokenCache.createKey("g", "input").equals(InterpreterTokenCache.createKey("gi", "nput")));
+    }
+
+    private static class Lexer implements TokenSource {
+
+        private final int length;
+        private int count;
+
+        public Lexer(int length) {
+            this.length = length;
+        }
+
+        public Token nextToken() {
+            return new CommonToken(count++ < length ? ID : Token.EOF, "t"+count);
+        }
+
+        public String getSourceName() {
+            return "test";
+        }
+    }
+
+}
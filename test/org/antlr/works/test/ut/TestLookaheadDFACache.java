@@ -0,0 +1,171 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.analysis.NFAConfiguration;
+import org.antlr.analysis.NFAState;
+import org.antlr.tool.GrammarNonDeterminismMessage;
+import org.antlr.tool.Message;
+import org.antlr.v4.Tool;
+import org.antlr.v4.tool.ErrorManager;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.works.grammar.antlr.LookaheadDFACache;
+import org.antlr.works.utils.ErrorListener;
+
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestLookaheadDFACache extends TestCase {
+
+    /** Each parser rule has an ambiguous decision which is not LL(1) */
+    private static final String GRAMMAR = "grammar T;\n" +
+            "a : B C | B C ;\n" +
+            "b : C D | C D ;\n" +
+            "c : D B | D B ;\n" +
+            "B : 'b' ;\n" +
+            "C : 'c' ;\n" +
+            "D : 'd' ;\n";
+
+    /** Rule a has more NFA states: the states of the rules b and c are renumbered */
+    private static final String EDITED_GRAMMAR = "grammar T;\n" +
+            "a : B C B C | B C B C ;\n" +
+            "b : C D | C D ;\n" +
+            "c : D B | D B ;\n" +
+            "B : 'b' ;\n" +
+            "C : 'c' ;\n" +
+            "D : 'd' ;\n";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestLookaheadDFACache.class));
+    }
+
+    public void testMessagesReachEngineListener() throws Exception {
+        assertMessagesReported(false);
+    }
+
+    public void testParallelMessagesReachEngineListener() throws Exception {
+        assertMessagesReported(true);
+    }
+
+    private void assertMessagesReported(boolean parallel) throws Exception {
+        LookaheadDFACache cache = new LookaheadDFACache();
+        cache.setParallel(parallel);
+
+        // The listener of the engine, registered the way the engine does
+        ErrorListener el = new ErrorListener();
+        el.setPrintToConsole(false);
+        ErrorManager.setErrorListener(el);
+        try {
+            cache.createLookaheadDFAs(createGrammar(), el, null);
+            int count = el.warnings.size()+el.errors.size();
+            assertTrue(el.warnings.size() >= 3);
+            el.clear();
+
+            // The messages of the cached DFAs are reported again
+            cache.createLookaheadDFAs(createGrammar(), el, null);
+            assertEquals(count, el.warnings.size()+el.errors.size());
+        } finally {
+            ErrorManager.removeErrorListener();
+        }
+    }
+
+    public void testEditBeforeCachedDecision() throws Exception {
+        ErrorListener el = new ErrorListener();
+        el.setPrintToConsole(false);
+        ErrorManager.setErrorListener(el);
+        try {
+            LookaheadDFACache cache = new LookaheadDFACache();
+            cache.createLookaheadDFAs(createGrammar(GRAMMAR), el, null);
+            el.clear();
+
+            cache.createLookaheadDFAs(createGrammar(EDITED_GRAMMAR), el, null);
+            List<String> paths = getErrorPaths(el);
+            el.clear();
+
+            // The error paths must be the ones of a grammar analyzed without cache
+            new LookaheadDFACache().createLookaheadDFAs(createGrammar(EDITED_GRAMMAR), el, null);
+            List<String> expectedPaths = getErrorPaths(el);
+            assertEquals(3, expectedPaths.size());
+            assertEquals(expectedPaths, paths);
+        } finally {
+            ErrorManager.removeErrorListener();
+        }
+    }
+
+    /**
+     * Returns the NFA states of the problem state and of the path of each alternative of the
+     * non-determinisms, computed the way the engine does it for the syntax diagram.
+     */
+    private static List<String> getErrorPaths(ErrorListener el) {
+        List<String> paths = new ArrayList<String>();
+        for (Message warning : el.warnings) {
+            if (!(warning instanceof GrammarNonDeterminismMessage))
+                continue;
+            GrammarNonDeterminismMessage message = (GrammarNonDeterminismMessage) warning;
+            NFAState nfaStart = message.probe.dfa.getNFADecisionStartState();
+            StringBuilder sb = new StringBuilder(nfaStart.enclosingRule.name).append(':');
+            for (Object o : message.problemState.nfaConfigurations) {
+                sb.append(' ').append(((NFAConfiguration) o).state);
+            }
+            List labels = message.probe.getSampleNonDeterministicInputSequence(message.problemState);
+            int firstAlt = 0;
+            for (Object alt : message.probe.getNonDeterministicAltsForState(message.problemState)) {
+                int tracePathAlt = nfaStart.translateDisplayAltToWalkAlt((Integer) alt);
+                if (firstAlt == 0)
+                    firstAlt = tracePathAlt;
+                sb.append(" |");
+                for (Object state : message.probe.getNFAPathStatesForAlt(firstAlt, tracePathAlt, labels)) {
+                    sb.append(' ').append(((NFAState) state).stateNumber);
+                }
+            }
+            paths.add(sb.toString());
+        }
+        return paths;
+    }
+
+    private static Grammar createGrammar() throws Exception {
+        return createGrammar(GRAMMAR);
+    }
+
+    private static Grammar createGrammar(String text) throws Exception {
+        Grammar g = new Grammar();
+        g.setTool(new Tool());
+        g.setFileName("T.g");
+        g.setGrammarContent(text);
+        g.composite.createNFAs();
+        ErrorManager.resetErrorState();
+        return g;
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.RefactorEdits;
+
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestRefactorEdits extends TestCase {
+
+    private static final String TEXT = "grammar g;\na : B c B ;\nc : B ;\nB : 'b' ;\n";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestRefactorEdits.class));
+    }
+
+    public void testApplyAndRevert() throws Exception {
+        // Rename B to TOKEN from the end of the text, as the refactor engine does
+        StringBuilder sb = new StringBuilder(TEXT);
+        RefactorEdits edits = new RefactorEdits();
+        for(int index = sb.lastIndexOf("B"); index >= 0; index = sb.lastIndexOf("B", index-1)) {
+            edits.add(index, "B", "TOKEN");
+            sb.replace(index, index+1, "TOKEN");
+        }
+        // Then a deletion and an insertion at offsets of the modified text
+        int index = sb.indexOf("c TOKEN");
+        edits.add(index, "c ", "");
+        sb.delete(index, index+2);
+        edits.add(sb.length(), "", "d : c ;\n");
+        sb.append("d : c ;\n");
+        edits.add(0, "", "");
+
+        assertEquals(6, edits.size());
+
+        Document doc = createDocument(TEXT);
+        edits.apply(doc);
+        assertEquals(sb.toString(), getText(doc));
+
+        edits.revert(doc);
+        assertEquals(TEXT, getText(doc));
+
+        edits.apply(doc);
+        assertEquals(sb.toString(), getText(doc));
+    }
+
+    public void testEmpty() throws Exception {
+        RefactorEdits edits = new RefactorEdits();
+        assertTrue(edits.isEmpty());
+        assertEquals(0, edits.size());
+
+        Document doc = createDocument(TEXT);
+        edits.apply(doc);
+        edits.revert(doc);
+        assertEquals(TEXT, getText(doc));
+    }
+
+    private static Document createDocument(String text) throws Exception {
+        Document doc = new PlainDocument();
+        doc.insertString(0, text, null);
+        return doc;
+    }
+
+    private static String getText(Document doc) throws Exception {
+        return doc.getText(0, doc.getLength());
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.v4.Tool;
+import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.grammar.engine.GrammarEngineImpl;
+import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
+import org.antlr.works.visualization.SDBatchExportDelegate;
+import org.antlr.works.visualization.SDBatchExporter;
+import org.antlr.works.visualization.SDGenerator;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestSDBatchExporter extends TestCase {
+
+    private static final String GRAMMAR = "grammar T;\n"
+            + "a : B c d ;\n"
+            + "c : B | C ;\n"
+            + "d : c+ e? ;\n"
+            + "e : C (B | C)* ;\n"
+            + "B : 'b' ;\n"
+            + "C : 'c' ;\n";
+
+    private static final List<String> RULES = Arrays.asList("a", "c", "d", "e", "B", "C");
+
+    private File dir;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestSDBatchExporter.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("export", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XJUtils.deleteDirectory(dir.getAbsolutePath());
+    }
+
+    public void testExportWithSeveralWorkers() throws Exception {
+        SDBatchExporter exporter = new SDBatchExporter(createEngine());
+        exporter.setThreads(3);
+
+        final AtomicInteger progress = new AtomicInteger();
+        List<String> failures = exporter.export(RULES, SDGenerator.FORMAT_EPS, dir.getAbsolutePath(),
+                new SDBatchExportDelegate() {
+                    public void batchExportProgress(String rule, int exported, int total) {
+                        assertEquals(RULES.size(), total);
+                        progress.incrementAndGet();
+                    }
+                });
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(RULES.size(), progress.get());
+        for(String rule : RULES) {
+            File file = new File(dir, rule+"."+SDGenerator.FORMAT_EPS);
+            assertTrue(file.getName(), file.length() > 0);
+        }
+    }
+
+    public void testCancelledExportWritesNothing() throws Exception {
+        SDBatchExporter exporter = new SDBatchExporter(createEngine());
+        exporter.setThreads(2);
+        exporter.cancel();
+
+        List<String> failures = exporter.export(RULES, SDGenerator.FORMAT_EPS, dir.getAbsolutePath(), null);
+
+        assertTrue(failures.isEmpty());
+        String[] files = dir.list();
+        assertEquals(0, files == null ? 0 : files.length);
+    }
+
+    private GrammarEngine createEngine() throws Exception {
+        GrammarEngine engine = new GrammarEngineImpl(new MockGrammarEngineDelegate() {
+            @Override
+            public String getGrammarText() {
+                return GRAMMAR;
+            }
+
+            @Override
+            public Tool getANTLRTool() {
+                return new Tool();
+            }
+        });
+        GrammarSyntaxEngine syntaxEngine = engine.getSyntaxEngine();
+        syntaxEngine.setDelegate(new ATESyntaxEngineDelegate() {
+            public String getText() {
+                return GRAMMAR;
+            }
+
+            public void ateEngineBeforeParsing() {
+                // ignored
+            }
+
+            public void ateEngineAfterParsing() {
+                // ignored
+            }
+        });
+        syntaxEngine.processSyntax();
+        engine.parserCompleted();
+        return engine;
+    }
+}
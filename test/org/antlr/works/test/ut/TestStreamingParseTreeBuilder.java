@@ -0,0 +1,153 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.debug.DebugEventHub;
+import org.antlr.runtime.debug.DebugEventListener;
+import org.antlr.runtime.debug.ParseTreeBuilder;
+import org.antlr.runtime.tree.ParseTree;
+import org.antlr.runtime.tree.Tree;
+import org.antlr.works.interpreter.EditorInterpreterTreeModel;
+import org.antlr.works.interpreter.EditorInterpreterTreeModel.InterpreterTreeNode;
+import org.antlr.works.interpreter.InterpreterTab;
+import org.antlr.works.interpreter.StreamingParseTreeBuilder;
+import org.antlr.works.interpreter.StreamingParseTreeBuilderDelegate;
+
+import javax.swing.tree.TreeNode;
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestStreamingParseTreeBuilder extends TestCase implements StreamingParseTreeBuilderDelegate {
+
+    private EditorInterpreterTreeModel model;
+    private StreamingParseTreeBuilder builder;
+    /** Builds the parse tree the nodes of the builder are compared to */
+    private ParseTreeBuilder reference;
+    private DebugEventListener events;
+    private final List<List<InterpreterTreeNode[]>> deliveries = new ArrayList<List<InterpreterTreeNode[]>>();
+    private boolean cancelled;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestStreamingParseTreeBuilder.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        model = new EditorInterpreterTreeModel();
+        builder = new StreamingParseTreeBuilder("T", model, this);
+        model.setRoot(builder.getRoot());
+        reference = new ParseTreeBuilder("T");
+        events = new DebugEventHub(builder, reference);
+    }
+
+    public boolean parseTreeBuilderIsCancelled() {
+        return cancelled;
+    }
+
+    public void parseTreeBuilderDidAddNodes(List<InterpreterTreeNode[]> nodes, int tokenCount, long tokensPerSecond) {
+        deliveries.add(nodes);
+    }
+
+    public void testOnlyNewNodesAreDelivered() throws Exception {
+        events.enterRule("T.g", "a");
+        events.consumeToken(token("x"));
+        events.enterRule("T.g", "b");
+        events.consumeToken(token("y"));
+        builder.flush();
+
+        assertEquals(1, deliveries.size());
+        // a, x, b and y
+        assertEquals(4, deliveries.get(0).size());
+        model.addNodes(deliveries.get(0));
+        assertSameTree(reference.getTree(), builder.getRoot());
+
+        events.consumeToken(token("z"));
+        events.exitRule("T.g", "b");
+        events.enterRule("T.g", "c");
+        events.exitRule("T.g", "c");
+        events.exitRule("T.g", "a");
+        builder.flush();
+
+        assertEquals(2, deliveries.size());
+        // z, c and the epsilon node of c
+        assertEquals(3, deliveries.get(1).size());
+        model.addNodes(deliveries.get(1));
+        assertSameTree(reference.getTree(), builder.getRoot());
+        assertEquals(7, model.getGraphModel().getNewNodesCount());
+    }
+
+    public void testBacktrackingAddsNoNode() throws Exception {
+        events.enterRule("T.g", "a");
+        events.enterDecision(1, true);
+        events.enterRule("T.g", "b");
+        events.consumeToken(token("x"));
+        events.exitRule("T.g", "b");
+        events.exitDecision(1);
+        events.consumeToken(token("y"));
+        events.exitRule("T.g", "a");
+        builder.flush();
+
+        model.addNodes(deliveries.get(0));
+        assertSameTree(reference.getTree(), builder.getRoot());
+        assertEquals(1, builder.getRoot().getChildCount());
+        assertEquals(1, builder.getRoot().getChildAt(0).getChildCount());
+    }
+
+    public void testCancel() throws Exception {
+        builder.enterRule("T.g", "a");
+        cancelled = true;
+        try {
+            builder.consumeToken(token("x"));
+            fail();
+        } catch (InterpreterTab.InterpreterCancelledException e) {
+            // expected
+        }
+        assertEquals(1, builder.getTokenCount());
+    }
+
+    private static CommonToken token(String text) {
+        CommonToken token = new CommonToken(1, text);
+        token.setLine(1);
+        return token;
+    }
+
+    private static void assertSameTree(Tree tree, TreeNode node) {
+        assertEquals(((ParseTree) tree).payload, ((InterpreterTreeNode) node).getPayload());
+        assertEquals(tree.getChildCount(), node.getChildCount());
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            assertSameTree(tree.getChild(i), node.getChildAt(i));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.engine.TokenVocabCache;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestTokenVocabCache extends TestCase {
+
+    private File file;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestTokenVocabCache.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("vocab", ".tokens");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testReadTokenNames() throws Exception {
+        Set<String> names = TokenVocabCache.readTokenNames(new StringReader(
+                "ID=4\n'+'=5\nT__12=12\n'='=13\n'a=b'=14\nWS = 6\r\nNAME\n\n"));
+        assertEquals(new HashSet<String>(Arrays.asList("ID", "T__12", "WS", "NAME")), names);
+    }
+
+    public void testCache() throws Exception {
+        TokenVocabCache cache = new TokenVocabCache();
+        XJUtils.writeStringToFile("ID=4\n", file.getPath());
+        Set<String> names = cache.getTokenNames(file.getPath());
+        assertEquals(new HashSet<String>(Arrays.asList("ID")), names);
+        assertSame(names, cache.getTokenNames(file.getPath()));
+
+        // The file is invalidated by the file watcher, or read again because its size has changed
+        XJUtils.writeStringToFile("ID=4\nINT=5\n", file.getPath());
+        Set<String> expected = new HashSet<String>(Arrays.asList("ID", "INT"));
+        long timeout = System.currentTimeMillis()+5000;
+        while(!expected.equals(names = cache.getTokenNames(file.getPath())) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, names);
+
+        cache.invalidate(file.getPath());
+        assertNotSame(names, cache.getTokenNames(file.getPath()));
+    }
+
+}
@@ -0,0 +1,149 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.xjlib.appkit.document.XJFileMonitor;
+import org.antlr.xjlib.appkit.document.XJFileWatcher;
+import org.antlr.xjlib.appkit.document.XJFileWatcherListener;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestXJFileWatcher extends TestCase {
+
+    private static final long TIMEOUT = 5000;
+
+    private File dir;
+    private File file;
+    private XJFileWatcher watcher;
+    private final List<String> changes = Collections.synchronizedList(new ArrayList<String>());
+    private final XJFileWatcherListener listener = new XJFileWatcherListener() {
+        public void fileChanged(String file) {
+            changes.add(file);
+        }
+    };
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestXJFileWatcher.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("watcher", "");
+        dir.delete();
+        dir.mkdirs();
+        file = new File(dir, "a.g");
+        XJUtils.writeStringToFile("grammar a;", file.getPath());
+        watcher = new XJFileWatcher();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XJUtils.deleteDirectory(dir.getAbsolutePath());
+    }
+
+    public void testDebouncedChanges() throws Exception {
+        if(!watcher.isAvailable()) return;
+
+        assertTrue(watcher.addListener(file.getPath(), listener));
+        for(int i=0; i<5; i++) {
+            XJUtils.writeStringToFile("grammar a; // "+i, file.getPath());
+        }
+        // Another file of the same directory is not reported
+        XJUtils.writeStringToFile("grammar b;", new File(dir, "b.g").getPath());
+
+        waitForChanges(1);
+        Thread.sleep(XJFileWatcher.DEBOUNCE_DELAY*2);
+        assertEquals(Collections.singletonList(file.getAbsolutePath()), changes);
+
+        changes.clear();
+        watcher.removeListener(file.getPath(), listener);
+        XJUtils.writeStringToFile("grammar a; // removed", file.getPath());
+        Thread.sleep(XJFileWatcher.DEBOUNCE_DELAY*3);
+        assertTrue(changes.isEmpty());
+    }
+
+    public void testFileMonitor() throws Exception {
+        XJFileMonitor monitor = new XJFileMonitor();
+        monitor.setListener(listener);
+        monitor.synchronizeLastModifiedDate(file.getPath());
+        assertFalse(monitor.isModifiedOnDisk(file.getPath()));
+
+        // A write followed by a synchronization is not a modification
+        XJUtils.writeStringToFile("grammar a; // saved", file.getPath());
+        monitor.synchronizeLastModifiedDate(file.getPath());
+        Thread.sleep(XJFileWatcher.DEBOUNCE_DELAY*3);
+        assertFalse(monitor.isModifiedOnDisk(file.getPath()));
+        assertTrue(changes.isEmpty());
+
+        XJUtils.writeStringToFile("grammar a; // modified outside", file.getPath());
+        long timeout = System.currentTimeMillis()+TIMEOUT;
+        while(!monitor.isModifiedOnDisk(file.getPath()) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertTrue(monitor.isModifiedOnDisk(file.getPath()));
+        monitor.close();
+    }
+
+    public void testFileMonitorFindsMissedChange() throws Exception {
+        XJFileMonitor monitor = new XJFileMonitor();
+        monitor.setListener(listener);
+        monitor.synchronizeLastModifiedDate(file.getPath());
+        // The watcher does not report the changes anymore, as for a change made by another host
+        XJFileWatcher.shared().removeListener(file.getPath(), monitor);
+
+        XJUtils.writeStringToFile("grammar a; // modified by another host", file.getPath());
+        file.setLastModified(file.lastModified()+10000);
+        long timeout = System.currentTimeMillis()+TIMEOUT;
+        while(!monitor.isModifiedOnDisk(file.getPath()) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertTrue(monitor.isModifiedOnDisk(file.getPath()));
+        // The change is reported to the listener by the check made in the background
+        waitForChanges(1);
+        assertEquals(1, changes.size());
+        monitor.close();
+    }
+
+    private void waitForChanges(int count) throws InterruptedException {
+        long timeout = System.currentTimeMillis()+TIMEOUT;
+        while(changes.size() < count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+    }
+
+}